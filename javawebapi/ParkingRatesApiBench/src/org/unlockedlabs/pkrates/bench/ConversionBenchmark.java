@@ -0,0 +1,110 @@
+/**
+ *
+ */
+package org.unlockedlabs.pkrates.bench;
+
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.ws.rs.ext.ParamConverter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.unlockedlabs.pkrates.ws.api.core.IsoDateTimeParser;
+import org.unlockedlabs.pkrates.ws.api.core.ZonedDateTimeConverterProvider;
+import org.unlockedlabs.pkrates.ws.api.rates.RateDO;
+import org.unlockedlabs.pkrates.ws.api.rates.RateDTO;
+
+/**
+ * Benchmarks of the conversions on the request path: the {@code RateDTO}/{@code RateDO} mapping of the sample rates and the parsing of a {@code start} or
+ * {@code end} query parameter.
+ *
+ * @author Richard Salas
+ * @version 1.0.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConversionBenchmark {
+
+    private static final String DATE_TIME = "2015-07-01T07:00:00-05:00";
+    private static final String REGION_DATE_TIME = "2015-07-01T07:00:00-05:00[America/Chicago]";
+
+    private List<RateDTO> rateDTOList;
+    private List<RateDO> rateDOList;
+    private ParamConverter<ZonedDateTime> converter;
+
+    /**
+     * Loads the sample rates and looks up the configured param converter.
+     */
+    @Setup
+    public void setUp() {
+        rateDTOList = RateSets.sample();
+        rateDOList = RateSets.toDO(rateDTOList);
+        converter = new ZonedDateTimeConverterProvider().getConverter(ZonedDateTime.class, ZonedDateTime.class, null);
+    }//end method
+
+    /**
+     * @param blackhole consumes the converted rates
+     */
+    @Benchmark
+    public void rateDTOToDO(Blackhole blackhole) {
+        blackhole.consume(RateDTO.toDOs(rateDTOList));
+    }//end method
+
+    /**
+     * @param blackhole consumes the converted rates
+     */
+    @Benchmark
+    public void rateDOToDTO(Blackhole blackhole) {
+        for(RateDO rateDO : rateDOList) {
+            blackhole.consume(rateDO.toDTO());
+        }//end for
+    }//end method
+
+    /**
+     * @return the parsed date/time
+     */
+    @Benchmark
+    public ZonedDateTime parseClassic() {
+        return ZonedDateTime.parse(DATE_TIME, ZonedDateTimeConverterProvider.DTF);
+    }//end method
+
+    /**
+     * @return the parsed date/time
+     */
+    @Benchmark
+    public ZonedDateTime parseFast() {
+        return IsoDateTimeParser.parse(DATE_TIME);
+    }//end method
+
+    /**
+     * @return the parsed date/time
+     */
+    @Benchmark
+    public ZonedDateTime parseFastRegion() {
+        return IsoDateTimeParser.parse(REGION_DATE_TIME);
+    }//end method
+
+    /**
+     * @return the parsed date/time using the converter selected by the {@code DATETIME.parser} system property
+     */
+    @Benchmark
+    public ZonedDateTime paramConverter() {
+        return converter.fromString(DATE_TIME);
+    }//end method
+
+}//end class
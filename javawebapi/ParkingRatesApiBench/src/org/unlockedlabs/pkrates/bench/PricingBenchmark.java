@@ -0,0 +1,170 @@
+/**
+ *
+ */
+package org.unlockedlabs.pkrates.bench;
+
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.unlockedlabs.pkrates.ws.api.core.RateUnavailableException;
+import org.unlockedlabs.pkrates.ws.api.rates.Day;
+import org.unlockedlabs.pkrates.ws.api.rates.ParkingPrice;
+import org.unlockedlabs.pkrates.ws.api.rates.ParkingRateMemDAO;
+import org.unlockedlabs.pkrates.ws.api.rates.ParkingRateService;
+import org.unlockedlabs.pkrates.ws.api.rates.PriceCache;
+import org.unlockedlabs.pkrates.ws.api.rates.RateDO;
+import org.unlockedlabs.pkrates.ws.api.rates.RateIndex;
+
+/**
+ * Benchmarks of the price lookup for each rate set and for a hit and a miss window.
+ *
+ * <ul>
+ * <li>{@code listScan} is the linear scan of {@link ParkingPrice#calculatePrice(ZonedDateTime, ZonedDateTime, List)} over the rates of the query day.</li>
+ * <li>{@code rateIndex} is the compiled {@link RateIndex} lookup.</li>
+ * <li>{@code serviceCached} is {@link ParkingRateService#getPriceByTime(ZonedDateTime, ZonedDateTime)}, repeated queries are answered by the price cache.</li>
+ * <li>{@code serviceUncached} is the same service with a price cache that can not hold any entry.</li>
+ * </ul>
+ *
+ * <p>The {@code *Contended} benchmarks run the same lookups from four threads sharing one service.</p>
+ *
+ * @author Richard Salas
+ * @version 1.0.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PricingBenchmark {
+
+    @Param({"sample", "1000", "100000"})
+    private String rates;
+
+    @Param({"hit", "miss"})
+    private String window;
+
+    private ZonedDateTime start;
+    private ZonedDateTime end;
+    private List<RateDO> ratesByDay;
+    private RateIndex rateIndex;
+    private ParkingRateMemDAO dao;
+    private ParkingRateService cachedService;
+    private ParkingRateService uncachedService;
+
+    /**
+     * Loads the rate set and selects the query window.
+     */
+    @Setup
+    public void setUp() {
+        ZonedDateTime[] query = "hit".equals(window) ? RateSets.HIT_WINDOW : RateSets.MISS_WINDOW;
+        start = query[0];
+        end = query[1];
+
+        List<RateDO> rateDOList = RateSets.toDO(RateSets.create(rates));
+        Day day = Day.values()[start.getDayOfWeek().ordinal()];//both enums start on Monday
+        ratesByDay = rateDOList.stream().filter(rateDO -> rateDO.getDays().contains(day)).collect(Collectors.toList());
+
+        dao = new ParkingRateMemDAO();
+        dao.reloadRates(rateDOList);
+        rateIndex = dao.getRateIndex();
+        cachedService = new ParkingRateService(dao);
+        uncachedService = new ParkingRateService(dao, new PriceCache(0L));
+    }//end method
+
+    /**
+     * Releases the rate set.
+     */
+    @TearDown
+    public void tearDown() {
+        dao.stop();
+    }//end method
+
+    /**
+     * @return the price or -1 if unavailable
+     */
+    @Benchmark
+    public int listScan() {
+        try {
+            return ParkingPrice.calculatePrice(start, end, ratesByDay).getPrice();
+        }catch(RateUnavailableException e) {
+            return -1;
+        }//end try...catch
+    }//end method
+
+    /**
+     * @return the price or -1 if unavailable
+     */
+    @Benchmark
+    public int rateIndex() {
+        try {
+            return rateIndex.findPrice(start, end);
+        }catch(RateUnavailableException e) {
+            return -1;
+        }//end try...catch
+    }//end method
+
+    /**
+     * @return the price or -1 if unavailable
+     */
+    @Benchmark
+    public int serviceCached() {
+        return price(cachedService);
+    }//end method
+
+    /**
+     * @return the price or -1 if unavailable
+     */
+    @Benchmark
+    public int serviceUncached() {
+        return price(uncachedService);
+    }//end method
+
+    /**
+     * @return the price or -1 if unavailable
+     */
+    @Benchmark
+    @Threads(4)
+    public int serviceCachedContended() {
+        return price(cachedService);
+    }//end method
+
+    /**
+     * @return the price or -1 if unavailable
+     */
+    @Benchmark
+    @Threads(4)
+    public int rateIndexContended() {
+        return rateIndex();
+    }//end method
+
+    /**
+     * Helper method used to get the price of the query window from the given {@code service}.
+     *
+     * @param service the service to query
+     * @return the price or -1 if unavailable
+     */
+    private int price(ParkingRateService service) {
+        try {
+            return service.getPriceByTime(start, end).getPrice();
+        }catch(RateUnavailableException e) {
+            return -1;
+        }//end try...catch
+    }//end method
+
+}//end class
@@ -0,0 +1,159 @@
+/**
+ *
+ */
+package org.unlockedlabs.pkrates.bench;
+
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.unlockedlabs.pkrates.ws.api.rates.RateDO;
+import org.unlockedlabs.pkrates.ws.api.rates.RateDTO;
+
+/**
+ * Rate sets and query windows used by the benchmarks.
+ *
+ * <p>The {@code sample} rate set is the sample {@code Rates.json} found within the build folder. Generated rate sets hold the sample Wednesday rate plus filler rates
+ * spread over the fixed offset {@code Etc/GMT} zones. The filler rates are shorter than the hit window and never cover the miss window, so the hit window always
+ * resolves to exactly one rate and the miss window never resolves to a rate no matter how large the rate set is.</p>
+ *
+ * @author Richard Salas
+ * @version 1.0.0
+ */
+public final class RateSets {
+
+    /**
+     * Query window that matches the Wednesday rate (0600-1800 America/Chicago) of every rate set.
+     */
+    public static final ZonedDateTime[] HIT_WINDOW = {ZonedDateTime.parse("2015-07-01T07:00:00-05:00"), ZonedDateTime.parse("2015-07-01T12:00:00-05:00")};
+
+    /**
+     * Query window that does not match any rate of any rate set.
+     */
+    public static final ZonedDateTime[] MISS_WINDOW = {ZonedDateTime.parse("2015-07-01T19:00:00-05:00"), ZonedDateTime.parse("2015-07-01T19:30:00-05:00")};
+
+    private static final String[] DAYS = {"mon", "tues", "wed", "thurs", "fri", "sat", "sun"};
+    private static final long SEED = 20150701L;//fixed seed so every run benchmarks the same rates
+
+    private static final int MAX_FILLER_MINUTES = 255;//shorter than the hit window so a filler rate can never contain it
+    //minutes after midnight UTC of the query date that filler rates must not cover, the miss window with an hour of margin
+    private static final int[][] RESERVED_UTC_MINUTES = {{1380, 1530}};
+
+    /**
+     * Constructor is private as this class only has static methods.
+     */
+    private RateSets() {
+    }//end constructor
+
+    /**
+     * Creates the rate set with the given {@code name}.
+     *
+     * @param name either {@code sample} or the number of rates to generate
+     * @return the list of {@code RateDTO}s
+     */
+    public static List<RateDTO> create(String name) {
+        return "sample".equals(name) ? sample() : generate(Integer.parseInt(name));
+    }//end method
+
+    /**
+     * Converts the given {@code rates} into {@code RateDO}s.
+     *
+     * @param rates the rates to convert
+     * @return the list of {@code RateDO}s
+     */
+    public static List<RateDO> toDO(List<RateDTO> rates) {
+        return RateDTO.toDOs(rates);
+    }//end method
+
+    /**
+     * @return the rates of the sample {@code Rates.json}
+     */
+    public static List<RateDTO> sample() {
+        List<RateDTO> rates = new ArrayList<>();
+        rates.add(rate("mon,tues,thurs", "0900-2100", "America/Chicago", 1500));
+        rates.add(rate("fri,sat,sun", "0900-2100", "America/Chicago", 2000));
+        rates.add(rate("wed", "0600-1800", "America/Chicago", 1750));
+        rates.add(rate("mon,wed,sat", "0100-0500", "America/Chicago", 1000));
+        rates.add(rate("sun,tues", "0100-0700", "America/Chicago", 925));
+        return rates;
+    }//end method
+
+    /**
+     * Generates a rate set holding the sample Wednesday rate and {@code count - 1} filler rates.
+     *
+     * @param count the number of rates to generate
+     * @return the list of {@code RateDTO}s
+     */
+    public static List<RateDTO> generate(int count) {
+        Random random = new Random(SEED);
+        List<RateDTO> rates = new ArrayList<>(count);
+        rates.add(rate("wed", "0600-1800", "America/Chicago", 1750));
+        while(rates.size() < count) {
+            int offsetHours = random.nextInt(27) - 12;//Etc/GMT-14 through Etc/GMT+12
+            int offsetMinutes = offsetHours * 60;
+            int start = random.nextInt(1380);
+            int end = Math.min(1439, start + 15 + random.nextInt(MAX_FILLER_MINUTES - 15));
+            if(isReserved(start - offsetMinutes, end - offsetMinutes)) {
+                continue;
+            }//end if
+
+            StringBuilder days = new StringBuilder();
+            int mask = 1 + random.nextInt(127);
+            for(int i = 0;i < DAYS.length;i++) {
+                if((mask & (1 << i)) != 0) {
+                    days.append(days.length() == 0 ? "" : ",").append(DAYS[i]);
+                }//end if
+            }//end for
+            //the Etc/GMT zone ids have the sign inverted, Etc/GMT-5 is UTC+05:00
+            String zone = offsetHours == 0 ? "Etc/GMT" : "Etc/GMT" + (offsetHours > 0 ? "-" : "+") + Math.abs(offsetHours);
+            rates.add(rate(days.toString(), hhmm(start) + "-" + hhmm(end), zone, 100 + random.nextInt(4900)));
+        }//end while
+        return rates;
+    }//end method
+
+    /**
+     * Helper method used to check whether the given UTC minutes overlap a reserved range.
+     *
+     * @param start the start minute after midnight UTC of the query date
+     * @param end the end minute after midnight UTC of the query date
+     * @return true if the range overlaps a reserved range
+     */
+    private static boolean isReserved(int start, int end) {
+        for(int[] reserved : RESERVED_UTC_MINUTES) {
+            if(start <= reserved[1] && end >= reserved[0]) {
+                return true;
+            }//end if
+        }//end for
+        return false;
+    }//end method
+
+    /**
+     * @param minutes the minutes after midnight
+     * @return the minutes formatted as {@code HHmm}
+     */
+    private static String hhmm(int minutes) {
+        return String.format("%02d%02d", minutes / 60, minutes % 60);
+    }//end method
+
+    /**
+     * Helper method used to create a RateDTO.
+     *
+     * @param days the days of the rate
+     * @param times the times of the rate
+     * @param tz the time zone of the rate
+     * @param price the price of the rate
+     * @return the RateDTO instance
+     */
+    private static RateDTO rate(String days, String times, String tz, int price) {
+        ZoneId.of(tz);//fail fast on a bad zone id
+        RateDTO rate = new RateDTO();
+        rate.setDays(days);
+        rate.setTimes(times);
+        rate.setTz(tz);
+        rate.setPrice(price);
+        return rate;
+    }//end method
+
+}//end class
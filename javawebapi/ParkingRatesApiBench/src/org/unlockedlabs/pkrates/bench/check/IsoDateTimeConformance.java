@@ -0,0 +1,242 @@
+/**
+ *
+ */
+package org.unlockedlabs.pkrates.bench.check;
+
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.unlockedlabs.pkrates.ws.api.core.IsoDateTimeParser;
+
+/**
+ * Differential conformance check of the {@link IsoDateTimeParser} against {@link DateTimeFormatter#ISO_ZONED_DATE_TIME}.
+ *
+ * <p>Random values are generated around the accepted subset: valid and out of range fields, optional seconds and fractions of up to eleven digits,
+ * offsets of every form and bracketed zones holding region ids, offset style ids such as {@code +0500}, {@code UTC+05:30} or {@code GMT0}, and
+ * malformed brackets. A share of the values is further mutated by a random character being replaced, removed or inserted. Each value must either be
+ * rejected by both parsers or produce equal {@code ZonedDateTime}s, which compares the local date/time, the offset and the zone.</p>
+ *
+ * <p>The check is configured with the following system properties:</p>
+ * <ul>
+ * <li>{@code CONFORMANCE.iterations} the number of values checked, 2,000,000 by default</li>
+ * <li>{@code CONFORMANCE.seed} the seed of the random values, so a failing run can be repeated</li>
+ * </ul>
+ *
+ * <p>The mismatches found are printed and the JVM exits with status 1 when there is any.</p>
+ *
+ * @author Richard Salas
+ * @version 1.0.0
+ */
+public final class IsoDateTimeConformance {
+
+    private static final int MAX_REPORTED = 20;
+    private static final String[] REGIONS = ZoneId.getAvailableZoneIds().toArray(new String[0]);
+    private static final String[] ZONE_IDS = {"+0500", "+05:00", "-05:00", "+05", "UTC+0530", "UTC+05:30", "UTC", "UT", "GMT", "GMT0", "GMT+5", "GMT-05:00", "UT+01:00", "Z", "z", "utc", "Etc/GMT+5", "Etc/UTC", "UCT", "EST", "CST6CDT", "SystemV/CST6", "America/Chicago ", "america/chicago", "", "Europe/", "Mars/Olympus"};
+    private static final String[] OFFSETS = {"Z", "z", "+00:00", "-00:00", "+05:30", "-06:00", "+18:00", "-18:00", "+18:01", "+19:00", "+05", "+0530", "+05:30:15", "+5:30", "+05:60", "-06:00:00", "+", ""};
+
+    private final Random random;
+    private final List<String> mismatches = new ArrayList<>();
+    private long accepted;
+    private long rejected;
+
+    /**
+     * Constructor used to create an instance of IsoDateTimeConformance.
+     *
+     * @param seed the seed of the random values
+     */
+    IsoDateTimeConformance(long seed) {
+        this.random = new Random(seed);
+    }//end constructor
+
+    /**
+     * Runs the check configured by the system properties.
+     *
+     * @param args not used
+     */
+    public static void main(String[] args) {
+        long iterations = Long.getLong("CONFORMANCE.iterations", 2000000L);
+        long seed = Long.getLong("CONFORMANCE.seed", 20150701L);
+        IsoDateTimeConformance check = new IsoDateTimeConformance(seed);
+        for(long i = 0;i < iterations;i++) {
+            check.check(check.nextValue());
+        }//end for
+        System.out.println(check);
+        for(String mismatch : check.mismatches.subList(0, Math.min(MAX_REPORTED, check.mismatches.size()))) {
+            System.out.println("  " + mismatch);
+        }//end for
+        if(!check.mismatches.isEmpty()) {
+            System.exit(1);
+        }//end if
+    }//end method
+
+    /**
+     * Parses the given {@code value} with both parsers and records a mismatch when they disagree.
+     *
+     * @param value the value to parse
+     */
+    void check(String value) {
+        ZonedDateTime expected;
+        try {
+            expected = ZonedDateTime.parse(value, DateTimeFormatter.ISO_ZONED_DATE_TIME);
+        }catch(DateTimeParseException e) {
+            expected = null;
+        }//end try...catch
+        ZonedDateTime actual;
+        try {
+            actual = IsoDateTimeParser.parse(value);
+        }catch(DateTimeParseException e) {
+            actual = null;
+        }//end try...catch
+
+        if(expected == null ? actual != null : !expected.equals(actual)) {
+            mismatches.add("\"" + value + "\" formatter=" + expected + " parser=" + actual);
+        }else if(expected == null) {
+            rejected++;
+        }else {
+            accepted++;
+        }//end if
+    }//end method
+
+    /**
+     * Helper method used to generate the next value to check.
+     *
+     * @return the value
+     */
+    String nextValue() {
+        StringBuilder builder = new StringBuilder(48);
+        builder.append(random.nextInt(20) == 0 ? digits(random.nextInt(3) + 3, 9999) : pad(1970 + random.nextInt(100), 4));
+        builder.append('-').append(field(12, 1)).append('-').append(field(31, 1));
+        builder.append(random.nextInt(50) == 0 ? 't' : 'T');
+        builder.append(field(23, 0)).append(':').append(field(59, 0));
+        if(random.nextBoolean()) {
+            builder.append(':').append(field(59, 0));
+            if(random.nextBoolean()) {
+                builder.append('.').append(digits(random.nextInt(12), 9));
+            }//end if
+        }//end if
+        builder.append(random.nextInt(4) == 0 ? OFFSETS[random.nextInt(OFFSETS.length)] : offset());
+        switch(random.nextInt(6)){
+            case 0:
+            case 1:
+                break;
+            case 2:
+            case 3:
+                builder.append('[').append(REGIONS[random.nextInt(REGIONS.length)]).append(']');
+                break;
+            case 4:
+                builder.append('[').append(ZONE_IDS[random.nextInt(ZONE_IDS.length)]).append(']');
+                break;
+            default:
+                builder.append(random.nextBoolean() ? "[" + REGIONS[random.nextInt(REGIONS.length)] : "[]");
+                break;
+        }//end switch
+        if(random.nextInt(8) == 0) {
+            mutate(builder);
+        }//end if
+        return builder.toString();
+    }//end method
+
+    /**
+     * Helper method used to generate a two digit field, mostly within {@code min} and {@code max} and sometimes out of range or malformed.
+     *
+     * @param max the largest valid value
+     * @param min the smallest valid value
+     * @return the field
+     */
+    private String field(int max, int min) {
+        int kind = random.nextInt(40);
+        if(kind == 0) {
+            return String.valueOf(random.nextInt(10));//single digit
+        }else if(kind == 1) {
+            return pad(random.nextInt(100), 2);//possibly out of range
+        }else if(kind == 2) {
+            return "x" + random.nextInt(10);
+        }//end if
+        return pad(min + random.nextInt(max - min + 1), 2);
+    }//end method
+
+    /**
+     * Helper method used to generate a valid {@code +HH:MM} or {@code -HH:MM} offset.
+     *
+     * @return the offset
+     */
+    private String offset() {
+        int quarters = random.nextInt(18 * 4 * 2 + 1) - 18 * 4;
+        int minutes = Math.abs(quarters) * 15;
+        return (quarters < 0 ? "-" : "+") + pad(minutes / 60, 2) + ":" + pad(minutes % 60, 2);
+    }//end method
+
+    /**
+     * Helper method used to generate {@code count} random digits, each no larger than {@code maxDigit} for a single digit.
+     *
+     * @param count the number of digits
+     * @param maxDigit the largest value of a digit when it is below 9, or any larger value for all digits
+     * @return the digits
+     */
+    private String digits(int count, int maxDigit) {
+        StringBuilder builder = new StringBuilder(count);
+        for(int i = 0;i < count;i++) {
+            builder.append((char) ('0' + random.nextInt(Math.min(9, maxDigit) + 1)));
+        }//end for
+        return builder.toString();
+    }//end method
+
+    /**
+     * Helper method used to replace, remove or insert a random character of the given {@code builder}.
+     *
+     * @param builder the value to mutate
+     */
+    private void mutate(StringBuilder builder) {
+        String alphabet = "0123456789-+:.TZz[]/ _AaU";
+        int index = random.nextInt(builder.length());
+        char c = alphabet.charAt(random.nextInt(alphabet.length()));
+        switch(random.nextInt(3)){
+            case 0:
+                builder.setCharAt(index, c);
+                break;
+            case 1:
+                builder.deleteCharAt(index);
+                break;
+            default:
+                builder.insert(index, c);
+                break;
+        }//end switch
+    }//end method
+
+    /**
+     * Helper method used to left pad the given {@code value} with zeros.
+     *
+     * @param value the value
+     * @param width the number of digits
+     * @return the padded value
+     */
+    private static String pad(int value, int width) {
+        String text = String.valueOf(value);
+        while(text.length() < width) {
+            text = "0" + text;
+        }//end while
+        return text;
+    }//end method
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("IsoDateTimeConformance [accepted=");
+        builder.append(accepted);
+        builder.append(", rejected=");
+        builder.append(rejected);
+        builder.append(", mismatches=");
+        builder.append(mismatches.size());
+        builder.append("]");
+        return builder.toString();
+    }//end method
+
+}//end class
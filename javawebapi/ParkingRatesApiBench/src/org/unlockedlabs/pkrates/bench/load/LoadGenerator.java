@@ -0,0 +1,391 @@
+/**
+ *
+ */
+package org.unlockedlabs.pkrates.bench.load;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+
+import org.unlockedlabs.pkrates.bench.load.QueryCorpus.Query;
+import org.unlockedlabs.pkrates.ws.api.server.StandaloneServer;
+
+import gov.doc.isu.metrics.LatencyHistogram;
+
+/**
+ * Closed-loop load generator driving {@code GET /price}, {@code GET /rates} and interleaved {@code PUT /rates} requests against a running instance,
+ * reporting the throughput and the p50, p99 and p99.9 latencies of each kind of request.
+ *
+ * <p>Each of the {@code LOAD.concurrency} workers sends one request at a time, choosing the endpoint by the weights of {@code LOAD.mix}. The price
+ * queries are taken in turn from the {@link QueryCorpus} of the rate file and the uploads alternate between the rate file and a copy with a changed
+ * price, so every upload publishes a new rate version.</p>
+ *
+ * <p>The latencies are corrected for coordinated omission. With a target {@code LOAD.rate} each worker follows a fixed send schedule and a latency is
+ * measured from the time the request was scheduled rather than sent, so a stall of the instance is charged to every request that should have been
+ * sent meanwhile. The schedule restarts when the measurement starts, so a backlog left by a cold warmup is not charged to it. Without a target rate
+ * the workers send as fast as they can and each latency longer than the mean warmup latency is back-filled with the latencies the requests missed
+ * during the stall would have seen, in the style of HdrHistogram. The raw p99, measured from the time the request was sent, and the raw maximum are
+ * reported alongside for comparison.</p>
+ *
+ * <p>The generator is configured with the following system properties:</p>
+ * <ul>
+ * <li>{@code LOAD.url} the base URL of the instance, by default a {@link StandaloneServer} is started within this JVM on a free port</li>
+ * <li>{@code LOAD.rateFile} the rate file the queries are built from and the instance is started with, {@code ../build/Rates.json} by default</li>
+ * <li>{@code LOAD.concurrency} the number of workers, 8 by default</li>
+ * <li>{@code LOAD.rate} the target number of requests per second of all workers, 0 by default to send as fast as possible</li>
+ * <li>{@code LOAD.warmupSeconds} and {@code LOAD.durationSeconds} the time spent warming up, 10 seconds by default, and measuring, 30 seconds by
+ * default</li>
+ * <li>{@code LOAD.mix} the weights of each endpoint, {@code price=95,rates=4,put=1} by default</li>
+ * <li>{@code LOAD.timeoutSeconds} the connect and read timeout of a request, 30 by default</li>
+ * <li>{@code LOAD.report} the file the report is written to, {@code results/load-latest.txt} by default</li>
+ * </ul>
+ *
+ * @author Richard Salas
+ * @version 1.0.0
+ */
+public final class LoadGenerator {
+
+    private static final String[] LABELS = {"price hit", "price multi-rate", "price multi-day", "price day-zone", "rates", "put", "all"};
+    private static final long SEED = 20150701L;
+
+    private final String baseUrl;
+    private final QueryCorpus corpus;
+    private final int concurrency;
+    private final double rate;
+    private final long warmupNanos;
+    private final long durationNanos;
+    private final int[] mix;//cumulative weights of price, rates and put
+    private final int timeoutMillis;
+    private final Map<String, Recorder> recorders = new LinkedHashMap<>();
+    private final AtomicLong uploadCount = new AtomicLong();
+
+    /**
+     * Constructor used to create an instance of LoadGenerator.
+     *
+     * @param baseUrl the base URL of the instance without a trailing slash
+     * @param corpus the queries to send
+     * @param concurrency the number of workers
+     * @param rate the target number of requests per second, 0 to send as fast as possible
+     * @param warmupSeconds the seconds spent warming up
+     * @param durationSeconds the seconds spent measuring
+     * @param mix the mix of endpoints such as {@code price=95,rates=4,put=1}
+     * @param timeoutSeconds the connect and read timeout of a request
+     */
+    LoadGenerator(String baseUrl, QueryCorpus corpus, int concurrency, double rate, long warmupSeconds, long durationSeconds, String mix, int timeoutSeconds) {
+        this.baseUrl = baseUrl;
+        this.corpus = corpus;
+        this.concurrency = Math.max(1, concurrency);
+        this.rate = Math.max(0.0, rate);
+        this.warmupNanos = Math.max(0L, warmupSeconds) * 1000000000L;
+        this.durationNanos = Math.max(1L, durationSeconds) * 1000000000L;
+        this.mix = parseMix(mix);
+        this.timeoutMillis = timeoutSeconds * 1000;
+        for(String label : LABELS) {
+            recorders.put(label, new Recorder());
+        }//end for
+    }//end constructor
+
+    /**
+     * Runs the load generator configured by the system properties and writes the report.
+     *
+     * @param args not used
+     * @throws Exception if the rate file can not be read, the instance can not be started or a worker is interrupted
+     */
+    public static void main(String[] args) throws Exception {
+        Path rateFile = Paths.get(System.getProperty("LOAD.rateFile", "../build/Rates.json")).toAbsolutePath().normalize();
+        QueryCorpus corpus = QueryCorpus.build(Files.readAllBytes(rateFile));
+        int concurrency = Integer.getInteger("LOAD.concurrency", 8);
+        if(System.getProperty("http.maxConnections") == null) {
+            System.setProperty("http.maxConnections", String.valueOf(concurrency));//keeps a connection alive per worker
+        }//end if
+
+        String url = System.getProperty("LOAD.url", "").trim();
+        StandaloneServer server = null;
+        Path snapshotDir = null;
+        if(url.isEmpty()) {
+            if(System.getProperty("INIT.jsonFilePath") == null) {
+                System.setProperty("INIT.jsonFilePath", rateFile.toString());
+            }//end if
+            if(System.getProperty("RATES.snapshotDir") == null) {
+                snapshotDir = Files.createTempDirectory("pkrates-load");//keeps the uploads away from the rate file
+                System.setProperty("RATES.snapshotDir", snapshotDir.toString());
+            }//end if
+            server = StandaloneServer.start("localhost", 0);
+            url = "http://localhost:" + server.getAddress().getPort();
+        }//end if
+
+        LoadGenerator generator = new LoadGenerator(url.endsWith("/") ? url.substring(0, url.length() - 1) : url, corpus, concurrency, Double.parseDouble(System.getProperty("LOAD.rate", "0")), Long.getLong("LOAD.warmupSeconds", 10L), Long.getLong("LOAD.durationSeconds", 30L), System.getProperty("LOAD.mix", "price=95,rates=4,put=1"), Integer.getInteger("LOAD.timeoutSeconds", 30));
+        System.out.println("Driving " + generator.baseUrl + " with " + corpus + " from " + rateFile);
+        String report;
+        try {
+            report = generator.run(rateFile);
+        }finally {
+            if(server != null) {
+                server.stop();
+            }//end if
+            if(snapshotDir != null) {
+                try(Stream<Path> files = Files.walk(snapshotDir)) {
+                    files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+                }//end try
+            }//end if
+        }//end try...catch
+        System.out.println(report);
+
+        Path reportFile = Paths.get(System.getProperty("LOAD.report", "results/load-latest.txt"));
+        if(reportFile.toAbsolutePath().getParent() != null) {
+            Files.createDirectories(reportFile.toAbsolutePath().getParent());
+        }//end if
+        Files.write(reportFile, report.getBytes(StandardCharsets.UTF_8));
+        System.out.println("Report written to " + reportFile.toAbsolutePath().normalize());
+    }//end method
+
+    /**
+     * Runs the workers for the warmup and measurement time and builds the report.
+     *
+     * @param rateFile the rate file named within the report
+     * @return the report
+     * @throws InterruptedException if interrupted while waiting for the workers
+     */
+    String run(Path rateFile) throws InterruptedException {
+        long startNanos = System.nanoTime();
+        long measureNanos = startNanos + warmupNanos;
+        long endNanos = measureNanos + durationNanos;
+        List<Thread> workers = new ArrayList<>();
+        for(int i = 0;i < concurrency;i++) {
+            int id = i;
+            Thread worker = new Thread(() -> work(id, startNanos, measureNanos, endNanos), "pkrates-load-" + (i + 1));
+            worker.start();
+            workers.add(worker);
+        }//end for
+        for(Thread worker : workers) {
+            worker.join();
+        }//end for
+        double seconds = Math.max(1L, System.nanoTime() - measureNanos) / 1000000000.0;
+        return report(rateFile, seconds);
+    }//end method
+
+    /**
+     * Sends requests until the given {@code endNanos}, recording those scheduled after the given {@code measureNanos}.
+     *
+     * @param id the number of the worker
+     * @param startNanos the nano time the run started
+     * @param measureNanos the nano time the measurement starts
+     * @param endNanos the nano time the run ends
+     */
+    private void work(int id, long startNanos, long measureNanos, long endNanos) {
+        Random random = new Random(SEED + id);
+        List<Query> queries = corpus.getQueries();
+        int next = (int) ((long) id * queries.size() / concurrency);//each worker starts at a different query
+        long interval = rate > 0.0 ? (long) (concurrency * 1000000000.0 / rate) : 0L;
+        long scheduled = startNanos + (interval * id) / concurrency;//staggered so the workers do not send in lock step
+        long warmupSum = 0L;
+        long warmupCount = 0L;
+        long expectedNanos = 0L;//mean warmup latency used to back-fill the unthrottled latencies
+        while(true) {
+            long now = System.nanoTime();
+            if(interval > 0L && scheduled < measureNanos && now >= measureNanos) {
+                scheduled = measureNanos + (interval * id) / concurrency;//the backlog of a cold warmup is not charged to the measurement
+            }//end if
+            if(interval > 0L) {
+                while(now < scheduled) {
+                    LockSupport.parkNanos(scheduled - now);
+                    now = System.nanoTime();
+                }//end while
+            }else {
+                scheduled = now;
+            }//end if
+            if(scheduled >= endNanos || now >= endNanos) {//a worker behind its schedule stops on time as well
+                break;
+            }//end if
+
+            String label;
+            int status;
+            int pick = random.nextInt(mix[2]);
+            long sentNanos = System.nanoTime();
+            if(pick < mix[0]) {
+                Query query = queries.get(next);
+                next = next + 1 == queries.size() ? 0 : next + 1;
+                label = "price " + query.getKind();
+                status = send("GET", query.getPath(), null);
+            }else if(pick < mix[1]) {
+                label = "rates";
+                status = send("GET", "/rates", null);
+            }else {
+                label = "put";
+                status = send("PUT", "/rates", corpus.getUpload(uploadCount.getAndIncrement()));
+            }//end if
+            long doneNanos = System.nanoTime();
+
+            long latency = doneNanos - scheduled;
+            long rawLatency = doneNanos - sentNanos;
+            if(scheduled < measureNanos) {
+                warmupSum += rawLatency;
+                warmupCount++;
+            }else {
+                if(interval == 0L && expectedNanos == 0L) {
+                    expectedNanos = warmupCount > 0L ? warmupSum / warmupCount : rawLatency;
+                }//end if
+                boolean error = status < 200 || status >= 400;
+                recorders.get(label).record(latency, rawLatency, expectedNanos, error);
+                recorders.get("all").record(latency, rawLatency, expectedNanos, error);
+            }//end if
+            scheduled += interval;
+        }//end while
+    }//end method
+
+    /**
+     * Sends a single request.
+     *
+     * @param method the HTTP method
+     * @param path the path and query string
+     * @param body the JSON body or null
+     * @return the status of the response, -1 if the request failed
+     */
+    private int send(String method, String path, byte[] body) {
+        HttpURLConnection connection = null;
+        try {
+            connection = (HttpURLConnection) new URL(baseUrl + path).openConnection();
+            connection.setRequestMethod(method);
+            connection.setConnectTimeout(timeoutMillis);
+            connection.setReadTimeout(timeoutMillis);
+            connection.setRequestProperty("Accept", "application/json");
+            if(body != null) {
+                connection.setDoOutput(true);
+                connection.setRequestProperty("Content-Type", "application/json");
+                connection.setFixedLengthStreamingMode(body.length);
+                try(OutputStream out = connection.getOutputStream()) {
+                    out.write(body);
+                }//end try
+            }//end if
+            int status = connection.getResponseCode();
+            try(InputStream in = status >= 400 ? connection.getErrorStream() : connection.getInputStream()) {
+                if(in != null) {
+                    byte[] buffer = new byte[8192];
+                    while(in.read(buffer) != -1) {//drained so the connection is kept alive
+                    }//end while
+                }//end if
+            }//end try
+            return status;
+        }catch(IOException e) {
+            if(connection != null) {
+                connection.disconnect();
+            }//end if
+            return -1;
+        }//end try...catch
+    }//end method
+
+    /**
+     * Builds the report of the recorded latencies.
+     *
+     * @param rateFile the rate file named within the report
+     * @param seconds the seconds the measurement took
+     * @return the report
+     */
+    private String report(Path rateFile, double seconds) {
+        StringWriter report = new StringWriter();
+        PrintWriter out = new PrintWriter(report);
+        out.println("# Parking Rates API load report");
+        out.println("# Recorded " + LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME) + " against " + baseUrl + " with " + rateFile + ", " + corpus.getQueries().size() + " price queries");
+        out.println("# concurrency=" + concurrency + ", target rate=" + (rate > 0.0 ? String.format("%.0f req/s", rate) : "unthrottled") + ", warmup=" + warmupNanos / 1000000000L + " s, duration=" + durationNanos / 1000000000L + " s, mix=price=" + mix[0] + ",rates=" + (mix[1] - mix[0]) + ",put=" + (mix[2] - mix[1]) + ", " + Runtime.getRuntime().availableProcessors() + " CPU core(s) on the generator");
+        out.println("# Latencies are corrected for coordinated omission " + (rate > 0.0 ? "against the intended send schedule." : "by back-filling stalls longer than the mean warmup latency.") + " The raw p99 and max are measured from the time each request was sent.");
+        out.println();
+        out.println(String.format("%-18s %10s %8s %10s %10s %10s %10s %10s %12s %12s", "Request", "Count", "Errors", "Req/s", "p50 ms", "p99 ms", "p99.9 ms", "Max ms", "Raw p99 ms", "Raw max ms"));
+        for(Map.Entry<String, Recorder> entry : recorders.entrySet()) {
+            Recorder recorder = entry.getValue();
+            long count = recorder.count.sum();
+            if(count == 0L && !"all".equals(entry.getKey())) {
+                continue;
+            }//end if
+            LatencyHistogram.Snapshot corrected = recorder.corrected.snapshot();
+            LatencyHistogram.Snapshot raw = recorder.raw.snapshot();
+            out.println(String.format("%-18s %10d %8d %10.1f %10.3f %10.3f %10.3f %10.3f %12.3f %12.3f", entry.getKey(), count, recorder.errors.sum(), count / seconds, corrected.getQuantileSeconds(0.5) * 1000.0, corrected.getQuantileSeconds(0.99) * 1000.0, corrected.getQuantileSeconds(0.999) * 1000.0, corrected.getMaxSeconds() * 1000.0, raw.getQuantileSeconds(0.99) * 1000.0, raw.getMaxSeconds() * 1000.0));
+        }//end for
+        double achieved = recorders.get("all").count.sum() / seconds;
+        if(rate > 0.0 && achieved < rate * 0.95) {
+            out.println();
+            out.println(String.format("# The instance did not keep up, %.1f req/s were sent of the %.0f req/s scheduled, the corrected latencies include the backlog.", achieved, rate));
+        }//end if
+        out.flush();
+        return report.toString();
+    }//end method
+
+    /**
+     * Helper method used to parse the given {@code mix} into cumulative weights.
+     *
+     * @param mix the mix such as {@code price=95,rates=4,put=1}, a missing endpoint has no weight
+     * @return the cumulative weights of price, rates and put
+     * @throws IllegalArgumentException if the mix is malformed or has no weight
+     */
+    static int[] parseMix(String mix) {
+        int[] weights = new int[3];
+        for(String part : mix.split(",")) {
+            String[] pair = part.trim().split("=");
+            int index = pair.length != 2 ? -1 : "price".equals(pair[0].trim()) ? 0 : "rates".equals(pair[0].trim()) ? 1 : "put".equals(pair[0].trim()) ? 2 : -1;
+            if(index < 0) {
+                throw new IllegalArgumentException("Malformed LOAD.mix entry " + part + ", expected price=N, rates=N or put=N.");
+            }//end if
+            weights[index] = Math.max(0, Integer.parseInt(pair[1].trim()));
+        }//end for
+        weights[1] += weights[0];
+        weights[2] += weights[1];
+        if(weights[2] == 0) {
+            throw new IllegalArgumentException("LOAD.mix " + mix + " has no weight.");
+        }//end if
+        return weights;
+    }//end method
+
+    /**
+     * Latencies and errors of one kind of request.
+     */
+    private static final class Recorder {
+
+        private final LatencyHistogram corrected = new LatencyHistogram();
+        private final LatencyHistogram raw = new LatencyHistogram();
+        private final LongAdder count = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+
+        /**
+         * Records a request.
+         *
+         * @param latency the latency from the time the request was scheduled
+         * @param rawLatency the latency from the time the request was sent
+         * @param expectedNanos the expected latency used to back-fill a stall, 0 if the latency is already corrected by the send schedule
+         * @param error whether the request failed
+         */
+        void record(long latency, long rawLatency, long expectedNanos, boolean error) {
+            count.increment();
+            if(error) {
+                errors.increment();
+            }//end if
+            raw.record(rawLatency);
+            corrected.record(latency);
+            if(expectedNanos > 0L) {
+                for(long missed = latency - expectedNanos;missed >= expectedNanos;missed -= expectedNanos) {
+                    corrected.record(missed);//requests that would have been sent during the stall
+                }//end for
+            }//end if
+        }//end method
+
+    }//end inner class
+
+}//end class
@@ -0,0 +1,237 @@
+/**
+ *
+ */
+package org.unlockedlabs.pkrates.bench.load;
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.unlockedlabs.pkrates.ws.api.rates.Day;
+import org.unlockedlabs.pkrates.ws.api.rates.RateDO;
+import org.unlockedlabs.pkrates.ws.api.rates.RateDTO;
+import org.unlockedlabs.pkrates.ws.api.rates.RateModel;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Synthetic corpus of {@code GET /price} queries built from a rate file.
+ *
+ * <p>The queries are built for a summer and a winter week so both sides of the daylight saving time changes are priced. Each query belongs to one of
+ * the following kinds:</p>
+ * <ul>
+ * <li>{@code hit} is a window within a single rate, built for every day of every rate.</li>
+ * <li>{@code multi-rate} is a window starting within one rate and ending within the next rate of the same day, which spans two rates.</li>
+ * <li>{@code multi-day} is a window starting within a rate and ending a day later.</li>
+ * <li>{@code day-zone} is an hour long window at the same local time of every {@link Day}, which may or may not hit a rate.</li>
+ * </ul>
+ * <p>Every window is also expressed in each of the {@link #ZONES}, so the same instants are queried from several offsets and local dates. The corpus
+ * is shuffled with a fixed seed so every run sends the same queries in the same order.</p>
+ *
+ * @author Richard Salas
+ * @version 1.0.0
+ */
+public final class QueryCorpus {
+
+    /**
+     * Zones the query windows are expressed in, along with the zone of the rate itself.
+     */
+    static final String[] ZONES = {"UTC", "America/New_York", "America/Los_Angeles", "Europe/London", "Asia/Tokyo", "Australia/Sydney"};
+
+    private static final LocalDate[] WEEKS = {LocalDate.of(2015, 6, 29), LocalDate.of(2016, 1, 4)};//a summer and a winter Monday
+    private static final LocalTime DAY_ZONE_START = LocalTime.of(10, 0);
+    private static final long SEED = 20150701L;
+
+    private final List<Query> queries;
+    private final byte[] rateFile;
+    private final byte[] alternateRateFile;
+
+    /**
+     * Constructor used to create an instance of QueryCorpus.
+     *
+     * @param queries the price queries
+     * @param rateFile the rate file
+     * @param alternateRateFile the rate file with the price of its first rate changed
+     */
+    private QueryCorpus(List<Query> queries, byte[] rateFile, byte[] alternateRateFile) {
+        this.queries = queries;
+        this.rateFile = rateFile;
+        this.alternateRateFile = alternateRateFile;
+    }//end constructor
+
+    /**
+     * Builds the corpus of the rates within the given JSON rate file.
+     *
+     * @param rateFile the contents of the rate file
+     * @return the QueryCorpus instance
+     * @throws IOException if the rate file can not be parsed
+     * @throws IllegalArgumentException if the rate file does not contain any rate
+     */
+    public static QueryCorpus build(byte[] rateFile) throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        RateModel model = mapper.readValue(rateFile, RateModel.class);
+        if(model.getRates() == null || model.getRates().isEmpty()) {
+            throw new IllegalArgumentException("The rate file does not contain any rate.");
+        }//end if
+        List<RateDO> rates = RateDTO.toDOs(model.getRates());
+
+        List<Query> queries = new ArrayList<>();
+        for(LocalDate monday : WEEKS) {
+            for(Day day : Day.values()) {
+                LocalDate date = monday.with(TemporalAdjusters.nextOrSame(DayOfWeek.values()[day.ordinal()]));//both enums start on Monday
+                List<RateDO> dayRates = new ArrayList<>();
+                for(RateDO rate : rates) {
+                    if(rate.getDays().contains(day) && rate.getTimes().getStartTm().isBefore(rate.getTimes().getEndTm())) {
+                        dayRates.add(rate);
+                    }//end if
+                }//end for
+                dayRates.sort(Comparator.comparing((RateDO rate) -> rate.getRateZoneStartTm(date).toInstant()));
+                for(int i = 0;i < dayRates.size();i++) {
+                    RateDO rate = dayRates.get(i);
+                    ZonedDateTime start = rate.getRateZoneStartTm(date);
+                    ZonedDateTime end = rate.getRateZoneEndTm(date);
+                    long quarter = Math.max(1L, ChronoUnit.MINUTES.between(start, end) / 4L);
+                    addInZones(queries, "hit", start.plusMinutes(quarter), end.minusMinutes(quarter), rate.getZoneId());
+                    addInZones(queries, "multi-day", start.plusMinutes(quarter), start.plusMinutes(quarter).plusDays(1L), rate.getZoneId());
+                    if(i + 1 < dayRates.size()) {
+                        ZonedDateTime nextEnd = dayRates.get(i + 1).getRateZoneEndTm(date);
+                        if(nextEnd.isAfter(end)) {
+                            addInZones(queries, "multi-rate", start.plusMinutes(quarter), nextEnd.minusMinutes(1L), rate.getZoneId());
+                        }//end if
+                    }//end if
+                }//end for
+                ZoneId zone = rates.get(0).getZoneId();
+                ZonedDateTime start = ZonedDateTime.of(date, DAY_ZONE_START, zone);
+                addInZones(queries, "day-zone", start, start.plusHours(1L), zone);
+            }//end for
+        }//end for
+        Collections.shuffle(queries, new Random(SEED));
+
+        RateDTO first = model.getRates().get(0);
+        first.setPrice(first.getPrice() + 1);//a changed rate makes every upload compile a new version
+        return new QueryCorpus(Collections.unmodifiableList(queries), rateFile, mapper.writeValueAsBytes(model));
+    }//end method
+
+    /**
+     * Helper method used to add the given window expressed in the given {@code rateZone} and in each of the {@link #ZONES}.
+     *
+     * @param queries the list to add the queries to
+     * @param kind the kind of the query
+     * @param start the start of the window
+     * @param end the end of the window
+     * @param rateZone the zone of the rate
+     */
+    private static void addInZones(List<Query> queries, String kind, ZonedDateTime start, ZonedDateTime end, ZoneId rateZone) {
+        queries.add(new Query(kind, pricePath(start.withZoneSameInstant(rateZone), end.withZoneSameInstant(rateZone))));
+        for(String zone : ZONES) {
+            ZoneId zoneId = ZoneId.of(zone);
+            if(!zoneId.equals(rateZone)) {
+                queries.add(new Query(kind, pricePath(start.withZoneSameInstant(zoneId), end.withZoneSameInstant(zoneId))));
+            }//end if
+        }//end for
+    }//end method
+
+    /**
+     * Helper method used to build the path of the price query of the given window, using offsets rather than zone ids as clients do.
+     *
+     * @param start the start of the window
+     * @param end the end of the window
+     * @return the path and query string
+     */
+    private static String pricePath(ZonedDateTime start, ZonedDateTime end) {
+        try {
+            return "/price?start=" + URLEncoder.encode(DateTimeFormatter.ISO_OFFSET_DATE_TIME.format(start), "UTF-8") + "&end=" + URLEncoder.encode(DateTimeFormatter.ISO_OFFSET_DATE_TIME.format(end), "UTF-8");
+        }catch(UnsupportedEncodingException e) {
+            throw new IllegalStateException("UTF-8 is not supported.", e);
+        }//end try...catch
+    }//end method
+
+    /**
+     * @return the price queries in the order they are sent
+     */
+    public List<Query> getQueries() {
+        return queries;
+    }//end method
+
+    /**
+     * Gets the body of the {@code n}th rate upload, uploads alternate between the rate file and the rate file with a changed price.
+     *
+     * @param n the number of the upload
+     * @return the JSON body of the upload
+     */
+    public byte[] getUpload(long n) {
+        return (n & 1L) == 0L ? alternateRateFile : rateFile;
+    }//end method
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("QueryCorpus [queries=");
+        builder.append(queries.size());
+        for(String kind : new String[]{"hit", "multi-rate", "multi-day", "day-zone"}) {
+            builder.append(", ").append(kind).append("=").append(queries.stream().filter(query -> query.getKind().equals(kind)).count());
+        }//end for
+        builder.append("]");
+        return builder.toString();
+    }//end method
+
+    /**
+     * Price query of the corpus.
+     */
+    public static final class Query {
+
+        private final String kind;
+        private final String path;
+
+        /**
+         * Constructor used to create an instance of Query.
+         *
+         * @param kind the kind of the query
+         * @param path the path and query string of the request
+         */
+        Query(String kind, String path) {
+            this.kind = kind;
+            this.path = path;
+        }//end constructor
+
+        /**
+         * @return the kind of the query
+         */
+        public String getKind() {
+            return kind;
+        }//end method
+
+        /**
+         * @return the path and query string of the request
+         */
+        public String getPath() {
+            return path;
+        }//end method
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public String toString() {
+            return kind + " " + path;
+        }//end method
+
+    }//end inner class
+
+}//end class
@@ -0,0 +1,188 @@
+package gov.doc.isu.filters;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.RandomAccessFile;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Class: AccessLogDecoder.java
+ * <p>
+ * Offline tool that decodes the segments written by the {@link BinaryAccessLog} back into text or CSV.
+ * </p>
+ * <p>
+ * Usage: {@code java gov.doc.isu.filters.AccessLogDecoder [-csv] <segment file or directory>...}. The records of every given segment, or of every
+ * segment within a given directory, are written to the standard output oldest segment first. The route names are read from the routes file next to
+ * each segment.
+ * </p>
+ *
+ * @author Richard Salas JCCC
+ * @version 1.0.0
+ */
+public final class AccessLogDecoder {
+
+    /**
+     * Header line of the CSV output.
+     */
+    public static final String CSV_HEADER = "timestamp,route,status,duration_micros,client_ip,bytes_out";
+
+    private final boolean csv;
+    private final PrintStream out;
+
+    /**
+     * Constructor used to create an instance of AccessLogDecoder.
+     *
+     * @param csv
+     *        true to write CSV, false to write text
+     * @param out
+     *        the stream the decoded records are written to
+     */
+    public AccessLogDecoder(boolean csv, PrintStream out) {
+        this.csv = csv;
+        this.out = out;
+    }// end constructor
+
+    /**
+     * Decodes the segments named by the given arguments to the standard output.
+     *
+     * @param args
+     *        an optional {@code -csv} followed by segment files or directories
+     * @throws IOException
+     *         if a segment can not be read
+     */
+    public static void main(String[] args) throws IOException {
+        List<String> paths = new ArrayList<>(Arrays.asList(args));
+        boolean csv = paths.remove("-csv");
+        if(paths.isEmpty()){
+            System.err.println("Usage: java " + AccessLogDecoder.class.getName() + " [-csv] <segment file or directory>...");
+            System.exit(2);
+        }// end if
+        AccessLogDecoder decoder = new AccessLogDecoder(csv, System.out);
+        if(csv){
+            System.out.println(CSV_HEADER);
+        }// end if
+        for(String path : paths){
+            File file = new File(path);
+            if(file.isDirectory()){
+                File[] segments = file.listFiles((dir, name) -> name.endsWith(BinaryAccessLog.SEGMENT_EXTENSION));
+                Arrays.sort(segments, (a, b) -> a.getName().compareTo(b.getName()));// zero padded sequence numbers sort by name
+                for(File segment : segments){
+                    decoder.decode(segment);
+                }// end for
+            }else{
+                decoder.decode(file);
+            }// end if/else
+        }// end for
+        System.out.flush();
+    }// end method
+
+    /**
+     * Decodes the records of the given segment.
+     *
+     * @param segment
+     *        the segment file
+     * @return the number of records decoded
+     * @throws IOException
+     *         if the segment or its routes file can not be read
+     */
+    public long decode(File segment) throws IOException {
+        String name = segment.getName();
+        int dash = name.lastIndexOf('-');
+        Map<Integer, String> routes = BinaryAccessLog.readRoutes(BinaryAccessLog.getRoutesFile(segment.getAbsoluteFile().getParentFile(), dash > 0 ? name.substring(0, dash) : name));
+        long count = 0L;
+        try(RandomAccessFile raf = new RandomAccessFile(segment, "r")){
+            MappedByteBuffer buffer = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0L, raf.length());
+            if(buffer.limit() < BinaryAccessLog.RECORD_SIZE || buffer.getInt(0) != BinaryAccessLog.MAGIC){
+                throw new IOException(segment + " is not a binary access log segment.");
+            }// end if
+            int recordSize = buffer.getShort(BinaryAccessLog.HEADER_RECORD_SIZE_OFFSET);
+            if(buffer.getShort(BinaryAccessLog.HEADER_VERSION_OFFSET) != BinaryAccessLog.VERSION || recordSize != BinaryAccessLog.RECORD_SIZE){
+                throw new IOException(segment + " uses an unsupported record layout.");
+            }// end if
+            for(int offset = recordSize;offset + recordSize <= buffer.limit();offset += recordSize){
+                long epochNanos = buffer.getLong(offset + BinaryAccessLog.EPOCH_NANOS_OFFSET);
+                if(epochNanos != 0L){// unused or incomplete slot otherwise
+                    writeRecord(buffer, offset, epochNanos, routes);
+                    count++;
+                }// end if
+            }// end for
+        }// end try
+        return count;
+    }// end method
+
+    /**
+     * Helper method used to write the record found at the given {@code offset}.
+     *
+     * @param buffer
+     *        the mapped segment
+     * @param offset
+     *        the offset of the record
+     * @param epochNanos
+     *        the epoch nanoseconds of the record
+     * @param routes
+     *        the route names by id
+     */
+    private void writeRecord(MappedByteBuffer buffer, int offset, long epochNanos, Map<Integer, String> routes) {
+        int routeId = buffer.getInt(offset + BinaryAccessLog.ROUTE_ID_OFFSET);
+        String route = routeId == BinaryAccessLog.UNMATCHED_ROUTE_ID ? "unmatched" : routes.getOrDefault(routeId, "route#" + routeId);
+        int status = buffer.getShort(offset + BinaryAccessLog.STATUS_OFFSET);
+        long durationNanos = buffer.getLong(offset + BinaryAccessLog.DURATION_OFFSET);
+        long bytesOut = buffer.getLong(offset + BinaryAccessLog.BYTES_OUT_OFFSET);
+        String timestamp = Instant.ofEpochSecond(0L, epochNanos).toString();
+        String address = readAddress(buffer, offset);
+        if(csv){
+            out.println(timestamp + "," + quote(route) + "," + status + "," + (durationNanos / 1000L) + "," + address + "," + (bytesOut < 0L ? "" : String.valueOf(bytesOut)));
+        }else{
+            out.println("[" + timestamp + "], [" + route + "], [" + status + "], [" + (durationNanos / 1000000.0) + " ms], [IP Address: " + address + "], [Bytes: " + (bytesOut < 0L ? "unknown" : String.valueOf(bytesOut)) + "]");
+        }// end if/else
+    }// end method
+
+    /**
+     * Helper method used to read the client address of the record found at the given {@code offset}.
+     *
+     * @param buffer
+     *        the mapped segment
+     * @param offset
+     *        the offset of the record
+     * @return the client address, empty if unknown
+     */
+    private static String readAddress(MappedByteBuffer buffer, int offset) {
+        int length = buffer.getShort(offset + BinaryAccessLog.IP_LENGTH_OFFSET);
+        if(length != 4 && length != 16){
+            return "";
+        }// end if
+        byte[] address = new byte[length];
+        for(int i = 0;i < length;i++){
+            address[i] = buffer.get(offset + BinaryAccessLog.IP_OFFSET + i);
+        }// end for
+        try{
+            return InetAddress.getByAddress(address).getHostAddress();
+        }catch(UnknownHostException e){
+            return "";
+        }// end try...catch
+    }// end method
+
+    /**
+     * Helper method used to quote a CSV value when needed.
+     *
+     * @param value
+     *        the value
+     * @return the CSV value
+     */
+    private static String quote(String value) {
+        if(value.indexOf(',') < 0 && value.indexOf('"') < 0){
+            return value;
+        }// end if
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }// end method
+
+}// end class
@@ -0,0 +1,525 @@
+package gov.doc.isu.filters;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Class: BinaryAccessLog.java
+ * <p>
+ * Access log that writes one fixed width binary record per request into memory mapped, segment rotated files.
+ * </p>
+ * <p>
+ * Every record is {@value #RECORD_SIZE} bytes holding the epoch nanoseconds of the request start, the route id, the status, the duration in
+ * nanoseconds, the bytes sent and the client IP address bytes. A writer claims its record slot with one atomic increment and writes the record
+ * straight into the mapped segment, so logging a request never locks, formats or allocates. When a segment is full the next segment is created
+ * and the oldest segments beyond the maximum are deleted.
+ * </p>
+ * <p>
+ * The mapping of a closed segment is only released once it is garbage collected, and on Windows a file that is still mapped can not be
+ * deleted. A segment that can not be deleted is retried on every later rotation. At most {@code maxSegments} segments may wait to be deleted, so
+ * there are never more than twice {@code maxSegments} segments on disk. Once that backlog is full no new segment is created and records are
+ * dropped, with the rotation retried every {@value #ROTATE_RETRY_MILLIS} milliseconds until the backlog has room again.
+ * </p>
+ * <p>
+ * Segments are named {@code <prefix>-<sequence>.bin}. The route ids are assigned the first time a route is seen and are appended to the
+ * {@code <prefix>.routes} file next to the segments so the {@link AccessLogDecoder} can turn the segments back into text or CSV.
+ * </p>
+ *
+ * @author Richard Salas JCCC
+ * @version 1.0.0
+ */
+public final class BinaryAccessLog implements Closeable {
+
+    /**
+     * Magic number found at the start of every segment, the ASCII characters {@code PKAL}.
+     */
+    public static final int MAGIC = 0x504B414C;
+
+    /**
+     * Version of the record layout.
+     */
+    public static final short VERSION = 1;
+
+    /**
+     * Size in bytes of a record, the segment header is the size of one record.
+     */
+    public static final int RECORD_SIZE = 48;
+
+    /**
+     * Route id recorded for requests that did not match a route.
+     */
+    public static final int UNMATCHED_ROUTE_ID = 0;
+
+    /**
+     * Milliseconds waited before retrying a rotation that was postponed because too many segments are waiting to be deleted.
+     */
+    public static final long ROTATE_RETRY_MILLIS = 1000L;
+
+    // record layout, all values big endian
+    static final int EPOCH_NANOS_OFFSET = 0;
+    static final int ROUTE_ID_OFFSET = 8;
+    static final int STATUS_OFFSET = 12;
+    static final int IP_LENGTH_OFFSET = 14;
+    static final int DURATION_OFFSET = 16;
+    static final int BYTES_OUT_OFFSET = 24;
+    static final int IP_OFFSET = 32;
+
+    // header layout
+    static final int HEADER_VERSION_OFFSET = 4;
+    static final int HEADER_RECORD_SIZE_OFFSET = 6;
+    static final int HEADER_CREATED_OFFSET = 8;
+    static final int HEADER_RECORD_COUNT_OFFSET = 16;
+
+    static final String SEGMENT_EXTENSION = ".bin";
+    static final String ROUTES_EXTENSION = ".routes";
+
+    private static Logger logger = Logger.getLogger("gov.doc.isu.filters.BinaryAccessLog");
+
+    private final File directory;
+    private final String prefix;
+    private final int recordsPerSegment;
+    private final int maxSegments;
+    private final ConcurrentHashMap<String, Integer> routeIds = new ConcurrentHashMap<>();
+    private final LongAdder droppedCount = new LongAdder();
+    private final Set<File> undeletable = new HashSet<>();// segments that failed to delete, retried on every rotation
+    private volatile Segment current;
+    private long sequence;
+    private long rotateRetryNanos = System.nanoTime();
+    private boolean postponed;
+    private int nextRouteId = UNMATCHED_ROUTE_ID + 1;
+    private boolean closed;
+
+    /**
+     * Constructor used to create an instance of BinaryAccessLog, the first segment is created right away.
+     *
+     * @param directory
+     *        the directory holding the segments
+     * @param prefix
+     *        the prefix of the segment file names
+     * @param segmentSize
+     *        the size of a segment in bytes
+     * @param maxSegments
+     *        the number of segments kept before the oldest is deleted
+     * @throws IOException
+     *         if the directory, the routes or the first segment can not be read or created
+     */
+    public BinaryAccessLog(File directory, String prefix, long segmentSize, int maxSegments) throws IOException {
+        this.directory = directory;
+        this.prefix = prefix;
+        this.recordsPerSegment = (int) Math.max(1L, Math.min(segmentSize, Integer.MAX_VALUE) / RECORD_SIZE - 1L);// less the header
+        this.maxSegments = Math.max(1, maxSegments);
+        Files.createDirectories(directory.toPath());
+        for(Map.Entry<Integer, String> entry : readRoutes(getRoutesFile(directory, prefix)).entrySet()){
+            routeIds.put(entry.getValue(), entry.getKey());
+            nextRouteId = Math.max(nextRouteId, entry.getKey() + 1);
+        }// end for
+        for(File segment : listSegments(directory, prefix)){
+            sequence = Math.max(sequence, getSequence(segment, prefix));
+        }// end for
+        this.current = openSegment();
+        deleteOldSegments();
+    }// end constructor
+
+    /**
+     * Writes the record of one request.
+     *
+     * @param startNanos
+     *        the {@link System#nanoTime()} at the start of the request
+     * @param route
+     *        the route of the request, null if it did not match a route
+     * @param status
+     *        the HTTP status code of the response
+     * @param durationNanos
+     *        the duration of the request in nanoseconds
+     * @param clientAddress
+     *        the client IP address, only the first address of a comma separated list is recorded
+     * @param bytesOut
+     *        the number of bytes sent, -1 if unknown
+     */
+    public void write(long startNanos, String route, int status, long durationNanos, String clientAddress, long bytesOut) {
+        int routeId = getRouteId(route);
+        for(;;){
+            Segment segment = current;
+            if(segment == null){
+                droppedCount.increment();// closed or a segment could not be created
+                return;
+            }// end if
+            int slot = segment.next.getAndIncrement();
+            if(slot < recordsPerSegment){
+                segment.write(slot, startNanos, routeId, status, durationNanos, clientAddress, bytesOut);
+                return;
+            }// end if
+            rotate(segment);
+            if(current == segment){
+                droppedCount.increment();// the rotation was postponed
+                return;
+            }// end if
+        }// end for
+    }// end method
+
+    /**
+     * @return the number of records dropped because no segment was available or the rotation was postponed
+     */
+    public long getDroppedCount() {
+        return droppedCount.sum();
+    }// end method
+
+    /**
+     * Forces the current segment to disk and stops writing records.
+     */
+    public synchronized void close() {
+        closed = true;
+        Segment segment = current;
+        current = null;
+        if(segment != null){
+            segment.close();
+        }// end if
+    }// end method
+
+    /**
+     * Gets the id of the given route, assigning and saving a new id the first time the route is seen.
+     *
+     * @param route
+     *        the route, may be null
+     * @return the route id
+     */
+    private int getRouteId(String route) {
+        if(route == null){
+            return UNMATCHED_ROUTE_ID;
+        }// end if
+        Integer id = routeIds.get(route);
+        return id != null ? id.intValue() : assignRouteId(route);
+    }// end method
+
+    /**
+     * Helper method used to assign the next id to the given route and append it to the routes file.
+     *
+     * @param route
+     *        the route
+     * @return the route id
+     */
+    private synchronized int assignRouteId(String route) {
+        Integer id = routeIds.get(route);
+        if(id != null){
+            return id.intValue();
+        }// end if
+        int newId = nextRouteId++;
+        try(Writer writer = Files.newBufferedWriter(getRoutesFile(directory, prefix).toPath(), StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND)){
+            writer.write(newId + "\t" + route.replace('\n', ' ').replace('\t', ' ') + "\n");
+        }catch(IOException e){
+            logger.error("IOException occurred while saving the route id of the binary access log. Values of interest are route=" + route + ", id=" + newId + " Error message is: " + e.getMessage(), e);
+        }// end try...catch
+        routeIds.put(route, newId);
+        return newId;
+    }// end method
+
+    /**
+     * Helper method used to replace the given {@code full} segment with a new segment, unless another thread already did. The rotation is postponed
+     * while {@code maxSegments} segments are waiting to be deleted, leaving the full segment in place.
+     *
+     * @param full
+     *        the segment that has no free slots
+     */
+    private synchronized void rotate(Segment full) {
+        if(closed || current != full || System.nanoTime() - rotateRetryNanos < 0L){
+            return;
+        }// end if
+        if(deleteOldSegments() >= maxSegments){
+            rotateRetryNanos = System.nanoTime() + ROTATE_RETRY_MILLIS * 1000000L;
+            if(!postponed){
+                postponed = true;
+                logger.error("Too many binary access log segments are waiting to be deleted, records are dropped until they are. Values of interest are directory=" + directory + ", undeletable=" + undeletable);
+            }// end if
+            return;
+        }else if(postponed){
+            postponed = false;
+            logger.warn("The binary access log segments waiting to be deleted were deleted, records are written again. Value of interest is droppedCount=" + droppedCount.sum());
+        }// end if/else
+        try{
+            current = openSegment();
+        }catch(IOException e){
+            current = null;
+            logger.error("IOException occurred while creating the next segment of the binary access log, records are dropped until restart. Values of interest are directory=" + directory + ", prefix=" + prefix + " Error message is: " + e.getMessage(), e);
+        }// end try...catch
+        full.close();
+        deleteOldSegments();
+    }// end method
+
+    /**
+     * Helper method used to create and map the next segment.
+     *
+     * @return the new segment
+     * @throws IOException
+     *         if the segment can not be created
+     */
+    private Segment openSegment() throws IOException {
+        sequence++;
+        File file = new File(directory, prefix + "-" + String.format("%06d", sequence) + SEGMENT_EXTENSION);
+        long size = (long) (recordsPerSegment + 1) * RECORD_SIZE;
+        try(RandomAccessFile raf = new RandomAccessFile(file, "rw")){
+            raf.setLength(size);
+            MappedByteBuffer buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0L, size);// the mapping stays valid once the channel is closed
+            buffer.putInt(0, MAGIC);
+            buffer.putShort(HEADER_VERSION_OFFSET, VERSION);
+            buffer.putShort(HEADER_RECORD_SIZE_OFFSET, (short) RECORD_SIZE);
+            buffer.putLong(HEADER_CREATED_OFFSET, System.currentTimeMillis());
+            buffer.putInt(HEADER_RECORD_COUNT_OFFSET, recordsPerSegment);
+            return new Segment(buffer);
+        }// end try
+    }// end method
+
+    /**
+     * Helper method used to delete the oldest segments beyond the maximum number of segments. A segment that can not be deleted is logged the first
+     * time and kept as undeletable until a later call deletes it.
+     *
+     * @return the number of segments beyond the maximum that could not be deleted
+     */
+    private int deleteOldSegments() {
+        File[] segments = listSegments(directory, prefix);
+        int remaining = 0;
+        for(int i = 0;i < segments.length - maxSegments;i++){
+            if(segments[i].delete()){
+                undeletable.remove(segments[i]);
+            }else{
+                remaining++;
+                if(undeletable.add(segments[i])){
+                    logger.warn("Unable to delete the binary access log segment " + segments[i] + ", it is retried on the next rotation.");
+                }// end if
+            }// end if/else
+        }// end for
+        undeletable.retainAll(Arrays.asList(segments));// removed by someone else
+        return remaining;
+    }// end method
+
+    /**
+     * Lists the segments of the given {@code prefix} within the given {@code directory} ordered oldest first.
+     *
+     * @param directory
+     *        the directory holding the segments
+     * @param prefix
+     *        the prefix of the segment file names
+     * @return the segment files
+     */
+    static File[] listSegments(File directory, String prefix) {
+        File[] segments = directory.listFiles((dir, name) -> name.startsWith(prefix + "-") && name.endsWith(SEGMENT_EXTENSION) && getSequence(new File(dir, name), prefix) > 0L);
+        if(segments == null){
+            return new File[0];
+        }// end if
+        Arrays.sort(segments, (a, b) -> Long.compare(getSequence(a, prefix), getSequence(b, prefix)));
+        return segments;
+    }// end method
+
+    /**
+     * Gets the sequence number of the given segment.
+     *
+     * @param segment
+     *        the segment file
+     * @param prefix
+     *        the prefix of the segment file names
+     * @return the sequence number, 0 if the file name does not hold one
+     */
+    static long getSequence(File segment, String prefix) {
+        String name = segment.getName();
+        try{
+            return Long.parseLong(name.substring(prefix.length() + 1, name.length() - SEGMENT_EXTENSION.length()));
+        }catch(RuntimeException e){
+            return 0L;
+        }// end try...catch
+    }// end method
+
+    /**
+     * Gets the routes file of the given {@code prefix}.
+     *
+     * @param directory
+     *        the directory holding the segments
+     * @param prefix
+     *        the prefix of the segment file names
+     * @return the routes file
+     */
+    static File getRoutesFile(File directory, String prefix) {
+        return new File(directory, prefix + ROUTES_EXTENSION);
+    }// end method
+
+    /**
+     * Reads the route ids from the given routes file.
+     *
+     * @param routesFile
+     *        the routes file
+     * @return the routes by id, empty if the file does not exist
+     * @throws IOException
+     *         if the file can not be read
+     */
+    static Map<Integer, String> readRoutes(File routesFile) throws IOException {
+        Map<Integer, String> routes = new TreeMap<>();
+        if(routesFile.isFile()){
+            for(String line : Files.readAllLines(routesFile.toPath(), StandardCharsets.UTF_8)){
+                int tab = line.indexOf('\t');
+                if(tab > 0){
+                    routes.put(Integer.valueOf(line.substring(0, tab)), line.substring(tab + 1));
+                }// end if
+            }// end for
+        }// end if
+        return routes;
+    }// end method
+
+    /**
+     * Helper method used to write the IPv4 address held within {@code value} between {@code start} and {@code end} into the given buffer without
+     * allocating.
+     *
+     * @param value
+     *        the text holding the address
+     * @param start
+     *        the index of the first character
+     * @param end
+     *        the index after the last character
+     * @param buffer
+     *        the buffer to write to
+     * @param offset
+     *        the offset of the first address byte
+     * @return true if the text held an IPv4 address
+     */
+    private static boolean putIpv4(String value, int start, int end, MappedByteBuffer buffer, int offset) {
+        int octet = -1;
+        int count = 0;
+        for(int i = start;i < end;i++){
+            char c = value.charAt(i);
+            if(c >= '0' && c <= '9'){
+                octet = (octet < 0 ? 0 : octet * 10) + (c - '0');
+                if(octet > 255){
+                    return false;
+                }// end if
+            }else if(c == '.' && octet >= 0 && count < 3){
+                buffer.put(offset + count++, (byte) octet);
+                octet = -1;
+            }else{
+                return false;
+            }// end if/else
+        }// end for
+        if(octet < 0 || count != 3){
+            return false;
+        }// end if
+        buffer.put(offset + count, (byte) octet);
+        return true;
+    }// end method
+
+    /**
+     * A mapped segment file.
+     */
+    private static final class Segment {
+
+        private final MappedByteBuffer buffer;
+        private final AtomicInteger next = new AtomicInteger();
+        private final long epochNanosBase;
+
+        /**
+         * Constructor used to create an instance of Segment.
+         *
+         * @param buffer
+         *        the mapped segment file
+         */
+        Segment(MappedByteBuffer buffer) {
+            this.buffer = buffer;
+            this.epochNanosBase = System.currentTimeMillis() * 1000000L - System.nanoTime();// recalibrated with every segment
+        }// end constructor
+
+        /**
+         * Writes one record into the given {@code slot}. The epoch nanoseconds are written last so a record whose epoch nanoseconds are zero is
+         * known to be incomplete.
+         *
+         * @param slot
+         *        the claimed slot
+         * @param startNanos
+         *        the {@link System#nanoTime()} at the start of the request
+         * @param routeId
+         *        the route id
+         * @param status
+         *        the HTTP status code
+         * @param durationNanos
+         *        the duration in nanoseconds
+         * @param clientAddress
+         *        the client IP address, may be null
+         * @param bytesOut
+         *        the number of bytes sent
+         */
+        void write(int slot, long startNanos, int routeId, int status, long durationNanos, String clientAddress, long bytesOut) {
+            int offset = (slot + 1) * RECORD_SIZE;
+            buffer.putInt(offset + ROUTE_ID_OFFSET, routeId);
+            buffer.putShort(offset + STATUS_OFFSET, (short) status);
+            buffer.putLong(offset + DURATION_OFFSET, durationNanos);
+            buffer.putLong(offset + BYTES_OUT_OFFSET, bytesOut);
+            buffer.putShort(offset + IP_LENGTH_OFFSET, (short) putAddress(clientAddress, offset + IP_OFFSET));
+            buffer.putLong(offset + EPOCH_NANOS_OFFSET, epochNanosBase + startNanos);
+        }// end method
+
+        /**
+         * Helper method used to write the first address of the given {@code clientAddress} list.
+         *
+         * @param clientAddress
+         *        the client IP address, may be null
+         * @param offset
+         *        the offset of the first address byte
+         * @return the number of address bytes written, 0 if the address is unknown
+         */
+        private int putAddress(String clientAddress, int offset) {
+            if(clientAddress == null){
+                return 0;
+            }// end if
+            int end = clientAddress.indexOf(',');
+            end = end < 0 ? clientAddress.length() : end;
+            int start = 0;
+            while(start < end && clientAddress.charAt(start) == ' '){
+                start++;
+            }// end while
+            while(end > start && clientAddress.charAt(end - 1) == ' '){
+                end--;
+            }// end while
+            if(putIpv4(clientAddress, start, end, buffer, offset)){
+                return 4;
+            }// end if
+            if(clientAddress.indexOf(':', start) < 0 || clientAddress.indexOf(':', start) >= end){
+                return 0;
+            }// end if
+            try{
+                byte[] address = InetAddress.getByName("[" + clientAddress.substring(start, end) + "]").getAddress();// brackets only accept an IPv6 literal, never a lookup
+                for(int i = 0;i < address.length;i++){
+                    buffer.put(offset + i, address[i]);
+                }// end for
+                return address.length;
+            }catch(IOException e){
+                return 0;
+            }// end try...catch
+        }// end method
+
+        /**
+         * Forces the segment to disk.
+         */
+        void close() {
+            try{
+                buffer.force();
+            }catch(RuntimeException e){
+                logger.warn("Unable to force the binary access log segment to disk. Error message is: " + e.getMessage());
+            }// end try...catch
+        }// end method
+
+    }// end inner class
+
+}// end class
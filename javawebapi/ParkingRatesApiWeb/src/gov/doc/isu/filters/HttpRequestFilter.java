@@ -1,5 +1,6 @@
 package gov.doc.isu.filters;
 
+import java.io.File;
 import java.io.IOException;
 import java.math.BigDecimal;
 import java.sql.Time;
@@ -7,6 +8,8 @@ import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.Enumeration;
 
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
 import javax.servlet.Filter;
 import javax.servlet.FilterChain;
 import javax.servlet.FilterConfig;
@@ -14,14 +17,28 @@ import javax.servlet.ServletException;
 import javax.servlet.ServletRequest;
 import javax.servlet.ServletResponse;
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 
 import org.apache.log4j.Logger;
+import org.apache.log4j.helpers.OptionConverter;
+
+import gov.doc.isu.metrics.MetricsRegistry;
 
 /**
  * Class: HttpRequestFilter.java Date: Jan 12, 2006 Description:
  * <p>
  * Filter to log performance issues.
  * </p>
+ * <p>
+ * The {@code accessLog} init parameter chooses how each request is logged. The default {@code text} mode writes a formatted line per request to the
+ * log. The {@code binary} mode writes a fixed width record per request to a {@link BinaryAccessLog} instead, which neither formats nor allocates;
+ * the segments are read back with the {@link AccessLogDecoder}. The binary mode is configured with the {@code accessLogDirectory},
+ * {@code accessLogPrefix}, {@code accessLogSegmentSize} and {@code accessLogMaxSegments} init parameters.
+ * </p>
+ * <p>
+ * A request put into asynchronous mode by the web application is recorded once its asynchronous processing completes, so its latency and status
+ * are those of the response actually sent.
+ * </p>
  *
  * @author Michael R. Dirks,Dwayne T. Walker
  * @author Andrew Fagre JCCC
@@ -29,8 +46,19 @@ import org.apache.log4j.Logger;
  * @version 1.1.0
  */
 public class HttpRequestFilter implements Filter {
+    /**
+     * Request attribute holding the route of the request, set by the web application once the request has been matched. The route is used to
+     * group the request latencies within the {@link MetricsRegistry}.
+     */
+    public static final String ROUTE_ATTRIBUTE = "gov.doc.isu.filters.route";
+
+    private static final long DEFAULT_SEGMENT_SIZE = 64L * 1024L * 1024L;
+    private static final int DEFAULT_MAX_SEGMENTS = 10;
+
     private static Logger logger = Logger.getLogger("gov.doc.isu.filters.HttpRequestFilter");
+    private final MetricsRegistry metrics = MetricsRegistry.getInstance();
     private FilterConfig filterConfig;
+    private BinaryAccessLog accessLog;// null within the text mode
 
     /**
      * <p>
@@ -54,10 +82,40 @@ public class HttpRequestFilter implements Filter {
      */
     public void init(FilterConfig config) throws ServletException {
         this.filterConfig = config;
+        if("binary".equalsIgnoreCase(config.getInitParameter("accessLog"))){
+            String directory = getInitParameter(config, "accessLogDirectory", System.getProperty("java.io.tmpdir"));
+            String prefix = getInitParameter(config, "accessLogPrefix", "access");
+            long segmentSize = OptionConverter.toFileSize(config.getInitParameter("accessLogSegmentSize"), DEFAULT_SEGMENT_SIZE);
+            int maxSegments = OptionConverter.toInt(config.getInitParameter("accessLogMaxSegments"), DEFAULT_MAX_SEGMENTS);
+            try{
+                accessLog = new BinaryAccessLog(new File(directory), prefix, segmentSize, maxSegments);
+                metrics.counter("http_access_log_dropped_total", "Number of access log records dropped because no segment was available.", accessLog::getDroppedCount);
+                logger.info("Writing the binary access log to " + directory + " using segments of " + segmentSize + " bytes.");
+            }catch(IOException e){
+                throw new ServletException("Unable to create the binary access log. Values of interest are accessLogDirectory=" + directory + ", accessLogPrefix=" + prefix, e);
+            }// end try...catch
+        }// end if
     }// end method
 
     /**
-     * Performs the HTTP request filter action that displays the HTTP request information in the system output log.
+     * Gets the value of the given init parameter.
+     *
+     * @param config
+     *        the filter configuration object
+     * @param name
+     *        the name of the init parameter
+     * @param defaultValue
+     *        the value used when the parameter is not set
+     * @return the value of the init parameter
+     */
+    private String getInitParameter(FilterConfig config, String name, String defaultValue) {
+        String value = config.getInitParameter(name);
+        return value == null || value.trim().isEmpty() ? defaultValue : value.trim();
+    }// end method
+
+    /**
+     * Performs the HTTP request filter action that displays the HTTP request information in the system output log and records the request
+     * latency by route and status within the {@link MetricsRegistry}.
      *
      * @param req
      *        HTTP Request Object
@@ -73,6 +131,11 @@ public class HttpRequestFilter implements Filter {
     public void doFilter(ServletRequest req, ServletResponse resp, FilterChain chain) throws ServletException, IOException {
         logger.debug("Entering doFilter()");
         HttpServletRequest request = (HttpServletRequest) req;
+        if(accessLog != null){
+            doFilterBinary(request, (HttpServletResponse) resp, chain);
+            logger.debug("Exiting doFilter()");
+            return;
+        }// end if
 
         // getting the ip of the users machine
         String ipAddress = (null != request.getHeader("X-Forwarded-For") ? request.getHeader("X-Forwarded-For") : request.getRemoteAddr());
@@ -82,9 +145,9 @@ public class HttpRequestFilter implements Filter {
         // that we can use for tracking in the log
         String systemTimestamp = new SimpleDateFormat("[MM/dd/yyyy hh:mm:ss.SSS]").format(new Date());
 
-        // Store the system timestamp as a date value also so that we can
-        // record how many milliseconds each transaction takes
-        java.util.Date start = new java.util.Date();
+        // Store the start time so that we can record how long each transaction takes
+        long startNanos = System.nanoTime();
+        int status = HttpServletResponse.SC_INTERNAL_SERVER_ERROR;// reported if the chain throws
 
         // Store the request URL so that we can associate that with the
         // response time to
@@ -92,28 +155,153 @@ public class HttpRequestFilter implements Filter {
         String urlString = request.getRequestURL().toString().concat(getHttpRequestMethodParameter(request));
 
         // Write the details of the request to the output log
+        metrics.requestStarted();
         try{
             // Allow the request to be processed by the web application
             chain.doFilter(req, resp);
+            status = ((HttpServletResponse) resp).getStatus();
         }catch(ServletException e){
-            StringBuffer sb = new StringBuffer("A ServletException was caught in the HttpRequestFilter doFilter() method. Exception Message: ").append(e.getMessage()).append(". Some Details follow: ").append("[request=").append(isNull(request)).append(", ipAddress=").append(isNull(ipAddress)).append(", userId=null").append(", systemTimestamp=").append(isNull(systemTimestamp)).append(", start=").append(isNull(start)).append(", urlString=").append(isNull(urlString)).append("]");
+            StringBuffer sb = new StringBuffer("A ServletException was caught in the HttpRequestFilter doFilter() method. Exception Message: ").append(e.getMessage()).append(". Some Details follow: ").append("[request=").append(isNull(request)).append(", ipAddress=").append(isNull(ipAddress)).append(", userId=null").append(", systemTimestamp=").append(isNull(systemTimestamp)).append(", urlString=").append(isNull(urlString)).append("]");
             logger.error(sb.toString(), e);
             throw e;
         }catch(IOException e){
-            StringBuffer sb = new StringBuffer("An IOException was caught in the HttpRequestFilter doFilter() method. Exception Message: ").append(e.getMessage()).append(". Some Details follow: ").append("[request=").append(isNull(request)).append(", ipAddress=").append(isNull(ipAddress)).append(", userId=null").append(", systemTimestamp=").append(isNull(systemTimestamp)).append(", start=").append(isNull(start)).append(", urlString=").append(isNull(urlString)).append("]");
+            StringBuffer sb = new StringBuffer("An IOException was caught in the HttpRequestFilter doFilter() method. Exception Message: ").append(e.getMessage()).append(". Some Details follow: ").append("[request=").append(isNull(request)).append(", ipAddress=").append(isNull(ipAddress)).append(", userId=null").append(", systemTimestamp=").append(isNull(systemTimestamp)).append(", urlString=").append(isNull(urlString)).append("]");
             logger.error(sb.toString(), e);
             throw e;
         }finally{
-            // stop the stop watch
-            long milliseconds = new java.util.Date().getTime() - start.getTime();
-
-            // Show that the request has completed processing
-            StringBuffer logBuffer = new StringBuffer("Processing complete for HTTP request, ").append(isNull(systemTimestamp)).append(", [").append(milliseconds).append(" ms], [").append(isNull(urlString)).append("], [IP Address: ").append(isNull(ipAddress)).append("], [UserId: null").append("]");
-            logger.info(logBuffer.toString());
+            if(request.isAsyncStarted()){
+                HttpServletResponse response = (HttpServletResponse) resp;
+                request.getAsyncContext().addListener(new CompletionListener(() -> completeText(request, response.getStatus(), startNanos, systemTimestamp, urlString, ipAddress)));
+            }else{
+                completeText(request, status, startNanos, systemTimestamp, urlString, ipAddress);
+            }// end if
             logger.debug("Exiting doFilter()");
         }// end try...catch
     }// end method
 
+    /**
+     * Records the latency of the given request within the {@link MetricsRegistry} and logs that it has completed, used by the text mode.
+     *
+     * @param request
+     *        HTTP Request Object
+     * @param status
+     *        the status of the response
+     * @param startNanos
+     *        the nano time the request started
+     * @param systemTimestamp
+     *        the formatted time the request started
+     * @param urlString
+     *        the URL of the request
+     * @param ipAddress
+     *        the ip of the users machine
+     */
+    private void completeText(HttpServletRequest request, int status, long startNanos, String systemTimestamp, String urlString, String ipAddress) {
+        // stop the stop watch
+        long nanos = System.nanoTime() - startNanos;
+        metrics.requestCompleted((String) request.getAttribute(ROUTE_ATTRIBUTE), status, nanos);
+        long milliseconds = nanos / 1000000L;
+
+        // Show that the request has completed processing
+        StringBuffer logBuffer = new StringBuffer("Processing complete for HTTP request, ").append(isNull(systemTimestamp)).append(", [").append(milliseconds).append(" ms], [").append(isNull(urlString)).append("], [IP Address: ").append(isNull(ipAddress)).append("], [UserId: null").append("]");
+        logger.info(logBuffer.toString());
+    }// end method
+
+    /**
+     * Performs the HTTP request filter action of the binary mode, the request is written to the {@link BinaryAccessLog} and the latency is recorded
+     * within the {@link MetricsRegistry}. Nothing is formatted unless the request fails.
+     *
+     * @param request
+     *        HTTP Request Object
+     * @param response
+     *        HTTP Response Object
+     * @param chain
+     *        filter chain
+     * @throws javax.servlet.ServletException
+     *         exeption that can be thrown by this method
+     * @throws java.io.IOException
+     *         exeption that can be thrown by this method
+     */
+    private void doFilterBinary(HttpServletRequest request, HttpServletResponse response, FilterChain chain) throws ServletException, IOException {
+        long startNanos = System.nanoTime();
+        int status = HttpServletResponse.SC_INTERNAL_SERVER_ERROR;// reported if the chain throws
+        metrics.requestStarted();
+        try{
+            chain.doFilter(request, response);
+            status = response.getStatus();
+        }catch(ServletException e){
+            logger.error("A ServletException was caught in the HttpRequestFilter doFilter() method. Exception Message: " + e.getMessage() + ". Some Details follow: " + describe(request), e);
+            throw e;
+        }catch(IOException e){
+            logger.error("An IOException was caught in the HttpRequestFilter doFilter() method. Exception Message: " + e.getMessage() + ". Some Details follow: " + describe(request), e);
+            throw e;
+        }finally{
+            if(request.isAsyncStarted()){
+                request.getAsyncContext().addListener(new CompletionListener(() -> completeBinary(request, response, response.getStatus(), startNanos)));
+            }else{
+                completeBinary(request, response, status, startNanos);
+            }// end if
+        }// end try...catch
+    }// end method
+
+    /**
+     * Records the latency of the given request within the {@link MetricsRegistry} and writes it to the {@link BinaryAccessLog}, used by the binary
+     * mode.
+     *
+     * @param request
+     *        HTTP Request Object
+     * @param response
+     *        HTTP Response Object
+     * @param status
+     *        the status of the response
+     * @param startNanos
+     *        the nano time the request started
+     */
+    private void completeBinary(HttpServletRequest request, HttpServletResponse response, int status, long startNanos) {
+        long nanos = System.nanoTime() - startNanos;
+        String route = (String) request.getAttribute(ROUTE_ATTRIBUTE);
+        metrics.requestCompleted(route, status, nanos);
+        BinaryAccessLog log = accessLog;// null once the filter has been destroyed
+        if(log != null){
+            String forwardedFor = request.getHeader("X-Forwarded-For");
+            log.write(startNanos, route, status, nanos, forwardedFor != null ? forwardedFor : request.getRemoteAddr(), getContentLength(response));
+        }// end if
+    }// end method
+
+    /**
+     * Used to describe the given request within an error message.
+     *
+     * @param request
+     *        the HttpServletRequest
+     * @return the description of the request
+     */
+    private String describe(HttpServletRequest request) {
+        String ipAddress = (null != request.getHeader("X-Forwarded-For") ? request.getHeader("X-Forwarded-For") : request.getRemoteAddr());
+        return "[request=" + isNull(request) + ", ipAddress=" + isNull(ipAddress) + ", userId=null, urlString=" + request.getRequestURL().append(getHttpRequestMethodParameter(request)) + "]";
+    }// end method
+
+    /**
+     * Used to read the Content-Length header of the response without allocating.
+     *
+     * @param response
+     *        the HttpServletResponse
+     * @return the number of bytes sent, -1 if the response did not set a Content-Length
+     */
+    private long getContentLength(HttpServletResponse response) {
+        String value = response.getHeader("Content-Length");
+        if(value == null || value.isEmpty()){
+            return -1L;
+        }// end if
+        long length = 0L;
+        for(int i = 0;i < value.length();i++){
+            char c = value.charAt(i);
+            if(c < '0' || c > '9'){
+                return -1L;
+            }// end if
+            length = length * 10L + (c - '0');
+        }// end for
+        return length;
+    }// end method
+
     /**
      * Used to extract the Method name from HttpRequest calls. This is used for Applications Utilizing DispatchAction.
      *
@@ -162,6 +350,10 @@ public class HttpRequestFilter implements Filter {
      */
     public void destroy() {
         this.filterConfig = null;
+        if(accessLog != null){
+            accessLog.close();
+            accessLog = null;
+        }// end if
     }// end method
 
     /**
@@ -210,6 +402,51 @@ public class HttpRequestFilter implements Filter {
         return retStr;
     }// end collapseArray
 
+    /**
+     * Listener running the given completion once the asynchronous processing of a request completes, which the container signals after a timeout or
+     * an error as well.
+     */
+    private static final class CompletionListener implements AsyncListener {
+
+        private final Runnable completion;
+
+        /**
+         * Creates a listener running the given completion.
+         *
+         * @param completion
+         *        the completion to run
+         */
+        CompletionListener(Runnable completion) {
+            this.completion = completion;
+        }// end method
+
+        /**
+         * {@inheritDoc}
+         */
+        public void onComplete(AsyncEvent event) throws IOException {
+            completion.run();
+        }// end method
+
+        /**
+         * {@inheritDoc}
+         */
+        public void onTimeout(AsyncEvent event) throws IOException {
+        }// end method
+
+        /**
+         * {@inheritDoc}
+         */
+        public void onError(AsyncEvent event) throws IOException {
+        }// end method
+
+        /**
+         * {@inheritDoc}
+         */
+        public void onStartAsync(AsyncEvent event) throws IOException {
+            event.getAsyncContext().addListener(this);// listen to the next round of asynchronous processing as well
+        }// end method
+    }// end class
+
     /**
      * @return the filterConfig
      */
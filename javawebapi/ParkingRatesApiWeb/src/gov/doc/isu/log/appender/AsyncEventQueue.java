@@ -0,0 +1,127 @@
+/**
+ *
+ */
+package gov.doc.isu.log.appender;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * AsyncEventQueue is a bounded, lock-free ring buffer of formatted log events used by the asynchronous mode of {@link MultiRollingFileAppender}.
+ *
+ * <p>Any number of threads may offer events. Only the single writer thread of the appender may poll or drain events. Every slot carries a sequence
+ * number so a producer claims a slot with one compare and set on the tail and publishes its event by advancing the slot sequence; no producer ever
+ * waits on a lock.</p>
+ *
+ * @author Richard Salas
+ */
+final class AsyncEventQueue {
+
+    private final int mask;
+    private final AtomicReferenceArray<String> events;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong head = new AtomicLong();
+
+    /**
+     * Creates a queue holding at least <code>capacity</code> events, the capacity is rounded up to a power of two.
+     *
+     * @param capacity - the minimum number of events the queue can hold
+     */
+    AsyncEventQueue(final int capacity) {
+        final int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.mask = size - 1;
+        this.events = new AtomicReferenceArray<String>(size);
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Adds the given <code>event</code> to the queue if there is room.
+     *
+     * @param event - the formatted event
+     * @return true if the event was added, false if the queue is full
+     */
+    boolean offer(final String event) {
+        long position = tail.get();
+        int index;
+        for (;;) {
+            index = (int) position & mask;
+            final long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                // the slot is free for this position so try to claim it
+                if (tail.compareAndSet(position, position + 1)) {
+                    break;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                // the slot still holds the event from one lap ago so the queue is full
+                return false;
+            } else {
+                // another producer claimed this position
+                position = tail.get();
+            }
+        }
+        events.lazySet(index, event);
+        sequences.lazySet(index, position + 1);
+        return true;
+    }
+
+    /**
+     * Removes the next event from the queue. Must only be called by the writer thread.
+     *
+     * @return the next event or null if no event has been published yet
+     */
+    String poll() {
+        final long position = head.get();
+        final int index = (int) position & mask;
+        if (sequences.get(index) != position + 1) {
+            return null;
+        }
+        final String event = events.get(index);
+        events.lazySet(index, null);
+        sequences.lazySet(index, position + mask + 1);
+        head.lazySet(position + 1);
+        return event;
+    }
+
+    /**
+     * Removes up to <code>max</code> events from the queue into the given <code>batch</code>. Must only be called by the writer thread.
+     *
+     * @param batch - the list the events are added to
+     * @param max - the maximum number of events to remove
+     * @return the number of events removed
+     */
+    int drainTo(final List<String> batch, final int max) {
+        int count = 0;
+        String event;
+        while (count < max && (event = poll()) != null) {
+            batch.add(event);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Returns the number of events claimed by producers and not yet removed by the writer thread.
+     *
+     * @return the queue depth
+     */
+    int size() {
+        return (int) Math.max(0, tail.get() - head.get());
+    }
+
+    /**
+     * Returns the maximum number of events the queue can hold.
+     *
+     * @return the capacity
+     */
+    int capacity() {
+        return mask + 1;
+    }
+
+}
@@ -7,18 +7,26 @@ import java.io.File;
 import java.io.IOException;
 import java.io.Writer;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.GregorianCalendar;
+import java.util.List;
 import java.util.Locale;
 import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 
 import org.apache.log4j.FileAppender;
 import org.apache.log4j.Layout;
+import org.apache.log4j.Level;
+import org.apache.log4j.PatternLayout;
 
 import org.apache.log4j.helpers.CountingQuietWriter;
 import org.apache.log4j.helpers.LogLog;
 import org.apache.log4j.helpers.OptionConverter;
+import org.apache.log4j.spi.Filter;
 import org.apache.log4j.spi.LoggingEvent;
 
 /**
@@ -138,6 +146,20 @@ import org.apache.log4j.spi.LoggingEvent;
  * as the protocol specification of a URL which is probably not what
  * you want.
  * 
+ * <p>Setting the <b>Async</b> option to <code>true</code> takes disk I/O off the
+ * logging thread. Events are formatted on the logging thread and offered to a
+ * bounded, lock-free queue of <b>QueueSize</b> events (default 8192), and a single
+ * writer thread writes them in batches of up to <b>BatchSize</b> events (default 256)
+ * and performs the roll overs. The <b>OverflowPolicy</b> option decides what happens
+ * when the queue is full:</p>
+ * <ul>
+ * <li><code>block</code> (default) - the logging thread waits for room in the queue.</li>
+ * <li><code>drop-debug</code> - events below INFO are dropped, other events wait for room.</li>
+ * <li><code>drop-all</code> - every event is dropped while the queue is full.</li>
+ * </ul>
+ * <p>Dropped events are counted by {@link #getDroppedCount()} and the current queue
+ * depth is available from {@link #getQueueDepth()}.</p>
+ * 
  * @author unascribed (File Appender)
  * @author Richard Salas JCCC, 11/20/2013 (modified FileAppender to be MultiRollingFileAppender)
  */
@@ -154,6 +176,24 @@ public class MultiRollingFileAppender extends FileAppender {
     static final int TOP_OF_WEEK = 4;
     static final int TOP_OF_MONTH = 5;
 
+    /**
+     * Overflow policies of the asynchronous mode.
+     */
+    static final String OVERFLOW_BLOCK = "block";
+    static final String OVERFLOW_DROP_DEBUG = "drop-debug";
+    static final String OVERFLOW_DROP_ALL = "drop-all";
+
+    /**
+     * How long the writer thread sleeps when the queue is empty and how long a blocked logging thread waits before trying again.
+     */
+    private static final long WRITER_IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+    private static final long PRODUCER_WAIT_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    /**
+     * How long close() waits for the writer thread to drain the queue.
+     */
+    private static final long WRITER_JOIN_MILLIS = 5000;
+
     /**
      * The date pattern. By default, the pattern is set to "'.'yyyy-MM-dd" meaning daily rollover.
      */
@@ -193,6 +233,28 @@ public class MultiRollingFileAppender extends FileAppender {
 
     private RollingCalendar rc = new RollingCalendar();
 
+    /**
+     * Asynchronous mode options, see the class description.
+     */
+    private boolean async = false;
+    private int queueSize = 8192;
+    private int batchSize = 256;
+    private String overflowPolicy = OVERFLOW_BLOCK;
+
+    /**
+     * The queue of formatted events and the writer thread draining it, only used in asynchronous mode.
+     */
+    private AsyncEventQueue queue;
+    private Thread writerThread;
+    private volatile boolean writerRunning;
+    private volatile boolean writerParked;
+    private final AtomicLong droppedCount = new AtomicLong();
+
+    /**
+     * A PatternLayout is not thread safe so every logging thread formats with its own copy in asynchronous mode.
+     */
+    private final ThreadLocal<Layout> threadLayout = new ThreadLocal<Layout>();
+
 //    private int checkPeriod = TOP_OF_TROUBLE; commented this line out because i may not need to use it but will keep it here for maybe implementing it in the future.
 
     /**
@@ -266,6 +328,11 @@ public class MultiRollingFileAppender extends FileAppender {
             // oops an error has occured so lets use log4j's logger that will log to a system out log.
             LogLog.error("Either File or DatePattern options are not set for appender [" + name + "].");
         }
+
+        // start the writer thread only once even if the options are activated again
+        if (async && writerThread == null) {
+            startWriter();
+        }
     }
 
     /**
@@ -343,6 +410,18 @@ public class MultiRollingFileAppender extends FileAppender {
      * @param event - the log event that was captured
      */
     protected void subAppend(final LoggingEvent event) {
+        checkScheduledRollOver();
+
+        // calling the super class subAppend method here to go ahead and append
+        super.subAppend(event);
+
+        checkSizeRollOver();
+    }
+
+    /**
+     * This method rolls over using the date pattern when the next check time has been reached.
+     */
+    private void checkScheduledRollOver() {
         final long n = System.currentTimeMillis();
         if (n >= nextCheck) {
             now.setTime(n);
@@ -354,16 +433,210 @@ public class MultiRollingFileAppender extends FileAppender {
                 LogLog.error("rollOver() failed.", ioe);
             }
         }
+    }
 
-        // calling the super class subAppend method here to go ahead and append
-        super.subAppend(event);
-
+    /**
+     * This method rolls over when the file has reached the <b>MaxFileSize</b>.
+     */
+    private void checkSizeRollOver() {
         // if fileName is not null then the counting queit writer (file in bytes) is greater than
         // the maxFileSize then rollover the file.
         if ((fileName != null) && ((CountingQuietWriter) qw).getCount() >= maxFileSize) {
             sizeRollOver();
         }
+    }
+
+    /**
+     * In synchronous mode this is the usual synchronized <code>doAppend</code> of the super class.
+     * 
+     * <p>In asynchronous mode the threshold and filters are checked and the event is formatted on the calling
+     * thread without taking the appender lock. The formatted event is then offered to the queue and written by
+     * the writer thread.</p>
+     * 
+     * @param event - the log event that was captured
+     */
+    public void doAppend(final LoggingEvent event) {
+        if (!writerRunning) {
+            super.doAppend(event);
+            return;
+        }
+
+        if (closed) {
+            LogLog.error("Attempted to append to closed appender named [" + name + "].");
+            return;
+        }
+        if (!isAsSevereAsThreshold(event.getLevel())) {
+            return;
+        }
+        Filter filter = getFilter();
+        while (filter != null) {
+            final int decision = filter.decide(event);
+            if (decision == Filter.DENY) {
+                return;
+            } else if (decision == Filter.ACCEPT) {
+                break;
+            }
+            filter = filter.getNext();
+        }
+        if (layout == null) {
+            errorHandler.error("No layout set for the appender named [" + name + "].");
+            return;
+        }
+
+        enqueue(event, format(event));
+    }
+
+    /**
+     * This method formats the given <code>event</code> the same way {@link org.apache.log4j.WriterAppender} does, including the
+     * throwable when the layout ignores it.
+     * 
+     * @param event - the log event that was captured
+     * @return the formatted event
+     */
+    private String format(final LoggingEvent event) {
+        Layout eventLayout = threadLayout.get();
+        if (eventLayout == null) {
+            eventLayout = layout instanceof PatternLayout ? new PatternLayout(((PatternLayout) layout).getConversionPattern()) : layout;
+            threadLayout.set(eventLayout);
+        }
+
+        String text;
+        if (eventLayout == layout) {
+            // unknown layouts may not be thread safe so share them under a lock, this never does any I/O
+            synchronized (layout) {
+                text = layout.format(event);
+            }
+        } else {
+            text = eventLayout.format(event);
+        }
 
+        if (eventLayout.ignoresThrowable()) {
+            final String[] throwable = event.getThrowableStrRep();
+            if (throwable != null) {
+                final StringBuilder builder = new StringBuilder(text);
+                for (final String line : throwable) {
+                    builder.append(line).append(Layout.LINE_SEP);
+                }
+                text = builder.toString();
+            }
+        }
+        return text;
+    }
+
+    /**
+     * This method offers the formatted event to the queue and applies the <b>OverflowPolicy</b> when the queue is full.
+     * 
+     * @param event - the log event that was captured
+     * @param text - the formatted event
+     */
+    private void enqueue(final LoggingEvent event, final String text) {
+        if (!queue.offer(text)) {
+            if (OVERFLOW_DROP_ALL.equals(overflowPolicy)
+                    || (OVERFLOW_DROP_DEBUG.equals(overflowPolicy) && !event.getLevel().isGreaterOrEqual(Level.INFO))) {
+                droppedCount.incrementAndGet();
+                return;
+            }
+
+            // block until the writer thread makes room
+            while (!queue.offer(text)) {
+                if (!writerRunning) {
+                    // the appender is closing so there is no one left to make room
+                    droppedCount.incrementAndGet();
+                    return;
+                }
+                LockSupport.unpark(writerThread);
+                LockSupport.parkNanos(this, PRODUCER_WAIT_NANOS);
+            }
+        }
+
+        if (writerParked) {
+            LockSupport.unpark(writerThread);
+        }
+    }
+
+    /**
+     * This method starts the writer thread of the asynchronous mode.
+     */
+    private void startWriter() {
+        queue = new AsyncEventQueue(queueSize);
+        writerRunning = true;
+        writerThread = new Thread(new Runnable() {
+            public void run() {
+                drainQueue();
+            }
+        }, "MultiRollingFileAppender-" + name);
+        writerThread.setDaemon(true);
+        writerThread.start();
+        LogLog.debug("Appender [" + name + "] writing asynchronously with a queue of " + queue.capacity() + " events and the "
+                + overflowPolicy + " overflow policy.");
+    }
+
+    /**
+     * This method stops the writer thread of the asynchronous mode after it has written the events left in the queue.
+     */
+    private void stopWriter() {
+        final Thread thread = writerThread;
+        if (thread == null) {
+            return;
+        }
+        writerRunning = false;
+        LockSupport.unpark(thread);
+        try {
+            thread.join(WRITER_JOIN_MILLIS);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        writerThread = null;
+    }
+
+    /**
+     * This method is the loop of the writer thread. It writes the queued events in batches until the appender is closed
+     * and the queue is empty.
+     */
+    private void drainQueue() {
+        final List<String> batch = new ArrayList<String>(batchSize);
+        while (writerRunning || queue.size() > 0) {
+            batch.clear();
+            if (queue.drainTo(batch, batchSize) > 0) {
+                writeBatch(batch);
+            } else if (writerRunning) {
+                // announce that we are about to sleep and check once more so an offer is never missed
+                writerParked = true;
+                if (queue.size() == 0) {
+                    LockSupport.parkNanos(this, WRITER_IDLE_NANOS);
+                }
+                writerParked = false;
+            } else {
+                // the remaining events have been claimed but not yet published
+                Thread.yield();
+            }
+        }
+    }
+
+    /**
+     * This method writes a batch of formatted events, rolling over as needed, and flushes once at the end of the batch.
+     * 
+     * @param batch - the formatted events
+     */
+    private synchronized void writeBatch(final List<String> batch) {
+        if (qw == null) {
+            errorHandler.error("No output stream or file set for the appender named [" + name + "].");
+            return;
+        }
+        checkScheduledRollOver();
+        for (final String text : batch) {
+            qw.write(text);
+            checkSizeRollOver();
+        }
+        qw.flush();
+    }
+
+    /**
+     * Closes the appender, in asynchronous mode the events left in the queue are written first.
+     */
+    public void close() {
+        stopWriter();
+        super.close();
     }
 
     /**
@@ -638,6 +911,104 @@ public class MultiRollingFileAppender extends FileAppender {
         maxFileSize = OptionConverter.toFileSize(value, maxFileSize + 1);
     }
 
+    /**
+     * Sets whether events are written asynchronously by a writer thread.
+     * 
+     * @param async - true to write asynchronously
+     */
+    public void setAsync(final boolean async) {
+        this.async = async;
+    }
+
+    /**
+     * Returns the value of the <b>Async</b> option.
+     * 
+     * @return true if events are written asynchronously
+     */
+    public boolean isAsync() {
+        return async;
+    }
+
+    /**
+     * Sets the minimum number of events the queue can hold in asynchronous mode, rounded up to a power of two.
+     * 
+     * @param queueSize - the queue size
+     */
+    public void setQueueSize(final int queueSize) {
+        this.queueSize = queueSize;
+    }
+
+    /**
+     * Returns the value of the <b>QueueSize</b> option.
+     * 
+     * @return the queue size
+     */
+    public int getQueueSize() {
+        return queueSize;
+    }
+
+    /**
+     * Sets the maximum number of events the writer thread writes before flushing in asynchronous mode.
+     * 
+     * @param batchSize - the batch size
+     */
+    public void setBatchSize(final int batchSize) {
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * Returns the value of the <b>BatchSize</b> option.
+     * 
+     * @return the batch size
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Sets what happens when the queue is full in asynchronous mode, one of <code>block</code>, <code>drop-debug</code> or
+     * <code>drop-all</code>.
+     * 
+     * @param policy - the overflow policy
+     */
+    public void setOverflowPolicy(final String policy) {
+        final String value = policy == null ? "" : policy.trim().toLowerCase(Locale.ENGLISH);
+        if (OVERFLOW_BLOCK.equals(value) || OVERFLOW_DROP_DEBUG.equals(value) || OVERFLOW_DROP_ALL.equals(value)) {
+            this.overflowPolicy = value;
+        } else {
+            LogLog.warn("Unknown OverflowPolicy [" + policy + "] for appender [" + name + "], using " + OVERFLOW_BLOCK + ".");
+            this.overflowPolicy = OVERFLOW_BLOCK;
+        }
+    }
+
+    /**
+     * Returns the value of the <b>OverflowPolicy</b> option.
+     * 
+     * @return the overflow policy
+     */
+    public String getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    /**
+     * Returns the number of events dropped because the queue was full.
+     * 
+     * @return the dropped event count
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    /**
+     * Returns the number of events waiting in the queue to be written, always 0 in synchronous mode.
+     * 
+     * @return the queue depth
+     */
+    public int getQueueDepth() {
+        final AsyncEventQueue q = queue;
+        return q == null ? 0 : q.size();
+    }
+
     /**
      * Sets the quiet writer being used. This method is overriden by {@link RollingFileAppender}.
      * @param writer - the object for writing to character streams
@@ -0,0 +1,167 @@
+package gov.doc.isu.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Class: LatencyHistogram.java
+ * <p>
+ * Lock-free, high resolution histogram of latencies.
+ * </p>
+ * <p>
+ * Latencies are recorded in microseconds into log-linear buckets in the style of HdrHistogram: every power of two range is split into 16 linear
+ * sub-buckets so any recorded value is reported within 6.25% of its true value, from one microsecond up to the full range of a long. Recording a
+ * latency is one atomic increment of its bucket and never allocates or locks.
+ * </p>
+ *
+ * @author Richard Salas JCCC
+ * @version 1.0.0
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int SUB_BUCKET_MASK = SUB_BUCKET_COUNT - 1;
+    private static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder sumNanos = new LongAdder();
+    private final LongAccumulator maxMicros = new LongAccumulator(Math::max, 0L);
+
+    /**
+     * Records the given latency.
+     *
+     * @param nanos
+     *        the latency in nanoseconds
+     */
+    public void record(long nanos) {
+        long value = Math.max(0L, nanos);
+        long micros = value / 1000L;
+        counts.incrementAndGet(bucketIndex(micros));
+        sumNanos.add(value);
+        maxMicros.accumulate(micros);
+    }// end method
+
+    /**
+     * Takes a snapshot of the bucket counts, the counts of a snapshot are consistent with each other even while latencies are being recorded.
+     *
+     * @return the Snapshot instance
+     */
+    public Snapshot snapshot() {
+        long[] snapshotCounts = new long[BUCKET_COUNT];
+        long total = 0L;
+        for(int i = 0;i < BUCKET_COUNT;i++){
+            snapshotCounts[i] = counts.get(i);
+            total += snapshotCounts[i];
+        }// end for
+        return new Snapshot(snapshotCounts, total, sumNanos.sum(), maxMicros.get());
+    }// end method
+
+    /**
+     * Gets the index of the bucket holding the given value.
+     *
+     * @param value
+     *        the non-negative value
+     * @return the bucket index
+     */
+    static int bucketIndex(long value) {
+        if(value < SUB_BUCKET_COUNT){
+            return (int) value;
+        }// end if
+        int shift = (63 - Long.numberOfLeadingZeros(value)) - SUB_BUCKET_BITS;
+        return ((shift + 1) << SUB_BUCKET_BITS) + (int) ((value >>> shift) & SUB_BUCKET_MASK);
+    }// end method
+
+    /**
+     * Gets the highest value that is recorded into the given bucket.
+     *
+     * @param index
+     *        the bucket index
+     * @return the highest value of the bucket
+     */
+    static long highestValue(int index) {
+        int block = index >>> SUB_BUCKET_BITS;
+        if(block == 0){
+            return index;
+        }// end if
+        int shift = block - 1;
+        long lowest = ((long) (SUB_BUCKET_COUNT + (index & SUB_BUCKET_MASK))) << shift;
+        return lowest + (1L << shift) - 1L;
+    }// end method
+
+    /**
+     * Point in time copy of a LatencyHistogram.
+     */
+    public static final class Snapshot {
+
+        private final long[] counts;
+        private final long count;
+        private final long sumNanos;
+        private final long maxMicros;
+
+        /**
+         * Constructor used to create an instance of Snapshot.
+         *
+         * @param counts
+         *        the bucket counts
+         * @param count
+         *        the total of the bucket counts
+         * @param sumNanos
+         *        the sum of the recorded latencies in nanoseconds
+         * @param maxMicros
+         *        the largest recorded latency in microseconds
+         */
+        Snapshot(long[] counts, long count, long sumNanos, long maxMicros) {
+            this.counts = counts;
+            this.count = count;
+            this.sumNanos = sumNanos;
+            this.maxMicros = maxMicros;
+        }// end constructor
+
+        /**
+         * Gets the latency at the given quantile.
+         *
+         * @param quantile
+         *        the quantile between 0 and 1
+         * @return the latency in seconds, 0 if nothing has been recorded
+         */
+        public double getQuantileSeconds(double quantile) {
+            if(count == 0L){
+                return 0.0;
+            }// end if
+            long rank = Math.max(1L, (long) Math.ceil(quantile * count));
+            long seen = 0L;
+            for(int i = 0;i < counts.length;i++){
+                seen += counts[i];
+                if(seen >= rank){
+                    return Math.min(highestValue(i), maxMicros) / 1000000.0;
+                }// end if
+            }// end for
+            return maxMicros / 1000000.0;
+        }// end method
+
+        /**
+         * @return the number of recorded latencies
+         */
+        public long getCount() {
+            return count;
+        }// end method
+
+        /**
+         * @return the sum of the recorded latencies in seconds
+         */
+        public double getSumSeconds() {
+            return sumNanos / 1000000000.0;
+        }// end method
+
+        /**
+         * @return the largest recorded latency in seconds
+         */
+        public double getMaxSeconds() {
+            return maxMicros / 1000000.0;
+        }// end method
+
+    }// end inner class
+
+}// end class
@@ -0,0 +1,284 @@
+package gov.doc.isu.metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Class: MetricsRegistry.java
+ * <p>
+ * Registry of the application metrics, written in the Prometheus text exposition format.
+ * </p>
+ * <p>
+ * The {@code gov.doc.isu.filters.HttpRequestFilter} records the latency of every request per route and status into a {@link LatencyHistogram} and
+ * tracks the number of in-flight requests. Applications register their own counters and gauges. Recording never locks or allocates once a route
+ * and status has been seen, so the metrics can be left on for every request.
+ * </p>
+ *
+ * @author Richard Salas JCCC
+ * @version 1.0.0
+ */
+public final class MetricsRegistry {
+
+    /**
+     * Content type of the Prometheus text exposition format.
+     */
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    /**
+     * Route reported for requests that did not match a route.
+     */
+    public static final String UNMATCHED_ROUTE = "unmatched";
+
+    private static final MetricsRegistry INSTANCE = new MetricsRegistry();
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+    private static final int MIN_STATUS = 100;
+    private static final int MAX_STATUS = 599;
+    private static final int MAX_ROUTES = 256;// guards against unbounded route labels
+
+    private final ConcurrentHashMap<String, AtomicReferenceArray<LatencyHistogram>> requestLatencies = new ConcurrentHashMap<>();
+    private final AtomicLong inFlightRequests = new AtomicLong();
+    private final ConcurrentSkipListMap<String, Metric> metrics = new ConcurrentSkipListMap<>();
+
+    /**
+     * Constructor is private, use {@link #getInstance()}.
+     */
+    private MetricsRegistry() {
+    }// end constructor
+
+    /**
+     * @return the MetricsRegistry of the application
+     */
+    public static MetricsRegistry getInstance() {
+        return INSTANCE;
+    }// end method
+
+    /**
+     * Marks the start of a request.
+     */
+    public void requestStarted() {
+        inFlightRequests.incrementAndGet();
+    }// end method
+
+    /**
+     * Marks the end of a request and records its latency.
+     *
+     * @param route
+     *        the route of the request, {@link #UNMATCHED_ROUTE} if null
+     * @param status
+     *        the HTTP status code of the response
+     * @param nanos
+     *        the latency in nanoseconds
+     */
+    public void requestCompleted(String route, int status, long nanos) {
+        inFlightRequests.decrementAndGet();
+        String key = route == null || (requestLatencies.size() >= MAX_ROUTES && !requestLatencies.containsKey(route)) ? UNMATCHED_ROUTE : route;
+        AtomicReferenceArray<LatencyHistogram> byStatus = requestLatencies.get(key);
+        if(byStatus == null){
+            byStatus = requestLatencies.computeIfAbsent(key, k -> new AtomicReferenceArray<>(MAX_STATUS - MIN_STATUS + 1));
+        }// end if
+        int index = Math.min(MAX_STATUS, Math.max(MIN_STATUS, status)) - MIN_STATUS;
+        LatencyHistogram histogram = byStatus.get(index);
+        if(histogram == null){
+            byStatus.compareAndSet(index, null, new LatencyHistogram());
+            histogram = byStatus.get(index);
+        }// end if
+        histogram.record(nanos);
+    }// end method
+
+    /**
+     * Registers a counter with the given {@code name}, or returns the counter already registered with that name.
+     *
+     * @param name
+     *        the metric name
+     * @param help
+     *        the description of the metric
+     * @return the LongAdder holding the count
+     */
+    public LongAdder counter(String name, String help) {
+        Metric metric = metrics.computeIfAbsent(name, k -> {
+            LongAdder adder = new LongAdder();
+            return new Metric("counter", help, adder::sum, adder);
+        });
+        if(metric.adder == null){
+            throw new IllegalArgumentException("Metric " + name + " is not a counter.");
+        }// end if
+        return metric.adder;
+    }// end method
+
+    /**
+     * Registers a counter whose value is read from the given {@code value} supplier, replacing any metric registered with that name.
+     *
+     * @param name
+     *        the metric name
+     * @param help
+     *        the description of the metric
+     * @param value
+     *        supplies the current count
+     */
+    public void counter(String name, String help, LongSupplier value) {
+        metrics.put(name, new Metric("counter", help, value, null));
+    }// end method
+
+    /**
+     * Registers a gauge whose value is read from the given {@code value} supplier, replacing any metric registered with that name.
+     *
+     * @param name
+     *        the metric name
+     * @param help
+     *        the description of the metric
+     * @param value
+     *        supplies the current value
+     */
+    public void gauge(String name, String help, LongSupplier value) {
+        metrics.put(name, new Metric("gauge", help, value, null));
+    }// end method
+
+    /**
+     * @return the number of requests currently being processed
+     */
+    public long getInFlightRequests() {
+        return inFlightRequests.get();
+    }// end method
+
+    /**
+     * Writes all metrics to the given {@code writer} in the Prometheus text exposition format.
+     *
+     * @param writer
+     *        the writer to write to
+     * @throws IOException
+     *         if the metrics can not be written
+     */
+    public void write(Writer writer) throws IOException {
+        Map<String, LatencyHistogram.Snapshot> snapshots = new LinkedHashMap<>();// by labels, taken once so the summary and its max agree
+        for(Map.Entry<String, AtomicReferenceArray<LatencyHistogram>> entry : new ConcurrentSkipListMap<>(requestLatencies).entrySet()){
+            AtomicReferenceArray<LatencyHistogram> byStatus = entry.getValue();
+            for(int i = 0;i < byStatus.length();i++){
+                LatencyHistogram histogram = byStatus.get(i);
+                if(histogram != null){
+                    snapshots.put(labels(entry.getKey(), i + MIN_STATUS), histogram.snapshot());
+                }// end if
+            }// end for
+        }// end for
+
+        StringBuilder builder = new StringBuilder(4096);
+        builder.append("# HELP http_server_requests_seconds Latency of the HTTP requests by route and status.\n");
+        builder.append("# TYPE http_server_requests_seconds summary\n");
+        for(Map.Entry<String, LatencyHistogram.Snapshot> entry : snapshots.entrySet()){
+            writeSummary(builder, entry.getKey(), entry.getValue());
+        }// end for
+
+        builder.append("# HELP http_server_requests_seconds_max Longest latency of the HTTP requests by route and status.\n");
+        builder.append("# TYPE http_server_requests_seconds_max gauge\n");
+        for(Map.Entry<String, LatencyHistogram.Snapshot> entry : snapshots.entrySet()){
+            builder.append("http_server_requests_seconds_max{").append(entry.getKey()).append("} ").append(entry.getValue().getMaxSeconds()).append('\n');
+        }// end for
+
+        builder.append("# HELP http_server_requests_in_flight Number of HTTP requests currently being processed.\n");
+        builder.append("# TYPE http_server_requests_in_flight gauge\n");
+        builder.append("http_server_requests_in_flight ").append(inFlightRequests.get()).append('\n');
+
+        for(Map.Entry<String, Metric> entry : metrics.entrySet()){
+            Metric metric = entry.getValue();
+            builder.append("# HELP ").append(entry.getKey()).append(' ').append(metric.help).append('\n');
+            builder.append("# TYPE ").append(entry.getKey()).append(' ').append(metric.type).append('\n');
+            builder.append(entry.getKey()).append(' ').append(metric.value.getAsLong()).append('\n');
+        }// end for
+        writer.write(builder.toString());
+        writer.flush();
+    }// end method
+
+    /**
+     * Helper method used to build the labels of one route and status.
+     *
+     * @param route
+     *        the route
+     * @param status
+     *        the HTTP status code
+     * @return the labels without the enclosing braces
+     */
+    private String labels(String route, int status) {
+        StringBuilder labels = new StringBuilder("route=\"");
+        escape(labels, route);
+        labels.append("\",status=\"").append(status).append('"');
+        return labels.toString();
+    }// end method
+
+    /**
+     * Helper method used to write the summary lines of one route and status.
+     *
+     * @param builder
+     *        the builder to write to
+     * @param labels
+     *        the labels of the route and status
+     * @param snapshot
+     *        the latency snapshot
+     */
+    private void writeSummary(StringBuilder builder, String labels, LatencyHistogram.Snapshot snapshot) {
+        for(double quantile : QUANTILES){
+            builder.append("http_server_requests_seconds{").append(labels).append(",quantile=\"").append(quantile).append("\"} ").append(snapshot.getQuantileSeconds(quantile)).append('\n');
+        }// end for
+        builder.append("http_server_requests_seconds_sum{").append(labels).append("} ").append(snapshot.getSumSeconds()).append('\n');
+        builder.append("http_server_requests_seconds_count{").append(labels).append("} ").append(snapshot.getCount()).append('\n');
+    }// end method
+
+    /**
+     * Helper method used to escape a label value.
+     *
+     * @param builder
+     *        the builder to write to
+     * @param value
+     *        the label value
+     */
+    private void escape(StringBuilder builder, String value) {
+        for(int i = 0;i < value.length();i++){
+            char c = value.charAt(i);
+            if(c == '\\' || c == '"'){
+                builder.append('\\').append(c);
+            }else if(c == '\n'){
+                builder.append("\\n");
+            }else{
+                builder.append(c);
+            }// end if/else
+        }// end for
+    }// end method
+
+    /**
+     * A registered counter or gauge.
+     */
+    private static final class Metric {
+
+        private final String type;
+        private final String help;
+        private final LongSupplier value;
+        private final LongAdder adder;
+
+        /**
+         * Constructor used to create an instance of Metric.
+         *
+         * @param type
+         *        the Prometheus metric type
+         * @param help
+         *        the description of the metric
+         * @param value
+         *        supplies the current value
+         * @param adder
+         *        the adder of a registered counter, null for supplied metrics
+         */
+        Metric(String type, String help, LongSupplier value, LongAdder adder) {
+            this.type = type;
+            this.help = help;
+            this.value = value;
+            this.adder = adder;
+        }// end constructor
+
+    }// end inner class
+
+}// end class
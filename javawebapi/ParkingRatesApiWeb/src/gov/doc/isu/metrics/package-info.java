@@ -0,0 +1,4 @@
+/**
+ * Provides request latency and application metrics classes.
+ */
+package gov.doc.isu.metrics;
\ No newline at end of file
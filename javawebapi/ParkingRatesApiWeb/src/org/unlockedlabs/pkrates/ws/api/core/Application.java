@@ -3,13 +3,33 @@
  */
 package org.unlockedlabs.pkrates.ws.api.core;
 
+import org.glassfish.jersey.internal.inject.AbstractBinder;
 import org.glassfish.jersey.jackson.JacksonFeature;
 import org.glassfish.jersey.media.multipart.MultiPartFeature;
 import org.glassfish.jersey.server.ResourceConfig;
+import org.unlockedlabs.pkrates.ws.api.endpoints.LotRateResource;
+import org.unlockedlabs.pkrates.ws.api.endpoints.MetricsResource;
+import org.unlockedlabs.pkrates.ws.api.endpoints.ParkingRateResource;
+import org.unlockedlabs.pkrates.ws.api.rates.IParkingRateDAO;
+import org.unlockedlabs.pkrates.ws.api.rates.LotCatalog;
+import org.unlockedlabs.pkrates.ws.api.rates.LotRateService;
+import org.unlockedlabs.pkrates.ws.api.rates.ParkingRateMemDAO;
+import org.unlockedlabs.pkrates.ws.api.rates.ParkingRateService;
+import org.unlockedlabs.pkrates.ws.api.rates.PriceCache;
+
+import gov.doc.isu.metrics.MetricsRegistry;
 
 /**
  * Jersey Application initial setup and configuration.
  * 
+ * <p>The parking rate store and service are bound as singletons so every request shares the same instances. The store is started and stopped by the
+ * {@link RateStoreLifecycleListener} along with the container. The rates of each parking lot are served by a {@link LotRateService} backed by a
+ * {@link LotCatalog} which loads the lots lazily. The suspended requests run on the read and write pools of the {@link RequestExecutors}. The price cache counters are registered with the {@link MetricsRegistry} which is
+ * served by the {@code metrics} endpoint.</p>
+ * 
+ * <p>The resources and providers are registered explicitly so Jersey does not scan the classpath on startup. The same configuration is served by
+ * the servlet container and by the {@code StandaloneServer}.</p>
+ * 
  * @author Richard Salas
  * @version 1.0.0
  */
@@ -19,12 +39,56 @@ public class Application extends ResourceConfig {
      * Creates an instance of the the Application
      */
     public Application() {
-        packages("org.unlockedlabs.pkrates.ws.api.endpoints")
+        this(new ParkingRateMemDAO());
+    }// end method
+
+    /**
+     * Creates an instance of the the Application using the given {@code dao} as the parking rate store.
+     * 
+     * @param dao the store of parking rates to bind
+     */
+    public Application(IParkingRateDAO dao) {
+        ParkingRateService service = new ParkingRateService(dao);
+        LotRateService lotService = new LotRateService(new LotCatalog());
+        RequestExecutors executors = new RequestExecutors();
+        registerMetrics(service.getPriceCache());
+        register(ParkingRateResource.class)//resources are registered rather than scanned for a fast startup
+        .register(LotRateResource.class)
+        .register(MetricsResource.class)
         .register(JacksonContextResolver.class)// JSON processing (1)
         .register(JacksonFeature.class)// JSON processing (2)
+        .register(CborMessageBodyProvider.class)//CBOR processing using the JSON settings
+        .register(SmileMessageBodyProvider.class)//Smile processing using the JSON settings
+        .register(RateUploadProvider.class)//streaming reader of rate uploads
+        .register(CompressionInterceptor.class)//gzip and deflate response encoding
         .register(CorsRepsonseFilter.class)//CORS responses (cross - origin)
+        .register(RouteMetricsFilter.class)//route of each request for the latency metrics
         .register(MultiPartFeature.class)
-        .register(ZonedDateTimeConverterProvider.class);//custom class for converting zoned date/time string
+        .register(ZonedDateTimeConverterProvider.class)//custom class for converting zoned date/time string
+        .register(new RateStoreLifecycleListener(dao))//start and stop of the parking rate store
+        .register(executors)//shut down of the read and write pools
+        .register(new AbstractBinder() {//singletons
+            @Override
+            protected void configure() {
+                bind(dao).to(IParkingRateDAO.class);
+                bind(service).to(ParkingRateService.class);
+                bind(lotService).to(LotRateService.class);
+                bind(executors).to(RequestExecutors.class);
+            }//end method
+        });
     }// end method
 
+    /**
+     * Helper method used to register the counters of the given {@code priceCache} with the {@link MetricsRegistry}.
+     * 
+     * @param priceCache the price cache of the service
+     */
+    private static void registerMetrics(PriceCache priceCache) {
+        MetricsRegistry metrics = MetricsRegistry.getInstance();
+        metrics.counter("pkrates_price_cache_hits_total", "Number of prices answered from the price cache.", priceCache::getHitCount);
+        metrics.counter("pkrates_price_cache_misses_total", "Number of prices computed from the rate index.", priceCache::getMissCount);
+        metrics.counter("pkrates_price_cache_evictions_total", "Number of prices evicted from the price cache.", priceCache::getEvictionCount);
+        metrics.gauge("pkrates_price_cache_size", "Number of prices held by the price cache.", priceCache::size);
+    }//end method
+
 }//end class
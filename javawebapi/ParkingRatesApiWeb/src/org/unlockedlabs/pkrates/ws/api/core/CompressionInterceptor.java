@@ -0,0 +1,291 @@
+/**
+ *
+ */
+package org.unlockedlabs.pkrates.ws.api.core;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.Provider;
+import javax.ws.rs.ext.WriterInterceptor;
+import javax.ws.rs.ext.WriterInterceptorContext;
+
+/**
+ * WriterInterceptor used to compress response bodies with the gzip or deflate encoding accepted by the user.
+ *
+ * <p>The encoding is negotiated from the {@code Accept-Encoding} header by {@link #selectEncoding(String)}. The first bytes of a body are held back until
+ * the body grows past the {@code COMPRESSION.minSize} system property, 1024 bytes by default, so small bodies such as a price are sent as is. A response
+ * that already carries a {@code Content-Encoding}, such as the pre-compressed rates, is never compressed again. The compressing streams flush on every
+ * flush of the body so streamed responses keep flowing.</p>
+ *
+ * @author Richard Salas
+ * @version 1.0.0
+ */
+@Provider
+public class CompressionInterceptor implements WriterInterceptor {
+
+    /**
+     * The gzip content encoding.
+     */
+    public static final String GZIP = "gzip";
+
+    /**
+     * The deflate content encoding.
+     */
+    public static final String DEFLATE = "deflate";
+
+    private static final int MIN_SIZE = Integer.getInteger("COMPRESSION.minSize", 1024);
+
+    @Context
+    private HttpHeaders requestHeaders;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void aroundWriteTo(WriterInterceptorContext context) throws IOException, WebApplicationException {
+        MultivaluedMap<String, Object> headers = context.getHeaders();
+        if(headers.containsKey(HttpHeaders.CONTENT_ENCODING)) {//already encoded by the resource
+            context.proceed();
+            return;
+        }//end if
+        addVary(headers);
+        String encoding = selectEncoding(requestHeaders.getHeaderString(HttpHeaders.ACCEPT_ENCODING));
+        if(encoding == null) {
+            context.proceed();
+            return;
+        }//end if
+
+        OutputStream original = context.getOutputStream();
+        CompressingOutputStream compressing = new CompressingOutputStream(original, headers, encoding, MIN_SIZE);
+        context.setOutputStream(compressing);
+        try {
+            context.proceed();
+            compressing.finish();
+        }finally {
+            compressing.end();
+            context.setOutputStream(original);
+        }//end try...finally
+    }//end method
+
+    /**
+     * Gets the size a body must grow past to be compressed.
+     *
+     * @return the minimum size in bytes
+     */
+    public static int getMinSize() {
+        return MIN_SIZE;
+    }//end method
+
+    /**
+     * Selects the content encoding of a response using the given {@code acceptEncoding} header value.
+     *
+     * <p>The encoding with the highest quality value wins and gzip wins a tie. A wildcard stands for gzip and an encoding with a quality value of zero is
+     * never selected.</p>
+     *
+     * @param acceptEncoding the value of the {@code Accept-Encoding} header, may be null
+     * @return {@link #GZIP}, {@link #DEFLATE} or null if neither is accepted
+     */
+    public static String selectEncoding(String acceptEncoding) {
+        if(acceptEncoding == null || acceptEncoding.isEmpty()) {
+            return null;
+        }//end if
+        float gzipQuality = -1f;
+        float deflateQuality = -1f;
+        float wildcardQuality = -1f;
+        for(String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            String name = parts[0].trim();
+            float quality = 1f;
+            for(int i = 1;i < parts.length;i++) {
+                String param = parts[i].trim();
+                if(param.startsWith("q=")) {
+                    try {
+                        quality = Float.parseFloat(param.substring(2).trim());
+                    }catch(NumberFormatException e) {
+                        quality = 0f;
+                    }//end try...catch
+                }//end if
+            }//end for
+            if(GZIP.equalsIgnoreCase(name) || "x-gzip".equalsIgnoreCase(name)) {
+                gzipQuality = Math.max(gzipQuality, quality);
+            }else if(DEFLATE.equalsIgnoreCase(name)) {
+                deflateQuality = Math.max(deflateQuality, quality);
+            }else if("*".equals(name)) {
+                wildcardQuality = quality;
+            }//end if
+        }//end for
+        if(gzipQuality < 0f) {
+            gzipQuality = wildcardQuality;
+        }//end if
+        if(gzipQuality > 0f && gzipQuality >= deflateQuality) {
+            return GZIP;
+        }else if(deflateQuality > 0f) {
+            return DEFLATE;
+        }//end if
+        return null;
+    }//end method
+
+    /**
+     * Helper method used to add {@code Accept-Encoding} to the {@code Vary} header of the response.
+     *
+     * @param headers the response headers
+     */
+    static void addVary(MultivaluedMap<String, Object> headers) {
+        Object vary = headers.getFirst(HttpHeaders.VARY);
+        if(vary == null) {
+            headers.putSingle(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        }else if(!vary.toString().toLowerCase().contains(HttpHeaders.ACCEPT_ENCODING.toLowerCase())) {
+            headers.putSingle(HttpHeaders.VARY, vary + ", " + HttpHeaders.ACCEPT_ENCODING);
+        }//end if
+    }//end method
+
+    /**
+     * Output stream holding back the first bytes of a body and compressing the body once it grows past the minimum size.
+     */
+    private static final class CompressingOutputStream extends OutputStream {
+
+        private final OutputStream target;
+        private final MultivaluedMap<String, Object> headers;
+        private final String encoding;
+        private final byte[] pending;
+        private int pendingCount;
+        private Deflater deflater;
+        private DeflaterOutputStream compressed;
+        private boolean finished;
+
+        /**
+         * Constructor used to create an instance of CompressingOutputStream.
+         *
+         * @param target the stream of the response body
+         * @param headers the response headers, not yet committed
+         * @param encoding the content encoding to use
+         * @param minSize the size a body must grow past to be compressed
+         */
+        CompressingOutputStream(OutputStream target, MultivaluedMap<String, Object> headers, String encoding, int minSize) {
+            this.target = target;
+            this.headers = headers;
+            this.encoding = encoding;
+            this.pending = new byte[Math.max(0, minSize)];
+        }//end constructor
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }//end method
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if(compressed != null) {
+                compressed.write(b, off, len);
+            }else if(pendingCount + len <= pending.length) {
+                System.arraycopy(b, off, pending, pendingCount, len);
+                pendingCount += len;
+            }else {
+                startCompression();
+                compressed.write(b, off, len);
+            }//end if
+        }//end method
+
+        /**
+         * Flushes the compressed bytes written so far. Bytes held back below the minimum size are not flushed.
+         *
+         * @throws IOException if the bytes can not be flushed
+         */
+        @Override
+        public void flush() throws IOException {
+            if(compressed != null) {
+                compressed.flush();
+            }//end if
+        }//end method
+
+        /**
+         * Finishes the body, the container closes the stream of the response body.
+         *
+         * @throws IOException if the body can not be written
+         */
+        @Override
+        public void close() throws IOException {
+            finish();
+        }//end method
+
+        /**
+         * Writes the bytes held back as is when the body stayed below the minimum size, otherwise finishes the compressed body.
+         *
+         * @throws IOException if the body can not be written
+         */
+        void finish() throws IOException {
+            if(finished) {
+                return;
+            }//end if
+            finished = true;
+            if(compressed != null) {
+                compressed.close();//writes the trailer, the response body itself is left open
+            }else if(pendingCount > 0) {
+                target.write(pending, 0, pendingCount);
+            }//end if
+        }//end method
+
+        /**
+         * Releases the native memory of the compressor, also when the body could not be finished.
+         */
+        void end() {
+            if(compressed != null && !finished) {
+                finished = true;
+                try {
+                    compressed.close();
+                }catch(IOException e) {
+                    //the response is already failing
+                }//end try...catch
+            }//end if
+            if(deflater != null) {
+                deflater.end();
+            }//end if
+        }//end method
+
+        /**
+         * Helper method used to set the content encoding, which is still possible as nothing has been written to the response, and start compressing.
+         *
+         * @throws IOException if the compressing stream can not be created
+         */
+        private void startCompression() throws IOException {
+            headers.putSingle(HttpHeaders.CONTENT_ENCODING, encoding);
+            headers.remove(HttpHeaders.CONTENT_LENGTH);
+            OutputStream body = new FilterOutputStream(target) {
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    out.write(b, off, len);
+                }//end method
+
+                @Override
+                public void close() throws IOException {
+                    flush();//the container closes the response body
+                }//end method
+            };
+            if(GZIP.equals(encoding)) {
+                compressed = new GZIPOutputStream(body, 8192, true);
+            }else {
+                deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+                compressed = new DeflaterOutputStream(body, deflater, 8192, true);
+            }//end if
+            compressed.write(pending, 0, pendingCount);
+            pendingCount = 0;
+        }//end method
+
+    }//end inner class
+
+}//end class
@@ -0,0 +1,194 @@
+/**
+ *
+ */
+package org.unlockedlabs.pkrates.ws.api.core;
+
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Allocation light parser for the subset of ISO-8601 zoned date/times accepted by the web service endpoints.
+ *
+ * <p>The accepted subset is {@code yyyy-MM-ddTHH:mm[:ss][.S...](Z|+HH:MM|-HH:MM)[[region]]}, where the bracketed zone is a region id such as
+ * {@code America/Chicago}. Offset style ids such as {@code +05:00}, {@code UTC+05:30} or {@code GMT0} are left to the formatter, which parses them
+ * more strictly than {@link ZoneId#of(String)} does. The fields are decoded directly from the characters and the offsets and region
+ * zones are looked up from cached tables, so no {@link DateTimeFormatter} parse state is created. A value outside of the subset is handed to
+ * {@link DateTimeFormatter#ISO_ZONED_DATE_TIME} so both parsers accept and produce exactly the same values.</p>
+ *
+ * @author Richard Salas
+ * @version 1.0.0
+ */
+public final class IsoDateTimeParser {
+
+    private static final ConcurrentHashMap<String, ZoneId> ZONES = new ConcurrentHashMap<>();//region zones that have been parsed
+    private static final int MAX_CACHED_ZONES = 1024;//there are only a few hundred valid region ids
+    private static final Set<String> REGION_IDS = ZoneId.getAvailableZoneIds();//copy of the region ids known to the zone rules provider
+
+    /**
+     * Constructor is private as this class only has static methods.
+     */
+    private IsoDateTimeParser() {
+    }//end constructor
+
+    /**
+     * Parses the given {@code value} into a ZonedDateTime instance.
+     *
+     * @param value the value to parse
+     * @return a ZonedDateTime instance
+     * @throws java.time.format.DateTimeParseException if the value can not be parsed
+     */
+    public static ZonedDateTime parse(CharSequence value) {
+        ZonedDateTime dateTime = value == null ? null : parseSubset(value);
+        if(dateTime == null) {//outside of the subset
+            dateTime = ZonedDateTime.parse(value, DateTimeFormatter.ISO_ZONED_DATE_TIME);
+        }//end if
+        return dateTime;
+    }//end method
+
+    /**
+     * Parses the given {@code value} when it is within the accepted subset.
+     *
+     * @param value the value to parse
+     * @return a ZonedDateTime instance or null if the value is not within the accepted subset
+     */
+    static ZonedDateTime parseSubset(CharSequence value) {
+        int length = value.length();
+        if(length < 17 || value.charAt(4) != '-' || value.charAt(7) != '-' || value.charAt(10) != 'T' || value.charAt(13) != ':') {
+            return null;
+        }//end if
+
+        int year = digits(value, 0, 4);
+        int month = digits(value, 5, 2);
+        int day = digits(value, 8, 2);
+        int hour = digits(value, 11, 2);
+        int minute = digits(value, 14, 2);
+        if(year < 0 || month < 1 || month > 12 || day < 1 || day > 31 || hour < 0 || hour > 23 || minute < 0 || minute > 59) {
+            return null;
+        }//end if
+
+        int pos = 16;
+        int second = 0;
+        int nano = 0;
+        if(pos < length && value.charAt(pos) == ':') {
+            second = pos + 3 <= length ? digits(value, pos + 1, 2) : -1;
+            if(second < 0 || second > 59) {
+                return null;
+            }//end if
+            pos += 3;
+            if(pos < length && value.charAt(pos) == '.') {
+                int start = ++pos;
+                while(pos < length && pos - start < 9 && isDigit(value.charAt(pos))) {
+                    nano = nano * 10 + (value.charAt(pos++) - '0');
+                }//end while
+                if(pos == start) {
+                    return null;
+                }//end if
+                for(int i = pos - start;i < 9;i++) {
+                    nano *= 10;
+                }//end for
+            }//end if
+        }//end if
+
+        //offset
+        if(pos >= length) {
+            return null;
+        }//end if
+        ZoneOffset offset;
+        char sign = value.charAt(pos);
+        if(sign == 'Z') {
+            offset = ZoneOffset.UTC;
+            pos++;
+        }else if((sign == '+' || sign == '-') && pos + 6 <= length && value.charAt(pos + 3) == ':') {
+            int offsetHours = digits(value, pos + 1, 2);
+            int offsetMinutes = digits(value, pos + 4, 2);
+            if(offsetHours < 0 || offsetHours > 18 || offsetMinutes < 0 || offsetMinutes > 59 || (offsetHours == 18 && offsetMinutes > 0)) {
+                return null;
+            }//end if
+            int totalSeconds = (offsetHours * 3600 + offsetMinutes * 60) * (sign == '-' ? -1 : 1);
+            offset = ZoneOffset.ofTotalSeconds(totalSeconds);//quarter hour offsets are cached by ZoneOffset
+            pos += 6;
+        }else {
+            return null;
+        }//end if
+
+        //optional region zone
+        ZoneId zone = offset;
+        if(pos < length) {
+            if(value.charAt(pos) != '[' || value.charAt(length - 1) != ']' || length - pos < 3) {
+                return null;
+            }//end if
+            zone = zone(value.subSequence(pos + 1, length - 1).toString());
+            if(zone == null) {
+                return null;
+            }//end if
+        }//end if
+
+        try {
+            return ZonedDateTime.ofInstant(LocalDateTime.of(year, month, day, hour, minute, second, nano), offset, zone);
+        }catch(DateTimeException e) {//day not within the month
+            return null;
+        }//end try...catch
+    }//end method
+
+    /**
+     * Helper method used to look up the region zone with the given {@code zoneId} from the cached zones.
+     *
+     * <p>Only the region ids of the zone rules provider are accepted. The ids starting with {@code GMT} or {@code UT} are offset based to the
+     * formatter, which reads {@code GMT0} as {@code GMT} followed by a stray {@code 0}, so they are left to the formatter as well.</p>
+     *
+     * @param zoneId the zone id
+     * @return the ZoneId instance or null if the id is not a region id within the accepted subset
+     */
+    private static ZoneId zone(String zoneId) {
+        ZoneId zone = ZONES.get(zoneId);
+        if(zone == null) {
+            if(!REGION_IDS.contains(zoneId) || zoneId.startsWith("GMT") || zoneId.startsWith("UT")) {
+                return null;
+            }//end if
+            try {
+                zone = ZoneId.of(zoneId);
+            }catch(DateTimeException e) {
+                return null;
+            }//end try...catch
+            if(ZONES.size() < MAX_CACHED_ZONES) {
+                ZONES.putIfAbsent(zoneId, zone);
+            }//end if
+        }//end if
+        return zone;
+    }//end method
+
+    /**
+     * Helper method used to decode {@code count} decimal digits starting at {@code start}.
+     *
+     * @param value the characters to decode
+     * @param start the index of the first digit
+     * @param count the number of digits
+     * @return the decoded value or -1 if a character is not a digit
+     */
+    private static int digits(CharSequence value, int start, int count) {
+        int result = 0;
+        for(int i = start;i < start + count;i++) {
+            char c = value.charAt(i);
+            if(!isDigit(c)) {
+                return -1;
+            }//end if
+            result = result * 10 + (c - '0');
+        }//end for
+        return result;
+    }//end method
+
+    /**
+     * @param c the character to check
+     * @return true if the character is an ASCII digit
+     */
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }//end method
+
+}//end class
@@ -27,13 +27,24 @@ public class JacksonContextResolver implements ContextResolver<ObjectMapper> {
      * Constructor used for creating an instance of the JacksonContextResolver.
      */
     public JacksonContextResolver() {
-        objectMapper = new ObjectMapper();
-        objectMapper.configure(SerializationFeature.FAIL_ON_EMPTY_BEANS, false);
-        objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
-        objectMapper.configure(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, true);
-        objectMapper.setSerializationInclusion(Include.NON_NULL);
+        objectMapper = configure(new ObjectMapper());
     }//end constructor
 
+    /**
+     * Applies the serialization settings shared by every format to the given {@code mapper}, so the JSON and binary encodings write and read the
+     * same fields.
+     * 
+     * @param mapper the mapper to configure
+     * @return the configured mapper
+     */
+    public static ObjectMapper configure(ObjectMapper mapper) {
+        mapper.configure(SerializationFeature.FAIL_ON_EMPTY_BEANS, false);
+        mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        mapper.configure(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, true);
+        mapper.setSerializationInclusion(Include.NON_NULL);
+        return mapper;
+    }//end method
+
     /**
      * {@inheritDoc}
      */
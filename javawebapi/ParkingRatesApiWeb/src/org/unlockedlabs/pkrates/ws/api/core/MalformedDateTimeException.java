@@ -0,0 +1,41 @@
+/**
+ *
+ */
+package org.unlockedlabs.pkrates.ws.api.core;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+/**
+ * MalformedDateTimeException is thrown when a date/time parameter of a user's request can not be parsed.
+ *
+ * <p>The user gets a status code of Bad Request - 400. Malformed input is a client error so no stack trace is filled in for this exception.</p>
+ *
+ * @author Richard Salas
+ * @version 1.0.0
+ */
+public class MalformedDateTimeException extends WebApplicationException {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Constructor used to create an instance of MalformedDateTimeException using the given {@code value}.
+     *
+     * @param value the value that could not be parsed
+     */
+    public MalformedDateTimeException(String value) {
+        super("Unable to parse date/time " + value, Response.status(Response.Status.BAD_REQUEST).type(MediaType.TEXT_PLAIN).entity("Unable to parse date/time " + value).build());
+    }//end constructor
+
+    /**
+     * No stack trace is filled in for malformed input.
+     *
+     * @return this instance
+     */
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }//end method
+
+}//end class
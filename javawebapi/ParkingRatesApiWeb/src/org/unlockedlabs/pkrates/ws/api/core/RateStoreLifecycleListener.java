@@ -0,0 +1,63 @@
+/**
+ * 
+ */
+package org.unlockedlabs.pkrates.ws.api.core;
+
+import org.apache.log4j.Logger;
+import org.glassfish.jersey.server.spi.Container;
+import org.glassfish.jersey.server.spi.ContainerLifecycleListener;
+import org.unlockedlabs.pkrates.ws.api.rates.IParkingRateDAO;
+
+/**
+ * Container lifecycle listener used for starting and stopping the container managed {@link IParkingRateDAO} singleton.
+ * 
+ * @author Richard Salas
+ * @version 1.0.0
+ */
+public class RateStoreLifecycleListener implements ContainerLifecycleListener {
+
+    private static final Logger myLogger = Logger.getLogger("org.unlockedlabs.pkrates.ws.api.core.RateStoreLifecycleListener");
+
+    private final IParkingRateDAO dao;
+
+    /**
+     * Constructor used to create an instance of RateStoreLifecycleListener using the given {@code dao}.
+     * 
+     * @param dao the store of parking rates to start and stop
+     */
+    public RateStoreLifecycleListener(IParkingRateDAO dao) {
+        this.dao = dao;
+    }//end constructor
+
+    /**
+     * Starts the parking rate store once the container has been started.
+     * 
+     * @param container the container that has been started
+     */
+    @Override
+    public void onStartup(Container container) {
+        myLogger.info("Container started, starting the parking rate store " + dao.getClass().getName());
+        dao.start();
+    }//end method
+
+    /**
+     * Nothing to do on reload as the parking rate store is not bound to the container configuration.
+     * 
+     * @param container the container that has been reloaded
+     */
+    @Override
+    public void onReload(Container container) {
+    }//end method
+
+    /**
+     * Stops the parking rate store once the container has been shut down.
+     * 
+     * @param container the container that has been shut down
+     */
+    @Override
+    public void onShutdown(Container container) {
+        myLogger.info("Container shut down, stopping the parking rate store " + dao.getClass().getName());
+        dao.stop();
+    }//end method
+
+}//end class
@@ -0,0 +1,230 @@
+/**
+ *
+ */
+package org.unlockedlabs.pkrates.ws.api.core;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+
+import javax.ws.rs.BadRequestException;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.ext.MessageBodyReader;
+import javax.ws.rs.ext.Provider;
+
+import org.apache.log4j.Logger;
+import org.unlockedlabs.pkrates.ws.api.rates.RateStreamParser;
+import org.unlockedlabs.pkrates.ws.api.rates.RateUpload;
+import org.unlockedlabs.pkrates.ws.api.rates.RateUploadTooLargeException;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+/**
+ * Message body reader of {@link RateUpload} entities in JSON, CBOR or Smile.
+ *
+ * <p>The entity is read with the {@link RateStreamParser}, which converts each rate as it is read, so a large upload is never held as text, as a
+ * tree or as a list of {@code RateDTO}s. The size of an upload is bounded by the {@code RATES.maxUploadBytes} system property, 128 MB by default,
+ * which is checked against the {@code Content-Length} header before anything is read and against the bytes actually read for a chunked upload. The
+ * number of rates is bounded by the {@code RATES.maxUploadRates} system property, 1,000,000 by default. An upload exceeding either is answered with
+ * Request Entity Too Large - 413, an upload that can not be read with Bad Request - 400.</p>
+ *
+ * <p>{@link #read(InputStream, MediaType, String)} reads an upload from a raw request stream, so a resource can read it on a pool of its own rather
+ * than on the container thread.</p>
+ *
+ * @author Richard Salas
+ * @version 1.0.0
+ */
+@Provider
+@Consumes({MediaType.APPLICATION_JSON, CborMessageBodyProvider.APPLICATION_CBOR, SmileMessageBodyProvider.APPLICATION_SMILE})
+public class RateUploadProvider implements MessageBodyReader<RateUpload> {
+
+    private static final Logger myLogger = Logger.getLogger("org.unlockedlabs.pkrates.ws.api.core.RateUploadProvider");
+
+    /**
+     * Default maximum size in bytes used when the {@code RATES.maxUploadBytes} system property is not set.
+     */
+    public static final long DEFAULT_MAX_BYTES = 128L * 1024L * 1024L;
+
+    /**
+     * Default maximum number of rates used when the {@code RATES.maxUploadRates} system property is not set.
+     */
+    public static final int DEFAULT_MAX_RATES = 1000000;
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory().disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);//container closes the streams
+
+    private final long maxBytes;
+    private final int maxRates;
+
+    /**
+     * Constructor used to create an instance of RateUploadProvider using the {@code RATES.maxUploadBytes} and {@code RATES.maxUploadRates} system
+     * properties.
+     */
+    public RateUploadProvider() {
+        this(Long.getLong("RATES.maxUploadBytes", DEFAULT_MAX_BYTES), Integer.getInteger("RATES.maxUploadRates", DEFAULT_MAX_RATES));
+    }//end constructor
+
+    /**
+     * Constructor used to create an instance of RateUploadProvider using the given {@code maxBytes} and {@code maxRates}.
+     *
+     * @param maxBytes the largest size of an upload in bytes
+     * @param maxRates the largest number of rates of an upload
+     */
+    public RateUploadProvider(long maxBytes, int maxRates) {
+        this.maxBytes = maxBytes;
+        this.maxRates = maxRates;
+    }//end constructor
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isReadable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return type == RateUpload.class;
+    }//end method
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public RateUpload readFrom(Class<RateUpload> type, Type genericType, Annotation[] annotations, MediaType mediaType, MultivaluedMap<String, String> httpHeaders, InputStream entityStream) throws IOException, WebApplicationException {
+        return read(entityStream, mediaType, httpHeaders.getFirst(HttpHeaders.CONTENT_LENGTH));
+    }//end method
+
+    /**
+     * Reads an upload of rates in JSON, or in CBOR or Smile when the given {@code mediaType} is CBOR or Smile, from the given {@code entityStream}.
+     *
+     * @param entityStream the stream of the request body
+     * @param mediaType the media type of the request body
+     * @param contentLength the value of the {@code Content-Length} header or null for a chunked upload
+     * @return the upload read
+     * @throws IOException if the request body can not be read
+     * @throws WebApplicationException with Request Entity Too Large - 413 or Bad Request - 400 if the upload is too large or can not be read
+     */
+    public RateUpload read(InputStream entityStream, MediaType mediaType, String contentLength) throws IOException, WebApplicationException {
+        if(myLogger.isDebugEnabled()){
+            myLogger.debug("Entering read() method used for reading an upload of rates. Incoming parameters are mediaType=" + String.valueOf(mediaType) + "; contentLength=" + String.valueOf(contentLength));
+        }//end if
+
+        RateUpload upload;
+        try {
+            if(contentLength != null && Long.parseLong(contentLength.trim()) > maxBytes) {
+                throw new RateUploadTooLargeException("The upload of " + contentLength.trim() + " bytes is larger than the " + maxBytes + " bytes allowed.");
+            }//end if
+            JsonFactory factory = JSON_FACTORY;
+            if(CborMessageBodyProvider.APPLICATION_CBOR_TYPE.isCompatible(mediaType)) {
+                factory = CborMessageBodyProvider.getCborMapper().getFactory();
+            }else if(SmileMessageBodyProvider.APPLICATION_SMILE_TYPE.isCompatible(mediaType)) {
+                factory = SmileMessageBodyProvider.getSmileMapper().getFactory();
+            }//end if
+            try(JsonParser parser = factory.createParser(new LimitedInputStream(entityStream, maxBytes))) {
+                upload = new RateUpload(new RateStreamParser(maxRates).parse(parser));
+            }//end try
+        }catch(RateUploadTooLargeException e) {
+            myLogger.warn("Rejected an upload of rates as it is too large. Error message is: " + e.getMessage());
+            throw new WebApplicationException(Response.status(Response.Status.REQUEST_ENTITY_TOO_LARGE).type(MediaType.TEXT_PLAIN).entity(e.getMessage()).build());
+        }catch(JsonProcessingException e) {
+            myLogger.warn("Unable to read an upload of rates. Error message is: " + e.getOriginalMessage());
+            throw new BadRequestException("Unable to read the rates. " + e.getOriginalMessage(), e);
+        }catch(IllegalArgumentException e) {//includes a malformed Content-Length
+            myLogger.warn("Unable to convert an upload of rates. Error message is: " + e.getMessage());
+            throw new BadRequestException("Unable to convert the rates. " + e.getMessage(), e);
+        }//end try...catch
+
+        if(myLogger.isDebugEnabled()){
+            myLogger.debug("Exiting read() method. Return value is upload=" + String.valueOf(upload));
+        }//end if
+        return upload;
+    }//end method
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("RateUploadProvider [maxBytes=");
+        builder.append(maxBytes);
+        builder.append(", maxRates=");
+        builder.append(maxRates);
+        builder.append("]");
+        return builder.toString();
+    }//end method
+
+    /**
+     * Input stream failing with a {@link RateUploadTooLargeException} once more than a given number of bytes have been read.
+     */
+    private static final class LimitedInputStream extends FilterInputStream {
+
+        private final long maxBytes;
+        private long count;
+
+        /**
+         * Constructor used to create an instance of LimitedInputStream.
+         *
+         * @param in the stream to read from
+         * @param maxBytes the number of bytes that may be read
+         */
+        LimitedInputStream(InputStream in, long maxBytes) {
+            super(in);
+            this.maxBytes = maxBytes;
+        }//end constructor
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if(b >= 0) {
+                count(1L);
+            }//end if
+            return b;
+        }//end method
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            if(read > 0) {
+                count(read);
+            }//end if
+            return read;
+        }//end method
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count(skipped);
+            return skipped;
+        }//end method
+
+        /**
+         * Helper method used to add the given number of bytes to the count.
+         *
+         * @param bytes the number of bytes read
+         * @throws RateUploadTooLargeException if more bytes have been read than allowed
+         */
+        private void count(long bytes) throws RateUploadTooLargeException {
+            count += bytes;
+            if(count > maxBytes) {
+                throw new RateUploadTooLargeException("The upload is larger than the " + maxBytes + " bytes allowed.");
+            }//end if
+        }//end method
+
+    }//end inner class
+
+}//end class
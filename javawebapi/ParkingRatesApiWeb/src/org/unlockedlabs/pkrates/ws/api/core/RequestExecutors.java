@@ -0,0 +1,240 @@
+/**
+ *
+ */
+package org.unlockedlabs.pkrates.ws.api.core;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+import org.apache.log4j.Logger;
+import org.glassfish.jersey.server.spi.Container;
+import org.glassfish.jersey.server.spi.ContainerLifecycleListener;
+
+import gov.doc.isu.metrics.MetricsRegistry;
+
+/**
+ * Executors used to run the suspended requests of the resources off the container's request threads.
+ *
+ * <p>Reads, such as a price lookup, run on a small pool sized to the processors as they never block. Writes, such as a rate upload which parses,
+ * validates and compiles the rates, run on a separate pool so a burst of uploads can never take the threads serving prices. Each pool has a bounded
+ * queue and a timeout. A request that finds the queue full, or that is still queued once its timeout passes, is answered with Service Unavailable -
+ * 503 and a {@code Retry-After} header without being run. A request that has started always runs to the end.</p>
+ *
+ * <p>The pools are configured with the {@code READS.threads}, {@code READS.queueSize}, {@code READS.timeoutSeconds}, {@code WRITES.threads},
+ * {@code WRITES.queueSize} and {@code WRITES.timeoutSeconds} system properties. A timeout of zero never times out. The pools are shut down along with
+ * the container.</p>
+ *
+ * @author Richard Salas
+ * @version 1.0.0
+ */
+public class RequestExecutors implements ContainerLifecycleListener {
+
+    private static final Logger myLogger = Logger.getLogger("org.unlockedlabs.pkrates.ws.api.core.RequestExecutors");
+
+    private static final int QUEUED = 0;
+    private static final int RUNNING = 1;
+    private static final int TIMED_OUT = 2;
+
+    private final Pool reads;
+    private final Pool writes;
+
+    /**
+     * Constructor used to create an instance of RequestExecutors using the system properties.
+     */
+    public RequestExecutors() {
+        this.reads = new Pool("read", Integer.getInteger("READS.threads", Runtime.getRuntime().availableProcessors()), Integer.getInteger("READS.queueSize", 1024), Long.getLong("READS.timeoutSeconds", 10L));
+        this.writes = new Pool("write", Integer.getInteger("WRITES.threads", 2), Integer.getInteger("WRITES.queueSize", 16), Long.getLong("WRITES.timeoutSeconds", 30L));
+    }//end constructor
+
+    /**
+     * Runs the given read {@code task} on the read pool and resumes the given {@code asyncResponse} with its response.
+     *
+     * @param asyncResponse the suspended response
+     * @param task the task building the response
+     */
+    public void read(AsyncResponse asyncResponse, Callable<Response> task) {
+        reads.submit(asyncResponse, task);
+    }//end method
+
+    /**
+     * Runs the given write {@code task} on the write pool and resumes the given {@code asyncResponse} with its response.
+     *
+     * @param asyncResponse the suspended response
+     * @param task the task building the response
+     */
+    public void write(AsyncResponse asyncResponse, Callable<Response> task) {
+        writes.submit(asyncResponse, task);
+    }//end method
+
+    /**
+     * Nothing to do on startup as the pools are started with their first task.
+     *
+     * @param container the container that has been started
+     */
+    @Override
+    public void onStartup(Container container) {
+    }//end method
+
+    /**
+     * Nothing to do on reload as the pools are not bound to the container configuration.
+     *
+     * @param container the container that has been reloaded
+     */
+    @Override
+    public void onReload(Container container) {
+    }//end method
+
+    /**
+     * Shuts the pools down once the container has been shut down, letting the tasks already submitted finish.
+     *
+     * @param container the container that has been shut down
+     */
+    @Override
+    public void onShutdown(Container container) {
+        myLogger.info("Container shut down, shutting down the request executors " + reads + " and " + writes);
+        reads.executor.shutdown();
+        writes.executor.shutdown();
+    }//end method
+
+    /**
+     * Bounded pool of a single kind of request along with its metrics.
+     */
+    private static final class Pool {
+
+        private final String name;
+        private final ThreadPoolExecutor executor;
+        private final long timeoutSeconds;
+        private final LongAdder rejected;
+        private final LongAdder timedOut;
+
+        /**
+         * Constructor used to create an instance of Pool.
+         *
+         * @param name the name of the pool used for its threads and metrics
+         * @param threads the number of threads
+         * @param queueSize the number of tasks that may wait for a thread
+         * @param timeoutSeconds the seconds a task may wait before it is answered with 503, zero to wait forever
+         */
+        Pool(String name, int threads, int queueSize, long timeoutSeconds) {
+            this.name = name;
+            this.timeoutSeconds = Math.max(0L, timeoutSeconds);
+            int size = Math.max(1, threads);
+            this.executor = new ThreadPoolExecutor(size, size, 60L, TimeUnit.SECONDS, new ArrayBlockingQueue<>(Math.max(1, queueSize)), new NamedThreadFactory("pkrates-" + name + "-"));
+            this.executor.allowCoreThreadTimeOut(true);
+            MetricsRegistry metrics = MetricsRegistry.getInstance();
+            this.rejected = metrics.counter("pkrates_" + name + "_pool_rejected_total", "Number of " + name + " requests rejected as the " + name + " queue was full.");
+            this.timedOut = metrics.counter("pkrates_" + name + "_pool_timeouts_total", "Number of " + name + " requests that timed out within the " + name + " queue.");
+            metrics.gauge("pkrates_" + name + "_pool_queue", "Number of " + name + " requests waiting for a thread.", () -> executor.getQueue().size());
+            metrics.gauge("pkrates_" + name + "_pool_active", "Number of " + name + " requests running.", executor::getActiveCount);
+        }//end constructor
+
+        /**
+         * Submits the given {@code task} and resumes the given {@code asyncResponse} with its response, or with 503 if the task can not be queued or
+         * times out before it starts.
+         *
+         * @param asyncResponse the suspended response
+         * @param task the task building the response
+         */
+        void submit(AsyncResponse asyncResponse, Callable<Response> task) {
+            AtomicInteger state = new AtomicInteger(QUEUED);
+            if(timeoutSeconds > 0L) {
+                asyncResponse.setTimeoutHandler(response -> {
+                    if(state.compareAndSet(QUEUED, TIMED_OUT)) {
+                        timedOut.increment();
+                        response.resume(unavailable("Timed out waiting for a " + name + " thread."));
+                    }else {
+                        response.setTimeout(timeoutSeconds, TimeUnit.SECONDS);//already running, let it finish
+                    }//end if
+                });
+                asyncResponse.setTimeout(timeoutSeconds, TimeUnit.SECONDS);
+            }//end if
+            try {
+                executor.execute(() -> {
+                    if(!state.compareAndSet(QUEUED, RUNNING)) {
+                        return;//answered by the timeout handler
+                    }//end if
+                    try {
+                        asyncResponse.resume(task.call());
+                    }catch(Throwable t) {
+                        asyncResponse.resume(t);//mapped by the container like a thrown exception
+                    }//end try...catch
+                });
+            }catch(RejectedExecutionException e) {
+                state.set(TIMED_OUT);
+                rejected.increment();
+                myLogger.warn("Rejected a " + name + " request as the " + name + " queue is full. Value of interest is pool=" + this);
+                asyncResponse.resume(unavailable("Too many " + name + " requests, try again later."));
+            }//end try...catch
+        }//end method
+
+        /**
+         * Helper method used to build a Service Unavailable - 503 response.
+         *
+         * @param message the message of the response
+         * @return the response
+         */
+        private Response unavailable(String message) {
+            return Response.status(Response.Status.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, Math.max(1L, timeoutSeconds)).type(MediaType.TEXT_PLAIN).entity(message).build();
+        }//end method
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder();
+            builder.append("Pool [name=");
+            builder.append(name);
+            builder.append(", threads=");
+            builder.append(executor.getMaximumPoolSize());
+            builder.append(", active=");
+            builder.append(executor.getActiveCount());
+            builder.append(", queued=");
+            builder.append(executor.getQueue().size());
+            builder.append("]");
+            return builder.toString();
+        }//end method
+
+    }//end inner class
+
+    /**
+     * Thread factory creating named daemon threads.
+     */
+    private static final class NamedThreadFactory implements ThreadFactory {
+
+        private final String prefix;
+        private final AtomicInteger count = new AtomicInteger();
+
+        /**
+         * Constructor used to create an instance of NamedThreadFactory.
+         *
+         * @param prefix the prefix of the thread names
+         */
+        NamedThreadFactory(String prefix) {
+            this.prefix = prefix;
+        }//end constructor
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, prefix + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }//end method
+
+    }//end inner class
+
+}//end class
@@ -0,0 +1,74 @@
+/**
+ * 
+ */
+package org.unlockedlabs.pkrates.ws.api.core;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.ext.Provider;
+
+import org.glassfish.jersey.server.ExtendedUriInfo;
+import org.glassfish.jersey.server.model.ResourceMethod;
+import org.glassfish.jersey.uri.UriTemplate;
+
+import gov.doc.isu.filters.HttpRequestFilter;
+
+/**
+ * ContainerRequestFilter used to tag every matched request with its route so the {@link HttpRequestFilter} can record the request latency by route.
+ * 
+ * <p>The route is the HTTP method followed by the matched path template, for example {@code GET /price}. Path parameter values never become part of
+ * the route. The route of each resource method is built once and reused.</p>
+ * 
+ * @author Richard Salas
+ * @version 1.0.0
+ */
+@Provider
+public class RouteMetricsFilter implements ContainerRequestFilter {
+
+    private final ConcurrentHashMap<ResourceMethod, String> routes = new ConcurrentHashMap<>();
+
+    @Context
+    private ExtendedUriInfo uriInfo;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void filter(ContainerRequestContext requestContext) throws IOException {
+        ResourceMethod method = uriInfo.getMatchedResourceMethod();
+        if(method != null) {
+            String route = routes.get(method);
+            if(route == null) {
+                route = routes.computeIfAbsent(method, m -> buildRoute(m, uriInfo.getMatchedTemplates()));
+            }//end if
+            requestContext.setProperty(HttpRequestFilter.ROUTE_ATTRIBUTE, route);//Jersey stores request properties as servlet request attributes
+        }//end if
+    }//end method
+
+    /**
+     * Helper method used to build the route of the given {@code method} from the matched {@code templates}.
+     * 
+     * @param method the matched resource method
+     * @param templates the matched templates, the last matched template first
+     * @return route the HTTP method and the path template
+     */
+    private static String buildRoute(ResourceMethod method, List<UriTemplate> templates) {
+        StringBuilder path = new StringBuilder();
+        for(int i = templates.size() - 1; i >= 0; i--) {
+            String template = templates.get(i).getTemplate();
+            if(!template.isEmpty() && !template.equals("/")) {
+                if(template.charAt(0) != '/') {
+                    path.append('/');
+                }//end if
+                path.append(template);
+            }//end if
+        }//end for
+        return method.getHttpMethod() + " " + (path.length() == 0 ? "/" : path.toString());
+    }//end method
+
+}//end class
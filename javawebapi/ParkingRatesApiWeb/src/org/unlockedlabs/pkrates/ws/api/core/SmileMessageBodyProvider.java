@@ -0,0 +1,121 @@
+/**
+ *
+ */
+package org.unlockedlabs.pkrates.ws.api.core;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+
+import javax.ws.rs.BadRequestException;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.Produces;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.StreamingOutput;
+import javax.ws.rs.ext.MessageBodyReader;
+import javax.ws.rs.ext.MessageBodyWriter;
+import javax.ws.rs.ext.Provider;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+/**
+ * Message body reader and writer of the {@code application/x-jackson-smile} media type.
+ *
+ * <p>Entities are read and written with a Smile {@code ObjectMapper} using the same settings as the JSON mapper of the {@link JacksonContextResolver}, so a
+ * Smile entity holds exactly the fields of its JSON form. Byte arrays, strings, streams and {@link StreamingOutput}s are left to the built in
+ * providers.</p>
+ *
+ * @author Richard Salas
+ * @version 1.0.0
+ */
+@Provider
+@Produces(SmileMessageBodyProvider.APPLICATION_SMILE)
+@Consumes(SmileMessageBodyProvider.APPLICATION_SMILE)
+public class SmileMessageBodyProvider implements MessageBodyReader<Object>, MessageBodyWriter<Object> {
+
+    /**
+     * The {@code application/x-jackson-smile} media type as a string.
+     */
+    public static final String APPLICATION_SMILE = "application/x-jackson-smile";
+
+    /**
+     * The {@code application/x-jackson-smile} media type.
+     */
+    public static final MediaType APPLICATION_SMILE_TYPE = new MediaType("application", "x-jackson-smile");
+
+    private static final ObjectMapper SMILE_MAPPER = JacksonContextResolver.configure(new ObjectMapper(new SmileFactory()
+            .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)//container closes the streams
+            .disable(JsonParser.Feature.AUTO_CLOSE_SOURCE)));
+
+    /**
+     * Gets the Smile mapper shared by the Smile responses.
+     *
+     * @return the Smile ObjectMapper
+     */
+    public static ObjectMapper getSmileMapper() {
+        return SMILE_MAPPER;
+    }//end method
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isReadable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return isMapped(type);
+    }//end method
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object readFrom(Class<Object> type, Type genericType, Annotation[] annotations, MediaType mediaType, MultivaluedMap<String, String> httpHeaders, InputStream entityStream) throws IOException, WebApplicationException {
+        try {
+            return SMILE_MAPPER.readValue(entityStream, SMILE_MAPPER.constructType(genericType));
+        }catch(JsonProcessingException e) {
+            throw new BadRequestException("Unable to read the Smile entity. " + e.getOriginalMessage(), e);
+        }//end try...catch
+    }//end method
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return isMapped(type);
+    }//end method
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getSize(Object t, Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return -1L;
+    }//end method
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void writeTo(Object t, Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType, MultivaluedMap<String, Object> httpHeaders, OutputStream entityStream) throws IOException, WebApplicationException {
+        SMILE_MAPPER.writeValue(entityStream, t);
+    }//end method
+
+    /**
+     * Helper method used to check whether the given {@code type} is mapped by this provider rather than a built in provider.
+     *
+     * @param type the entity type
+     * @return true if the type is mapped, false otherwise
+     */
+    private static boolean isMapped(Class<?> type) {
+        return type != byte[].class && type != String.class && !InputStream.class.isAssignableFrom(type) && !StreamingOutput.class.isAssignableFrom(type);
+    }//end method
+
+}//end class
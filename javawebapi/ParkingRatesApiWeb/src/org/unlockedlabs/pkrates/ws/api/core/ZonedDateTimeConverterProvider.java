@@ -7,6 +7,7 @@ import java.lang.annotation.Annotation;
 import java.lang.reflect.Type;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 
 import javax.ws.rs.ext.ParamConverter;
 import javax.ws.rs.ext.ParamConverterProvider;
@@ -15,6 +16,9 @@ import javax.ws.rs.ext.Provider;
 /**
  * Class used for custom param converter for a ZonedDateTime instance being parsed from a user's request.
  * 
+ * <p>The {@code DATETIME.parser} system property selects the converter. The default, {@code fast}, parses with the {@link IsoDateTimeParser} and rejects malformed
+ * input with a status code of Bad Request - 400. The value {@code classic} selects the original {@link DateTimeFormatter#ISO_ZONED_DATE_TIME} converter.</p>
+ * 
  * @author Richard Salas
  * @version 1.0.0
  */
@@ -28,6 +32,8 @@ public class ZonedDateTimeConverterProvider implements ParamConverterProvider{
 
     public static final DateTimeFormatter DTF = DateTimeFormatter.ISO_ZONED_DATE_TIME;
 
+    private static final ParamConverter<ZonedDateTime> CONVERTER = "classic".equalsIgnoreCase(System.getProperty("DATETIME.parser")) ? new Java8LocalDateClassicFormatParamConverter() : new IsoDateTimeParamConverter();
+
     /**
      * Gets a ParamConverter instance that can convert a string into a ZonedDateTime instance using the given rawType, genericType, and annotations.
      * @param rawType the raw type of the object to be converted
@@ -38,7 +44,7 @@ public class ZonedDateTimeConverterProvider implements ParamConverterProvider{
     @Override
     public <T> ParamConverter<T> getConverter(Class<T> rawType, Type genericType, Annotation[] annotations) {
         if (rawType == ZonedDateTime.class) {
-            return (ParamConverter<T>) new Java8LocalDateClassicFormatParamConverter();
+            return (ParamConverter<T>) CONVERTER;
         }//end if
         return null;
     }//end method
@@ -52,10 +58,13 @@ public class ZonedDateTimeConverterProvider implements ParamConverterProvider{
          * Converts the given {@code value} into a ZonedDateTime.
          * 
          * @param value the value to parse
-         * @return a ZonedDateTime instance
+         * @return a ZonedDateTime instance or null if the parameter is absent
          */
         @Override
         public ZonedDateTime fromString(String value) {
+            if(value == null) {//absent optional parameter such as asOf
+                return null;
+            }//end if
             return ZonedDateTime.parse(value, DTF);//if unable to parse user will get a status code of Not Found - 404
         }//end method
 
@@ -71,5 +80,42 @@ public class ZonedDateTimeConverterProvider implements ParamConverterProvider{
         }//end method
 
     }//end inner class
+
+    /**
+     * The {@link ParamConverter} for {@link ZonedDateTime} using the {@link IsoDateTimeParser}.
+     */
+    private static class IsoDateTimeParamConverter implements ParamConverter<ZonedDateTime> {
+
+        /**
+         * Converts the given {@code value} into a ZonedDateTime.
+         * 
+         * @param value the value to parse
+         * @return a ZonedDateTime instance or null if the parameter is absent
+         * @throws MalformedDateTimeException if the value can not be parsed
+         */
+        @Override
+        public ZonedDateTime fromString(String value) {
+            if(value == null) {//absent optional parameter such as asOf
+                return null;
+            }//end if
+            try {
+                return IsoDateTimeParser.parse(value);
+            }catch(DateTimeParseException | NullPointerException e) {
+                throw new MalformedDateTimeException(value);//user will get a status code of Bad Request - 400
+            }//end try...catch
+        }//end method
+
+        /**
+         * Converts the given {@code value} into a string.
+         * 
+         * @param value the value to parse
+         * @return a String instance
+         */
+        @Override
+        public String toString(ZonedDateTime value) {
+            return DTF.format(value);
+        }//end method
+
+    }//end inner class
     
 }//end class
@@ -0,0 +1,200 @@
+/**
+ *
+ */
+package org.unlockedlabs.pkrates.ws.api.endpoints;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeParseException;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.StreamingOutput;
+
+import org.apache.log4j.Logger;
+import org.unlockedlabs.pkrates.ws.api.core.CborMessageBodyProvider;
+import org.unlockedlabs.pkrates.ws.api.core.IsoDateTimeParser;
+import org.unlockedlabs.pkrates.ws.api.core.RateUnavailableException;
+import org.unlockedlabs.pkrates.ws.api.core.SmileMessageBodyProvider;
+import org.unlockedlabs.pkrates.ws.api.rates.ParkingRateService;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+/**
+ * Streaming output used for pricing a batch of date/time ranges.
+ *
+ * <p>The request body is a JSON array of objects holding a {@code start} and {@code end} date/time, for example
+ * {@code [{"start":"2015-07-01T07:00:00-05:00","end":"2015-07-01T12:00:00-05:00"}]}. The response is a JSON array with one result per range in the same order. A result
+ * is either {@code {"price":1750}}, {@code {"price":"unavailable"}} or, for a range that could not be parsed or an element that is not an object,
+ * {@code {"error":"..."}}. A body that ends before its array is closed fails the response rather than ending the results early.</p>
+ *
+ * <p>The request is read and the response is written one range at a time with the Jackson streaming API so the batch is never held in memory. Either
+ * side may be encoded as CBOR or Smile instead of JSON with the same structure.</p>
+ *
+ * @author Richard Salas
+ * @version 1.0.0
+ */
+public class BatchPriceOutput implements StreamingOutput {
+
+    private static final Logger myLogger = Logger.getLogger("org.unlockedlabs.pkrates.ws.api.endpoints.BatchPriceOutput");
+
+    /**
+     * Factory of the JSON encoding.
+     */
+    static final JsonFactory JSON_FACTORY = new JsonFactory().disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);//container closes the response stream
+
+    /**
+     * Factory of the CBOR encoding.
+     */
+    static final JsonFactory CBOR_FACTORY = new CBORFactory().disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+    /**
+     * Factory of the Smile encoding.
+     */
+    static final JsonFactory SMILE_FACTORY = new SmileFactory().disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+    private final ParkingRateService service;
+    private final InputStream body;
+    private final JsonFactory inputFactory;
+    private final JsonFactory outputFactory;
+
+    /**
+     * Constructor used to create an instance of BatchPriceOutput using the given {@code service} and JSON {@code body}.
+     *
+     * @param service the service used for pricing each range
+     * @param body the request body containing the ranges to price
+     */
+    public BatchPriceOutput(ParkingRateService service, InputStream body) {
+        this(service, body, JSON_FACTORY, JSON_FACTORY);
+    }//end constructor
+
+    /**
+     * Constructor used to create an instance of BatchPriceOutput using the given {@code service}, {@code body} and encodings.
+     *
+     * @param service the service used for pricing each range
+     * @param body the request body containing the ranges to price
+     * @param inputFactory the factory of the request body encoding
+     * @param outputFactory the factory of the response encoding
+     */
+    public BatchPriceOutput(ParkingRateService service, InputStream body, JsonFactory inputFactory, JsonFactory outputFactory) {
+        this.service = service;
+        this.body = body;
+        this.inputFactory = inputFactory;
+        this.outputFactory = outputFactory;
+    }//end constructor
+
+    /**
+     * Gets the factory of the encoding of the given {@code mediaType}.
+     *
+     * @param mediaType the media type of the request or response body, may be null
+     * @return {@link #CBOR_FACTORY} or {@link #SMILE_FACTORY} for a CBOR or Smile media type, {@link #JSON_FACTORY} otherwise
+     */
+    static JsonFactory factoryOf(MediaType mediaType) {
+        if(CborMessageBodyProvider.APPLICATION_CBOR_TYPE.isCompatible(mediaType)) {
+            return CBOR_FACTORY;
+        }else if(SmileMessageBodyProvider.APPLICATION_SMILE_TYPE.isCompatible(mediaType)) {
+            return SMILE_FACTORY;
+        }//end if
+        return JSON_FACTORY;
+    }//end method
+
+    /**
+     * Reads each range from the request body and writes its result to the given {@code output}.
+     *
+     * @param output the response output stream
+     * @throws IOException if the request can not be read or the response can not be written
+     * @throws WebApplicationException if the request body is not a JSON array
+     */
+    @Override
+    public void write(OutputStream output) throws IOException, WebApplicationException {
+        int count = 0;
+        try(JsonParser parser = inputFactory.createParser(body); JsonGenerator generator = outputFactory.createGenerator(output)) {
+            if(parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new JsonParseException(parser, "Expected an array of start and end date/time ranges.");
+            }//end if
+
+            generator.writeStartArray();
+            JsonToken token;
+            while((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                if(token == null) {
+                    throw new JsonParseException(parser, "Unexpected end of the array of start and end date/time ranges.");
+                }else if(token != JsonToken.START_OBJECT) {
+                    parser.skipChildren();
+                    writeError(generator, "Expected a start and end date/time range but found " + token);
+                    count++;
+                    continue;
+                }//end if
+                String start = null;
+                String end = null;
+                while(parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.getCurrentName();
+                    parser.nextToken();
+                    if("start".equals(field)) {
+                        start = parser.getValueAsString();
+                    }else if("end".equals(field)) {
+                        end = parser.getValueAsString();
+                    }else {
+                        parser.skipChildren();
+                    }//end if
+                }//end while
+                if(parser.currentToken() != JsonToken.END_OBJECT) {
+                    throw new JsonParseException(parser, "Unexpected end of a start and end date/time range.");
+                }//end if
+                writeResult(generator, start, end);
+                count++;
+            }//end while
+            generator.writeEndArray();
+        }catch(IOException e) {
+            myLogger.error("IOException occurred while pricing a batch of date/time ranges. Value of interest is: count=" + count + "; Error message is: " + e.getMessage());
+            throw e;
+        }//end try...catch
+
+        if(myLogger.isDebugEnabled()){
+            myLogger.debug("Priced a batch of date/time ranges. Value of interest is: count=" + count);
+        }//end if
+    }//end method
+
+    /**
+     * Helper method used to price a single range and write its result.
+     *
+     * @param generator the generator to write the result to
+     * @param start the start date/time of the range
+     * @param end the end date/time of the range
+     * @throws IOException if the result can not be written
+     */
+    private void writeResult(JsonGenerator generator, String start, String end) throws IOException {
+        generator.writeStartObject();
+        try {
+            ZonedDateTime startDtTm = IsoDateTimeParser.parse(String.valueOf(start));
+            ZonedDateTime endDtTm = IsoDateTimeParser.parse(String.valueOf(end));
+            generator.writeNumberField("price", service.getPriceByTime(startDtTm, endDtTm).getPrice());
+        }catch(RateUnavailableException e) {
+            generator.writeStringField("price", "unavailable");
+        }catch(DateTimeParseException e) {
+            generator.writeStringField("error", "Unable to parse start=" + start + "; end=" + end);
+        }//end try...catch
+        generator.writeEndObject();
+    }//end method
+
+    /**
+     * Helper method used to write the error result of an element that is not a range.
+     *
+     * @param generator the generator to write the result to
+     * @param message the error message
+     * @throws IOException if the result can not be written
+     */
+    private void writeError(JsonGenerator generator, String message) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("error", message);
+        generator.writeEndObject();
+    }//end method
+
+}//end class
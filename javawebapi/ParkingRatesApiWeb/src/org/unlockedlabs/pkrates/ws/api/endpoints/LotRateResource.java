@@ -0,0 +1,157 @@
+/**
+ *
+ */
+package org.unlockedlabs.pkrates.ws.api.endpoints;
+
+import java.time.ZonedDateTime;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.GET;
+import javax.ws.rs.PUT;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+import org.apache.log4j.Logger;
+import org.unlockedlabs.pkrates.ws.api.core.CborMessageBodyProvider;
+import org.unlockedlabs.pkrates.ws.api.core.SmileMessageBodyProvider;
+import org.unlockedlabs.pkrates.ws.api.core.RateUnavailableException;
+import org.unlockedlabs.pkrates.ws.api.rates.LotRateService;
+import org.unlockedlabs.pkrates.ws.api.rates.ParkingPrice;
+import org.unlockedlabs.pkrates.ws.api.rates.RateConflictException;
+import org.unlockedlabs.pkrates.ws.api.rates.RateModel;
+
+/**
+ * Lot Rate Resource web service API endpoints used for uploading and retrieving data about the parking rates of a single lot.
+ *
+ * <p>This resource is a singleton and uses the container managed {@link LotRateService}. A lot that does not exist is answered with Not Found - 404. Rates
+ * and prices are served and accepted as JSON, CBOR or Smile.</p>
+ *
+ * @author Richard Salas
+ * @version 1.0.0
+ */
+@Path("lots/{lotId}")
+@Singleton
+public class LotRateResource {
+
+    private static Logger myLogger = Logger.getLogger("org.unlockedlabs.pkrates.ws.api.endpoints.LotRateResource");
+
+    private final LotRateService service;
+
+    /**
+     * Constructor used to create an instance of LotRateResource using the given {@code service}.
+     *
+     * @param service the lot rate service
+     */
+    @Inject
+    public LotRateResource(LotRateService service) {
+        this.service = service;
+    }//end constructor
+
+    /**
+     * Gets the list of parking rates of the lot of the given {@code lotId}.
+     *
+     * @param lotId the id of the lot
+     * @return response the response containing the list of parking rates as JSON
+     */
+    @GET
+    @Produces({MediaType.APPLICATION_JSON, CborMessageBodyProvider.APPLICATION_CBOR, SmileMessageBodyProvider.APPLICATION_SMILE})
+    @Path("rates")
+    public Response getRates(@PathParam("lotId") String lotId) {
+        if(myLogger.isDebugEnabled()){
+            myLogger.debug("Entering getRates() method is a webservice endpoint used for returning a list of parking rates of a lot.  Incoming parameter is lotId=" + String.valueOf(lotId));
+        }//end if
+
+        Response response = null;
+        try{
+            RateModel rates = service.getParkingRates(lotId);
+            response = rates == null ? Response.status(Response.Status.NOT_FOUND).build() : Response.status(200).entity(rates).build();//building response
+        }catch(Exception e){
+            myLogger.error("Exception occurred during an attempt to retrieve a list of rates of a lot.  Error message is: " + e.getMessage() + ". Value of interest is:  lotId=" + String.valueOf(lotId), e);
+            response =  Response.status(Response.Status.BAD_REQUEST).build();
+        }//end try...catch
+
+        if(myLogger.isDebugEnabled()){
+            myLogger.debug("Exiting getRates() method. Return value is: response=" + String.valueOf(response));
+        }// end if
+        return response;
+    }//end method
+
+    /**
+     * Saves a list of parking rates of the lot of the given {@code lotId} using the incoming JSON parking {@code rates}, creating the lot if it does
+     * not exist.
+     *
+     * <p>NOTE This service will overwrite the currently stored rates of the lot with the given rates. Rates that overlap on the same day are rejected
+     * with Conflict - 409 just like {@link ParkingRateResource#saveRates(javax.ws.rs.container.AsyncResponse, javax.ws.rs.core.HttpHeaders, java.io.InputStream)}.</p>
+     *
+     * @param lotId the id of the lot
+     * @param rates the rates to be saved
+     * @return response the response letting the user know rates were successfully updated
+     */
+    @PUT
+    @Produces(MediaType.APPLICATION_JSON)
+    @Consumes({MediaType.APPLICATION_JSON, CborMessageBodyProvider.APPLICATION_CBOR, SmileMessageBodyProvider.APPLICATION_SMILE})
+    @Path("rates")
+    public Response saveRates(@PathParam("lotId") String lotId, RateModel rates) {
+        if(myLogger.isDebugEnabled()){
+            myLogger.debug("Entering saveRates() method is a webservice endpoint used to update the rates of a lot using the given rates parameter parsed from JSON.  Incoming parameters are lotId=" + String.valueOf(lotId) + "; rates=" + String.valueOf(rates));
+        }//end if
+
+        Response response = null;
+        try{
+            service.updateRates(lotId, rates.getRates());
+            response = Response.status(200).entity("Successfully updated parking rates").build();//build response
+        }catch(RateConflictException e){//overlapping rates
+            myLogger.warn("RateConflictException occurred during an attempt to update the parking rates of a lot.  Error message is: " + e.getMessage() + ". Value of interest is:  lotId=" + String.valueOf(lotId));
+            response =  Response.status(Response.Status.CONFLICT).entity(ParkingRateResource.conflictEntity(e)).build();
+        }catch(Exception e){
+            myLogger.error("Exception occurred during an attempt to update the parking rates of a lot.  Error message is: " + e.getMessage() + ". Values of interest are:  lotId=" + String.valueOf(lotId) + "; rates=" + String.valueOf(rates), e);
+            response =  Response.status(Response.Status.BAD_REQUEST).build();
+        }//end try...catch
+
+        if(myLogger.isDebugEnabled()){
+            myLogger.debug("Exiting saveRates() method. Return value is: response=" + String.valueOf(response));
+        }// end if
+        return response;
+    }//end method
+
+    /**
+     * Gets a parking rate price of the lot of the given {@code lotId} based on the given {@code startDtTm} and {@code endDtTm}.
+     *
+     * @param lotId the id of the lot
+     * @param startDtTm the start date and time used to get price
+     * @param endDtTm the stop date and time used to get price
+     * @return response the response containing the price as JSON or an unavailable response
+     */
+    @GET
+    @Produces({MediaType.APPLICATION_JSON, CborMessageBodyProvider.APPLICATION_CBOR, SmileMessageBodyProvider.APPLICATION_SMILE})
+    @Path("price")
+    public Response getPrice(@PathParam("lotId") String lotId, @QueryParam("start") ZonedDateTime startDtTm, @QueryParam("end") ZonedDateTime endDtTm) {
+        if(myLogger.isDebugEnabled()){
+            myLogger.debug("Entering getPrice() method is a webservice endpoint used for returning a parking rate price of a lot using the given startDtTm and endDtTm parameters.  Incoming parameters are lotId=" + String.valueOf(lotId) + "; startDtTm=" + String.valueOf(startDtTm) + "; endDtTm=" + String.valueOf(endDtTm));
+        }//end if
+
+        Response response = null;
+        try{
+            ParkingPrice price = service.getPriceByTime(lotId, startDtTm, endDtTm);
+            response = price == null ? Response.status(Response.Status.NOT_FOUND).build() : Response.status(200).entity(price).build();//building response
+        }catch(RateUnavailableException e){//"unavailable"
+            myLogger.warn("RateUnavailableException occurred while getting price of a lot based on user date/time input.  Valus of interest are: lotId=" + String.valueOf(lotId) + "; startDtTm=" + String.valueOf(startDtTm) + "; endDtTm=" + String.valueOf(endDtTm) +"; Error message is: " + e.getMessage());
+            response =  Response.status(Response.Status.OK).entity(ParkingRateResource.UNAVAILABLE).build();
+        }catch(Exception e){
+            myLogger.error("Exception occurred while getting price of a lot based on user date/time input.  Valus of interest are: lotId=" + String.valueOf(lotId) + "; startDtTm=" + String.valueOf(startDtTm) + "; endDtTm=" + String.valueOf(endDtTm) +"; Error message is: " + e.getMessage(), e);
+            response =  Response.status(Response.Status.BAD_REQUEST).build();
+        }//end try...catch
+
+        if(myLogger.isDebugEnabled()){
+            myLogger.debug("Exiting getPrice() method. Return value is: response=" + String.valueOf(response));
+        }// end if
+        return response;
+    }//end method
+
+}//end class
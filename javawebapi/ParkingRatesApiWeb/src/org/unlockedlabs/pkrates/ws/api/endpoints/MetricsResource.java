@@ -0,0 +1,59 @@
+/**
+ * 
+ */
+package org.unlockedlabs.pkrates.ws.api.endpoints;
+
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+
+import javax.inject.Singleton;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.CacheControl;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+
+import org.apache.log4j.Logger;
+
+import gov.doc.isu.metrics.MetricsRegistry;
+
+/**
+ * Metrics Resource web service API endpoint used for scraping the application metrics.
+ * 
+ * <p>The metrics are written in the Prometheus text exposition format and include the latency of every route by status along with the price cache
+ * and rate reload counters.</p>
+ *
+ * @author Richard Salas
+ * @version 1.0.0
+ */
+@Path("metrics")
+@Singleton
+public class MetricsResource {
+
+    private static Logger myLogger = Logger.getLogger("org.unlockedlabs.pkrates.ws.api.endpoints.MetricsResource");
+
+    private static final CacheControl NO_CACHE = CacheControl.valueOf("no-cache");
+
+    /**
+     * Gets the application metrics.
+     * 
+     * @return response the response streaming the metrics
+     */
+    @GET
+    @Produces(MetricsRegistry.CONTENT_TYPE)
+    public Response getMetrics() {
+        if(myLogger.isDebugEnabled()){
+            myLogger.debug("Entering getMetrics() method is a webservice endpoint used for returning the application metrics. No incoming parameters.");
+        }//end if
+
+        StreamingOutput metrics = out -> MetricsRegistry.getInstance().write(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        Response response = Response.status(200).entity(metrics).cacheControl(NO_CACHE).build();
+
+        if(myLogger.isDebugEnabled()){
+            myLogger.debug("Exiting getMetrics() method. Return value is: response=" + String.valueOf(response));
+        }// end if
+        return response;
+    }//end method
+
+}//end class
@@ -3,52 +3,153 @@
  */
 package org.unlockedlabs.pkrates.ws.api.endpoints;
 
+import java.io.InputStream;
+import java.time.Duration;
+import java.time.ZoneId;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.time.ZonedDateTime;
 
+import javax.inject.Inject;
+import javax.inject.Singleton;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
+import javax.ws.rs.POST;
 import javax.ws.rs.PUT;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
+import javax.ws.rs.core.CacheControl;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
 
 import org.apache.log4j.Logger;
+import org.unlockedlabs.pkrates.ws.api.core.CborMessageBodyProvider;
+import org.unlockedlabs.pkrates.ws.api.core.CompressionInterceptor;
 import org.unlockedlabs.pkrates.ws.api.core.RateUnavailableException;
+import org.unlockedlabs.pkrates.ws.api.core.RateUploadProvider;
+import org.unlockedlabs.pkrates.ws.api.core.RequestExecutors;
+import org.unlockedlabs.pkrates.ws.api.core.SmileMessageBodyProvider;
 import org.unlockedlabs.pkrates.ws.api.rates.ParkingPrice;
-import org.unlockedlabs.pkrates.ws.api.rates.RateModel;
+import org.unlockedlabs.pkrates.ws.api.rates.RateConflictException;
+import org.unlockedlabs.pkrates.ws.api.rates.RateUpload;
+import org.unlockedlabs.pkrates.ws.api.rates.RateVersionModel;
 import org.unlockedlabs.pkrates.ws.api.rates.ParkingRateService;
+import org.unlockedlabs.pkrates.ws.api.rates.SerializedRates;
 
 /**
  * Parking Rate Resource web service API endpoints used for uploading and retrieving data about parking rates.
+ * 
+ * <p>This resource is a singleton and uses the container managed {@link ParkingRateService}. The rates, price and rate upload requests are suspended
+ * and run on the read and write pools of the container managed {@link RequestExecutors}, so uploads never hold the threads serving prices.</p>
  *
  * @author Richard Salas
  * @version 1.0.0
  */
 @Path("/")
+@Singleton
 public class ParkingRateResource {
 
     private static Logger myLogger = Logger.getLogger("org.unlockedlabs.pkrates.ws.api.endpoints.ParkingRateResource");
 
+    private static final CacheControl RATES_CACHE_CONTROL = new CacheControl();
+    static {
+        RATES_CACHE_CONTROL.setMaxAge(Integer.getInteger("RATES.maxAge", 0));//clients revalidate using the ETag once max-age has passed
+        RATES_CACHE_CONTROL.setMustRevalidate(true);
+    }//end static
+
+    /**
+     * Entity of a price that is unavailable.
+     */
+    static final Map<String, String> UNAVAILABLE = Collections.singletonMap("price", "unavailable");
+
+    private static final long CALENDAR_MAX_DAYS = Long.getLong("RATES.calendarMaxDays", 366L);
+
+    private final ParkingRateService service;
+    private final RequestExecutors executors;
+    private final RateUploadProvider uploadReader = new RateUploadProvider();//reads the uploads on the write pool
+
+    /**
+     * Constructor used to create an instance of ParkingRateResource using the given {@code service} and {@code executors}.
+     * 
+     * @param service the parking rate service
+     * @param executors the executors the suspended requests run on
+     */
+    @Inject
+    public ParkingRateResource(ParkingRateService service, RequestExecutors executors) {
+        this.service = service;
+        this.executors = executors;
+    }//end constructor
+
     /**
      * Gets a list of parking rates.
      * 
-     * @return response the response containing the list of parking rates as JSON
+     * <p>The rates are served from bytes serialized once per rate version. Each response carries a strong {@code ETag} and a request with a matching
+     * {@code If-None-Match} header is answered with Not Modified - 304. The CBOR or Smile bytes are served when the user prefers
+     * {@code application/cbor} or {@code application/x-jackson-smile} over JSON. Bodies larger than the compression minimum size are served compressed with the gzip or deflate encoding accepted by the user, from bytes
+     * compressed once per rate version, so the {@link CompressionInterceptor} leaves them alone.</p>
+     * 
+     * <p>When {@code asOf} is given the rates that were in force at that date/time are served, or Not Found - 404 when it is before the oldest
+     * version kept, see {@link #getRateVersions()}.</p>
+     * 
+     * <p>The request runs on the read pool and is answered with Service Unavailable - 503 when the read pool is saturated.</p>
+     * 
+     * @param asyncResponse the suspended response resumed with the list of parking rates as JSON, CBOR or Smile
+     * @param request the request used to evaluate the {@code If-None-Match} precondition
+     * @param headers the request headers used to select the media type
+     * @param acceptEncoding the value of the {@code Accept-Encoding} header
+     * @param asOf the date and time the rates were in force, or null for the current rates
      */
     @GET
-    @Produces(MediaType.APPLICATION_JSON)
+    @Produces({MediaType.APPLICATION_JSON, CborMessageBodyProvider.APPLICATION_CBOR, SmileMessageBodyProvider.APPLICATION_SMILE})
     @Path("rates")
-    public Response getRates() {
+    public void getRates(@Suspended AsyncResponse asyncResponse, @Context Request request, @Context HttpHeaders headers, @HeaderParam(HttpHeaders.ACCEPT_ENCODING) String acceptEncoding, @QueryParam("asOf") ZonedDateTime asOf) {
+        executors.read(asyncResponse, () -> rates(request, headers, acceptEncoding, asOf));
+    }//end method
+
+    /**
+     * Helper method used to build the response of {@link #getRates(AsyncResponse, Request, HttpHeaders, String, ZonedDateTime)} on the read pool.
+     * 
+     * @param request the request used to evaluate the {@code If-None-Match} precondition
+     * @param headers the request headers used to select the media type
+     * @param acceptEncoding the value of the {@code Accept-Encoding} header
+     * @param asOf the date and time the rates were in force, or null for the current rates
+     * @return response the response containing the list of parking rates as JSON, CBOR or Smile
+     */
+    private Response rates(Request request, HttpHeaders headers, String acceptEncoding, ZonedDateTime asOf) {
         if(myLogger.isDebugEnabled()){
-            myLogger.debug("Entering getRates() method is a webservice endpoint used for returning a list of parking rates.  No incoming parameters.");
+            myLogger.debug("Entering getRates() method is a webservice endpoint used for returning a list of parking rates.  Incoming parameters are acceptEncoding=" + String.valueOf(acceptEncoding) + "; asOf=" + String.valueOf(asOf));
         }//end if
 
         Response response = null;
         try{
-            ParkingRateService service = new ParkingRateService();
-            RateModel rates = service.getParkingRates();
-            response = Response.status(200).entity(rates).build();//building response
+            SerializedRates rates = service.getSerializedRates(asOf == null ? null : asOf.toInstant());
+            if(rates == null) {//before the oldest version kept
+                response = Response.status(Response.Status.NOT_FOUND).build();
+            }else {
+                MediaType mediaType = preferredType(headers.getAcceptableMediaTypes());
+                String format = mediaType == CborMessageBodyProvider.APPLICATION_CBOR_TYPE ? SerializedRates.CBOR : mediaType == SmileMessageBodyProvider.APPLICATION_SMILE_TYPE ? SerializedRates.SMILE : SerializedRates.JSON;
+                String encoding = rates.getBody(format, null).length > CompressionInterceptor.getMinSize() ? CompressionInterceptor.selectEncoding(acceptEncoding) : null;
+                EntityTag entityTag = new EntityTag(rates.getEntityTag(format, encoding));
+                Response.ResponseBuilder builder = request.evaluatePreconditions(entityTag);
+                if(builder == null) {//no matching If-None-Match so send the rates
+                    builder = Response.status(200).entity(rates.getBody(format, encoding)).tag(entityTag);
+                    if(encoding != null) {
+                        builder.encoding(encoding);
+                    }//end if
+                }//end if
+                builder.type(mediaType);
+                response = builder.cacheControl(RATES_CACHE_CONTROL).header(HttpHeaders.VARY, HttpHeaders.ACCEPT + ", " + HttpHeaders.ACCEPT_ENCODING).build();//building response
+            }//end if
         }catch(Exception e){
             myLogger.error("Exception occurred during an attempt to retrieve a list of rates.  Error message is: " + e.getMessage(), e);
             response =  Response.status(Response.Status.BAD_REQUEST).build();
@@ -61,27 +162,152 @@ public class ParkingRateResource {
     }//end method
 
     /**
-     * Saves a list of parking rates using the incoming JSON parking {@code rates} .
+     * Gets the rate set versions kept in the history, oldest first, each with the instant it went into force, the instant it was replaced, its number
+     * of rates and its estimated memory.
+     * 
+     * @return response the response containing the {@code RateVersionModel} as JSON
+     */
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    @Path("rates/versions")
+    public Response getRateVersions() {
+        if(myLogger.isDebugEnabled()){
+            myLogger.debug("Entering getRateVersions() method is a webservice endpoint used for returning the kept rate versions. No incoming parameters.");
+        }//end if
+
+        Response response = null;
+        try{
+            RateVersionModel versions = service.getRateVersions();
+            response = Response.status(200).entity(versions).build();//building response
+        }catch(Exception e){
+            myLogger.error("Exception occurred during an attempt to retrieve the rate versions.  Error message is: " + e.getMessage(), e);
+            response =  Response.status(Response.Status.BAD_REQUEST).build();
+        }//end try...catch
+
+        if(myLogger.isDebugEnabled()){
+            myLogger.debug("Exiting getRateVersions() method. Return value is: response=" + String.valueOf(response));
+        }// end if
+        return response;
+    }//end method
+
+    /**
+     * Gets the calendar of the effective parking rate prices between the given {@code from} and {@code to} date/times within the given {@code zone}.
+     * 
+     * <p>The calendar is streamed in a single pass, see {@link RateCalendarOutput} for the response format. The zone defaults to the zone of
+     * {@code from} and the range may not be longer than the {@code RATES.calendarMaxDays} system property, 366 days by default.</p>
+     * 
+     * @param from the start date and time of the calendar
+     * @param to the end date and time of the calendar
+     * @param zone the time zone id the calendar is written in
+     * @return response the response streaming the calendar as JSON or Bad Request - 400 if the range or zone is not valid
+     */
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    @Path("rates/calendar")
+    public Response getRateCalendar(@QueryParam("from") ZonedDateTime from, @QueryParam("to") ZonedDateTime to, @QueryParam("zone") String zone) {
+        if(myLogger.isDebugEnabled()){
+            myLogger.debug("Entering getRateCalendar() method is a webservice endpoint used for returning the calendar of parking rate prices over a date/time range.  Incoming parameters are from=" + String.valueOf(from) + "; to=" + String.valueOf(to) + "; zone=" + String.valueOf(zone));
+        }//end if
+
+        Response response = null;
+        try{
+            if(from == null || to == null || !to.isAfter(from)) {
+                throw new IllegalArgumentException("The from and to date/times are required and from must be before to.");
+            }else if(Duration.between(from, to).compareTo(Duration.ofDays(CALENDAR_MAX_DAYS)) > 0) {
+                throw new IllegalArgumentException("The range may not be longer than " + CALENDAR_MAX_DAYS + " days.");
+            }//end if
+            ZoneId zoneId = zone == null || zone.trim().isEmpty() ? from.getZone() : ZoneId.of(zone.trim());
+            response = Response.status(200).entity(new RateCalendarOutput(service.getRateCalendar(zoneId), from, to)).build();//the calendar is streamed as it is computed
+        }catch(Exception e){
+            myLogger.warn("Exception occurred during an attempt to retrieve a calendar of rates.  Values of interest are: from=" + String.valueOf(from) + "; to=" + String.valueOf(to) + "; zone=" + String.valueOf(zone) + "; Error message is: " + e.getMessage());
+            response =  Response.status(Response.Status.BAD_REQUEST).build();
+        }//end try...catch
+
+        if(myLogger.isDebugEnabled()){
+            myLogger.debug("Exiting getRateCalendar() method. Return value is: response=" + String.valueOf(response));
+        }// end if
+        return response;
+    }//end method
+
+    /**
+     * Helper method used to build the entity of a Conflict - 409 response listing the conflicting pairs of the given {@code e}.
+     * 
+     * @param e the exception holding the conflicting pairs
+     * @return the entity of the response
+     */
+    static Map<String, Object> conflictEntity(RateConflictException e) {
+        Map<String, Object> entity = new LinkedHashMap<>();
+        entity.put("error", "overlapping rates");
+        entity.put("conflicts", e.getConflicts());
+        return entity;
+    }//end method
+
+    /**
+     * Helper method used to select the media type of a response from the given {@code acceptableTypes}, sorted by preference. A wildcard prefers JSON.
+     * 
+     * @param acceptableTypes the media types of the {@code Accept} header sorted by preference
+     * @return the CBOR or Smile media type if it is named before any media type compatible with JSON, the JSON media type otherwise
+     */
+    static MediaType preferredType(List<MediaType> acceptableTypes) {
+        for(MediaType mediaType : acceptableTypes) {
+            if(mediaType.isCompatible(MediaType.APPLICATION_JSON_TYPE)) {
+                return MediaType.APPLICATION_JSON_TYPE;
+            }else if(mediaType.isCompatible(CborMessageBodyProvider.APPLICATION_CBOR_TYPE)) {
+                return CborMessageBodyProvider.APPLICATION_CBOR_TYPE;
+            }else if(mediaType.isCompatible(SmileMessageBodyProvider.APPLICATION_SMILE_TYPE)) {
+                return SmileMessageBodyProvider.APPLICATION_SMILE_TYPE;
+            }//end if
+        }//end for
+        return MediaType.APPLICATION_JSON_TYPE;
+    }//end method
+
+    /**
+     * Saves a list of parking rates using the incoming JSON, CBOR or Smile parking {@code rates} .
      * 
      * <p>NOTE This service will overwrite the currently stored rates with the given rates</p>
      * 
-     * @param rates the rates to be saved
-     * @return response the response letting the user know rates were successfully updated
+     * <p>Rates that overlap on the same day are rejected with Conflict - 409 and a JSON body listing the conflicting pairs, for example
+     * {@code {"error":"overlapping rates","conflicts":[{"first":{...},"second":{...},"days":["MON"]}]}}.</p>
+     * 
+     * <p>The rates are read by the {@link RateUploadProvider} as they arrive, so an upload is never held as a list of {@code RateDTO}s. An upload
+     * larger than the {@code RATES.maxUploadBytes} or holding more rates than the {@code RATES.maxUploadRates} system property allows is answered with
+     * Request Entity Too Large - 413, an upload that can not be read with Bad Request - 400.</p>
+     * 
+     * <p>The upload is read and saved on the bounded write pool, apart from the read pool serving prices and from the container thread, and is answered
+     * with Service Unavailable - 503 when too many uploads are queued or one waited longer than the {@code WRITES.timeoutSeconds} system property.</p>
+     * 
+     * @param asyncResponse the suspended response resumed with the response letting the user know rates were successfully updated
+     * @param headers the request headers holding the media type and length of the upload
+     * @param body the request body holding the rates to be saved
      */
     @PUT
     @Produces(MediaType.APPLICATION_JSON)
-    @Consumes(MediaType.APPLICATION_JSON)
+    @Consumes({MediaType.APPLICATION_JSON, CborMessageBodyProvider.APPLICATION_CBOR, SmileMessageBodyProvider.APPLICATION_SMILE})
     @Path("rates")
-    public Response saveRates(RateModel rates) {
+    public void saveRates(@Suspended AsyncResponse asyncResponse, @Context HttpHeaders headers, InputStream body) {
+        MediaType mediaType = headers.getMediaType();
+        String contentLength = headers.getHeaderString(HttpHeaders.CONTENT_LENGTH);
+        executors.write(asyncResponse, () -> save(uploadReader.read(body, mediaType, contentLength)));
+    }//end method
+
+    /**
+     * Helper method used to build the response of {@link #saveRates(AsyncResponse, HttpHeaders, InputStream)} on the write pool.
+     * 
+     * @param rates the rates to be saved
+     * @return response the response letting the user know rates were successfully updated
+     */
+    private Response save(RateUpload rates) {
         if(myLogger.isDebugEnabled()){
             myLogger.debug("Entering saveRates() method is a webservice endpoint used to update rates using the given rates parameter parsed from JSON.  Incoming parameter is rates=" + String.valueOf(rates));
         }//end if
 
         Response response = null;
         try{
-            ParkingRateService service = new ParkingRateService();
-            service.updateRates(rates.getRates());
+            service.publishRates(rates.getRates());
             response = Response.status(200).entity("Successfully updated parking rates").build();//build response
+        }catch(RateConflictException e){//overlapping rates
+            myLogger.warn("RateConflictException occurred during an attempt to update the parking rates.  Error message is: " + e.getMessage());
+            response =  Response.status(Response.Status.CONFLICT).entity(conflictEntity(e)).build();
         }catch(Exception e){
             myLogger.error("Exception occurred during an attempt to update the parking rates.  Error message is: " + e.getMessage() + ". Value of interest is:  rates=" + String.valueOf(rates), e);
             response =  Response.status(Response.Status.BAD_REQUEST).build();
@@ -96,26 +322,43 @@ public class ParkingRateResource {
     /**
      * Gets a parking rate price based on the given {@code startDtTm} and {@code endDtTm}.
      * 
+     * <p>When {@code asOf} is given the price is found using the rates that were in force at that date/time, which reprices a past session against
+     * the rates of its time. A date/time before the oldest version kept is answered with Not Found - 404.</p>
+     * 
+     * <p>The request runs on the read pool and is answered with Service Unavailable - 503 when the read pool is saturated.</p>
+     * 
+     * @param asyncResponse the suspended response resumed with the price as JSON, CBOR or Smile, or an unavailable response
      * @param startDtTm the start date and time used to get price
      * @param endDtTm the stop date and time used to get price
-     * @return response the response containing the price as JSON or an unavailable response
+     * @param asOf the date and time the rates were in force, or null for the current rates
      */
     @GET
-    @Produces(MediaType.APPLICATION_JSON)
+    @Produces({MediaType.APPLICATION_JSON, CborMessageBodyProvider.APPLICATION_CBOR, SmileMessageBodyProvider.APPLICATION_SMILE})
     @Path("price")
-    public Response getPrice(@QueryParam("start") ZonedDateTime startDtTm, @QueryParam("end") ZonedDateTime endDtTm) {
+    public void getPrice(@Suspended AsyncResponse asyncResponse, @QueryParam("start") ZonedDateTime startDtTm, @QueryParam("end") ZonedDateTime endDtTm, @QueryParam("asOf") ZonedDateTime asOf) {
+        executors.read(asyncResponse, () -> price(startDtTm, endDtTm, asOf));
+    }//end method
+
+    /**
+     * Helper method used to build the response of {@link #getPrice(AsyncResponse, ZonedDateTime, ZonedDateTime, ZonedDateTime)} on the read pool.
+     * 
+     * @param startDtTm the start date and time used to get price
+     * @param endDtTm the stop date and time used to get price
+     * @param asOf the date and time the rates were in force, or null for the current rates
+     * @return response the response containing the price as JSON, CBOR or Smile, or an unavailable response
+     */
+    private Response price(ZonedDateTime startDtTm, ZonedDateTime endDtTm, ZonedDateTime asOf) {
         if(myLogger.isDebugEnabled()){
-            myLogger.debug("Entering getPrice() method is a webservice endpoint used for returning a parking rate price using the given startDtTm and endDtTm parameters.  Incoming parameters are startDtTm=" + String.valueOf(startDtTm) + "; endDtTm=" + String.valueOf(endDtTm));
+            myLogger.debug("Entering getPrice() method is a webservice endpoint used for returning a parking rate price using the given startDtTm and endDtTm parameters.  Incoming parameters are startDtTm=" + String.valueOf(startDtTm) + "; endDtTm=" + String.valueOf(endDtTm) + "; asOf=" + String.valueOf(asOf));
         }//end if
 
         Response response = null;
         try{
-            ParkingRateService service = new ParkingRateService();
-            ParkingPrice price = service.getPriceByTime(startDtTm, endDtTm);
-            response = Response.status(200).entity(price).build();//building response
+            ParkingPrice price = service.getPriceByTime(startDtTm, endDtTm, asOf == null ? null : asOf.toInstant());
+            response = price == null ? Response.status(Response.Status.NOT_FOUND).build() : Response.status(200).entity(price).build();//building response
         }catch(RateUnavailableException e){//"unavailable"
             myLogger.warn("RateUnavailableException occurred while getting price based on user date/time input.  Valus of interest are: startDtTm=" + String.valueOf(startDtTm) + "; endDtTm=" + String.valueOf(endDtTm) +"; Error message is: " + e.getMessage());
-            response =  Response.status(Response.Status.OK).entity("{\"price\": \"unavailable\"}").build();
+            response =  Response.status(Response.Status.OK).entity(UNAVAILABLE).build();
         }catch(Exception e){
             myLogger.error("Exception occurred while getting price based on user date/time input.  Valus of interest are: startDtTm=" + String.valueOf(startDtTm) + "; endDtTm=" + String.valueOf(endDtTm) +"; Error message is: " + e.getMessage(), e);
             response =  Response.status(Response.Status.BAD_REQUEST).build();
@@ -127,4 +370,33 @@ public class ParkingRateResource {
         return response;
     }//end method
 
+    /**
+     * Gets a parking rate price for each start and end date/time range within the given JSON array {@code body}.
+     * 
+     * <p>The ranges are read and the results are written as a stream, see {@link BatchPriceOutput} for the request and response format. Either side
+     * may be CBOR or Smile instead of JSON.</p>
+     * 
+     * @param headers the request headers used to select the request and response encodings
+     * @param body the request body containing an array of start and end date/time ranges
+     * @return response the response streaming an array of prices in the same order as the ranges
+     */
+    @POST
+    @Produces({MediaType.APPLICATION_JSON, CborMessageBodyProvider.APPLICATION_CBOR, SmileMessageBodyProvider.APPLICATION_SMILE})
+    @Consumes({MediaType.APPLICATION_JSON, CborMessageBodyProvider.APPLICATION_CBOR, SmileMessageBodyProvider.APPLICATION_SMILE})
+    @Path("price/batch")
+    public Response getBatchPrice(@Context HttpHeaders headers, InputStream body) {
+        if(myLogger.isDebugEnabled()){
+            myLogger.debug("Entering getBatchPrice() method is a webservice endpoint used for returning parking rate prices for a batch of date/time ranges.  Incoming parameter is the request body stream.");
+        }//end if
+
+        MediaType mediaType = preferredType(headers.getAcceptableMediaTypes());
+        BatchPriceOutput output = new BatchPriceOutput(service, body, BatchPriceOutput.factoryOf(headers.getMediaType()), BatchPriceOutput.factoryOf(mediaType));
+        Response response = Response.status(200).entity(output).type(mediaType).build();//results are streamed as they are priced
+
+        if(myLogger.isDebugEnabled()){
+            myLogger.debug("Exiting getBatchPrice() method. Return value is: response=" + String.valueOf(response));
+        }// end if
+        return response;
+    }//end method
+
 }//end class
@@ -0,0 +1,145 @@
+/**
+ *
+ */
+package org.unlockedlabs.pkrates.ws.api.endpoints;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.StreamingOutput;
+
+import org.apache.log4j.Logger;
+import org.unlockedlabs.pkrates.ws.api.rates.RateCalendar;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * Streaming output used for writing the {@link RateCalendar} of a date/time range.
+ *
+ * <p>The response is a JSON object holding the rate {@code version}, the caller's {@code zone}, the {@code from} and {@code to} of the range and an
+ * {@code intervals} array, for example {@code {"start":"2015-07-01T06:00-05:00","end":"2015-07-01T18:00-05:00","price":1750}}. A gap has a price of
+ * {@code "unavailable"} and, unlike a priced interval, may cross midnight. The intervals cover the whole range in time order and are written in the
+ * caller's zone, so the offset of an interval changes across a daylight saving transition.</p>
+ *
+ * <p>The calendar is computed and written one date at a time with the Jackson streaming API so a long range is never held in memory.</p>
+ *
+ * @author Richard Salas
+ * @version 1.0.0
+ */
+public class RateCalendarOutput implements StreamingOutput {
+
+    private static final Logger myLogger = Logger.getLogger("org.unlockedlabs.pkrates.ws.api.endpoints.RateCalendarOutput");
+    private static final JsonFactory JSON_FACTORY = new JsonFactory().disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);//container closes the response stream
+
+    private final RateCalendar calendar;
+    private final ZonedDateTime from;
+    private final ZonedDateTime to;
+
+    /**
+     * Constructor used to create an instance of RateCalendarOutput using the given {@code calendar}, {@code from} and {@code to}.
+     *
+     * @param calendar the calendar of the current rates within the caller's zone
+     * @param from the start of the range
+     * @param to the end of the range
+     */
+    public RateCalendarOutput(RateCalendar calendar, ZonedDateTime from, ZonedDateTime to) {
+        this.calendar = calendar;
+        this.from = from.withZoneSameInstant(calendar.getZone());
+        this.to = to.withZoneSameInstant(calendar.getZone());
+    }//end constructor
+
+    /**
+     * Writes the calendar of each date within the range to the given {@code output}.
+     *
+     * @param output the response output stream
+     * @throws IOException if the response can not be written
+     * @throws WebApplicationException never thrown
+     */
+    @Override
+    public void write(OutputStream output) throws IOException, WebApplicationException {
+        ZoneId zone = calendar.getZone();
+        Instant fromInstant = from.toInstant();
+        Instant toInstant = to.toInstant();
+        int count = 0;
+        try(JsonGenerator generator = JSON_FACTORY.createGenerator(output)) {
+            generator.writeStartObject();
+            generator.writeNumberField("version", calendar.getSnapshot().getVersion());
+            generator.writeStringField("zone", zone.getId());
+            generator.writeStringField("from", format(fromInstant, zone));
+            generator.writeStringField("to", format(toInstant, zone));
+            generator.writeArrayFieldStart("intervals");
+            Instant gapStart = null;//a gap is written once the next priced interval or the end of the range is reached
+            Instant gapEnd = null;
+            for(LocalDate date = from.toLocalDate();!date.isAfter(to.toLocalDate());date = date.plusDays(1)) {
+                for(RateCalendar.Interval interval : calendar.getIntervals(date, fromInstant, toInstant)) {
+                    if(!interval.isPriced()) {
+                        gapStart = gapStart == null ? interval.getStart() : gapStart;
+                        gapEnd = interval.getEnd();
+                        continue;
+                    }//end if
+                    if(gapStart != null) {
+                        writeInterval(generator, gapStart, gapEnd, RateCalendar.UNAVAILABLE, zone);
+                        gapStart = null;
+                        count++;
+                    }//end if
+                    writeInterval(generator, interval.getStart(), interval.getEnd(), interval.getPrice(), zone);
+                    count++;
+                }//end for
+            }//end for
+            if(gapStart != null) {
+                writeInterval(generator, gapStart, gapEnd, RateCalendar.UNAVAILABLE, zone);
+                count++;
+            }//end if
+            generator.writeEndArray();
+            generator.writeEndObject();
+        }catch(IOException e) {
+            myLogger.error("IOException occurred while writing a rate calendar. Values of interest are: from=" + String.valueOf(from) + "; to=" + String.valueOf(to) + "; count=" + count + "; Error message is: " + e.getMessage());
+            throw e;
+        }//end try...catch
+
+        if(myLogger.isDebugEnabled()){
+            myLogger.debug("Wrote a rate calendar. Values of interest are: from=" + String.valueOf(from) + "; to=" + String.valueOf(to) + "; count=" + count);
+        }//end if
+    }//end method
+
+    /**
+     * Helper method used to write a single interval.
+     *
+     * @param generator the generator to write the interval to
+     * @param start the start of the interval
+     * @param end the end of the interval
+     * @param price the price of the interval or {@link RateCalendar#UNAVAILABLE}
+     * @param zone the caller's zone
+     * @throws IOException if the interval can not be written
+     */
+    private static void writeInterval(JsonGenerator generator, Instant start, Instant end, int price, ZoneId zone) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("start", format(start, zone));
+        generator.writeStringField("end", format(end, zone));
+        if(price != RateCalendar.UNAVAILABLE) {
+            generator.writeNumberField("price", price);
+        }else {
+            generator.writeStringField("price", "unavailable");
+        }//end if
+        generator.writeEndObject();
+    }//end method
+
+    /**
+     * Helper method used to format the given {@code instant} within the given {@code zone} as an ISO offset date/time.
+     *
+     * @param instant the instant to format
+     * @param zone the caller's zone
+     * @return the formatted date/time
+     */
+    private static String format(Instant instant, ZoneId zone) {
+        return DateTimeFormatter.ISO_OFFSET_DATE_TIME.format(instant.atZone(zone));
+    }//end method
+
+}//end class
@@ -0,0 +1,70 @@
+package org.unlockedlabs.pkrates.ws.api.rates;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * An IParkingRateDAO is a store of parking rates that publishes its rates as immutable {@link RateSnapshot}s.
+ *
+ * <p>Implementations are bound as container managed singletons within {@code org.unlockedlabs.pkrates.ws.api.core.Application}. The container calls {@link #start()}
+ * once on startup and {@link #stop()} once on shutdown.</p>
+ *
+ * @author Richard Salas
+ * @version 1.0.0
+ */
+public interface IParkingRateDAO {
+
+    /**
+     * Loads the initial rates and acquires any resources needed by this store.
+     */
+    public void start();
+
+    /**
+     * Releases any resources held by this store.
+     */
+    public void stop();
+
+    /**
+     * Reloads the stored rates using the given {@code newRates} list.
+     *
+     * @param newRates the list used to replace the stored rates
+     */
+    public void reloadRates(List<RateDO> newRates);
+
+    /**
+     * Gets the current list of parking rates.
+     *
+     * @return an unmodifiable instance of the current list of parking rates
+     */
+    public List<RateDO> getParkingRates();
+
+    /**
+     * Gets the compiled index of the current parking rates.
+     *
+     * @return the {@code RateIndex} instance built from the current parking rates
+     */
+    public RateIndex getRateIndex();
+
+    /**
+     * Gets the current rate snapshot.
+     *
+     * @return the current {@code RateSnapshot} instance
+     */
+    public RateSnapshot getSnapshot();
+
+    /**
+     * Gets the rate snapshot that was in force at the given {@code asOf} instant.
+     *
+     * @param asOf the instant
+     * @return the {@code RateSnapshot} in force at the instant or null if the instant is before the oldest version kept
+     */
+    public RateSnapshot getSnapshot(Instant asOf);
+
+    /**
+     * Gets the rate snapshots kept by this store, each in force from its effective instant until the next one.
+     *
+     * @return the unmodifiable list of kept {@code RateSnapshot}s, oldest first and ending with the current snapshot
+     */
+    public List<RateSnapshot> getVersions();
+
+}//end interface
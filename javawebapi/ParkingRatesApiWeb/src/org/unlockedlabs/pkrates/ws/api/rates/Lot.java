@@ -0,0 +1,105 @@
+/**
+ *
+ */
+package org.unlockedlabs.pkrates.ws.api.rates;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Parking lot holding its own immutable {@link RateSnapshot} and {@link PriceCache}.
+ *
+ * <p>Every lot is independent of the others, so a lot's rates are compiled, published and cached without touching any other lot. A new snapshot is
+ * published with a single reference swap just like the {@link ParkingRateMemDAO}.</p>
+ *
+ * @author Richard Salas
+ * @version 1.0.0
+ */
+public final class Lot {
+
+    private static final int PRICE_ENTRY_SIZE = 64;//PriceKey and CachedPrice per unit of key weight
+
+    private final String lotId;
+    private final AtomicReference<RateSnapshot> snapshot = new AtomicReference<>(RateSnapshot.EMPTY);
+    private final PriceCache priceCache;
+    private final long priceCacheMaxWeight;
+
+    /**
+     * Constructor used to create an instance of Lot using the given {@code lotId}.
+     *
+     * @param lotId the id of the lot
+     * @param priceCacheMaxWeight the maximum weight of the lot's price cache
+     */
+    Lot(String lotId, long priceCacheMaxWeight) {
+        this.lotId = lotId;
+        this.priceCacheMaxWeight = priceCacheMaxWeight;
+        this.priceCache = new PriceCache(priceCacheMaxWeight);
+    }//end constructor
+
+    /**
+     * Compiles the given {@code newRates} into a new {@code RateSnapshot} and publishes it as the current snapshot of this lot. Only the days whose
+     * rates differ from the current snapshot are compiled again.
+     *
+     * @param newRates the list of rates to publish
+     * @return the difference between the previous and the published rates
+     */
+    RateDiff publish(List<RateDO> newRates) {
+        RateSnapshot current;
+        RateSnapshot next;
+        RateDiff diff;
+        do {
+            current = snapshot.get();
+            diff = RateDiff.between(current.getRates(), newRates);
+            next = new RateSnapshot(current.getVersion() + 1, diff.getRates(), RateIndex.rebuild(current.getRateIndex(), diff.getRates(), diff.getChangedDays()), Instant.now());
+        }while(!snapshot.compareAndSet(current, next));
+        return diff;
+    }//end method
+
+    /**
+     * Estimates the memory held by this lot in kilobytes, counting its compiled index, its rates and the bound of its price cache.
+     *
+     * @return the estimated weight in kilobytes, at least one
+     */
+    int weight() {
+        RateSnapshot current = snapshot.get();
+        long bytes = current.estimateSize() + PRICE_ENTRY_SIZE * priceCacheMaxWeight;
+        return (int) Math.min(Integer.MAX_VALUE, Math.max(1L, bytes / 1024L));
+    }//end method
+
+    /**
+     * @return the lotId
+     */
+    public String getLotId() {
+        return lotId;
+    }//end method
+
+    /**
+     * @return the current snapshot
+     */
+    public RateSnapshot getSnapshot() {
+        return snapshot.get();
+    }//end method
+
+    /**
+     * @return the priceCache
+     */
+    public PriceCache getPriceCache() {
+        return priceCache;
+    }//end method
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("Lot [lotId=");
+        builder.append(lotId);
+        builder.append(", version=");
+        builder.append(snapshot.get().getVersion());
+        builder.append("]");
+        return builder.toString();
+    }//end method
+
+}//end class
@@ -0,0 +1,291 @@
+/**
+ *
+ */
+package org.unlockedlabs.pkrates.ws.api.rates;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+import org.apache.log4j.Logger;
+import org.unlockedlabs.pkrates.ws.api.core.JacksonContextResolver;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalCause;
+
+import gov.doc.isu.metrics.MetricsRegistry;
+
+/**
+ * Catalog of parking {@link Lot}s, each loaded lazily from its own {@code <lotId>.json} rate file.
+ *
+ * <p>The rate files are found within the directory at the {@code LOTS.directory} system property. A lot is loaded and compiled the first time it is
+ * asked for and is then held within a cache bounded by the estimated weight of the lots in kilobytes, set by the {@code LOTS.maxWeight} system property.
+ * The least recently used lots are evicted once the bound is reached and are loaded again from their file when next asked for, so the catalog can serve
+ * thousands of lots without holding them all in memory. The price cache of each lot is bounded by the {@code LOTS.priceCacheMaxWeight} system
+ * property.</p>
+ *
+ * <p>Saving the rates of a lot writes its rate file to a temporary file and renames it into place before the new rates are published, so the rates of
+ * an evicted lot are never lost. Rate files changed outside of the catalog are not watched and are only read when the lot is next loaded.</p>
+ *
+ * @author Richard Salas
+ * @version 1.0.0
+ */
+public class LotCatalog {
+
+    private static final Logger myLogger = Logger.getLogger("org.unlockedlabs.pkrates.ws.api.rates.LotCatalog");
+
+    /**
+     * Default maximum weight in kilobytes used when the {@code LOTS.maxWeight} system property is not set.
+     */
+    public static final long DEFAULT_MAX_WEIGHT = 256L * 1024L;
+
+    /**
+     * Default maximum weight of each lot's price cache used when the {@code LOTS.priceCacheMaxWeight} system property is not set.
+     */
+    public static final long DEFAULT_PRICE_CACHE_MAX_WEIGHT = 1000L;
+
+    private static final Pattern LOT_ID = Pattern.compile("[A-Za-z0-9_-]{1,64}");//also keeps the id from escaping the directory
+    private static final String SUFFIX = ".json";
+    private static final int LOCK_STRIPES = 64;
+
+    private final Path directory;
+    private final long priceCacheMaxWeight;
+    private final Cache<String, Lot> lots;
+    private final Object[] locks = new Object[LOCK_STRIPES];
+    private final ObjectMapper objectMapper = new JacksonContextResolver().getContext(RateModel.class);//same settings as the JSON responses
+    private final LongAdder loadCount = MetricsRegistry.getInstance().counter("pkrates_lot_loads_total", "Number of lots loaded from their rate file.");
+    private final LongAdder loadFailureCount = MetricsRegistry.getInstance().counter("pkrates_lot_load_failures_total", "Number of lot rate files that could not be loaded.");
+    private final LongAdder evictionCount = MetricsRegistry.getInstance().counter("pkrates_lot_evictions_total", "Number of lots evicted to bound the memory held.");
+
+    /**
+     * Constructor used to create an instance of LotCatalog using the {@code LOTS.directory}, {@code LOTS.maxWeight} and {@code LOTS.priceCacheMaxWeight}
+     * system properties. The {@code lots} directory next to the {@code INIT.jsonFilePath} file is used when {@code LOTS.directory} is not set.
+     */
+    public LotCatalog() {
+        this(getDefaultDirectory(), Long.getLong("LOTS.maxWeight", DEFAULT_MAX_WEIGHT), Long.getLong("LOTS.priceCacheMaxWeight", DEFAULT_PRICE_CACHE_MAX_WEIGHT));
+    }//end constructor
+
+    /**
+     * Constructor used to create an instance of LotCatalog using the given {@code directory}, {@code maxWeight} and {@code priceCacheMaxWeight}.
+     *
+     * @param directory the directory holding the rate file of each lot
+     * @param maxWeight the maximum total weight of the loaded lots in kilobytes
+     * @param priceCacheMaxWeight the maximum weight of each lot's price cache
+     */
+    public LotCatalog(Path directory, long maxWeight, long priceCacheMaxWeight) {
+        this.directory = directory;
+        this.priceCacheMaxWeight = priceCacheMaxWeight;
+        for(int i = 0;i < locks.length;i++) {
+            locks[i] = new Object();
+        }//end for
+        this.lots = CacheBuilder.newBuilder()
+                .maximumWeight(maxWeight)
+                .weigher((String lotId, Lot lot) -> lot.weight())
+                .removalListener(notification -> {
+                    if(notification.getCause() == RemovalCause.SIZE) {
+                        evictionCount.increment();
+                    }//end if
+                }).build();
+        MetricsRegistry.getInstance().gauge("pkrates_lots_loaded", "Number of lots held in memory.", lots::size);
+    }//end constructor
+
+    /**
+     * Finds the lot of the given {@code lotId}, loading it from its rate file when it is not held in memory.
+     *
+     * @param lotId the id of the lot
+     * @return the Lot instance or null if the id is not valid or the lot has no rate file
+     * @throws IOException if the rate file of the lot can not be read
+     */
+    public Lot findLot(String lotId) throws IOException {
+        if(myLogger.isDebugEnabled()){
+            myLogger.debug("Entering findLot() which is used for finding the lot of the given lotId. Incoming parameter is lotId=" + String.valueOf(lotId));
+        }//end if
+
+        Lot lot = null;
+        if(isValidLotId(lotId)) {
+            lot = lots.getIfPresent(lotId);
+            if(lot == null) {
+                synchronized(lockOf(lotId)) {//a lot is loaded once even when asked for by many requests at the same time
+                    lot = lots.getIfPresent(lotId);
+                    if(lot == null) {
+                        lot = load(lotId);
+                    }//end if
+                }//end synchronized
+            }//end if
+        }//end if
+
+        if(myLogger.isDebugEnabled()){
+            myLogger.debug("Exiting findLot() method. Return value is lot=" + String.valueOf(lot));
+        }//end if
+        return lot;
+    }//end method
+
+    /**
+     * Saves the given {@code rates} as the rates of the lot of the given {@code lotId}, creating the lot if it does not exist.
+     *
+     * @param lotId the id of the lot
+     * @param rates the rates replacing the current rates of the lot
+     * @return the difference between the previous and the saved rates
+     * @throws IOException if the rate file of the lot can not be written
+     * @throws IllegalArgumentException if the lot id is not valid
+     * @throws RateConflictException if any two of the rates overlap on the same day
+     */
+    public RateDiff saveRates(String lotId, List<RateDTO> rates) throws IOException {
+        if(myLogger.isDebugEnabled()){
+            myLogger.debug("Entering saveRates() which is used for saving the rates of the lot of the given lotId. Incoming parameters are lotId=" + String.valueOf(lotId) + "; rates=" + String.valueOf(rates));
+        }//end if
+
+        if(!isValidLotId(lotId)) {
+            throw new IllegalArgumentException("Invalid lot id " + lotId);
+        }//end if
+        List<RateDO> rateDOList = RateDTO.toDOs(rates);
+        RateOverlapValidator.validate(rateDOList);//before the rate file is written
+        RateDiff diff;
+        synchronized(lockOf(lotId)) {
+            writeRateFile(lotId, objectMapper.writeValueAsBytes(new RateModel(rates)));
+            Lot lot = lots.getIfPresent(lotId);
+            if(lot == null) {
+                lot = new Lot(lotId, priceCacheMaxWeight);
+            }//end if
+            diff = lot.publish(rateDOList);
+            lots.put(lotId, lot);//weigh the lot again
+        }//end synchronized
+
+        if(myLogger.isDebugEnabled()){
+            myLogger.debug("Exiting saveRates() method. Return value is diff=" + String.valueOf(diff));
+        }//end if
+        return diff;
+    }//end method
+
+    /**
+     * Gets the number of lots held in memory.
+     *
+     * @return the number of loaded lots
+     */
+    public long getLoadedCount() {
+        return lots.size();
+    }//end method
+
+    /**
+     * Releases every lot held in memory.
+     */
+    public void clear() {
+        lots.invalidateAll();
+    }//end method
+
+    /**
+     * Helper method used to load the lot of the given {@code lotId} from its rate file and hold it in memory. Must be called holding the lock of the lot.
+     *
+     * @param lotId the id of the lot
+     * @return the loaded Lot instance or null if the lot has no rate file
+     * @throws IOException if the rate file can not be read
+     */
+    private Lot load(String lotId) throws IOException {
+        long startNanos = System.nanoTime();
+        byte[] bytes;
+        try {
+            bytes = Files.readAllBytes(directory.resolve(lotId + SUFFIX));
+        }catch(NoSuchFileException e) {
+            return null;
+        }//end try...catch
+
+        List<RateDO> rateDOList;
+        try {
+            rateDOList = ParkingRateMemDAO.readRates(bytes);
+        }catch(IOException | RuntimeException e) {
+            loadFailureCount.increment();
+            throw e;
+        }//end try...catch
+        Lot lot = new Lot(lotId, priceCacheMaxWeight);
+        lot.publish(rateDOList);
+        lots.put(lotId, lot);
+        loadCount.increment();
+        if(myLogger.isDebugEnabled()){
+            myLogger.debug("Loaded " + rateDOList.size() + " parking rates of lot " + lotId + " in " + (System.nanoTime() - startNanos) / 1000L + " microseconds");
+        }//end if
+        return lot;
+    }//end method
+
+    /**
+     * Helper method used to get the lock guarding the loading and saving of the lot of the given {@code lotId}.
+     *
+     * @param lotId the id of the lot
+     * @return the lock of the lot, shared with the other lots of the same stripe
+     */
+    private Object lockOf(String lotId) {
+        return locks[(lotId.hashCode() & 0x7FFFFFFF) % locks.length];
+    }//end method
+
+    /**
+     * Helper method used to write the given {@code bytes} as the rate file of the lot of the given {@code lotId}.
+     *
+     * @param lotId the id of the lot
+     * @param bytes the JSON rate file contents
+     * @throws IOException if the rate file can not be written
+     */
+    private void writeRateFile(String lotId, byte[] bytes) throws IOException {
+        Files.createDirectories(directory);
+        Path target = directory.resolve(lotId + SUFFIX);
+        Path temp = Files.createTempFile(directory, lotId + "-", ".tmp");
+        try {
+            Files.write(temp, bytes);
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            }catch(AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }//end try...catch
+        }finally {
+            Files.deleteIfExists(temp);
+        }//end try...finally
+    }//end method
+
+    /**
+     * Helper method used to get the lot directory using the {@code LOTS.directory} system property, or the {@code lots} directory next to the
+     * {@code INIT.jsonFilePath} file.
+     *
+     * @return the lot directory
+     */
+    private static Path getDefaultDirectory() {
+        String lotDir = System.getProperty("LOTS.directory");
+        if(lotDir != null && !lotDir.trim().isEmpty()) {
+            return Paths.get(lotDir.trim());
+        }else if(System.getProperty("INIT.jsonFilePath") != null) {
+            return Paths.get(System.getProperty("INIT.jsonFilePath")).toAbsolutePath().resolveSibling("lots");
+        }//end if
+        return Paths.get("lots");
+    }//end method
+
+    /**
+     * Helper method used to check whether the given {@code lotId} is a valid lot id.
+     *
+     * @param lotId the id of the lot
+     * @return true if the id is made of 1 to 64 letters, digits, dashes or underscores
+     */
+    private static boolean isValidLotId(String lotId) {
+        return lotId != null && LOT_ID.matcher(lotId).matches();
+    }//end method
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("LotCatalog [directory=");
+        builder.append(directory);
+        builder.append(", loaded=");
+        builder.append(lots.size());
+        builder.append("]");
+        return builder.toString();
+    }//end method
+
+}//end class
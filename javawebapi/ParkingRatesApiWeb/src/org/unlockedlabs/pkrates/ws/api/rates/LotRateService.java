@@ -0,0 +1,130 @@
+/**
+ *
+ */
+package org.unlockedlabs.pkrates.ws.api.rates;
+
+import java.io.IOException;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+import javax.inject.Inject;
+
+import org.apache.log4j.Logger;
+import org.unlockedlabs.pkrates.ws.api.core.RateUnavailableException;
+
+import gov.doc.isu.metrics.MetricsRegistry;
+
+/**
+ * Parking rate service used for handling the parking rate business operations of a single lot within the {@link LotCatalog}.
+ *
+ * <p>A single instance is bound within the container by {@code org.unlockedlabs.pkrates.ws.api.core.Application} and shared by all requests. Each lot is
+ * priced against its own snapshot and price cache.</p>
+ *
+ * @author Richard Salas
+ * @version 1.0.0
+ */
+public class LotRateService {
+
+    private static final Logger myLogger = Logger.getLogger("org.unlockedlabs.pkrates.ws.api.rates.LotRateService");
+
+    private final LotCatalog catalog;
+    private final LongAdder unavailableCount = MetricsRegistry.getInstance().counter("pkrates_price_unavailable_total", "Number of price requests answered with unavailable.");
+
+    /**
+     * Constructor used to create an instance of LotRateService using the given {@code catalog}.
+     *
+     * @param catalog the catalog of lots used by this service
+     */
+    @Inject
+    public LotRateService(LotCatalog catalog) {
+        this.catalog = catalog;
+    }//end constructor
+
+    /**
+     * Gets the parking rates of the lot of the given {@code lotId} and returns a {@code RateModel} instance which the rates will be encapsulated within.
+     *
+     * @param lotId the id of the lot
+     * @return returnRates the {@code RateModel} instance containing the parking rates or null if the lot does not exist
+     * @throws IOException if the rate file of the lot can not be read
+     */
+    public RateModel getParkingRates(String lotId) throws IOException {
+        if(myLogger.isDebugEnabled()){
+            myLogger.debug("Entering getParkingRates() which is used for getting a list of current parking rates of a lot. Incoming parameter is lotId=" + String.valueOf(lotId));
+        }//end if
+
+        RateModel returnRates = null;
+        Lot lot = catalog.findLot(lotId);
+        if(lot != null) {
+            List<RateDTO> rateDTOList = lot.getSnapshot().getRates().stream().map(rateDO -> rateDO.toDTO()).collect(Collectors.toList());
+            returnRates = new RateModel(rateDTOList);
+        }//end if
+
+        if(myLogger.isDebugEnabled()){
+            myLogger.debug("Exiting getParkingRates() method. Return value is returnRates=" + String.valueOf(returnRates));
+        }//end if
+        return returnRates;
+    }//end method
+
+    /**
+     * Updates the parking rates of the lot of the given {@code lotId} with the incoming {@code theRates} list, creating the lot if it does not exist.
+     *
+     * <p>NOTE This service will overwrite the currently stored rates of the lot with the given rates</p>
+     *
+     * @param lotId the id of the lot
+     * @param theRates the list of {@code RateDTO}s that will be saved
+     * @throws IOException if the rate file of the lot can not be written
+     */
+    public void updateRates(String lotId, List<RateDTO> theRates) throws IOException {
+        if(myLogger.isDebugEnabled()){
+            myLogger.debug("Entering updateRates() which is used for updating a list of parking rates of a lot. Incoming parameters are lotId=" + String.valueOf(lotId) + "; theRates=" + String.valueOf(theRates));
+        }//end if
+
+        RateDiff diff = catalog.saveRates(lotId, theRates);
+
+        if(myLogger.isDebugEnabled()){
+            myLogger.debug("Exiting updateRates() method. No return value. Value of interest is diff=" + String.valueOf(diff));
+        }//end if
+    }//end method
+
+    /**
+     * Gets the parking rate price of the lot of the given {@code lotId} using the given {@code startDtTm} and {@code endDtTm}.
+     *
+     * @param lotId the id of the lot
+     * @param startDtTm the start {@code ZonedDateTime} instance
+     * @param endDtTm the end {@code ZonedDateTime} instance
+     * @return returnPrice the {@code ParkingPrice} instance or null if the lot does not exist
+     * @throws RateUnavailableException the exception that can be thrown if a rate is not found {@link RateUnavailableException}
+     * @throws IOException if the rate file of the lot can not be read
+     */
+    public ParkingPrice getPriceByTime(String lotId, ZonedDateTime startDtTm, ZonedDateTime endDtTm) throws RateUnavailableException, IOException {
+        if(myLogger.isDebugEnabled()){
+            myLogger.debug("Entering getPriceByTime() which is used for getting a parking rate price of a lot using the given startDtTm and endDtTm. Incoming parameters are lotId=" + String.valueOf(lotId) + "; startDtTm=" + String.valueOf(startDtTm) + "; endDtTm=" + String.valueOf(endDtTm));
+        }//end if
+
+        ParkingPrice returnPrice = null;
+        Lot lot = catalog.findLot(lotId);
+        if(lot != null) {
+            try {
+                returnPrice = ParkingRateService.getPrice(lot.getSnapshot(), lot.getPriceCache(), startDtTm, endDtTm);
+            }catch(RateUnavailableException e) {
+                unavailableCount.increment();
+                throw e;
+            }//end try...catch
+        }//end if
+
+        if(myLogger.isDebugEnabled()){
+            myLogger.debug("Exiting getPriceByTime() method. Return value is returnPrice=" + String.valueOf(returnPrice));
+        }//end if
+        return returnPrice;
+    }//end method
+
+    /**
+     * @return the catalog
+     */
+    public LotCatalog getCatalog() {
+        return catalog;
+    }//end method
+
+}//end class
@@ -44,6 +44,8 @@ public class ParkingPrice {
     /**
      * Calculates parking price based on the given {@code startDtTm}, {@code endDtTm} and {@code parkingRatesByDay} and returns an instance of {@code ParkingPrice}.
      * 
+     * <p>The rates are expected to be checked by the {@link RateOverlapValidator}, so the scan stops at the first rate that contains the range.</p>
+     * 
      * @param startDtTm the start date time used to calculate price
      * @param endDtTm the end date time used to calculate price
      * @param parkingRatesByDay list of {@code RateDO}s to search through
@@ -51,8 +53,6 @@ public class ParkingPrice {
      * @throws RateUnavailableException if price is unavailable {@link RateUnavailableException}
      */
     public static ParkingPrice calculatePrice(ZonedDateTime startDtTm, ZonedDateTime endDtTm, List<RateDO> parkingRatesByDay) throws RateUnavailableException {
-        boolean parkingRateFound = false;
-        ParkingPrice price = null;
         for (RateDO rateDO : parkingRatesByDay) {
             ZonedDateTime rateStartDtTm = rateDO.getRateZoneStartTm(startDtTm.toLocalDate());
             ZonedDateTime rateEndDtTm = rateDO.getRateZoneEndTm(endDtTm.toLocalDate());
@@ -60,20 +60,11 @@ public class ParkingPrice {
                     && startDtTm.isBefore(rateEndDtTm)//check #2
                     && endDtTm.isAfter(rateStartDtTm)//check #3 
                     && (endDtTm.isBefore(rateEndDtTm) || endDtTm.isEqual(rateEndDtTm))) {//check #4
-                if(parkingRateFound) {
-                    throw new RateUnavailableException("User input spanned more than one parking rate.");
-                }else{//found the rate
-                    price = new ParkingPrice(rateDO.getPrice());
-                    parkingRateFound = true;
-                }//end if
+                return new ParkingPrice(rateDO.getPrice());//found the rate, validated rates never overlap so no other rate can contain the range
             }//end if
         }//end for
 
-        if(price==null) {
-            throw new RateUnavailableException("No parking rate found based on user input.");
-        }//end if
-
-        return price;
+        throw new RateUnavailableException("No parking rate found based on user input.");
     }//end method
 
     /**
@@ -3,57 +3,162 @@
  */
 package org.unlockedlabs.pkrates.ws.api.rates;
 
+import java.io.IOException;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.ArrayList;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Collections;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.apache.log4j.Logger;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import gov.doc.isu.metrics.MetricsRegistry;
+
 /**
- * Data Access Object used to execute Read/Write/Delete operations against the {@code PARKING_RATES} list.
+ * Data Access Object used to execute Read/Write/Delete operations against the current {@link RateSnapshot}.
+ * 
+ * <p>The rates are held within an immutable {@code RateSnapshot} that is published through a single {@code AtomicReference} swap. Readers never lock or copy
+ * and a reload becomes visible to them all at once.</p>
+ *
+ * <p>Earlier rate sets are kept within a {@link RateHistory} so a price can be found using the rates in force at a past instant. At most
+ * {@code RATES.historyCount} versions are kept, 32 by default, and a version is evicted once it stopped being in force more than
+ * {@code RATES.historyMaxDays} days ago, 30 by default. The estimated memory of the kept versions is published as the
+ * {@code pkrates_rate_history_bytes} gauge.</p>
+ *
+ * <p>Once started, every published snapshot is also saved by a {@link RateSnapshotStore} within the directory found at the {@code RATES.snapshotDir}
+ * system property, or the {@code snapshots} directory next to the {@code INIT.jsonFilePath} file when it is not set. On start the saved snapshots are
+ * restored as the history, the newest being current. Each snapshot records the checksum of the JSON file contents last loaded, so the JSON file is
+ * loaded on top of the restored rates only when there is no saved snapshot or the file changed while the service was stopped.</p>
+ *
+ * <p>While started, the {@code INIT.jsonFilePath} file is watched by a {@link RateFileWatcher} unless the {@code RATES.watchSeed} system property is
+ * {@code false}. A changed file is parsed on the watcher thread and only the days covered by an added or removed rate are compiled again before the new
+ * snapshot is published. A file that can not be parsed or holds overlapping rates, see {@link RateOverlapValidator}, leaves the current rates in place.</p>
  *  
  * @author Richard Salas
  * @version 1.0.0
  */
-public class ParkingRateMemDAO {
+public class ParkingRateMemDAO implements IParkingRateDAO {
 
     private static final Logger myLogger = Logger.getLogger("org.unlockedlabs.pkrates.ws.api.rates.ParkingRateMemDAO");
 
-    private static List<RateDO> PARKING_RATES = Collections.synchronizedList(new ArrayList<>());//synchronized list for thread safety 
+    private final AtomicReference<RateHistory> parkingRates = new AtomicReference<>(RateHistory.EMPTY);//kept rate sets, the newest is current
+    private final int maxVersions = Math.max(1, Integer.getInteger("RATES.historyCount", 32));
+    private final Duration maxVersionAge = Duration.ofDays(Math.max(0L, Long.getLong("RATES.historyMaxDays", 30L)));
+    private volatile RateSnapshotStore snapshotStore;//null until started
+    private volatile RateFileWatcher seedWatcher;//null unless started and watching
+    private volatile long seedChecksum = RateSnapshot.NO_SEED;//checksum of the seed file contents last loaded
+    private final LongAdder publishCount = MetricsRegistry.getInstance().counter("pkrates_rate_reloads_total", "Number of rate snapshots published.");
+    private final LongAdder fileReloadCount = MetricsRegistry.getInstance().counter("pkrates_rate_file_reloads_total", "Number of rate file changes loaded.");
+    private final LongAdder fileReloadFailureCount = MetricsRegistry.getInstance().counter("pkrates_rate_file_reload_failures_total", "Number of rate file changes that could not be loaded.");
+    private final LongAdder changedRateCount = MetricsRegistry.getInstance().counter("pkrates_rate_file_rates_changed_total", "Number of rates added or removed by rate file changes.");
+    private final AtomicLong lastFileReloadMicros = new AtomicLong();
+    private final LongAdder evictedVersionCount = MetricsRegistry.getInstance().counter("pkrates_rate_versions_evicted_total", "Number of rate versions evicted from the history.");
 
-    static {
+    /**
+     * Constructor used to create an instance of ParkingRateMemDAO.
+     */
+    public ParkingRateMemDAO() {
+        MetricsRegistry.getInstance().gauge("pkrates_rate_file_reload_last_duration_microseconds", "Duration of the last rate file reload.", lastFileReloadMicros::get);
+        MetricsRegistry.getInstance().gauge("pkrates_rate_versions", "Number of rate versions kept in the history.", () -> parkingRates.get().size());
+        MetricsRegistry.getInstance().gauge("pkrates_rate_history_bytes", "Estimated memory held by the rate versions kept in the history.", () -> parkingRates.get().estimateSize());
+    }//end method
+
+    /**
+     * Restores the saved rate snapshots, or loads the initial parking rates from the JSON file found at the {@code INIT.jsonFilePath} system
+     * property when no snapshot has been saved or the file changed since the newest snapshot was saved.
+     */
+    @Override
+    public void start() {
+        if(myLogger.isDebugEnabled()){
+            myLogger.debug("Entering start() which is used for loading the initial parking rates from a snapshot or a file. No incoming parameters.");
+        }//end if
+
+        long startNanos = System.nanoTime();
+        snapshotStore = createSnapshotStore();
+        List<RateSnapshot> saved = snapshotStore == null ? Collections.<RateSnapshot>emptyList() : snapshotStore.loadAll();
+        byte[] seedBytes = null;
         try {
-            byte[] bytes = Files.readAllBytes(Paths.get(System.getProperty("INIT.jsonFilePath")));//read file in
-            RateModel rates = new ObjectMapper().readValue(new String(bytes), RateModel.class);//convert string into RateModel
-            List<RateDO> rateDOList = rates.getRates().stream().map(rateDTO -> rateDTO.toDO()).collect(Collectors.toList());//convert DTOs into DOs
-            PARKING_RATES.addAll(rateDOList);//add
+            seedBytes = Files.readAllBytes(Paths.get(System.getProperty("INIT.jsonFilePath")));//read file in
         }catch(Exception e) {
-            myLogger.error("Exception occurred during an attempt to initially load parking rates from a file. Values of interest are INIT.jsonFilePath=" + System.getProperty("INIT.jsonFilePath") + ";PARKING_RATES=" + String.valueOf(PARKING_RATES) + " Error message is: " + e.getMessage(), e);
+            if(saved.isEmpty()) {
+                myLogger.error("Exception occurred during an attempt to initially load parking rates from a file. Values of interest are INIT.jsonFilePath=" + System.getProperty("INIT.jsonFilePath") + ";parkingRates=" + String.valueOf(parkingRates) + " Error message is: " + e.getMessage(), e);
+            }//end if
         }//end try...catch
-    }//end static block
+        long seedFileChecksum = seedBytes == null ? RateSnapshot.NO_SEED : RateFileWatcher.checksum(seedBytes);
+
+        if(!saved.isEmpty()) {
+            RateHistory restored = RateHistory.EMPTY;
+            for(RateSnapshot snapshot : saved) {
+                restored = restored.append(snapshot, maxVersions, maxVersionAge, Instant.now());
+            }//end for
+            parkingRates.set(restored);
+            long restoredChecksum = restored.getCurrent().getSeedChecksum();
+            seedChecksum = restoredChecksum == RateSnapshot.NO_SEED ? seedFileChecksum : restoredChecksum;//no seed file was loaded, the file is taken as loaded rather than replacing the restored rates
+            myLogger.info("Restored " + restored.getCurrent().getRates().size() + " parking rates of version " + restored.getCurrent().getVersion() + " along with " + (restored.size() - 1) + " earlier versions from " + snapshotStore + " in " + (System.nanoTime() - startNanos) / 1000000L + " ms");
+            if(seedBytes != null && seedChecksum != seedFileChecksum) {
+                myLogger.info("INIT.jsonFilePath=" + System.getProperty("INIT.jsonFilePath") + " changed since the newest snapshot was saved, loading it on top of the restored rates.");
+                reloadSeedFile(seedBytes);
+            }//end if
+        }else if(seedBytes != null) {
+            try {
+                List<RateDO> rateDOList = readRates(seedBytes);
+                long loadedNanos = System.nanoTime();
+                publish(rateDOList, seedFileChecksum);//compile, publish and save
+                long publishedNanos = System.nanoTime();
+                myLogger.info("Loaded " + rateDOList.size() + " parking rates from INIT.jsonFilePath=" + System.getProperty("INIT.jsonFilePath") + " in " + (publishedNanos - startNanos) / 1000000L + " ms, " + (loadedNanos - startNanos) / 1000000L + " ms reading and validating and " + (publishedNanos - loadedNanos) / 1000000L + " ms building the rate index");
+            }catch(Exception e) {
+                myLogger.error("Exception occurred during an attempt to initially load parking rates from a file. Values of interest are INIT.jsonFilePath=" + System.getProperty("INIT.jsonFilePath") + ";parkingRates=" + String.valueOf(parkingRates) + " Error message is: " + e.getMessage(), e);
+            }//end try...catch
+        }//end if
+        startSeedWatcher(seedFileChecksum);//the contents read here were loaded or already in force
+
+        if(myLogger.isDebugEnabled()){
+            myLogger.debug("Exiting start() method. No return value.");
+        }//end if
+    }//end method
 
     /**
-     * Constructor used to create an instance of ParkingRateMemDAO.
+     * Releases the current parking rates.
      */
-    public ParkingRateMemDAO() { }//end method
+    @Override
+    public void stop() {
+        if(myLogger.isDebugEnabled()){
+            myLogger.debug("Entering stop() which is used for releasing the current parking rates. No incoming parameters.");
+        }//end if
+
+        RateFileWatcher watcher = seedWatcher;
+        if(watcher != null) {
+            watcher.stop();
+            seedWatcher = null;
+        }//end if
+        snapshotStore = null;
+        seedChecksum = RateSnapshot.NO_SEED;
+        parkingRates.set(RateHistory.EMPTY);
+
+        if(myLogger.isDebugEnabled()){
+            myLogger.debug("Exiting stop() method. No return value.");
+        }//end if
+    }//end method
 
     /**
-     * Reloads the {@code PARKING_RATES} list using the given {@code newRates} list.
+     * Reloads the current snapshot using the given {@code newRates} list.
      * 
-     * @param newRates the list used to replace what is within the PARKING_RATES list
+     * @param newRates the list used to replace what is within the current snapshot
      */
+    @Override
     public void reloadRates(List<RateDO> newRates) {
         if(myLogger.isDebugEnabled()){
-            myLogger.debug("Entering reloadRates() which is used for reloading the PARKING_RATES list using the given newRates list. Incoming parameter is newRates=" + String.valueOf(newRates));
+            myLogger.debug("Entering reloadRates() which is used for reloading the current snapshot using the given newRates list. Incoming parameter is newRates=" + String.valueOf(newRates));
         }//end if
 
-        PARKING_RATES.clear();
-        PARKING_RATES.addAll(newRates);
+        publish(newRates, seedChecksum);
 
         if(myLogger.isDebugEnabled()){
             myLogger.debug("Exiting reloadRates() method. No return value.");
@@ -61,16 +166,15 @@ public class ParkingRateMemDAO {
     }//end method
 
     /**
-     * This method returns the gets parking rates
-     * 
-     * @return an instance of the current list of parking rates 
+     * {@inheritDoc}
      */
+    @Override
     public List<RateDO> getParkingRates() {
         if(myLogger.isDebugEnabled()){
             myLogger.debug("Entering getParkingRates() which is used for returning a list of current parking rates. No incoming parameters.");
         }//end if
 
-        List<RateDO> returnList = new ArrayList<>(PARKING_RATES);
+        List<RateDO> returnList = parkingRates.get().getCurrent().getRates();
 
         if(myLogger.isDebugEnabled()){
             myLogger.debug("Exiting getParkingRates() method. Return value is returnList=" + String.valueOf(returnList));
@@ -78,4 +182,159 @@ public class ParkingRateMemDAO {
         return returnList;
     }//end method
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public RateIndex getRateIndex() {
+        return parkingRates.get().getCurrent().getRateIndex();
+    }//end method
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public RateSnapshot getSnapshot() {
+        return parkingRates.get().getCurrent();
+    }//end method
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public RateSnapshot getSnapshot(Instant asOf) {
+        return evictExpired().find(asOf);
+    }//end method
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<RateSnapshot> getVersions() {
+        return evictExpired().getVersions();
+    }//end method
+
+    /**
+     * Helper method used to compile the given {@code newRates} into a new {@code RateSnapshot} and publish it as the current snapshot. Only the days
+     * whose rates differ from the current snapshot are compiled again.
+     * 
+     * @param newRates the list of rates to publish
+     * @param newSeedChecksum the checksum of the seed file contents last loaded, recorded with the snapshot
+     * @return the difference between the previous and the published rates
+     */
+    private RateDiff publish(List<RateDO> newRates, long newSeedChecksum) {
+        RateHistory history;
+        RateHistory nextHistory;
+        RateSnapshot next;
+        RateDiff diff;
+        do {
+            history = parkingRates.get();
+            RateSnapshot current = history.getCurrent();
+            Instant now = Instant.now();
+            diff = RateDiff.between(current.getRates(), newRates);
+            Instant effectiveFrom = now.isBefore(current.getEffectiveFrom()) ? current.getEffectiveFrom() : now;//never before the current version, even if the clock steps back
+            next = new RateSnapshot(current.getVersion() + 1, diff.getRates(), RateIndex.rebuild(current.getRateIndex(), diff.getRates(), diff.getChangedDays()), effectiveFrom, newSeedChecksum);
+            nextHistory = history.append(next, maxVersions, maxVersionAge, now);
+        }while(!parkingRates.compareAndSet(history, nextHistory));
+        seedChecksum = newSeedChecksum;
+        publishCount.increment();
+        evictedVersionCount.add(history.size() + 1 - nextHistory.size());
+
+        RateSnapshotStore store = snapshotStore;
+        if(store != null) {
+            try {
+                store.save(next);
+            }catch(Exception e) {
+                myLogger.error("Exception occurred during an attempt to save the parking rate snapshot, the rates will not survive a restart. Values of interest are snapshotStore=" + String.valueOf(store) + "; version=" + next.getVersion() + " Error message is: " + e.getMessage(), e);
+            }//end try...catch
+        }//end if
+        return diff;
+    }//end method
+
+    /**
+     * Helper method used to evict the versions that stopped being in force longer ago than the {@code RATES.historyMaxDays} system property, which
+     * otherwise only happens when a new version is published.
+     *
+     * @return the history without the expired versions
+     */
+    private RateHistory evictExpired() {
+        RateHistory history = parkingRates.get();
+        RateHistory evicted = history.evict(maxVersions, maxVersionAge, Instant.now());
+        if(evicted != history && parkingRates.compareAndSet(history, evicted)) {
+            evictedVersionCount.add(history.size() - evicted.size());
+        }//end if
+        return evicted;
+    }//end method
+
+    /**
+     * Helper method used to reload the rates from the changed contents of the {@code INIT.jsonFilePath} file. Called on the watcher thread.
+     * 
+     * @param bytes the new contents of the file
+     */
+    private void reloadSeedFile(byte[] bytes) {
+        long startNanos = System.nanoTime();
+        try {
+            RateDiff diff = publish(readRates(bytes), RateFileWatcher.checksum(bytes));
+            long micros = (System.nanoTime() - startNanos) / 1000L;
+            lastFileReloadMicros.set(micros);
+            fileReloadCount.increment();
+            changedRateCount.add(diff.getAdded() + diff.getRemoved());
+            myLogger.info("Reloaded " + diff.getRates().size() + " parking rates from INIT.jsonFilePath=" + System.getProperty("INIT.jsonFilePath") + " in " + micros / 1000.0 + " ms. Value of interest is diff=" + diff);
+        }catch(Exception e) {
+            fileReloadFailureCount.increment();
+            myLogger.error("Exception occurred during an attempt to reload parking rates from a changed file, keeping the current rates. Value of interest is INIT.jsonFilePath=" + System.getProperty("INIT.jsonFilePath") + " Error message is: " + e.getMessage(), e);
+        }//end try...catch
+    }//end method
+
+    /**
+     * Helper method used to start watching the {@code INIT.jsonFilePath} file unless the {@code RATES.watchSeed} system property is {@code false}.
+     *
+     * @param knownChecksum the checksum of the file contents already handled on start
+     */
+    private void startSeedWatcher(long knownChecksum) {
+        String seedFile = System.getProperty("INIT.jsonFilePath");
+        if(seedFile == null || !Boolean.parseBoolean(System.getProperty("RATES.watchSeed", "true"))) {
+            return;
+        }//end if
+        RateFileWatcher watcher = new RateFileWatcher(Paths.get(seedFile), this::reloadSeedFile);
+        try {
+            watcher.start(knownChecksum);
+            seedWatcher = watcher;
+        }catch(IOException e) {
+            myLogger.error("IOException occurred during an attempt to watch the parking rate file, changes will not be reloaded. Value of interest is INIT.jsonFilePath=" + seedFile + " Error message is: " + e.getMessage(), e);
+        }//end try...catch
+    }//end method
+
+    /**
+     * Helper method used to parse the given JSON {@code bytes} into a list of rates.
+     * 
+     * @param bytes the JSON rate file contents
+     * @return the list of {@code RateDO}s
+     * @throws IOException if the bytes can not be parsed
+     * @throws RateConflictException if any two of the rates overlap on the same day
+     */
+    static List<RateDO> readRates(byte[] bytes) throws IOException {
+        RateModel rates = new ObjectMapper().readValue(bytes, RateModel.class);//convert bytes into RateModel
+        List<RateDO> rateDOList = RateDTO.toDOs(rates.getRates());//convert DTOs into DOs sharing their time zones
+        RateOverlapValidator.validate(rateDOList);
+        return rateDOList;
+    }//end method
+
+    /**
+     * Helper method used to create the snapshot store using the {@code RATES.snapshotDir} system property, or the {@code snapshots} directory next to
+     * the {@code INIT.jsonFilePath} file.
+     *
+     * @return the RateSnapshotStore instance or null if neither system property is set
+     */
+    private static RateSnapshotStore createSnapshotStore() {
+        String snapshotDir = System.getProperty("RATES.snapshotDir");
+        Path directory = null;
+        if(snapshotDir != null && !snapshotDir.trim().isEmpty()) {
+            directory = Paths.get(snapshotDir.trim());
+        }else if(System.getProperty("INIT.jsonFilePath") != null) {
+            directory = Paths.get(System.getProperty("INIT.jsonFilePath")).toAbsolutePath().resolveSibling("snapshots");
+        }//end if
+        return directory == null ? null : new RateSnapshotStore(directory, Integer.getInteger("RATES.snapshotCount", 5));
+    }//end method
+
 }//end class
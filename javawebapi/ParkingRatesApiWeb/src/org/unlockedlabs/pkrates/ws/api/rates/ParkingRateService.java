@@ -3,16 +3,36 @@
  */
 package org.unlockedlabs.pkrates.ws.api.rates;
 
+import java.io.IOException;
+import java.time.Instant;
 import java.time.Period;
+import java.time.ZoneId;
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.stream.Collectors;
 
+import javax.inject.Inject;
+
 import org.apache.log4j.Logger;
+import org.unlockedlabs.pkrates.ws.api.core.CborMessageBodyProvider;
+import org.unlockedlabs.pkrates.ws.api.core.SmileMessageBodyProvider;
+import org.unlockedlabs.pkrates.ws.api.core.JacksonContextResolver;
 import org.unlockedlabs.pkrates.ws.api.core.RateUnavailableException;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import gov.doc.isu.metrics.MetricsRegistry;
+
 /**
  * Parking rate service used for handling the parking rate business operations.
+ * 
+ * <p>A single instance is bound within the container by {@code org.unlockedlabs.pkrates.ws.api.core.Application} and shared by all requests.</p>
  *
  * @author Richard Salas
  * @version 1.0.0
@@ -21,10 +41,32 @@ public class ParkingRateService {
 
     private static final Logger myLogger = Logger.getLogger("org.unlockedlabs.pkrates.ws.api.rates.ParkingRateService");
 
+    private final IParkingRateDAO dao;
+    private final PriceCache priceCache;
+    private final ObjectMapper objectMapper = new JacksonContextResolver().getContext(RateModel.class);//same settings as the JSON responses
+    private final AtomicReference<SerializedRates> serializedRates = new AtomicReference<>();
+    private final LongAdder unavailableCount = MetricsRegistry.getInstance().counter("pkrates_price_unavailable_total", "Number of price requests answered with unavailable.");
+
     /**
-     * Constructor used to create an instance of ParkingRateService
+     * Constructor used to create an instance of ParkingRateService using the given {@code dao}.
+     * 
+     * @param dao the store of parking rates used by this service
+     */
+    @Inject
+    public ParkingRateService(IParkingRateDAO dao) {
+        this(dao, new PriceCache());
+    }//end constructor
+
+    /**
+     * Constructor used to create an instance of ParkingRateService using the given {@code dao} and {@code priceCache}.
+     * 
+     * @param dao the store of parking rates used by this service
+     * @param priceCache the cache of price results placed in front of the rate lookup
      */
-    public ParkingRateService() { }//end constructor
+    public ParkingRateService(IParkingRateDAO dao, PriceCache priceCache) {
+        this.dao = dao;
+        this.priceCache = priceCache;
+    }//end constructor
 
     /**
      * Gets a list of parking rates and returns a {@code RateModel} instance which the rates will be encapsulated within.
@@ -36,8 +78,6 @@ public class ParkingRateService {
             myLogger.debug("Entering getParkingRates() which is used for getting a list of current parking rates. No incoming parameter.");
         }//end if
 
-        ParkingRateMemDAO dao = new ParkingRateMemDAO();
-
         RateModel returnRates = new RateModel();
         List<RateDTO> rateDTOList = dao.getParkingRates().stream().map(rateDO -> rateDO.toDTO()).collect(Collectors.toList());
         returnRates.setRates(rateDTOList);
@@ -48,28 +88,118 @@ public class ParkingRateService {
         return returnRates;
     }//end method
 
+    /**
+     * Gets the current parking rates serialized as JSON, CBOR and Smile.
+     * 
+     * <p>The rates are serialized once per rate version and the same instance is returned until the rates are updated.</p>
+     * 
+     * @return serialized the {@code SerializedRates} instance of the current rate version
+     * @throws IOException if the rates can not be serialized
+     */
+    public SerializedRates getSerializedRates() throws IOException {
+        return getSerializedRates(null);
+    }//end method
+
+    /**
+     * Gets the parking rates that were in force at the given {@code asOf} instant serialized as JSON, CBOR and Smile.
+     * 
+     * <p>Only the current rates are kept serialized, the rates of an earlier version are serialized on each call.</p>
+     * 
+     * @param asOf the instant or null for the current rates
+     * @return serialized the {@code SerializedRates} instance of the version in force or null if the instant is before the oldest version kept
+     * @throws IOException if the rates can not be serialized
+     */
+    public SerializedRates getSerializedRates(Instant asOf) throws IOException {
+        RateSnapshot current = dao.getSnapshot();
+        RateSnapshot snapshot = asOf == null ? current : dao.getSnapshot(asOf);
+        if(snapshot == null) {
+            return null;
+        }//end if
+        SerializedRates serialized = serializedRates.get();
+        if(serialized == null || serialized.getVersion() != snapshot.getVersion()) {
+            List<RateDTO> rateDTOList = snapshot.getRates().stream().map(rateDO -> rateDO.toDTO()).collect(Collectors.toList());
+            serialized = SerializedRates.create(snapshot.getVersion(), new RateModel(rateDTOList), objectMapper, CborMessageBodyProvider.getCborMapper(), SmileMessageBodyProvider.getSmileMapper());
+            if(snapshot == current) {
+                serializedRates.set(serialized);//a concurrent rebuild of the same version produces the same bytes
+            }//end if
+
+            if(myLogger.isDebugEnabled()){
+                myLogger.debug("Serialized the parking rates. Value of interest is: serialized=" + String.valueOf(serialized));
+            }//end if
+        }//end if
+        return serialized;
+    }//end method
+
+    /**
+     * Gets the rate set versions kept in the history, oldest first, along with the memory they hold.
+     * 
+     * @return the {@code RateVersionModel} instance describing the kept versions
+     */
+    public RateVersionModel getRateVersions() {
+        List<RateSnapshot> snapshots = dao.getVersions();
+        Set<Object> counted = Collections.newSetFromMap(new IdentityHashMap<>());
+        List<RateVersion> versions = new ArrayList<>(snapshots.size());
+        long total = 0L;
+        for(int i = 0;i < snapshots.size();i++) {
+            RateSnapshot snapshot = snapshots.get(i);
+            RateVersion version = new RateVersion();
+            version.setVersion(snapshot.getVersion());
+            version.setEffectiveFrom(snapshot.getEffectiveFrom().toString());
+            if(i + 1 < snapshots.size()) {
+                version.setEffectiveUntil(snapshots.get(i + 1).getEffectiveFrom().toString());
+            }//end if
+            version.setRates(snapshot.getRates().size());
+            version.setEstimatedBytes(snapshot.estimateSize(counted));//shared with an earlier version is counted there
+            total += version.getEstimatedBytes();
+            versions.add(version);
+        }//end for
+
+        RateVersionModel model = new RateVersionModel();
+        model.setCurrent(dao.getSnapshot().getVersion());
+        model.setEstimatedBytes(total);
+        model.setVersions(versions);
+        return model;
+    }//end method
+
     /**
      * Updates the currently saved parking rates with the incoming {@code theRates} list.
      * 
      * <p>NOTE This service will overwrite the currently stored rates with the given rates</p>
      * 
      * @param theRates the list of {@code RateDTO}s that will be saved
+     * @throws RateConflictException if any two of the rates overlap on the same day
      */
     public void updateRates(List<RateDTO> theRates) {
         if(myLogger.isDebugEnabled()){
             myLogger.debug("Entering updateRates() which is used for updating a list of parking rates. Incoming parameter is theRates=" + String.valueOf(theRates));
         }//end if
 
-        List<RateDO> rateDOList = theRates.stream().map(rateDTO -> rateDTO.toDO()).collect(Collectors.toList()); 
-
-        ParkingRateMemDAO dao = new ParkingRateMemDAO();
-        dao.reloadRates(rateDOList);
+        publishRates(RateDTO.toDOs(theRates));
 
         if(myLogger.isDebugEnabled()){
             myLogger.debug("Exiting getParkingRates() method. No return value.");
         }//end if
     }//end method
 
+    /**
+     * Replaces the currently saved parking rates with the incoming {@code theRates} already converted, such as the rates of a {@link RateUpload}.
+     * 
+     * @param theRates the list of {@code RateDO}s that will be saved
+     * @throws RateConflictException if any two of the rates overlap on the same day
+     */
+    public void publishRates(List<RateDO> theRates) {
+        if(myLogger.isDebugEnabled()){
+            myLogger.debug("Entering publishRates() which is used for replacing the parking rates with already converted rates. Incoming parameter is theRates.size()=" + theRates.size());
+        }//end if
+
+        RateOverlapValidator.validate(theRates);//reject ambiguous rates before anything is published
+        dao.reloadRates(theRates);
+
+        if(myLogger.isDebugEnabled()){
+            myLogger.debug("Exiting publishRates() method. No return value.");
+        }//end if
+    }//end method
+
     /**
      * Gets the parking rate price using the given {@code startDtTm} and {@code endDtTm}.
      * 
@@ -79,19 +209,38 @@ public class ParkingRateService {
      * @throws RateUnavailableException the exception that can be thrown if a rate is not found {@link RateUnavailableException}
      */
     public ParkingPrice getPriceByTime(ZonedDateTime startDtTm, ZonedDateTime endDtTm) throws RateUnavailableException{
+        return getPriceByTime(startDtTm, endDtTm, null);
+    }//end method
+
+    /**
+     * Gets the parking rate price using the given {@code startDtTm} and {@code endDtTm} and the rates that were in force at the given {@code asOf}
+     * instant.
+     * 
+     * <p>Only prices of the current rates are cached, a price of an earlier version is found using that version's compiled index.</p>
+     * 
+     * @param startDtTm the start {@code ZonedDateTime} instance
+     * @param endDtTm the end {@code ZonedDateTime} instance
+     * @param asOf the instant or null for the current rates
+     * @return returnPrice the {@code ParkingPrice} instance or null if the instant is before the oldest version kept
+     * @throws RateUnavailableException the exception that can be thrown if a rate is not found {@link RateUnavailableException}
+     */
+    public ParkingPrice getPriceByTime(ZonedDateTime startDtTm, ZonedDateTime endDtTm, Instant asOf) throws RateUnavailableException{
         if(myLogger.isDebugEnabled()){
-            myLogger.debug("Entering getPriceByTime() which is used for getting a parking rate price using the given startDtTm and endDtTm. Incoming parameters are startDtTm=" + String.valueOf(startDtTm) + "; endDtTm=" + String.valueOf(endDtTm));
+            myLogger.debug("Entering getPriceByTime() which is used for getting a parking rate price using the given startDtTm and endDtTm. Incoming parameters are startDtTm=" + String.valueOf(startDtTm) + "; endDtTm=" + String.valueOf(endDtTm) + "; asOf=" + String.valueOf(asOf));
         }//end if
 
-        Period m = Period.between(startDtTm.toLocalDate(),endDtTm.toLocalDate());
-        if(!m.isZero()) {//1) check if date passed in spans more than a day and if so send unavailable (error)
-            throw new RateUnavailableException("User input spanned more than a day.");
+        RateSnapshot current = dao.getSnapshot();
+        RateSnapshot snapshot = asOf == null ? current : dao.getSnapshot(asOf);
+        if(snapshot == null) {
+            return null;
         }//end if
-
-        //2)Get RateDO list based by day!
-        Day day = Day.getAbbrevEnum(startDtTm.getDayOfWeek());
-        List<RateDO> parkingRatesByDay = getParkingRatesByDay(day);
-        ParkingPrice returnPrice = ParkingPrice.calculatePrice(startDtTm, endDtTm, parkingRatesByDay);
+        ParkingPrice returnPrice;
+        try {
+            returnPrice = getPrice(snapshot, snapshot == current ? priceCache : null, startDtTm, endDtTm);//the cache holds the prices of a single version
+        }catch(RateUnavailableException e) {
+            unavailableCount.increment();
+            throw e;
+        }//end try...catch
 
         if(myLogger.isDebugEnabled()){
             myLogger.debug("Exiting getPriceByTime() method. Return value is returnPrice=" + String.valueOf(returnPrice));
@@ -100,24 +249,42 @@ public class ParkingRateService {
     }//end method
 
     /**
-     * Helper method used to get a list of parking rates using the given {@link Day}.
+     * Gets the calendar of the current parking rates as seen from the given {@code zone}.
      * 
-     * @param day the day used to find a list of parking rates
-     * @return ratesByDayList the list of {@code RateDO}s found
+     * @param zone the time zone of the caller
+     * @return the {@code RateCalendar} instance of the current snapshot
      */
-    private List<RateDO> getParkingRatesByDay(Day day) {
-        if(myLogger.isDebugEnabled()){
-            myLogger.debug("Entering getParkingRatesByDay() which is used to get a list of parking rates using the given day. Incoming parameter is day=" + String.valueOf(day));
+    public RateCalendar getRateCalendar(ZoneId zone) {
+        return new RateCalendar(dao.getSnapshot(), zone);
+    }//end method
+
+    /**
+     * Gets the parking rate price of the given {@code snapshot} using the given {@code startDtTm} and {@code endDtTm}.
+     * 
+     * @param snapshot the rate snapshot to price against
+     * @param priceCache the price cache of the snapshot's rates or null to find the price without caching
+     * @param startDtTm the start {@code ZonedDateTime} instance
+     * @param endDtTm the end {@code ZonedDateTime} instance
+     * @return the {@code ParkingPrice} instance
+     * @throws RateUnavailableException the exception that can be thrown if a rate is not found {@link RateUnavailableException}
+     */
+    static ParkingPrice getPrice(RateSnapshot snapshot, PriceCache priceCache, ZonedDateTime startDtTm, ZonedDateTime endDtTm) throws RateUnavailableException {
+        Period m = Period.between(startDtTm.toLocalDate(),endDtTm.toLocalDate());
+        if(!m.isZero()) {//1) check if date passed in spans more than a day and if so send unavailable (error)
+            throw new RateUnavailableException("User input spanned more than a day.");
         }//end if
 
-        ParkingRateMemDAO dao = new ParkingRateMemDAO();
-        List<RateDO> allRates = dao.getParkingRates();
-        List<RateDO> ratesByDayList = allRates.stream().filter(rate -> rate.getDays().contains(day)).collect(Collectors.toList());
+        //2)Find the price using the price cache backed by the compiled rate index
+        return new ParkingPrice(priceCache == null ? snapshot.getRateIndex().findPrice(startDtTm, endDtTm) : priceCache.getPrice(snapshot, startDtTm, endDtTm));
+    }//end method
 
-        if(myLogger.isDebugEnabled()){
-            myLogger.debug("Exiting getParkingRatesByDay() method. Return value is ratesByDayList=" + String.valueOf(ratesByDayList));
-        }//end if
-        return ratesByDayList;
+    /**
+     * Gets the cache of price results used by this service.
+     * 
+     * @return the {@code PriceCache} instance holding the hit, miss and eviction counters
+     */
+    public PriceCache getPriceCache() {
+        return priceCache;
     }//end method
 
 }//end class
@@ -0,0 +1,174 @@
+/**
+ *
+ */
+package org.unlockedlabs.pkrates.ws.api.rates;
+
+import java.time.ZonedDateTime;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.unlockedlabs.pkrates.ws.api.core.RateUnavailableException;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalCause;
+
+/**
+ * Bounded cache of price results keyed by the {@link PriceKey} of a query.
+ *
+ * <p>Both prices and "unavailable" outcomes are cached. Every entry carries the version of the {@link RateSnapshot} it was computed from and is ignored once a newer
+ * snapshot has been published, so a reload of the rates invalidates the whole cache without touching it. The total weight of the keys is bounded by the
+ * {@code PRICE_CACHE.maxWeight} system property.</p>
+ *
+ * @author Richard Salas
+ * @version 1.0.0
+ */
+public class PriceCache {
+
+    /**
+     * Default maximum weight used when the {@code PRICE_CACHE.maxWeight} system property is not set.
+     */
+    public static final long DEFAULT_MAX_WEIGHT = 100000L;
+
+    private final Cache<PriceKey, CachedPrice> cache;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Constructor used to create an instance of PriceCache using the {@code PRICE_CACHE.maxWeight} system property.
+     */
+    public PriceCache() {
+        this(Long.getLong("PRICE_CACHE.maxWeight", DEFAULT_MAX_WEIGHT));
+    }//end constructor
+
+    /**
+     * Constructor used to create an instance of PriceCache using the given {@code maxWeight}.
+     *
+     * @param maxWeight the maximum total weight of the cached keys
+     */
+    public PriceCache(long maxWeight) {
+        this.cache = CacheBuilder.newBuilder()
+                .maximumWeight(maxWeight)
+                .weigher((PriceKey key, CachedPrice value) -> key.weight())
+                .removalListener(notification -> {
+                    if(notification.getCause() == RemovalCause.SIZE) {
+                        evictions.increment();
+                    }//end if
+                }).build();
+    }//end constructor
+
+    /**
+     * Gets the price for the given {@code startDtTm} and {@code endDtTm} range from the cache, or from the {@code snapshot} when it is not cached.
+     *
+     * @param snapshot the current rate snapshot
+     * @param startDtTm the start date time used to get price
+     * @param endDtTm the end date time used to get price
+     * @return the price found
+     * @throws RateUnavailableException if the price is unavailable {@link RateUnavailableException}
+     */
+    public int getPrice(RateSnapshot snapshot, ZonedDateTime startDtTm, ZonedDateTime endDtTm) throws RateUnavailableException {
+        RateIndex index = snapshot.getRateIndex();
+        PriceKey key = index.normalize(startDtTm, endDtTm);
+        if(key == null) {//not cacheable
+            return index.findPrice(startDtTm, endDtTm);
+        }//end if
+
+        CachedPrice cached = cache.getIfPresent(key);
+        if(cached != null && cached.version == snapshot.getVersion()) {
+            hits.increment();
+            return cached.resolve();
+        }//end if
+
+        misses.increment();
+        try {
+            int price = index.findPrice(key);
+            cache.put(key, new CachedPrice(snapshot.getVersion(), price, null));
+            return price;
+        }catch(RateUnavailableException e) {
+            cache.put(key, new CachedPrice(snapshot.getVersion(), 0, e.getMessage()));
+            throw e;
+        }//end try...catch
+    }//end method
+
+    /**
+     * @return the number of lookups answered by the cache
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }//end method
+
+    /**
+     * @return the number of lookups that were not cached or were cached for an older rate version
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }//end method
+
+    /**
+     * @return the number of entries evicted to keep the cache within its maximum weight
+     */
+    public long getEvictionCount() {
+        return evictions.sum();
+    }//end method
+
+    /**
+     * @return the approximate number of cached entries
+     */
+    public long size() {
+        return cache.size();
+    }//end method
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("PriceCache [size=");
+        builder.append(size());
+        builder.append(", hits=");
+        builder.append(getHitCount());
+        builder.append(", misses=");
+        builder.append(getMissCount());
+        builder.append(", evictions=");
+        builder.append(getEvictionCount());
+        builder.append("]");
+        return builder.toString();
+    }//end method
+
+    /**
+     * Cached outcome of a price lookup for a single rate version.
+     */
+    private static final class CachedPrice {
+
+        private final long version;
+        private final int price;
+        private final String unavailableReason;
+
+        /**
+         * Constructor used to create an instance of CachedPrice.
+         *
+         * @param version the rate version the outcome was computed from
+         * @param price the price found
+         * @param unavailableReason the reason the price was unavailable or null if a price was found
+         */
+        CachedPrice(long version, int price, String unavailableReason) {
+            this.version = version;
+            this.price = price;
+            this.unavailableReason = unavailableReason;
+        }//end constructor
+
+        /**
+         * @return the cached price
+         * @throws RateUnavailableException if the cached outcome is unavailable
+         */
+        int resolve() throws RateUnavailableException {
+            if(unavailableReason != null) {
+                throw new RateUnavailableException(unavailableReason, null, false, false);//no stack trace needed for a cached outcome
+            }//end if
+            return price;
+        }//end method
+
+    }//end inner class
+
+}//end class
@@ -0,0 +1,127 @@
+/**
+ *
+ */
+package org.unlockedlabs.pkrates.ws.api.rates;
+
+import java.util.Arrays;
+
+/**
+ * Normalized form of a price query used as the key of the {@link PriceCache}.
+ *
+ * <p>A key holds the {@link Day} and offset of the query followed by the start and end of the query in seconds from local midnight within each rate time zone of that
+ * day. Two queries with the same key always resolve to the same price for the same {@link RateIndex}, for example the same window on the same weekday of different
+ * weeks.</p>
+ *
+ * @author Richard Salas
+ * @version 1.0.0
+ */
+public final class PriceKey {
+
+    private final long[] parts;
+    private final int hash;
+
+    /**
+     * Constructor used to create an instance of PriceKey using the given {@code parts}.
+     *
+     * @param parts the day and offset followed by the packed start and end seconds of each rate time zone
+     */
+    PriceKey(long[] parts) {
+        this.parts = parts;
+        this.hash = Arrays.hashCode(parts);
+    }//end constructor
+
+    /**
+     * @return the ordinal of the {@link Day} of the query
+     */
+    int day() {
+        return (int) (parts[0] >>> 32);
+    }//end method
+
+    /**
+     * @param zone the position of the rate time zone within the day
+     * @return the latest allowed rate start within the given zone
+     */
+    long low(int zone) {
+        return parts[zone + 1] >> 32;
+    }//end method
+
+    /**
+     * @param zone the position of the rate time zone within the day
+     * @return the earliest allowed rate end within the given zone
+     */
+    long high(int zone) {
+        return (int) parts[zone + 1];
+    }//end method
+
+    /**
+     * @return the number of rate time zones held by this key
+     */
+    int zones() {
+        return parts.length - 1;
+    }//end method
+
+    /**
+     * Gets the weight of this key used for bounding the size of the {@code PriceCache}.
+     *
+     * @return the weight of this key
+     */
+    int weight() {
+        return parts.length;
+    }//end method
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int hashCode() {
+        return hash;
+    }//end method
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if(this == obj) {
+            return true;
+        }//end if
+        return obj instanceof PriceKey && hash == ((PriceKey) obj).hash && Arrays.equals(parts, ((PriceKey) obj).parts);
+    }//end method
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("PriceKey [day=");
+        builder.append(day());
+        builder.append(", offset=");
+        builder.append((int) parts[0]);
+        for(int i = 0;i < zones();i++) {
+            builder.append(", zone").append(i).append("=").append(low(i)).append("-").append(high(i));
+        }//end for
+        builder.append("]");
+        return builder.toString();
+    }//end method
+
+    /**
+     * Packs the given {@code low} and {@code high} into a single key part.
+     *
+     * @param low the latest allowed rate start
+     * @param high the earliest allowed rate end
+     * @return the packed key part
+     */
+    static long pack(long low, long high) {
+        return ((long) clamp(low) << 32) | (clamp(high) & 0xFFFFFFFFL);
+    }//end method
+
+    /**
+     * @param value the value to clamp
+     * @return the value clamped to the int range
+     */
+    private static int clamp(long value) {
+        return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, value));
+    }//end method
+
+}//end class
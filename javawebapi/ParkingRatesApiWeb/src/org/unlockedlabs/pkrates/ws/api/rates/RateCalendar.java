@@ -0,0 +1,259 @@
+/**
+ *
+ */
+package org.unlockedlabs.pkrates.ws.api.rates;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+
+/**
+ * Calendar of the effective prices of a {@link RateSnapshot} as seen from a caller's time zone.
+ *
+ * <p>A price is quoted for a range within a single date of the caller's zone and the rates of a date are those of its day of the week, each placed on
+ * that date within the rate's own time zone, the same way {@link RateIndex#findPrice(ZonedDateTime, ZonedDateTime)} finds a price. The intervals of a
+ * date therefore never cross midnight of the caller's zone. Each interval is either covered by a single rate and carries its price, or is a gap covered
+ * by no rate or by overlapping rates. Daylight saving transitions of both the caller's zone and the rate zones are handled by placing every time on the
+ * time line, so a date may be 23 or 25 hours long.</p>
+ *
+ * <p>The calendar is produced one date at a time so a long range never needs to be held in memory.</p>
+ *
+ * @author Richard Salas
+ * @version 1.0.0
+ */
+public final class RateCalendar {
+
+    /**
+     * Price of an interval that is not covered by exactly one rate.
+     */
+    public static final int UNAVAILABLE = -1;
+
+    private final RateSnapshot snapshot;
+    private final ZoneId zone;
+    private final EnumMap<Day, RateDO[]> ratesByDay = new EnumMap<>(Day.class);
+
+    /**
+     * Constructor used to create an instance of RateCalendar using the given {@code snapshot} and caller {@code zone}.
+     *
+     * @param snapshot the rate snapshot to walk
+     * @param zone the time zone of the caller
+     */
+    public RateCalendar(RateSnapshot snapshot, ZoneId zone) {
+        this.snapshot = snapshot;
+        this.zone = zone;
+        EnumMap<Day, List<RateDO>> grouped = new EnumMap<>(Day.class);
+        for(RateDO rateDO : snapshot.getRates()) {
+            for(Day day : rateDO.getDays()) {
+                grouped.computeIfAbsent(day, d -> new ArrayList<>()).add(rateDO);
+            }//end for
+        }//end for
+        for(Day day : grouped.keySet()) {
+            ratesByDay.put(day, grouped.get(day).toArray(new RateDO[0]));
+        }//end for
+    }//end constructor
+
+    /**
+     * Gets the intervals of the given {@code date} within the caller's zone that overlap the given {@code from} and {@code to} range, in time order.
+     * Adjacent intervals with the same price are merged.
+     *
+     * <p>The starts and ends of the rates are sorted once and swept in time order, keeping the number of rates in effect and the sum of their prices,
+     * so a piece covered by a single rate carries that rate's price.</p>
+     *
+     * @param date the date within the caller's zone
+     * @param from the start of the range
+     * @param to the end of the range
+     * @return the intervals of the date, clipped to the range
+     */
+    public List<Interval> getIntervals(LocalDate date, Instant from, Instant to) {
+        Instant dayStart = max(date.atStartOfDay(zone).toInstant(), from);
+        Instant dayEnd = min(date.plusDays(1).atStartOfDay(zone).toInstant(), to);
+        List<Interval> intervals = new ArrayList<>();
+        if(!dayStart.isBefore(dayEnd)) {
+            return intervals;
+        }//end if
+
+        RateDO[] rates = ratesByDay.get(Day.getAbbrevEnum(date.getDayOfWeek()));
+        int count = rates == null ? 0 : rates.length;
+        Bound[] bounds = new Bound[count * 2];
+        int boundCount = 0;
+        for(int i = 0;i < count;i++) {
+            Instant start = max(rates[i].getRateZoneStartTm(date).toInstant(), dayStart);
+            Instant end = min(rates[i].getRateZoneEndTm(date).toInstant(), dayEnd);
+            if(start.isBefore(end)) {
+                bounds[boundCount++] = new Bound(start, 1, rates[i].getPrice());
+                bounds[boundCount++] = new Bound(end, -1, rates[i].getPrice());
+            }//end if
+        }//end for
+        Arrays.sort(bounds, 0, boundCount);
+
+        Interval current = null;
+        Instant pieceStart = dayStart;
+        int active = 0;//rates in effect from pieceStart
+        long priceSum = 0L;//sum of the prices of the rates in effect
+        for(int b = 0;b <= boundCount;b++) {
+            Instant pieceEnd = b < boundCount ? bounds[b].time : dayEnd;
+            if(pieceStart.isBefore(pieceEnd)) {
+                int price = active == 1 ? (int) priceSum : UNAVAILABLE;
+                if(current != null && current.price == price) {
+                    current = new Interval(current.start, pieceEnd, price);
+                }else {
+                    if(current != null) {
+                        intervals.add(current);
+                    }//end if
+                    current = new Interval(pieceStart, pieceEnd, price);
+                }//end if
+                pieceStart = pieceEnd;
+            }//end if
+            if(b < boundCount) {
+                active += bounds[b].delta;
+                priceSum += bounds[b].delta * (long) bounds[b].price;
+            }//end if
+        }//end for
+        if(current != null) {
+            intervals.add(current);
+        }//end if
+        return intervals;
+    }//end method
+
+    /**
+     * @return the snapshot
+     */
+    public RateSnapshot getSnapshot() {
+        return snapshot;
+    }//end method
+
+    /**
+     * @return the zone
+     */
+    public ZoneId getZone() {
+        return zone;
+    }//end method
+
+    /**
+     * Helper method used to get the later of the given instants.
+     *
+     * @param a the first instant
+     * @param b the second instant
+     * @return the later instant
+     */
+    private static Instant max(Instant a, Instant b) {
+        return a.isAfter(b) ? a : b;
+    }//end method
+
+    /**
+     * Helper method used to get the earlier of the given instants.
+     *
+     * @param a the first instant
+     * @param b the second instant
+     * @return the earlier instant
+     */
+    private static Instant min(Instant a, Instant b) {
+        return a.isBefore(b) ? a : b;
+    }//end method
+
+    /**
+     * Start or end of a rate placed on the time line of a date.
+     */
+    private static final class Bound implements Comparable<Bound> {
+
+        private final Instant time;
+        private final int delta;//1 for the start of a rate, -1 for its end
+        private final int price;
+
+        /**
+         * Constructor used to create an instance of Bound.
+         *
+         * @param time the time of the start or end
+         * @param delta 1 for the start of a rate, -1 for its end
+         * @param price the price of the rate
+         */
+        Bound(Instant time, int delta, int price) {
+            this.time = time;
+            this.delta = delta;
+            this.price = price;
+        }//end constructor
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int compareTo(Bound other) {
+            return time.compareTo(other.time);
+        }//end method
+
+    }//end inner class
+
+    /**
+     * Interval of the calendar along with its price or {@link RateCalendar#UNAVAILABLE}.
+     */
+    public static final class Interval {
+
+        private final Instant start;
+        private final Instant end;
+        private final int price;
+
+        /**
+         * Constructor used to create an instance of Interval.
+         *
+         * @param start the start of the interval
+         * @param end the end of the interval
+         * @param price the price of the interval
+         */
+        Interval(Instant start, Instant end, int price) {
+            this.start = start;
+            this.end = end;
+            this.price = price;
+        }//end constructor
+
+        /**
+         * @return the start
+         */
+        public Instant getStart() {
+            return start;
+        }//end method
+
+        /**
+         * @return the end
+         */
+        public Instant getEnd() {
+            return end;
+        }//end method
+
+        /**
+         * @return the price or {@link RateCalendar#UNAVAILABLE}
+         */
+        public int getPrice() {
+            return price;
+        }//end method
+
+        /**
+         * @return true if the interval is covered by exactly one rate, false otherwise
+         */
+        public boolean isPriced() {
+            return price != UNAVAILABLE;
+        }//end method
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder();
+            builder.append("Interval [start=");
+            builder.append(start);
+            builder.append(", end=");
+            builder.append(end);
+            builder.append(", price=");
+            builder.append(price);
+            builder.append("]");
+            return builder.toString();
+        }//end method
+
+    }//end inner class
+
+}//end class
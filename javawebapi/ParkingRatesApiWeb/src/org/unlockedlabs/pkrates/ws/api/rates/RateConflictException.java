@@ -0,0 +1,104 @@
+/**
+ *
+ */
+package org.unlockedlabs.pkrates.ws.api.rates;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.SortedSet;
+
+/**
+ * RateConflictException is thrown when a set of rates holds rates that overlap on the same day, which would make the price of the overlapping times
+ * ambiguous.
+ *
+ * <p>The exception lists the conflicting pairs of rates found by the {@link RateOverlapValidator}, which stops after the first
+ * {@link RateOverlapValidator#MAX_CONFLICTS} pairs. As an {@code IllegalArgumentException} it is handled wherever malformed rates are.</p>
+ *
+ * @author Richard Salas
+ * @version 1.0.0
+ */
+public class RateConflictException extends IllegalArgumentException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final transient List<Conflict> conflicts;
+
+    /**
+     * Constructor used to create an instance of RateConflictException using the given {@code conflicts}.
+     *
+     * @param conflicts the conflicting pairs of rates
+     */
+    public RateConflictException(List<Conflict> conflicts) {
+        super("Found " + conflicts.size() + (conflicts.size() >= RateOverlapValidator.MAX_CONFLICTS ? " or more" : "") + " overlapping pair(s) of parking rates. First conflict is " + conflicts.get(0));
+        this.conflicts = Collections.unmodifiableList(conflicts);
+    }//end constructor
+
+    /**
+     * @return the conflicting pairs of rates
+     */
+    public List<Conflict> getConflicts() {
+        return conflicts;
+    }//end method
+
+    /**
+     * Pair of rates that overlap on the given days.
+     */
+    public static final class Conflict {
+
+        private final RateDO first;
+        private final RateDO second;
+        private final SortedSet<Day> days;
+
+        /**
+         * Constructor used to create an instance of Conflict.
+         *
+         * @param first the rate found first within the rate list
+         * @param second the rate found second within the rate list
+         * @param days the days the rates overlap on
+         */
+        Conflict(RateDO first, RateDO second, SortedSet<Day> days) {
+            this.first = first;
+            this.second = second;
+            this.days = days;
+        }//end constructor
+
+        /**
+         * @return the rate found first within the rate list
+         */
+        public RateDTO getFirst() {
+            return first.toDTO();
+        }//end method
+
+        /**
+         * @return the rate found second within the rate list
+         */
+        public RateDTO getSecond() {
+            return second.toDTO();
+        }//end method
+
+        /**
+         * @return the days the rates overlap on
+         */
+        public SortedSet<Day> getDays() {
+            return days;
+        }//end method
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder();
+            builder.append("Conflict [first=");
+            builder.append(first.toDTO());
+            builder.append(", second=");
+            builder.append(second.toDTO());
+            builder.append(", days=");
+            builder.append(days);
+            builder.append("]");
+            return builder.toString();
+        }//end method
+
+    }//end inner class
+
+}//end class
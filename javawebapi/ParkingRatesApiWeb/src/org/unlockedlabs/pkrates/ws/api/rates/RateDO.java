@@ -2,8 +2,10 @@ package org.unlockedlabs.pkrates.ws.api.rates;
 
 import java.io.Serializable;
 import java.time.LocalDate;
+import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.util.List;
+import java.util.Objects;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.TimeZone;
@@ -27,6 +29,7 @@ public class RateDO implements Serializable, IDTO<RateDTO> {
     private SortedSet<Day> days;
     private TimeRange times;
     private TimeZone tz;
+    private ZoneId zoneId;//converted once from the tz
     private int price;
     
     /**
@@ -36,6 +39,24 @@ public class RateDO implements Serializable, IDTO<RateDTO> {
         
     }//end constructor
 
+    /**
+     * Constructor used to create an instance of RateDO sharing the given {@code days}, {@code times} and time zone with the other rates of a rate
+     * set, none of which may be modified afterwards.
+     *
+     * @param days the days
+     * @param times the times
+     * @param tz the tz
+     * @param zoneId the zone id of the tz
+     * @param price the price
+     */
+    RateDO(SortedSet<Day> days, TimeRange times, TimeZone tz, ZoneId zoneId, int price) {
+        this.days = days;
+        this.times = times;
+        this.tz = tz;
+        this.zoneId = zoneId;
+        this.price = price;
+    }//end constructor
+
     /**
      * @return the days
      */
@@ -76,6 +97,26 @@ public class RateDO implements Serializable, IDTO<RateDTO> {
      */
     public void setTz(TimeZone tz) {
         this.tz = tz;
+        this.zoneId = tz == null ? null : tz.toZoneId();
+    }//end method
+
+    /**
+     * Sets the time zone of this rate to the given {@code tz} and {@code zoneId} already converted from it, so the rates of a rate set can share
+     * them.
+     *
+     * @param tz the tz to set
+     * @param zoneId the zone id of the tz
+     */
+    void setTz(TimeZone tz, ZoneId zoneId) {
+        this.tz = tz;
+        this.zoneId = zoneId;
+    }//end method
+
+    /**
+     * @return the zone id of the tz
+     */
+    public ZoneId getZoneId() {
+        return zoneId;
     }//end method
 
     /**
@@ -102,7 +143,7 @@ public class RateDO implements Serializable, IDTO<RateDTO> {
         List<String> commaSeparated = this.days.stream().map(s -> s.toString().toLowerCase()).collect(Collectors.toList());
         rateDTO.setDays(String.join(",", commaSeparated));
         rateDTO.setTimes(this.times.toString());
-        rateDTO.setTz(this.tz.toZoneId().toString());
+        rateDTO.setTz(this.zoneId.toString());
         rateDTO.setPrice(this.price);
         return rateDTO;
     }//end method
@@ -114,7 +155,7 @@ public class RateDO implements Serializable, IDTO<RateDTO> {
      * @return the start ZonedDateTime instance
      */
     public ZonedDateTime getRateZoneStartTm(LocalDate theDate) {
-        return ZonedDateTime.of(theDate, this.times.getStartTm(), this.tz.toZoneId());
+        return ZonedDateTime.of(theDate, this.times.getStartTm(), this.zoneId);
     }//end method
 
     /**
@@ -124,7 +165,33 @@ public class RateDO implements Serializable, IDTO<RateDTO> {
      * @return the start ZonedDateTime instance
      */
     public ZonedDateTime getRateZoneEndTm(LocalDate theDate) {
-        return ZonedDateTime.of(theDate, this.times.getEndTm(), this.tz.toZoneId());
+        return ZonedDateTime.of(theDate, this.times.getEndTm(), this.zoneId);
+    }//end method
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int hashCode() {
+        return Objects.hash(days, times, tz == null ? null : tz.getID(), price);
+    }//end method
+
+    /**
+     * Two rates are equal when they have the same days, times, time zone id and price.
+     * 
+     * @param obj the object to compare with
+     * @return true if the given object is an equal rate, false otherwise
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if(this == obj) {
+            return true;
+        }//end if
+        if(!(obj instanceof RateDO)) {
+            return false;
+        }//end if
+        RateDO other = (RateDO) obj;
+        return price == other.price && Objects.equals(days, other.days) && Objects.equals(times, other.times) && Objects.equals(tz == null ? null : tz.getID(), other.tz == null ? null : other.tz.getID());
     }//end method
 
     /**
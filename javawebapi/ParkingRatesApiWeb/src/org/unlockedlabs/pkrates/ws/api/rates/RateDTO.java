@@ -1,6 +1,9 @@
 package org.unlockedlabs.pkrates.ws.api.rates;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.TimeZone;
 import java.util.stream.Collectors;
@@ -87,6 +90,34 @@ public class RateDTO implements IDO<RateDO>{
      */
     @Override
     public RateDO toDO() {
+        return toDO(new HashMap<>());
+    }//end method
+
+    /**
+     * Converts the given {@code rates} into {@link RateDO}s, looking each time zone up once so the rates of the same zone share a single
+     * {@code TimeZone} and {@code ZoneId}.
+     *
+     * @param rates the rates to convert
+     * @return the converted rates in the same order
+     * @throws IllegalArgumentException if a rate can not be converted
+     */
+    public static List<RateDO> toDOs(List<RateDTO> rates) {
+        Map<String, RateDO> zones = new HashMap<>();
+        List<RateDO> rateDOList = new ArrayList<>(rates.size());
+        for(RateDTO rateDTO : rates) {
+            rateDOList.add(rateDTO.toDO(zones));
+        }//end for
+        return rateDOList;
+    }//end method
+
+    /**
+     * Converts this rate into a {@link RateDO}, taking its time zone from the rate of the given {@code zones} converted with the same time zone id.
+     *
+     * @param zones the first rate converted for each time zone id, which this rate is added to when its zone is new
+     * @return the converted rate
+     * @throws IllegalArgumentException if the rate can not be converted
+     */
+    RateDO toDO(Map<String, RateDO> zones) {
         RateDO rateDO = new RateDO();
         
         Set<Day> days = Stream.of(this.days.split(",")).map(s -> Day.valueOf(s.trim().toUpperCase())).collect(Collectors.toSet());
@@ -97,11 +128,17 @@ public class RateDTO implements IDO<RateDO>{
         rateDO.setTimes(range);
         rateDO.setPrice(this.price);
         
-        TimeZone tz = TimeZone.getTimeZone(this.getTz());
-        if("GMT".equals(tz.getID())) {
-            throw new IllegalArgumentException("Given TimeZone of " + String.valueOf(this.getTz()) + " not understood.");
+        RateDO sameZone = zones.get(this.getTz());
+        if(sameZone != null) {
+            rateDO.setTz(sameZone.getTz(), sameZone.getZoneId());
+        }else {
+            TimeZone tz = TimeZone.getTimeZone(this.getTz());
+            if("GMT".equals(tz.getID())) {
+                throw new IllegalArgumentException("Given TimeZone of " + String.valueOf(this.getTz()) + " not understood.");
+            }//end if
+            rateDO.setTz(tz);
+            zones.put(this.getTz(), rateDO);
         }//end if
-        rateDO.setTz(tz);
 
         return rateDO;
     }//end method
@@ -0,0 +1,144 @@
+/**
+ *
+ */
+package org.unlockedlabs.pkrates.ws.api.rates;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Difference between a previous and a next list of rates.
+ *
+ * <p>Rates are compared by value. The rates of the next list that are equal to a previous rate are replaced by the previous {@code RateDO} instance, so
+ * the compiled index of every day that is not covered by an added or removed rate can be reused as is by {@link RateIndex#rebuild(RateIndex, List, Set)}.</p>
+ *
+ * @author Richard Salas
+ * @version 1.0.0
+ */
+public final class RateDiff {
+
+    private final List<RateDO> rates;
+    private final int added;
+    private final int removed;
+    private final Set<Day> changedDays;
+
+    /**
+     * Constructor used to create an instance of RateDiff.
+     *
+     * @param rates the next rates reusing the previous instances
+     * @param added the number of rates added
+     * @param removed the number of rates removed
+     * @param changedDays the days covered by an added or removed rate
+     */
+    private RateDiff(List<RateDO> rates, int added, int removed, Set<Day> changedDays) {
+        this.rates = rates;
+        this.added = added;
+        this.removed = removed;
+        this.changedDays = changedDays;
+    }//end constructor
+
+    /**
+     * Compares the given {@code previous} rates with the given {@code next} rates.
+     *
+     * @param previous the rates currently in use
+     * @param next the rates replacing them
+     * @return the RateDiff instance
+     */
+    public static RateDiff between(List<RateDO> previous, List<RateDO> next) {
+        Map<RateDO, ArrayDeque<RateDO>> unmatched = new HashMap<>();
+        for(RateDO rateDO : previous) {
+            unmatched.computeIfAbsent(rateDO, r -> new ArrayDeque<>()).add(rateDO);
+        }//end for
+
+        List<RateDO> rates = new ArrayList<>(next.size());
+        EnumSet<Day> changedDays = EnumSet.noneOf(Day.class);
+        int added = 0;
+        for(RateDO rateDO : next) {
+            ArrayDeque<RateDO> same = unmatched.get(rateDO);
+            if(same != null && !same.isEmpty()) {
+                rates.add(same.poll());//reuse the previous instance
+            }else {
+                rates.add(rateDO);
+                changedDays.addAll(rateDO.getDays());
+                added++;
+            }//end if
+        }//end for
+
+        int removed = 0;
+        for(ArrayDeque<RateDO> same : unmatched.values()) {
+            for(RateDO rateDO : same) {
+                changedDays.addAll(rateDO.getDays());
+                removed++;
+            }//end for
+        }//end for
+        return new RateDiff(Collections.unmodifiableList(rates), added, removed, Collections.unmodifiableSet(changedDays));
+    }//end method
+
+    /**
+     * Gets the next rates, reusing the previous instance of every unchanged rate.
+     *
+     * @return the rates
+     */
+    public List<RateDO> getRates() {
+        return rates;
+    }//end method
+
+    /**
+     * Gets the number of rates added.
+     *
+     * @return the number of rates added
+     */
+    public int getAdded() {
+        return added;
+    }//end method
+
+    /**
+     * Gets the number of rates removed.
+     *
+     * @return the number of rates removed
+     */
+    public int getRemoved() {
+        return removed;
+    }//end method
+
+    /**
+     * Gets the days covered by an added or removed rate.
+     *
+     * @return the changed days
+     */
+    public Set<Day> getChangedDays() {
+        return changedDays;
+    }//end method
+
+    /**
+     * Returns whether or not the rates are the same.
+     *
+     * @return true if no rate was added or removed, false otherwise
+     */
+    public boolean isEmpty() {
+        return added == 0 && removed == 0;
+    }//end method
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("RateDiff [added=");
+        builder.append(added);
+        builder.append(", removed=");
+        builder.append(removed);
+        builder.append(", changedDays=");
+        builder.append(changedDays);
+        builder.append("]");
+        return builder.toString();
+    }//end method
+
+}//end class
@@ -0,0 +1,175 @@
+/**
+ *
+ */
+package org.unlockedlabs.pkrates.ws.api.rates;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Background watcher of a rate file that hands the new contents of the file to a listener whenever they change.
+ *
+ * <p>The directory of the file is watched with a {@link WatchService}. Once the events for the file have settled the file is read and its CRC-32 is
+ * compared with the contents last handed to the listener, so touching or rewriting the file with the same contents does not trigger a reload. The
+ * listener is called on the watcher thread and never on a request thread.</p>
+ *
+ * @author Richard Salas
+ * @version 1.0.0
+ */
+final class RateFileWatcher implements Runnable {
+
+    private static final Logger myLogger = Logger.getLogger("org.unlockedlabs.pkrates.ws.api.rates.RateFileWatcher");
+
+    private static final long SETTLE_MILLIS = 250L;//editors write a file in more than one step
+
+    private final Path file;
+    private final Consumer<byte[]> listener;
+    private volatile boolean running;
+    private volatile WatchService watchService;
+    private long checksum = -1L;
+    private Thread thread;
+
+    /**
+     * Constructor used to create an instance of RateFileWatcher.
+     *
+     * @param file the rate file to watch
+     * @param listener the listener given the new contents of the file
+     */
+    RateFileWatcher(Path file, Consumer<byte[]> listener) {
+        this.file = file.toAbsolutePath();
+        this.listener = listener;
+    }//end constructor
+
+    /**
+     * Starts watching the file. The contents of the given {@code knownChecksum} are taken as already handed to the listener, and the file is checked
+     * against them once it is watched, so a change made before the watcher started is not missed.
+     *
+     * @param knownChecksum the CRC-32 of the contents already handed to the listener, see {@link #checksum(byte[])}
+     * @throws IOException if the directory of the file can not be watched
+     */
+    synchronized void start(long knownChecksum) throws IOException {
+        if(running) {
+            return;
+        }//end if
+        watchService = file.getFileSystem().newWatchService();
+        file.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        checksum = knownChecksum;
+        running = true;
+        thread = new Thread(this, "RateFileWatcher-" + file.getFileName());
+        thread.setDaemon(true);
+        thread.start();
+    }//end method
+
+    /**
+     * Stops watching the file.
+     */
+    synchronized void stop() {
+        running = false;
+        try {
+            if(watchService != null) {
+                watchService.close();
+            }//end if
+        }catch(IOException e) {
+            myLogger.warn("Unable to close the watch service of " + file + ". Error message is: " + e.getMessage());
+        }//end try...catch
+        if(thread != null) {
+            thread.interrupt();
+            thread = null;
+        }//end if
+    }//end method
+
+    /**
+     * Waits for changes of the file until stopped.
+     */
+    @Override
+    public void run() {
+        myLogger.info("Watching " + file + " for rate changes.");
+        if(Files.exists(file)) {
+            checkForChange();//changed between being read and being watched
+        }//end if
+        try {
+            while(running) {
+                WatchKey key = watchService.take();
+                boolean changed = isFileEvent(key);
+                while(changed && (key = watchService.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    isFileEvent(key);//wait until the writes have settled
+                }//end while
+                if(changed) {
+                    checkForChange();
+                }//end if
+            }//end while
+        }catch(InterruptedException | ClosedWatchServiceException e) {
+            Thread.currentThread().interrupt();
+        }//end try...catch
+        myLogger.info("Stopped watching " + file + " for rate changes.");
+    }//end method
+
+    /**
+     * Helper method used to drain the events of the given {@code key} and check whether any of them is about the watched file.
+     *
+     * @param key the signalled watch key
+     * @return true if an event is about the file or events were lost, false otherwise
+     */
+    private boolean isFileEvent(WatchKey key) {
+        boolean fileEvent = false;
+        for(WatchEvent<?> event : key.pollEvents()) {
+            if(event.kind() == StandardWatchEventKinds.OVERFLOW || file.getFileName().equals(event.context())) {
+                fileEvent = true;
+            }//end if
+        }//end for
+        if(!key.reset()) {
+            myLogger.warn("The directory of " + file + " can no longer be watched.");
+            running = false;
+        }//end if
+        return fileEvent;
+    }//end method
+
+    /**
+     * Helper method used to read the file and hand its contents to the listener when the checksum differs from the last contents.
+     */
+    private void checkForChange() {
+        try {
+            byte[] bytes = Files.readAllBytes(file);
+            long newChecksum = checksum(bytes);
+            if(newChecksum == checksum) {
+                if(myLogger.isDebugEnabled()){
+                    myLogger.debug("The contents of " + file + " did not change.");
+                }//end if
+                return;
+            }//end if
+            checksum = newChecksum;//a file that fails to load is not retried until it changes again
+            listener.accept(bytes);
+        }catch(NoSuchFileException e) {
+            myLogger.warn("The rate file " + file + " was removed, keeping the current rates.");
+        }catch(IOException e) {
+            myLogger.error("IOException occurred while reading the rate file " + file + ". Error message is: " + e.getMessage(), e);
+        }catch(RuntimeException e) {
+            myLogger.error("Exception occurred while reloading the rate file " + file + ". Error message is: " + e.getMessage(), e);
+        }//end try...catch
+    }//end method
+
+    /**
+     * Computes the CRC-32 of the given {@code bytes}.
+     *
+     * @param bytes the contents of the file
+     * @return the checksum
+     */
+    static long checksum(byte[] bytes) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, bytes.length);
+        return crc.getValue();
+    }//end method
+
+}//end class
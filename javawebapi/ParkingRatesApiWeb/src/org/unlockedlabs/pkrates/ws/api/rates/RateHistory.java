@@ -0,0 +1,163 @@
+/**
+ *
+ */
+package org.unlockedlabs.pkrates.ws.api.rates;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Immutable chain of the rate set versions kept in memory, oldest first, each in force from its {@link RateSnapshot#getEffectiveFrom()} until the next
+ * version went into force.
+ *
+ * <p>The newest version is the current rate set. Appending a version creates a new chain, so the chain is published with a single reference swap just
+ * like a snapshot. A version is found for an instant by a binary search over the effective instants and then priced with its own compiled index.</p>
+ *
+ * <p>Versions are evicted oldest first once the chain holds more than the maximum count or once a version stopped being in force longer ago than the
+ * maximum age. The current version is never evicted.</p>
+ *
+ * @author Richard Salas
+ * @version 1.0.0
+ */
+final class RateHistory {
+
+    /**
+     * History that does not contain any versions, its current rate set is {@link RateSnapshot#EMPTY}.
+     */
+    static final RateHistory EMPTY = new RateHistory(new RateSnapshot[0]);
+
+    private final RateSnapshot[] versions;//oldest first
+    private final Instant[] effectiveFroms;
+
+    /**
+     * Constructor used to create an instance of RateHistory using the given {@code versions}.
+     *
+     * @param versions the versions ordered by effective instant, oldest first
+     */
+    private RateHistory(RateSnapshot[] versions) {
+        this.versions = versions;
+        this.effectiveFroms = new Instant[versions.length];
+        for(int i = 0;i < versions.length;i++) {
+            effectiveFroms[i] = versions[i].getEffectiveFrom();
+        }//end for
+    }//end constructor
+
+    /**
+     * Creates a history holding the given {@code next} version after the versions of this history, then evicts the versions beyond the given limits.
+     *
+     * @param next the new current version, which may not be effective before the current version
+     * @param maxCount the maximum number of versions to keep
+     * @param maxAge the maximum time a version is kept once it stopped being in force
+     * @param now the current instant
+     * @return the new history
+     * @throws IllegalArgumentException if the version is effective before the current version
+     */
+    RateHistory append(RateSnapshot next, int maxCount, Duration maxAge, Instant now) {
+        if(versions.length > 0 && next.getEffectiveFrom().isBefore(effectiveFroms[versions.length - 1])) {
+            throw new IllegalArgumentException("Version " + next.getVersion() + " is effective before the current version.");
+        }//end if
+        RateSnapshot[] appended = Arrays.copyOf(versions, versions.length + 1);
+        appended[versions.length] = next;
+        return new RateHistory(appended).evict(maxCount, maxAge, now);
+    }//end method
+
+    /**
+     * Evicts the oldest versions beyond the given {@code maxCount} and those that stopped being in force before {@code now} minus {@code maxAge}.
+     *
+     * @param maxCount the maximum number of versions to keep
+     * @param maxAge the maximum time a version is kept once it stopped being in force
+     * @param now the current instant
+     * @return the history without the evicted versions, or this history if nothing was evicted
+     */
+    RateHistory evict(int maxCount, Duration maxAge, Instant now) {
+        Instant horizon = now.minus(maxAge);
+        int first = Math.max(0, versions.length - Math.max(1, maxCount));
+        while(first < versions.length - 1 && effectiveFroms[first + 1].isBefore(horizon)) {
+            first++;//replaced before the horizon
+        }//end while
+        return first == 0 ? this : new RateHistory(Arrays.copyOfRange(versions, first, versions.length));
+    }//end method
+
+    /**
+     * Finds the version that was in force at the given {@code asOf} instant.
+     *
+     * @param asOf the instant
+     * @return the version in force or null if the instant is before the oldest version kept
+     */
+    RateSnapshot find(Instant asOf) {
+        int low = 0;
+        int high = versions.length - 1;
+        int found = -1;
+        while(low <= high) {//last version effective at or before the instant
+            int mid = (low + high) >>> 1;
+            if(effectiveFroms[mid].isAfter(asOf)) {
+                high = mid - 1;
+            }else {
+                found = mid;
+                low = mid + 1;
+            }//end if
+        }//end while
+        return found < 0 ? null : versions[found];
+    }//end method
+
+    /**
+     * Gets the current version.
+     *
+     * @return the newest version or {@link RateSnapshot#EMPTY} if there is none
+     */
+    RateSnapshot getCurrent() {
+        return versions.length == 0 ? RateSnapshot.EMPTY : versions[versions.length - 1];
+    }//end method
+
+    /**
+     * Gets the versions kept.
+     *
+     * @return the unmodifiable list of versions, oldest first
+     */
+    List<RateSnapshot> getVersions() {
+        return Collections.unmodifiableList(Arrays.asList(versions));
+    }//end method
+
+    /**
+     * Gets the number of versions kept.
+     *
+     * @return the number of versions
+     */
+    int size() {
+        return versions.length;
+    }//end method
+
+    /**
+     * Estimates the number of bytes held by the versions kept, counting the rates and compiled days shared by consecutive versions once.
+     *
+     * @return the estimated size in bytes
+     */
+    long estimateSize() {
+        Set<Object> counted = Collections.newSetFromMap(new IdentityHashMap<>());
+        long size = 0L;
+        for(RateSnapshot version : versions) {
+            size += version.estimateSize(counted);
+        }//end for
+        return size;
+    }//end method
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("RateHistory [size=");
+        builder.append(versions.length);
+        builder.append(", current=");
+        builder.append(getCurrent().getVersion());
+        builder.append("]");
+        return builder.toString();
+    }//end method
+
+}//end class
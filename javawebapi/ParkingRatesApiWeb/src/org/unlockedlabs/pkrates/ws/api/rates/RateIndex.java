@@ -0,0 +1,726 @@
+/**
+ *
+ */
+package org.unlockedlabs.pkrates.ws.api.rates;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.unlockedlabs.pkrates.ws.api.core.RateUnavailableException;
+
+/**
+ * Compiled, read-only lookup structure built from a list of {@link RateDO}s.
+ *
+ * <p>Each rate time zone is compiled into a primitive minute-of-week table ({@code int[10080]}) holding the rate slot that covers each minute of the week, along with
+ * the end of every slot. Once the date/time range has been converted into the local time of the zone, a price lookup is one read of the table, one read of the slot end and
+ * a comparison. Minutes covered by more than one rate are marked as overlapping within the table.</p>
+ *
+ * <p>For overlapping minutes the rates of each {@link Day} and zone are also held as intervals (in seconds from midnight) sorted by start time along with a running
+ * maximum of the end times, which are resolved with a binary search.</p>
+ *
+ * <p>A date/time range is priced against the rates of the date it starts on. The first time a date is priced its rates are materialized as intervals of
+ * epoch seconds, resolved through the {@link ZoneRules} of each rate zone so the rates of spring-forward and fall-back days are placed the same way
+ * {@link ZonedDateTime#of(LocalDate, java.time.LocalTime, ZoneId)} places them. The intervals of recently priced dates are kept, so most lookups are a
+ * binary search of primitive intervals. The kept dates hold at most {@value #MAX_CACHED_INTERVALS} intervals, so an index with many rates a day keeps
+ * fewer dates, and their largest size is counted by {@link #estimateSize(Set)} from the start. The minute-of-week tables serve the normalized {@link PriceKey} lookups of the {@link PriceCache}.</p>
+ *
+ * <p>The lookup follows the same rules as {@link ParkingPrice#calculatePrice(ZonedDateTime, ZonedDateTime, List)}: the rate times are placed on the local date of the
+ * {@code startDtTm} within the rate's time zone and exactly one rate must contain the whole date/time range.</p>
+ *
+ * @author Richard Salas
+ * @version 1.0.0
+ */
+public class RateIndex {
+
+    private static final int SECONDS_PER_DAY = 86400;
+    private static final int MINUTES_PER_DAY = 1440;
+    private static final int MINUTES_PER_WEEK = MINUTES_PER_DAY * 7;
+    private static final Day[] DAYS = Day.values();
+    private static final int CACHED_DATES = 64;//power of two so consecutive dates never share a slot
+    private static final int MAX_CACHED_INTERVALS = 1 << 16;//intervals of all the kept dates, about 2.5 MB
+    private static final long BIAS = 2L * SECONDS_PER_DAY;//keeps the seconds from midnight positive when packed with an index
+
+    /**
+     * Index that does not contain any rates.
+     */
+    public static final RateIndex EMPTY = new RateIndex(new EnumMap<>(Day.class));
+
+    private final EnumMap<Day, ZoneIntervals[]> days;
+    private final int maxDayIntervals;//largest number of intervals of a single day
+    private final DateIntervals[] recentDates;//slot of epoch day modulo the size, racy but each entry is immutable
+
+    /**
+     * Constructor used to create an instance of RateIndex using the given {@code days} map.
+     *
+     * @param days the compiled zone intervals keyed by day
+     */
+    private RateIndex(EnumMap<Day, ZoneIntervals[]> days) {
+        this.days = days;
+        int max = 0;
+        for(ZoneIntervals[] zones : days.values()) {
+            int count = 0;
+            for(ZoneIntervals zone : zones) {
+                count += zone.starts.length;
+            }//end for
+            max = Math.max(max, count);
+        }//end for
+        int slots = CACHED_DATES;
+        while(slots > 1 && (long) slots * max > MAX_CACHED_INTERVALS) {
+            slots >>= 1;//stays a power of two
+        }//end while
+        this.maxDayIntervals = max;
+        this.recentDates = new DateIntervals[slots];
+    }//end constructor
+
+    /**
+     * Compiles the given {@code rates} into a RateIndex instance.
+     *
+     * @param rates the list of {@code RateDO}s to compile
+     * @return the compiled RateIndex instance
+     */
+    public static RateIndex compile(List<RateDO> rates) {
+        return rebuild(EMPTY, rates, EnumSet.allOf(Day.class));
+    }//end method
+
+    /**
+     * Compiles the given {@code rates} into a RateIndex instance, compiling only the given {@code changedDays} and reusing the compiled days of the
+     * {@code previous} index for every other day.
+     *
+     * <p>The rates of every unchanged day must be the same {@code RateDO} instances the previous index was compiled from, as provided by
+     * {@link RateDiff#getRates()}. The minute-of-week table of a zone is copied before the changed days are filled in, so the previous index is never
+     * modified and stays usable by readers.</p>
+     *
+     * @param previous the index compiled from the previous rates
+     * @param rates the list of {@code RateDO}s to compile
+     * @param changedDays the days whose rates changed
+     * @return the compiled RateIndex instance
+     */
+    public static RateIndex rebuild(RateIndex previous, List<RateDO> rates, Set<Day> changedDays) {
+        EnumMap<Day, Map<ZoneId, List<RateDO>>> grouped = new EnumMap<>(Day.class);
+        for(RateDO rateDO : rates) {
+            ZoneId zone = rateDO.getZoneId();
+            for(Day day : rateDO.getDays()) {
+                if(changedDays.contains(day)) {
+                    grouped.computeIfAbsent(day, d -> new LinkedHashMap<>()).computeIfAbsent(zone, z -> new ArrayList<>()).add(rateDO);
+                }//end if
+            }//end for
+        }//end for
+
+        EnumMap<Day, ZoneIntervals[]> days = new EnumMap<>(previous.days);
+        days.keySet().removeAll(changedDays);
+        Map<ZoneId, int[]> minuteTables = new HashMap<>();//one minute-of-week table per zone shared by each changed day
+        for(Map.Entry<Day, Map<ZoneId, List<RateDO>>> entry : grouped.entrySet()) {
+            int dayBase = entry.getKey().ordinal() * MINUTES_PER_DAY;
+            List<ZoneIntervals> zones = new ArrayList<>();
+            for(Map.Entry<ZoneId, List<RateDO>> zoneEntry : entry.getValue().entrySet()) {
+                int[] minuteSlots = minuteTables.computeIfAbsent(zoneEntry.getKey(), previous::copyMinuteTable);
+                Arrays.fill(minuteSlots, dayBase, dayBase + MINUTES_PER_DAY, ZoneIntervals.EMPTY_SLOT);
+                zones.add(new ZoneIntervals(zoneEntry.getKey(), zoneEntry.getValue(), minuteSlots, dayBase));
+            }//end for
+            days.put(entry.getKey(), zones.toArray(new ZoneIntervals[zones.size()]));
+        }//end for
+        return new RateIndex(days);
+    }//end method
+
+    /**
+     * Helper method used to copy the minute-of-week table of the given {@code zone}.
+     *
+     * @param zone the time zone
+     * @return a copy of the zone's table or an empty table if this index has no rates within the zone
+     */
+    private int[] copyMinuteTable(ZoneId zone) {
+        for(ZoneIntervals[] zones : days.values()) {
+            for(ZoneIntervals zoneIntervals : zones) {
+                if(zoneIntervals.zone.equals(zone)) {
+                    return zoneIntervals.minuteSlots.clone();
+                }//end if
+            }//end for
+        }//end for
+        return new int[MINUTES_PER_WEEK];
+    }//end method
+
+    /**
+     * Finds the price of the single rate that contains the given {@code startDtTm} and {@code endDtTm} range.
+     *
+     * <p>The rates of the local date of the {@code startDtTm} are taken from the recently priced dates, or materialized as epoch second intervals and
+     * kept in place of the date as many days away as there are kept dates, up to {@value #CACHED_DATES}, so pricing a date already seen is a binary
+     * search without any date/time conversion.</p>
+     *
+     * @param startDtTm the start date time used to find the price
+     * @param endDtTm the end date time used to find the price
+     * @return the price of the rate found
+     * @throws RateUnavailableException if no rate or more than one rate contains the date/time range {@link RateUnavailableException}
+     */
+    public int findPrice(ZonedDateTime startDtTm, ZonedDateTime endDtTm) throws RateUnavailableException {
+        LocalDate date = startDtTm.toLocalDate();
+        ZoneIntervals[] zones = days.get(Day.getAbbrevEnum(date.getDayOfWeek()));
+        if(zones == null) {
+            throw new RateUnavailableException("No parking rate found based on user input.");
+        }//end if
+
+        long epochDay = date.toEpochDay();
+        int slot = (int) (epochDay & (recentDates.length - 1));
+        DateIntervals dateIntervals = recentDates[slot];
+        if(dateIntervals == null || dateIntervals.epochDay != epochDay) {
+            dateIntervals = new DateIntervals(epochDay, zones);
+            recentDates[slot] = dateIntervals;
+        }//end if
+
+        long startEpochSec = startDtTm.toEpochSecond();
+        long endEpochSec = endDtTm.toEpochSecond() + (endDtTm.getNano() > 0 ? 1 : 0);//round the end up to the next whole second
+        int found = dateIntervals.find(Math.min(startEpochSec, endEpochSec - 1), Math.max(endEpochSec, startEpochSec + 1));
+        if(found == ZoneIntervals.MULTIPLE) {
+            throw new RateUnavailableException("User input spanned more than one parking rate.");
+        }else if(found == ZoneIntervals.NOT_FOUND) {
+            throw new RateUnavailableException("No parking rate found based on user input.");
+        }//end if
+        return dateIntervals.prices[found];
+    }//end method
+
+    /**
+     * Normalizes the given {@code startDtTm} and {@code endDtTm} range into a {@link PriceKey} for this index.
+     *
+     * <p>Returns {@code null} when the range can not be normalized, which is when the day has no rates or a rate time zone changes its offset around the date.</p>
+     *
+     * @param startDtTm the start date time
+     * @param endDtTm the end date time
+     * @return the normalized key or null
+     */
+    public PriceKey normalize(ZonedDateTime startDtTm, ZonedDateTime endDtTm) {
+        Day day = Day.getAbbrevEnum(startDtTm.getDayOfWeek());
+        ZoneIntervals[] zones = days.get(day);
+        if(zones == null) {
+            return null;
+        }//end if
+
+        long dayEpochSec = startDtTm.toLocalDate().toEpochDay() * SECONDS_PER_DAY;
+        long startEpochSec = startDtTm.toEpochSecond();
+        long endEpochSec = endDtTm.toEpochSecond() + (endDtTm.getNano() > 0 ? 1 : 0);//round the end up to the next whole second
+        Instant startInstant = startDtTm.toInstant();
+        Instant endInstant = endDtTm.toInstant();
+
+        long[] parts = new long[zones.length + 1];
+        parts[0] = ((long) day.ordinal() << 32) | (startDtTm.getOffset().getTotalSeconds() & 0xFFFFFFFFL);
+        for(int i = 0;i < zones.length;i++) {
+            if(!zones[i].hasStableOffset(dayEpochSec)) {
+                return null;
+            }//end if
+            long startSec = startEpochSec + zones[i].rules.getOffset(startInstant).getTotalSeconds() - dayEpochSec;
+            long endSec = endEpochSec + zones[i].rules.getOffset(endInstant).getTotalSeconds() - dayEpochSec;
+            parts[i + 1] = PriceKey.pack(Math.min(startSec, endSec - 1), Math.max(endSec, startSec + 1));
+        }//end for
+        return new PriceKey(parts);
+    }//end method
+
+    /**
+     * Finds the price of the single rate that contains the range normalized into the given {@code key} by {@link #normalize(ZonedDateTime, ZonedDateTime)}.
+     *
+     * @param key the normalized range created by this index
+     * @return the price of the rate found
+     * @throws RateUnavailableException if no rate or more than one rate contains the date/time range {@link RateUnavailableException}
+     */
+    public int findPrice(PriceKey key) throws RateUnavailableException {
+        ZoneIntervals[] zones = days.get(DAYS[key.day()]);
+        for(int i = 0;zones != null && i < zones.length;i++) {
+            int found = zones[i].find(key.low(i), key.high(i));
+            if(found == ZoneIntervals.MULTIPLE) {
+                throw new RateUnavailableException("User input spanned more than one parking rate.");
+            }else if(found != ZoneIntervals.NOT_FOUND) {
+                return zones[i].prices[found];//validated rates never overlap so no other zone can contain the range
+            }//end if
+        }//end for
+        throw new RateUnavailableException("No parking rate found based on user input.");
+    }//end method
+
+    /**
+     * Writes the compiled form of this index to the given {@code out} so it can be restored by {@link #readFrom(ByteBuffer, List)} without compiling
+     * the rates again.
+     *
+     * <p>Each minute-of-week table is written once followed by the intervals of every day and zone, which reference the table and the given
+     * {@code rates} by position.</p>
+     *
+     * @param out the output to write to
+     * @param rates the rates this index was compiled from
+     * @throws IOException if the index can not be written
+     */
+    void writeTo(DataOutput out, List<RateDO> rates) throws IOException {
+        IdentityHashMap<RateDO, Integer> rateIds = new IdentityHashMap<>();
+        for(int i = 0;i < rates.size();i++) {
+            rateIds.put(rates.get(i), i);
+        }//end for
+        IdentityHashMap<int[], Integer> tableIds = new IdentityHashMap<>();
+        List<int[]> tables = new ArrayList<>();
+        for(ZoneIntervals[] zones : days.values()) {
+            for(ZoneIntervals zone : zones) {
+                if(!tableIds.containsKey(zone.minuteSlots)) {
+                    tableIds.put(zone.minuteSlots, tables.size());
+                    tables.add(zone.minuteSlots);
+                }//end if
+            }//end for
+        }//end for
+
+        out.writeInt(tables.size());
+        for(int[] table : tables) {
+            writeInts(out, table);
+        }//end for
+        out.writeInt(days.size());
+        for(Map.Entry<Day, ZoneIntervals[]> entry : days.entrySet()) {
+            out.writeByte(entry.getKey().ordinal());
+            out.writeInt(entry.getValue().length);
+            for(ZoneIntervals zone : entry.getValue()) {
+                out.writeUTF(zone.zone.getId());
+                out.writeInt(tableIds.get(zone.minuteSlots));
+                out.writeInt(zone.dayBase);
+                out.writeInt(zone.rates.length);
+                for(RateDO rateDO : zone.rates) {
+                    Integer id = rateIds.get(rateDO);
+                    if(id == null) {
+                        throw new IOException("Rate " + rateDO + " is not part of the given rates.");
+                    }//end if
+                    out.writeInt(id);
+                }//end for
+                writeInts(out, zone.starts);
+                writeInts(out, zone.ends);
+                writeInts(out, zone.prices);
+                writeInts(out, zone.maxEnds);
+                writeInts(out, zone.maxEndIdx);
+                writeInts(out, zone.nextMaxEnds);
+            }//end for
+        }//end for
+    }//end method
+
+    /**
+     * Restores an index written by {@link #writeTo(DataOutput, List)} from the given {@code buffer}.
+     *
+     * @param buffer the buffer positioned at the start of the index
+     * @param rates the rates the index was compiled from, in the same order as when written
+     * @return the restored RateIndex instance
+     * @throws IllegalArgumentException if the buffer does not hold a valid index
+     */
+    static RateIndex readFrom(ByteBuffer buffer, List<RateDO> rates) {
+        int tableCount = buffer.getInt();
+        int[][] tables = new int[tableCount][];
+        for(int i = 0;i < tableCount;i++) {
+            tables[i] = readInts(buffer, MINUTES_PER_WEEK);
+        }//end for
+        EnumMap<Day, ZoneIntervals[]> days = new EnumMap<>(Day.class);
+        int dayCount = buffer.getInt();
+        for(int d = 0;d < dayCount;d++) {
+            Day day = DAYS[buffer.get()];
+            ZoneIntervals[] zones = new ZoneIntervals[buffer.getInt()];
+            for(int z = 0;z < zones.length;z++) {
+                ZoneId zone = ZoneId.of(readUTF(buffer));
+                int[] minuteSlots = tables[buffer.getInt()];
+                int dayBase = buffer.getInt();
+                RateDO[] zoneRates = new RateDO[checkLength(buffer.getInt())];
+                for(int i = 0;i < zoneRates.length;i++) {
+                    zoneRates[i] = rates.get(buffer.getInt());
+                }//end for
+                zones[z] = new ZoneIntervals(zone, zoneRates, minuteSlots, dayBase, readInts(buffer, zoneRates.length), readInts(buffer, zoneRates.length),
+                        readInts(buffer, zoneRates.length), readInts(buffer, zoneRates.length), readInts(buffer, zoneRates.length), readInts(buffer, zoneRates.length));
+            }//end for
+            days.put(day, zones);
+        }//end for
+        return new RateIndex(days);
+    }//end method
+
+    /**
+     * Helper method used to write the length and values of the given {@code values}.
+     *
+     * @param out the output to write to
+     * @param values the values to write
+     * @throws IOException if the values can not be written
+     */
+    private static void writeInts(DataOutput out, int[] values) throws IOException {
+        out.writeInt(values.length);
+        for(int value : values) {
+            out.writeInt(value);
+        }//end for
+    }//end method
+
+    /**
+     * Helper method used to read values written by {@link #writeInts(DataOutput, int[])}.
+     *
+     * @param buffer the buffer to read from
+     * @param expectedLength the number of values expected
+     * @return the values read
+     * @throws IllegalArgumentException if the length does not match
+     */
+    private static int[] readInts(ByteBuffer buffer, int expectedLength) {
+        int length = buffer.getInt();
+        if(length != expectedLength) {
+            throw new IllegalArgumentException("Expected " + expectedLength + " values but found " + length + ".");
+        }//end if
+        int[] values = new int[length];
+        buffer.asIntBuffer().get(values);//bulk copy
+        buffer.position(buffer.position() + length * 4);
+        return values;
+    }//end method
+
+    /**
+     * Helper method used to check a length read from a buffer.
+     *
+     * @param length the length read
+     * @return the length
+     * @throws IllegalArgumentException if the length is negative
+     */
+    private static int checkLength(int length) {
+        if(length < 0) {
+            throw new IllegalArgumentException("Negative length " + length + ".");
+        }//end if
+        return length;
+    }//end method
+
+    /**
+     * Helper method used to read a string written by {@link DataOutput#writeUTF(String)}.
+     *
+     * @param buffer the buffer to read from
+     * @return the string read
+     */
+    static String readUTF(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getShort() & 0xFFFF];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);//writeUTF only differs for the NUL and supplementary characters, which zone ids never contain
+    }//end method
+
+    /**
+     * Returns whether or not this index contains any rates.
+     *
+     * @return true if the index has no rates, false otherwise
+     */
+    public boolean isEmpty() {
+        return days.isEmpty();
+    }//end method
+
+    /**
+     * Estimates the number of bytes held by this index, counting each shared minute-of-week table once and the kept dates at their largest size.
+     *
+     * @return the estimated size in bytes
+     */
+    long estimateSize() {
+        return estimateSize(Collections.newSetFromMap(new IdentityHashMap<>()));
+    }//end method
+
+    /**
+     * Estimates the number of bytes held by this index that are not within the given {@code counted} set, then adds them to it. An index rebuilt by
+     * {@link #rebuild(RateIndex, List, Set)} shares the compiled days that did not change with the previous index, so passing the same set for both
+     * counts the shared days once. The kept dates are counted as if every slot held the day with the most rates, so the estimate does not grow as
+     * dates are priced and a lot weighed once by the {@link LotCatalog} stays within its weight.
+     *
+     * @param counted the identity set of the objects already counted
+     * @return the estimated size in bytes
+     */
+    long estimateSize(Set<Object> counted) {
+        long size = 16L + 4L * recentDates.length;
+        if(maxDayIntervals > 0) {
+            size += recentDates.length * (144L + 40L * maxDayIntervals);//four long arrays and two int arrays per date
+        }//end if
+        for(ZoneIntervals[] zones : days.values()) {
+            for(ZoneIntervals zoneIntervals : zones) {
+                if(counted.add(zoneIntervals.minuteSlots)) {
+                    size += 16L + 4L * zoneIntervals.minuteSlots.length;
+                }//end if
+                if(counted.add(zoneIntervals)) {
+                    size += 64L + 28L * zoneIntervals.rates.length;//six int arrays and the rate references
+                }//end if
+            }//end for
+        }//end for
+        return size;
+    }//end method
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("RateIndex [days=");
+        builder.append(days.keySet());
+        builder.append("]");
+        return builder.toString();
+    }//end method
+
+    /**
+     * Rate intervals for a single day and time zone sorted by start time along with the day's segment of the zone's minute-of-week table.
+     */
+    private static final class ZoneIntervals {
+
+        static final int NOT_FOUND = -1;
+        static final int MULTIPLE = -2;
+
+        private static final int EMPTY_SLOT = 0;
+        private static final int OVERLAP_SLOT = -1;
+
+        private final ZoneId zone;
+        private final ZoneRules rules;
+        private final int[] minuteSlots;//minute of week -> index of the covering rate plus one, EMPTY_SLOT or OVERLAP_SLOT
+        private final int dayBase;//first minute of this day within minuteSlots
+        private final RateDO[] rates;
+        private final int[] starts;
+        private final int[] ends;
+        private final int[] prices;
+        private final int[] maxEnds;//largest end within [0..i]
+        private final int[] maxEndIdx;//index of the largest end within [0..i]
+        private final int[] nextMaxEnds;//second largest end within [0..i]
+
+        /**
+         * Constructor used to create an instance of ZoneIntervals using the given {@code zone} and {@code rates} and fills this day's segment of the
+         * {@code minuteSlots} table.
+         *
+         * @param zone the time zone the rates are defined in
+         * @param rates the rates to compile
+         * @param minuteSlots the minute-of-week table of the zone
+         * @param dayBase the first minute of this day within the table
+         */
+        ZoneIntervals(ZoneId zone, List<RateDO> rates, int[] minuteSlots, int dayBase) {
+            this.zone = zone;
+            this.rules = zone.getRules();
+            this.minuteSlots = minuteSlots;
+            this.dayBase = dayBase;
+            List<RateDO> sorted = new ArrayList<>(rates);
+            Collections.sort(sorted, (a, b) -> a.getTimes().getStartTm().compareTo(b.getTimes().getStartTm()));
+
+            int size = sorted.size();
+            this.rates = sorted.toArray(new RateDO[size]);
+            this.starts = new int[size];
+            this.ends = new int[size];
+            this.prices = new int[size];
+            this.maxEnds = new int[size];
+            this.maxEndIdx = new int[size];
+            this.nextMaxEnds = new int[size];
+
+            int max = Integer.MIN_VALUE;
+            int maxIdx = -1;
+            int nextMax = Integer.MIN_VALUE;
+            for(int i = 0;i < size;i++) {
+                RateDO rateDO = sorted.get(i);
+                int end = rateDO.getTimes().getEndTm().toSecondOfDay();
+                starts[i] = rateDO.getTimes().getStartTm().toSecondOfDay();
+                ends[i] = end;
+                prices[i] = rateDO.getPrice();
+                for(int minute = starts[i] / 60;minute < end / 60;minute++) {
+                    int cell = dayBase + minute;
+                    minuteSlots[cell] = minuteSlots[cell] == EMPTY_SLOT ? i + 1 : OVERLAP_SLOT;
+                }//end for
+                if(end > max) {
+                    nextMax = max;
+                    max = end;
+                    maxIdx = i;
+                }else if(end > nextMax) {
+                    nextMax = end;
+                }//end if
+                maxEnds[i] = max;
+                maxEndIdx[i] = maxIdx;
+                nextMaxEnds[i] = nextMax;
+            }//end for
+        }//end constructor
+
+        /**
+         * Constructor used to restore an instance of ZoneIntervals from its already compiled arrays.
+         *
+         * @param zone the time zone the rates are defined in
+         * @param rates the rates sorted by start time
+         * @param minuteSlots the filled minute-of-week table of the zone
+         * @param dayBase the first minute of this day within the table
+         * @param starts the rate starts in seconds from midnight
+         * @param ends the rate ends in seconds from midnight
+         * @param prices the rate prices
+         * @param maxEnds the largest end within [0..i]
+         * @param maxEndIdx the index of the largest end within [0..i]
+         * @param nextMaxEnds the second largest end within [0..i]
+         */
+        ZoneIntervals(ZoneId zone, RateDO[] rates, int[] minuteSlots, int dayBase, int[] starts, int[] ends, int[] prices, int[] maxEnds, int[] maxEndIdx, int[] nextMaxEnds) {
+            if(dayBase < 0 || dayBase + MINUTES_PER_DAY > minuteSlots.length) {
+                throw new IllegalArgumentException("Day base " + dayBase + " is outside of the minute-of-week table.");
+            }//end if
+            this.zone = zone;
+            this.rules = zone.getRules();
+            this.minuteSlots = minuteSlots;
+            this.dayBase = dayBase;
+            this.rates = rates;
+            this.starts = starts;
+            this.ends = ends;
+            this.prices = prices;
+            this.maxEnds = maxEnds;
+            this.maxEndIdx = maxEndIdx;
+            this.nextMaxEnds = nextMaxEnds;
+        }//end constructor
+
+        /**
+         * Finds the rate that starts at or before {@code low} and ends at or after {@code high}.
+         *
+         * @param low the latest allowed rate start in seconds from local midnight
+         * @param high the earliest allowed rate end in seconds from local midnight
+         * @return the index of the rate found, {@link #NOT_FOUND} or {@link #MULTIPLE}
+         */
+        int find(long low, long high) {
+            if(low < 0 || low >= SECONDS_PER_DAY) {
+                return NOT_FOUND;//rates never start before or end after this day
+            }//end if
+
+            int slot = minuteSlots[dayBase + (int) (low / 60)];
+            if(slot == EMPTY_SLOT) {
+                return NOT_FOUND;
+            }else if(slot != OVERLAP_SLOT) {//the only rate covering the start, so no other rate can contain the range
+                return ends[slot - 1] >= high ? slot - 1 : NOT_FOUND;
+            }//end if
+
+            //more than one rate covers the start so search the sorted intervals
+            int idx = Arrays.binarySearch(starts, (int) Math.max(Math.min(low, Integer.MAX_VALUE), Integer.MIN_VALUE));
+            if(idx < 0) {
+                idx = -idx - 2;//insertion point minus one
+            }else {
+                while(idx + 1 < starts.length && starts[idx + 1] == starts[idx]) {
+                    idx++;//move to the last rate with the same start
+                }//end while
+            }//end if
+
+            if(idx < 0 || maxEnds[idx] < high) {
+                return NOT_FOUND;
+            }//end if
+            return nextMaxEnds[idx] >= high ? MULTIPLE : maxEndIdx[idx];
+        }//end method
+
+        /**
+         * Returns whether or not the zone offset stays the same for a couple of days around the given {@code dayEpochSec}, which makes comparing local times the same as
+         * comparing instants.
+         *
+         * @param dayEpochSec the local midnight of the date being priced in epoch seconds
+         * @return true if the offset does not change around the date, false otherwise
+         */
+        boolean hasStableOffset(long dayEpochSec) {
+            return rules.isFixedOffset() || rules.getOffset(Instant.ofEpochSecond(dayEpochSec - 2 * SECONDS_PER_DAY)).equals(rules.getOffset(Instant.ofEpochSecond(dayEpochSec + 3 * SECONDS_PER_DAY)));
+        }//end method
+
+    }//end inner class
+
+    /**
+     * Rates of a single date as intervals of epoch seconds sorted by start time along with a running maximum of the end times.
+     */
+    private static final class DateIntervals {
+
+        private final long epochDay;
+        private final long[] starts;
+        private final long[] ends;
+        private final int[] prices;
+        private final long[] maxEnds;//largest end within [0..i]
+        private final int[] maxEndIdx;//index of the largest end within [0..i]
+        private final long[] nextMaxEnds;//second largest end within [0..i]
+
+        /**
+         * Constructor used to create an instance of DateIntervals placing the rates of the given {@code zones} on the given {@code epochDay}.
+         *
+         * @param epochDay the date as a count of days from the epoch
+         * @param zones the compiled rates of the date's day of the week
+         */
+        DateIntervals(long epochDay, ZoneIntervals[] zones) {
+            this.epochDay = epochDay;
+            long midnight = epochDay * SECONDS_PER_DAY;
+            int size = 0;
+            for(ZoneIntervals zone : zones) {
+                size += zone.starts.length;
+            }//end for
+            long[] order = new long[size];//start in seconds from midnight << 32 | index so a primitive sort orders the rates by start
+            long[] zoneEnds = new long[size];
+            int[] zonePrices = new int[size];
+            int count = 0;
+            for(ZoneIntervals zone : zones) {
+                for(int i = 0;i < zone.starts.length;i++) {
+                    order[count] = ((toEpochSecond(zone.rules, midnight + zone.starts[i]) - midnight + BIAS) << 32) | count;
+                    zoneEnds[count] = toEpochSecond(zone.rules, midnight + zone.ends[i]);
+                    zonePrices[count] = zone.prices[i];
+                    count++;
+                }//end for
+            }//end for
+            Arrays.sort(order);//equal starts keep their order as the index breaks the tie
+
+            this.starts = new long[size];
+            this.ends = new long[size];
+            this.prices = new int[size];
+            this.maxEnds = new long[size];
+            this.maxEndIdx = new int[size];
+            this.nextMaxEnds = new long[size];
+            long max = Long.MIN_VALUE;
+            int maxIdx = -1;
+            long nextMax = Long.MIN_VALUE;
+            for(int i = 0;i < size;i++) {
+                int k = (int) order[i];
+                starts[i] = (order[i] >>> 32) - BIAS + midnight;
+                ends[i] = zoneEnds[k];
+                prices[i] = zonePrices[k];
+                if(ends[i] > max) {
+                    nextMax = max;
+                    max = ends[i];
+                    maxIdx = i;
+                }else if(ends[i] > nextMax) {
+                    nextMax = ends[i];
+                }//end if
+                maxEnds[i] = max;
+                maxEndIdx[i] = maxIdx;
+                nextMaxEnds[i] = nextMax;
+            }//end for
+        }//end constructor
+
+        /**
+         * Helper method used to convert the given local date/time into epoch seconds within the zone of the given {@code rules}. A local time within
+         * a spring-forward gap is moved forward by the length of the gap and a local time within a fall-back overlap takes the earlier offset, the same
+         * as {@link ZonedDateTime#of(LocalDate, java.time.LocalTime, ZoneId)}, which for both is the offset before the transition.
+         *
+         * @param rules the rules of the zone
+         * @param localEpochSec the local date/time in seconds from the epoch as if it were UTC
+         * @return the epoch seconds of the local date/time within the zone
+         */
+        private static long toEpochSecond(ZoneRules rules, long localEpochSec) {
+            LocalDateTime local = LocalDateTime.ofEpochSecond(localEpochSec, 0, ZoneOffset.UTC);
+            ZoneOffsetTransition transition = rules.getTransition(local);
+            ZoneOffset offset = transition == null ? rules.getOffset(local) : transition.getOffsetBefore();
+            return localEpochSec - offset.getTotalSeconds();
+        }//end method
+
+        /**
+         * Finds the rate that starts at or before {@code low} and ends at or after {@code high}.
+         *
+         * @param low the latest allowed rate start in epoch seconds
+         * @param high the earliest allowed rate end in epoch seconds
+         * @return the index of the rate found, {@link ZoneIntervals#NOT_FOUND} or {@link ZoneIntervals#MULTIPLE}
+         */
+        int find(long low, long high) {
+            int idx = Arrays.binarySearch(starts, low);
+            if(idx < 0) {
+                idx = -idx - 2;//insertion point minus one
+            }else {
+                while(idx + 1 < starts.length && starts[idx + 1] == starts[idx]) {
+                    idx++;//move to the last rate with the same start
+                }//end while
+            }//end if
+
+            if(idx < 0 || maxEnds[idx] < high) {
+                return ZoneIntervals.NOT_FOUND;
+            }//end if
+            return nextMaxEnds[idx] >= high ? ZoneIntervals.MULTIPLE : maxEndIdx[idx];
+        }//end method
+
+    }//end inner class
+
+}//end class
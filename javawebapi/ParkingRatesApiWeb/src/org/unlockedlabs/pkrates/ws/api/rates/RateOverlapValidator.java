@@ -0,0 +1,193 @@
+/**
+ *
+ */
+package org.unlockedlabs.pkrates.ws.api.rates;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeSet;
+
+/**
+ * Validator used to reject a set of rates holding rates that overlap on the same day.
+ *
+ * <p>Rates are placed on a date the same way {@link RateIndex#findPrice(java.time.ZonedDateTime, java.time.ZonedDateTime)} places them: the rate times
+ * are taken on the local date within each rate's own time zone. Every rate of a day is normalized into an interval of seconds on a common time line
+ * and the intervals are sorted by start and swept once, keeping the intervals still open in a queue ordered by end, so a day of {@code n} rates is
+ * checked in O(n log n). Two rates overlap when one starts before the other ends, so a rate ending at 1200 and a rate starting at 1200 do not.</p>
+ *
+ * <p>Rates sharing a time zone are compared using their local times. Rates of different zones are compared using every combination of zone offsets
+ * found over the coming year, so a pair of zones that move to daylight saving time on different dates is checked with each of their offsets.</p>
+ *
+ * @author Richard Salas
+ * @version 1.0.0
+ */
+public final class RateOverlapValidator {
+
+    /**
+     * The number of conflicting pairs after which the validator stops looking for more.
+     */
+    public static final int MAX_CONFLICTS = 100;
+
+    private static final Day[] DAYS = Day.values();
+    private static final long BIAS = 1L << 20;//keeps shifted seconds positive when packed with an index
+    private static final Duration HORIZON = Duration.ofDays(366);
+
+    /**
+     * Constructor is private as this class only holds static methods.
+     */
+    private RateOverlapValidator() {
+    }//end constructor
+
+    /**
+     * Validates that no two of the given {@code rates} overlap on the same day.
+     *
+     * @param rates the rates to validate
+     * @throws RateConflictException if any two rates overlap
+     */
+    public static void validate(List<RateDO> rates) throws RateConflictException {
+        List<RateConflictException.Conflict> conflicts = findConflicts(rates);
+        if(!conflicts.isEmpty()) {
+            throw new RateConflictException(conflicts);
+        }//end if
+    }//end method
+
+    /**
+     * Finds the pairs of the given {@code rates} that overlap on the same day, stopping after {@link #MAX_CONFLICTS} pairs.
+     *
+     * @param rates the rates to check
+     * @return the conflicting pairs in the order they were found, empty if no rates overlap
+     */
+    public static List<RateConflictException.Conflict> findConflicts(List<RateDO> rates) {
+        List<ZoneId> zones = new ArrayList<>();
+        int[] zoneOfRate = new int[rates.size()];
+        for(int i = 0;i < rates.size();i++) {
+            ZoneId zone = rates.get(i).getZoneId();
+            int z = zones.indexOf(zone);
+            if(z < 0) {
+                z = zones.size();
+                zones.add(zone);
+            }//end if
+            zoneOfRate[i] = z;
+        }//end for
+        List<int[]> shifts = findOffsetShifts(zones);
+
+        Map<Long, EnumSet<Day>> pairs = new LinkedHashMap<>();//first index << 32 | second index -> days the pair overlaps on
+        int[] dayRates = new int[rates.size()];
+        for(int d = 0;d < DAYS.length && pairs.size() < MAX_CONFLICTS;d++) {
+            int count = 0;
+            for(int i = 0;i < rates.size();i++) {
+                RateDO rateDO = rates.get(i);
+                if(rateDO.getDays().contains(DAYS[d]) && rateDO.getTimes().getStartTm().isBefore(rateDO.getTimes().getEndTm())) {
+                    dayRates[count++] = i;//a rate ending before it starts never contains a range
+                }//end if
+            }//end for
+            for(int s = 0;s < shifts.size() && count > 1 && pairs.size() < MAX_CONFLICTS;s++) {
+                sweep(rates, dayRates, count, zoneOfRate, shifts.get(s), DAYS[d], pairs);
+            }//end for
+        }//end for
+
+        List<RateConflictException.Conflict> conflicts = new ArrayList<>(pairs.size());
+        for(Map.Entry<Long, EnumSet<Day>> entry : pairs.entrySet()) {
+            long key = entry.getKey();
+            conflicts.add(new RateConflictException.Conflict(rates.get((int) (key >>> 32)), rates.get((int) key), new TreeSet<>(entry.getValue())));
+        }//end for
+        return conflicts;
+    }//end method
+
+    /**
+     * Helper method used to sweep the rates of a single day placed on the time line with the given zone {@code shift}.
+     *
+     * @param rates the rates being checked
+     * @param dayRates the indexes of the rates of the day
+     * @param count the number of rates of the day
+     * @param zoneOfRate the zone index of each rate
+     * @param shift the offset of each zone from the first zone in seconds
+     * @param day the day being swept
+     * @param pairs the conflicting pairs found so far
+     */
+    private static void sweep(List<RateDO> rates, int[] dayRates, int count, int[] zoneOfRate, int[] shift, Day day, Map<Long, EnumSet<Day>> pairs) {
+        long[] starts = new long[count];//start << 32 | rate index so a primitive sort orders the rates by start
+        int[] ends = new int[rates.size()];
+        for(int k = 0;k < count;k++) {
+            int i = dayRates[k];
+            TimeRange times = rates.get(i).getTimes();
+            int start = times.getStartTm().toSecondOfDay() - shift[zoneOfRate[i]];
+            ends[i] = times.getEndTm().toSecondOfDay() - shift[zoneOfRate[i]];
+            starts[k] = ((start + BIAS) << 32) | i;
+        }//end for
+        Arrays.sort(starts);
+
+        PriorityQueue<Long> open = new PriorityQueue<>();//end << 32 | rate index of the rates not yet ended
+        for(long packed : starts) {
+            int i = (int) packed;
+            long start = (packed >>> 32) - BIAS;
+            while(!open.isEmpty() && (open.peek() >>> 32) - BIAS <= start) {
+                open.poll();
+            }//end while
+            for(long other : open) {
+                int j = (int) other;
+                long key = j < i ? ((long) j << 32) | i : ((long) i << 32) | j;
+                EnumSet<Day> days = pairs.get(key);
+                if(days == null) {
+                    if(pairs.size() >= MAX_CONFLICTS) {
+                        return;
+                    }//end if
+                    pairs.put(key, days = EnumSet.noneOf(Day.class));
+                }//end if
+                days.add(day);
+            }//end for
+            open.add(((ends[i] + BIAS) << 32) | i);
+        }//end for
+    }//end method
+
+    /**
+     * Helper method used to find every distinct combination of zone offsets over the coming year, each relative to the offset of the first zone.
+     *
+     * @param zones the zones of the rates
+     * @return the offsets of each zone from the first zone in seconds, one array per combination
+     */
+    private static List<int[]> findOffsetShifts(List<ZoneId> zones) {
+        List<int[]> shifts = new ArrayList<>();
+        if(zones.size() < 2) {
+            shifts.add(new int[zones.size()]);//local times of a single zone are compared as is
+            return shifts;
+        }//end if
+
+        Instant from = Instant.now();
+        Instant until = from.plus(HORIZON);
+        TreeSet<Instant> instants = new TreeSet<>();
+        instants.add(from);
+        for(ZoneId zone : zones) {
+            ZoneRules rules = zone.getRules();
+            for(ZoneOffsetTransition transition = rules.nextTransition(from);transition != null && transition.getInstant().isBefore(until);transition = rules.nextTransition(transition.getInstant())) {
+                instants.add(transition.getInstant());
+            }//end for
+        }//end for
+        for(Instant instant : instants) {
+            int base = zones.get(0).getRules().getOffset(instant).getTotalSeconds();
+            int[] shift = new int[zones.size()];
+            for(int z = 1;z < zones.size();z++) {
+                shift[z] = zones.get(z).getRules().getOffset(instant).getTotalSeconds() - base;
+            }//end for
+            boolean seen = false;
+            for(int i = 0;i < shifts.size() && !seen;i++) {
+                seen = Arrays.equals(shifts.get(i), shift);
+            }//end for
+            if(!seen) {
+                shifts.add(shift);
+            }//end if
+        }//end for
+        return shifts;
+    }//end method
+
+}//end class
@@ -0,0 +1,155 @@
+/**
+ *
+ */
+package org.unlockedlabs.pkrates.ws.api.rates;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Immutable snapshot of a rate set along with its compiled {@link RateIndex}.
+ *
+ * <p>A snapshot is never modified once created. A reload creates a new snapshot and publishes it with a single reference swap, so readers always see either the old or
+ * the new rate set as a whole and never need to lock or copy.</p>
+ *
+ * <p>Each snapshot carries the instant its rates went into force, which orders the versions kept by the {@link RateHistory}, and the CRC-32 of the
+ * seed file contents its rates were last loaded from, so a seed file changed while the service was stopped is noticed when it starts again.</p>
+ *
+ * @author Richard Salas
+ * @version 1.0.0
+ */
+public final class RateSnapshot {
+
+    /**
+     * Snapshot that does not contain any rates.
+     */
+    public static final RateSnapshot EMPTY = new RateSnapshot(0L, Collections.<RateDO>emptyList(), RateIndex.EMPTY, Instant.EPOCH);
+
+    /**
+     * Seed checksum of a snapshot whose rates were not loaded from a seed file.
+     */
+    public static final long NO_SEED = -1L;
+
+    private static final int RATE_SIZE = 256;//RateDO, its TimeRange and day set
+
+    private final long version;
+    private final List<RateDO> rates;
+    private final RateIndex rateIndex;
+    private final Instant effectiveFrom;
+    private final long seedChecksum;
+
+    /**
+     * Constructor used to create an instance of RateSnapshot using the given {@code version}, {@code rates}, {@code rateIndex} and
+     * {@code effectiveFrom}.
+     *
+     * @param version the version of this rate set
+     * @param rates the list of {@code RateDO}s within this rate set
+     * @param rateIndex the compiled index of the {@code rates}
+     * @param effectiveFrom the instant this rate set went into force
+     */
+    public RateSnapshot(long version, List<RateDO> rates, RateIndex rateIndex, Instant effectiveFrom) {
+        this(version, rates, rateIndex, effectiveFrom, NO_SEED);
+    }//end constructor
+
+    /**
+     * Constructor used to create an instance of RateSnapshot using the given {@code version}, {@code rates}, {@code rateIndex}, {@code effectiveFrom}
+     * and {@code seedChecksum}.
+     *
+     * @param version the version of this rate set
+     * @param rates the list of {@code RateDO}s within this rate set
+     * @param rateIndex the compiled index of the {@code rates}
+     * @param effectiveFrom the instant this rate set went into force
+     * @param seedChecksum the CRC-32 of the seed file contents last loaded or {@link #NO_SEED}
+     */
+    public RateSnapshot(long version, List<RateDO> rates, RateIndex rateIndex, Instant effectiveFrom, long seedChecksum) {
+        this.version = version;
+        this.rates = Collections.unmodifiableList(new ArrayList<>(rates));
+        this.rateIndex = rateIndex;
+        this.effectiveFrom = effectiveFrom;
+        this.seedChecksum = seedChecksum;
+    }//end constructor
+
+    /**
+     * Estimates the number of bytes held by this snapshot, counting its compiled index and its rates.
+     *
+     * @return the estimated size in bytes
+     */
+    long estimateSize() {
+        return estimateSize(Collections.newSetFromMap(new IdentityHashMap<>()));
+    }//end method
+
+    /**
+     * Estimates the number of bytes held by this snapshot that are not within the given {@code counted} set, then adds them to it. Snapshots compiled
+     * one after another share their unchanged rates and compiled days, which are counted only once when the same set is passed for each snapshot.
+     *
+     * @param counted the identity set of the objects already counted
+     * @return the estimated size in bytes
+     */
+    long estimateSize(Set<Object> counted) {
+        long size = rateIndex.estimateSize(counted) + 16L + 4L * rates.size();
+        for(RateDO rateDO : rates) {
+            if(counted.add(rateDO)) {
+                size += RATE_SIZE;
+            }//end if
+        }//end for
+        return size;
+    }//end method
+
+    /**
+     * @return the version
+     */
+    public long getVersion() {
+        return version;
+    }//end method
+
+    /**
+     * @return the unmodifiable list of rates
+     */
+    public List<RateDO> getRates() {
+        return rates;
+    }//end method
+
+    /**
+     * @return the rateIndex
+     */
+    public RateIndex getRateIndex() {
+        return rateIndex;
+    }//end method
+
+    /**
+     * @return the instant this rate set went into force
+     */
+    public Instant getEffectiveFrom() {
+        return effectiveFrom;
+    }//end method
+
+    /**
+     * @return the CRC-32 of the seed file contents last loaded or {@link #NO_SEED}
+     */
+    public long getSeedChecksum() {
+        return seedChecksum;
+    }//end method
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("RateSnapshot [version=");
+        builder.append(version);
+        builder.append(", effectiveFrom=");
+        builder.append(effectiveFrom);
+        builder.append(", seedChecksum=");
+        builder.append(seedChecksum);
+        builder.append(", rates=");
+        builder.append(rates);
+        builder.append("]");
+        return builder.toString();
+    }//end method
+
+}//end class
@@ -0,0 +1,274 @@
+/**
+ *
+ */
+package org.unlockedlabs.pkrates.ws.api.rates;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.zip.CRC32;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Store of binary rate snapshot files, each holding a rate set along with its compiled {@link RateIndex}.
+ *
+ * <p>A snapshot is written to a temporary file, forced to disk and then renamed into place, so a snapshot file is either complete or missing. Files are
+ * named {@code rates-<version>.snap} and only the newest snapshots are kept. Restoring a snapshot memory maps the file, checks its checksum and copies the
+ * compiled tables straight back into memory without parsing JSON or compiling the rates again.</p>
+ *
+ * <p>The file starts with a header holding the magic number, the format version, the snapshot version, the length of the body and a CRC-32 of the body.
+ * The body holds the effective instant of the snapshot and the rates followed by the compiled index written by
+ * {@link RateIndex#writeTo(java.io.DataOutput, List)}, with the seed file checksum of the snapshot written after its effective instant. A file of any
+ * other format version is rejected.</p>
+ *
+ * @author Richard Salas
+ * @version 1.0.0
+ */
+public class RateSnapshotStore {
+
+    private static final Logger myLogger = Logger.getLogger("org.unlockedlabs.pkrates.ws.api.rates.RateSnapshotStore");
+
+    private static final int MAGIC = 0x504B5253;//"PKRS"
+    private static final short FORMAT_VERSION = 1;
+    private static final int HEADER_SIZE = 24;
+    private static final String PREFIX = "rates-";
+    private static final String SUFFIX = ".snap";
+    private static final Day[] DAYS = Day.values();
+
+    private final Path directory;
+    private final int maxSnapshots;
+
+    /**
+     * Constructor used to create an instance of RateSnapshotStore using the given {@code directory}.
+     *
+     * @param directory the directory holding the snapshot files
+     * @param maxSnapshots the number of snapshot files kept before the oldest is deleted
+     */
+    public RateSnapshotStore(Path directory, int maxSnapshots) {
+        this.directory = directory;
+        this.maxSnapshots = Math.max(1, maxSnapshots);
+    }//end constructor
+
+    /**
+     * Writes the given {@code snapshot} to a new snapshot file and deletes the oldest snapshot files beyond the maximum.
+     *
+     * @param snapshot the snapshot to save
+     * @return the snapshot file written
+     * @throws IOException if the snapshot can not be written
+     */
+    public Path save(RateSnapshot snapshot) throws IOException {
+        if(myLogger.isDebugEnabled()){
+            myLogger.debug("Entering save() which is used for writing a rate snapshot file. Incoming parameter is snapshot=" + String.valueOf(snapshot));
+        }//end if
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream(8192);
+        try(DataOutputStream out = new DataOutputStream(body)) {
+            out.writeLong(snapshot.getEffectiveFrom().getEpochSecond());
+            out.writeInt(snapshot.getEffectiveFrom().getNano());
+            out.writeLong(snapshot.getSeedChecksum());
+            List<RateDO> rates = snapshot.getRates();
+            out.writeInt(rates.size());
+            for(RateDO rateDO : rates) {
+                int days = 0;
+                for(Day day : rateDO.getDays()) {
+                    days |= 1 << day.ordinal();
+                }//end for
+                out.writeByte(days);
+                out.writeInt(rateDO.getTimes().getStartTm().toSecondOfDay());
+                out.writeInt(rateDO.getTimes().getEndTm().toSecondOfDay());
+                out.writeInt(rateDO.getPrice());
+                out.writeUTF(rateDO.getTz().getID());
+            }//end for
+            snapshot.getRateIndex().writeTo(out, rates);
+        }//end try
+        byte[] bodyBytes = body.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(bodyBytes, 0, bodyBytes.length);
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putShort(FORMAT_VERSION).putShort((short) 0).putLong(snapshot.getVersion()).putInt(bodyBytes.length).putInt((int) crc.getValue());
+        header.flip();
+
+        Files.createDirectories(directory);
+        Path target = directory.resolve(PREFIX + String.format("%019d", snapshot.getVersion()) + SUFFIX);
+        Path temp = Files.createTempFile(directory, PREFIX, ".tmp");
+        try {
+            try(FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer bodyBuffer = ByteBuffer.wrap(bodyBytes);
+                while(header.hasRemaining() || bodyBuffer.hasRemaining()) {
+                    channel.write(new ByteBuffer[]{header, bodyBuffer});
+                }//end while
+                channel.force(true);//the contents are on disk before the rename makes the file visible
+            }//end try
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            }catch(AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }//end try...catch
+        }finally {
+            Files.deleteIfExists(temp);
+        }//end try...finally
+
+        List<Path> files = listSnapshots();
+        for(int i = 0;i < files.size() - maxSnapshots;i++) {
+            Files.deleteIfExists(files.get(i));
+        }//end for
+
+        if(myLogger.isDebugEnabled()){
+            myLogger.debug("Exiting save() method. Return value is target=" + String.valueOf(target));
+        }//end if
+        return target;
+    }//end method
+
+    /**
+     * Restores every valid snapshot, oldest first. Snapshot files that can not be read, or that went into force before an older snapshot, are logged
+     * and skipped.
+     *
+     * @return the valid snapshots ordered by version, empty if there are none
+     */
+    public List<RateSnapshot> loadAll() {
+        if(myLogger.isDebugEnabled()){
+            myLogger.debug("Entering loadAll() which is used for restoring every valid rate snapshot. No incoming parameters.");
+        }//end if
+
+        List<RateSnapshot> snapshots = new ArrayList<>();
+        try {
+            for(Path file : listSnapshots()) {
+                try {
+                    RateSnapshot snapshot = load(file);
+                    if(!snapshots.isEmpty() && snapshot.getEffectiveFrom().isBefore(snapshots.get(snapshots.size() - 1).getEffectiveFrom())) {
+                        myLogger.warn("Skipping the rate snapshot file " + file + " as it went into force before the previous snapshot.");
+                        continue;
+                    }//end if
+                    snapshots.add(snapshot);
+                }catch(IOException | RuntimeException e) {
+                    myLogger.warn("Skipping the invalid rate snapshot file " + file + ". Error message is: " + e.getMessage());
+                }//end try...catch
+            }//end for
+        }catch(IOException e) {
+            myLogger.error("IOException occurred while listing the rate snapshot files. Value of interest is directory=" + directory + " Error message is: " + e.getMessage(), e);
+        }//end try...catch
+
+        if(myLogger.isDebugEnabled()){
+            myLogger.debug("Exiting loadAll() method. Return value is snapshots.size()=" + snapshots.size());
+        }//end if
+        return snapshots;
+    }//end method
+
+    /**
+     * Restores the snapshot held within the given {@code file}.
+     *
+     * @param file the snapshot file
+     * @return the restored snapshot
+     * @throws IOException if the file can not be read or is not a valid snapshot
+     */
+    public RateSnapshot load(Path file) throws IOException {
+        MappedByteBuffer buffer;
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0L, channel.size());
+        }//end try
+        if(buffer.limit() < HEADER_SIZE || buffer.getInt() != MAGIC) {
+            throw new IOException(file + " is not a rate snapshot file.");
+        }//end if
+        if(buffer.getShort() != FORMAT_VERSION) {
+            throw new IOException(file + " uses an unsupported snapshot format.");
+        }//end if
+        buffer.getShort();//reserved
+        long version = buffer.getLong();
+        int bodyLength = buffer.getInt();
+        int expectedCrc = buffer.getInt();
+        if(bodyLength < 0 || bodyLength != buffer.remaining()) {
+            throw new IOException(file + " is truncated.");
+        }//end if
+        CRC32 crc = new CRC32();
+        crc.update(buffer.duplicate());
+        if((int) crc.getValue() != expectedCrc) {
+            throw new IOException(file + " failed its checksum.");
+        }//end if
+
+        Instant effectiveFrom = Instant.ofEpochSecond(buffer.getLong(), buffer.getInt());
+        long seedChecksum = buffer.getLong();
+        Map<String, RateDO> zones = new HashMap<>();//rates share the TimeZone and ZoneId of the same id instead of each looking it up
+        int rateCount = buffer.getInt();
+        List<RateDO> rates = new ArrayList<>(Math.max(0, Math.min(rateCount, buffer.remaining() / 15)));
+        for(int i = 0;i < rateCount;i++) {
+            int days = buffer.get() & 0xFF;
+            EnumSet<Day> daySet = EnumSet.noneOf(Day.class);
+            for(Day day : DAYS) {
+                if((days & (1 << day.ordinal())) != 0) {
+                    daySet.add(day);
+                }//end if
+            }//end for
+            RateDO rateDO = new RateDO();
+            rateDO.setDays(daySet);
+            rateDO.setTimes(new TimeRange(LocalTime.ofSecondOfDay(buffer.getInt()), LocalTime.ofSecondOfDay(buffer.getInt())));
+            rateDO.setPrice(buffer.getInt());
+            String tz = RateIndex.readUTF(buffer);
+            RateDO sameZone = zones.putIfAbsent(tz, rateDO);
+            if(sameZone != null) {
+                rateDO.setTz(sameZone.getTz(), sameZone.getZoneId());
+            }else {
+                rateDO.setTz(TimeZone.getTimeZone(tz));
+            }//end if
+            rates.add(rateDO);
+        }//end for
+        RateIndex rateIndex = RateIndex.readFrom(buffer, rates);
+        if(buffer.hasRemaining()) {
+            throw new IOException(file + " holds unexpected trailing bytes.");
+        }//end if
+        return new RateSnapshot(version, rates, rateIndex, effectiveFrom, seedChecksum);
+    }//end method
+
+    /**
+     * Helper method used to list the snapshot files ordered oldest first.
+     *
+     * @return the snapshot files
+     * @throws IOException if the directory can not be read
+     */
+    private List<Path> listSnapshots() throws IOException {
+        List<Path> files = new ArrayList<>();
+        if(Files.isDirectory(directory)) {
+            try(DirectoryStream<Path> stream = Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX)) {
+                for(Path file : stream) {
+                    files.add(file);
+                }//end for
+            }//end try
+        }//end if
+        Collections.sort(files);//the versions are zero padded so the names sort by version
+        return files;
+    }//end method
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("RateSnapshotStore [directory=");
+        builder.append(directory);
+        builder.append(", maxSnapshots=");
+        builder.append(maxSnapshots);
+        builder.append("]");
+        return builder.toString();
+    }//end method
+
+}//end class
@@ -0,0 +1,328 @@
+/**
+ *
+ */
+package org.unlockedlabs.pkrates.ws.api.rates;
+
+import java.io.IOException;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TimeZone;
+import java.util.TreeSet;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Streaming reader of an upload of parking rates, such as {@code {"rates":[{"days":"mon,tues","times":"0900-2100","tz":"America/Chicago","price":1500}]}}.
+ *
+ * <p>The upload is read token by token and each rate is converted straight into its {@link RateDO} form, so no {@link RateModel} or {@link RateDTO}
+ * list is ever built. The rates of an upload share their day sets, time ranges and time zones, so the memory needed grows with the number of
+ * rates by little more than the {@code RateDO} instances themselves. The rates are read the same way as {@link RateDTO#toDO()} converts them, and
+ * unknown fields are skipped just like the JSON mapper does.</p>
+ *
+ * <p>A parser instance reads a single upload.</p>
+ *
+ * @author Richard Salas
+ * @version 1.0.0
+ */
+public final class RateStreamParser {
+
+    private static final Day[] DAYS = Day.values();
+
+    private final int maxRates;
+    private final List<RateDO> rates = new ArrayList<>();
+    private final List<SortedSet<Day>> daySets = new ArrayList<>(Collections.nCopies(1 << DAYS.length, (SortedSet<Day>) null));//day set of each mask of days
+    private final Map<Integer, TimeRange> timeRanges = new HashMap<>();//time range of each start and end minute
+    private final Map<String, RateDO> zones = new HashMap<>();//first rate of each time zone id
+
+    /**
+     * Constructor used to create an instance of RateStreamParser.
+     *
+     * @param maxRates the largest number of rates an upload may hold
+     */
+    public RateStreamParser(int maxRates) {
+        this.maxRates = maxRates;
+    }//end constructor
+
+    /**
+     * Reads the upload from the given {@code parser}.
+     *
+     * @param parser the parser positioned before the upload
+     * @return the rates of the upload in the order they were read
+     * @throws IOException if the upload can not be read or is not well formed
+     * @throws RateUploadTooLargeException if the upload holds more rates than allowed
+     * @throws IllegalArgumentException if the upload has no rates field or a rate can not be converted
+     */
+    public List<RateDO> parse(JsonParser parser) throws IOException {
+        expect(parser, parser.nextToken(), JsonToken.START_OBJECT);
+        boolean found = false;
+        while(parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            JsonToken token = parser.nextToken();
+            if("rates".equals(name) && token != JsonToken.VALUE_NULL) {
+                expect(parser, token, JsonToken.START_ARRAY);
+                rates.clear();//the last rates field wins like with the JSON mapper
+                while((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                    if(rates.size() >= maxRates) {
+                        throw new RateUploadTooLargeException("The upload holds more than the " + maxRates + " rates allowed.");
+                    }//end if
+                    expect(parser, token, JsonToken.START_OBJECT);
+                    rates.add(readRate(parser));
+                }//end while
+                found = true;
+            }else {
+                parser.skipChildren();
+            }//end if
+        }//end while
+        expect(parser, parser.currentToken(), JsonToken.END_OBJECT);
+        if(!found) {
+            throw new IllegalArgumentException("The upload does not have any rates.");
+        }//end if
+        return rates;
+    }//end method
+
+    /**
+     * Helper method used to read the fields of a single rate and convert it.
+     *
+     * @param parser the parser positioned at the start of the rate
+     * @return the converted rate
+     * @throws IOException if the rate can not be read
+     */
+    private RateDO readRate(JsonParser parser) throws IOException {
+        String days = null;
+        String times = null;
+        String tz = null;
+        int price = 0;
+        while(parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            parser.nextToken();
+            if("days".equals(name)) {
+                days = readText(parser);
+            }else if("times".equals(name)) {
+                times = readText(parser);
+            }else if("tz".equals(name)) {
+                tz = readText(parser);
+            }else if("price".equals(name)) {
+                price = readInt(parser);
+            }else {
+                parser.skipChildren();
+            }//end if
+        }//end while
+        if(days == null || times == null || tz == null) {
+            throw new IllegalArgumentException("Rate number " + (rates.size() + 1) + " is missing its days, times or tz.");
+        }//end if
+
+        RateDO sameZone = zones.get(tz);
+        if(sameZone == null) {
+            TimeZone timeZone = TimeZone.getTimeZone(tz);
+            if("GMT".equals(timeZone.getID())) {
+                throw new IllegalArgumentException("Given TimeZone of " + tz + " not understood.");
+            }//end if
+            RateDO rateDO = new RateDO(toDays(days), toTimes(times), timeZone, timeZone.toZoneId(), price);
+            zones.put(tz, rateDO);
+            return rateDO;
+        }//end if
+        return new RateDO(toDays(days), toTimes(times), sameZone.getTz(), sameZone.getZoneId(), price);
+    }//end method
+
+    /**
+     * Helper method used to get the shared day set of the comma separated day abbreviations within the given {@code text}, ignoring their case and
+     * the blanks around them.
+     *
+     * @param text the day abbreviations, such as {@code mon,tues}
+     * @return the day set
+     * @throws IllegalArgumentException if a day is not understood
+     */
+    private SortedSet<Day> toDays(String text) {
+        int mask = 0;
+        int start = 0;
+        while(start < text.length()) {
+            int end = text.indexOf(',', start);
+            if(end < 0) {
+                end = text.length();
+            }//end if
+            int from = start;
+            int to = end;
+            while(from < to && Character.isWhitespace(text.charAt(from))) {
+                from++;
+            }//end while
+            while(to > from && Character.isWhitespace(text.charAt(to - 1))) {
+                to--;
+            }//end while
+            int day = indexOfDay(text, from, to);
+            if(day < 0) {
+                throw new IllegalArgumentException("Day " + text.substring(from, to) + " of " + text + " not understood.");
+            }//end if
+            mask |= 1 << day;
+            start = end + 1;
+        }//end while
+        if(mask == 0) {
+            throw new IllegalArgumentException("Days " + text + " not understood.");
+        }//end if
+
+        SortedSet<Day> days = daySets.get(mask);
+        if(days == null) {
+            EnumSet<Day> set = EnumSet.noneOf(Day.class);
+            for(Day day : DAYS) {
+                if((mask & (1 << day.ordinal())) != 0) {
+                    set.add(day);
+                }//end if
+            }//end for
+            days = Collections.unmodifiableSortedSet(new TreeSet<>(set));
+            daySets.set(mask, days);
+        }//end if
+        return days;
+    }//end method
+
+    /**
+     * Helper method used to find the day abbreviation held by the given range of the {@code text}.
+     *
+     * @param text the text holding the abbreviation
+     * @param from the start of the abbreviation
+     * @param to the end of the abbreviation
+     * @return the ordinal of the day or -1 if the abbreviation is not understood
+     */
+    private static int indexOfDay(String text, int from, int to) {
+        for(Day day : DAYS) {
+            String name = day.name();
+            if(name.length() == to - from && name.regionMatches(true, 0, text, from, to - from)) {
+                return day.ordinal();
+            }//end if
+        }//end for
+        return -1;
+    }//end method
+
+    /**
+     * Helper method used to get the shared time range of the given {@code text}.
+     *
+     * @param text the start and end times separated by a dash, such as {@code 0900-2100}
+     * @return the time range
+     * @throws IllegalArgumentException if the times are not understood
+     */
+    private TimeRange toTimes(String text) {
+        int dash = text.indexOf('-');
+        if(dash < 0) {
+            throw new IllegalArgumentException("Times " + text + " not understood.");
+        }//end if
+        int next = text.indexOf('-', dash + 1);
+        int start = toMinuteOfDay(text, 0, dash);
+        int end = toMinuteOfDay(text, dash + 1, next < 0 ? text.length() : next);//anything after a second dash is ignored like before
+        TimeRange times = timeRanges.get(start * 1440 + end);
+        if(times == null) {
+            times = new TimeRange(LocalTime.of(start / 60, start % 60), LocalTime.of(end / 60, end % 60));
+            timeRanges.put(start * 1440 + end, times);
+        }//end if
+        return times;
+    }//end method
+
+    /**
+     * Helper method used to read a time of the {@code HHmm} form held by the given range of the {@code text}, ignoring the blanks around it.
+     *
+     * @param text the text holding the time
+     * @param from the start of the time
+     * @param to the end of the time
+     * @return the minute of the day, where {@code 2400} is midnight
+     * @throws IllegalArgumentException if the time is not understood
+     */
+    private static int toMinuteOfDay(String text, int from, int to) {
+        while(from < to && Character.isWhitespace(text.charAt(from))) {
+            from++;
+        }//end while
+        while(to > from && Character.isWhitespace(text.charAt(to - 1))) {
+            to--;
+        }//end while
+        if(to - from != 4) {
+            throw new IllegalArgumentException("Time " + text.substring(from, to) + " of " + text + " not understood.");
+        }//end if
+        int value = 0;
+        for(int i = from;i < to;i++) {
+            char c = text.charAt(i);
+            if(c < '0' || c > '9') {
+                throw new IllegalArgumentException("Time " + text.substring(from, to) + " of " + text + " not understood.");
+            }//end if
+            value = value * 10 + (c - '0');
+        }//end for
+        int hour = value / 100;
+        int minute = value % 100;
+        if(hour == 24 && minute == 0) {
+            return 0;//parsed as midnight like before
+        }else if(hour > 23 || minute > 59) {
+            throw new IllegalArgumentException("Time " + text.substring(from, to) + " of " + text + " not understood.");
+        }//end if
+        return hour * 60 + minute;
+    }//end method
+
+    /**
+     * Helper method used to read the current value as text.
+     *
+     * @param parser the parser positioned at the value
+     * @return the text or null for a null value
+     * @throws IOException if the value is not a scalar
+     */
+    private static String readText(JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken();
+        if(token == JsonToken.VALUE_NULL) {
+            return null;
+        }else if(!token.isScalarValue()) {
+            throw new JsonParseException(parser, "Expected text but found " + token);
+        }//end if
+        return parser.getValueAsString();
+    }//end method
+
+    /**
+     * Helper method used to read the current value as an int, accepting a number or a numeric string like the JSON mapper does.
+     *
+     * @param parser the parser positioned at the value
+     * @return the value or 0 for a null value
+     * @throws IOException if the value is not a number
+     */
+    private static int readInt(JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken();
+        if(token == JsonToken.VALUE_NUMBER_INT) {
+            return parser.getIntValue();
+        }else if(token == JsonToken.VALUE_NUMBER_FLOAT) {
+            return parser.getValueAsInt();
+        }else if(token == JsonToken.VALUE_STRING) {
+            return Integer.parseInt(parser.getText().trim());
+        }else if(token == JsonToken.VALUE_NULL) {
+            return 0;
+        }//end if
+        throw new JsonParseException(parser, "Expected a number but found " + token);
+    }//end method
+
+    /**
+     * Helper method used to check that the given {@code token} is the expected one.
+     *
+     * @param parser the parser
+     * @param token the token read
+     * @param expected the token expected
+     * @throws JsonParseException if the token is not the expected one
+     */
+    private static void expect(JsonParser parser, JsonToken token, JsonToken expected) throws JsonParseException {
+        if(token != expected) {
+            throw new JsonParseException(parser, "Expected " + expected + " but found " + token);
+        }//end if
+    }//end method
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("RateStreamParser [maxRates=");
+        builder.append(maxRates);
+        builder.append(", rates=");
+        builder.append(rates.size());
+        builder.append("]");
+        return builder.toString();
+    }//end method
+
+}//end class
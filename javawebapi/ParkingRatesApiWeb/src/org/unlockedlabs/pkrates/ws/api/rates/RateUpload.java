@@ -0,0 +1,47 @@
+/**
+ *
+ */
+package org.unlockedlabs.pkrates.ws.api.rates;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Upload of parking rates read by the {@link RateStreamParser} straight into their {@link RateDO} form.
+ *
+ * @author Richard Salas
+ * @version 1.0.0
+ */
+public final class RateUpload {
+
+    private final List<RateDO> rates;
+
+    /**
+     * Constructor used to create an instance of RateUpload using the given {@code rates}.
+     *
+     * @param rates the uploaded rates
+     */
+    public RateUpload(List<RateDO> rates) {
+        this.rates = Collections.unmodifiableList(rates);
+    }//end constructor
+
+    /**
+     * @return the uploaded rates
+     */
+    public List<RateDO> getRates() {
+        return rates;
+    }//end method
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("RateUpload [rates=");
+        builder.append(rates.size());//an upload may hold far too many rates to log
+        builder.append("]");
+        return builder.toString();
+    }//end method
+
+}//end class
@@ -0,0 +1,30 @@
+/**
+ *
+ */
+package org.unlockedlabs.pkrates.ws.api.rates;
+
+import java.io.IOException;
+
+/**
+ * RateUploadTooLargeException is thrown when an upload of rates holds more bytes or more rates than allowed, so it is rejected before it is read
+ * any further.
+ *
+ * <p>As an {@code IOException} it can be thrown while the body of the upload is still being read from the request.</p>
+ *
+ * @author Richard Salas
+ * @version 1.0.0
+ */
+public class RateUploadTooLargeException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Constructor used to create an instance of RateUploadTooLargeException using the given {@code message}.
+     *
+     * @param message the message naming the limit exceeded
+     */
+    public RateUploadTooLargeException(String message) {
+        super(message);
+    }//end constructor
+
+}//end class
@@ -0,0 +1,120 @@
+/**
+ *
+ */
+package org.unlockedlabs.pkrates.ws.api.rates;
+
+/**
+ * Rate Version class used for describing a rate set version kept in the history.
+ *
+ * <p>The instants are ISO-8601 instants in UTC, {@code effectiveUntil} is absent for the current version. The {@code estimatedBytes} are those held by
+ * this version alone, the rates and compiled days it shares with the previous version are counted there.</p>
+ *
+ * @author Richard Salas
+ * @version 1.0.0
+ */
+public class RateVersion {
+
+    private long version;
+    private String effectiveFrom;
+    private String effectiveUntil;
+    private int rates;
+    private long estimatedBytes;
+
+    /**
+     * Constructor used to create a RateVersion instance.
+     */
+    public RateVersion() {
+
+    }//end constructor
+
+    /**
+     * @return the version
+     */
+    public long getVersion() {
+        return version;
+    }//end method
+
+    /**
+     * @param version the version to set
+     */
+    public void setVersion(long version) {
+        this.version = version;
+    }//end method
+
+    /**
+     * @return the effectiveFrom
+     */
+    public String getEffectiveFrom() {
+        return effectiveFrom;
+    }//end method
+
+    /**
+     * @param effectiveFrom the effectiveFrom to set
+     */
+    public void setEffectiveFrom(String effectiveFrom) {
+        this.effectiveFrom = effectiveFrom;
+    }//end method
+
+    /**
+     * @return the effectiveUntil
+     */
+    public String getEffectiveUntil() {
+        return effectiveUntil;
+    }//end method
+
+    /**
+     * @param effectiveUntil the effectiveUntil to set
+     */
+    public void setEffectiveUntil(String effectiveUntil) {
+        this.effectiveUntil = effectiveUntil;
+    }//end method
+
+    /**
+     * @return the number of rates
+     */
+    public int getRates() {
+        return rates;
+    }//end method
+
+    /**
+     * @param rates the number of rates to set
+     */
+    public void setRates(int rates) {
+        this.rates = rates;
+    }//end method
+
+    /**
+     * @return the estimatedBytes
+     */
+    public long getEstimatedBytes() {
+        return estimatedBytes;
+    }//end method
+
+    /**
+     * @param estimatedBytes the estimatedBytes to set
+     */
+    public void setEstimatedBytes(long estimatedBytes) {
+        this.estimatedBytes = estimatedBytes;
+    }//end method
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("RateVersion [version=");
+        builder.append(version);
+        builder.append(", effectiveFrom=");
+        builder.append(effectiveFrom);
+        builder.append(", effectiveUntil=");
+        builder.append(effectiveUntil);
+        builder.append(", rates=");
+        builder.append(rates);
+        builder.append(", estimatedBytes=");
+        builder.append(estimatedBytes);
+        builder.append("]");
+        return builder.toString();
+    }//end method
+
+}//end class
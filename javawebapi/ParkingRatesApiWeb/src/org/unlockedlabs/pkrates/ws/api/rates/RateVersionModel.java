@@ -0,0 +1,86 @@
+/**
+ *
+ */
+package org.unlockedlabs.pkrates.ws.api.rates;
+
+import java.util.List;
+
+/**
+ * Rate Version Model class used for encapsulating the rate set {@code versions} kept in the history, oldest first, along with their total
+ * {@code estimatedBytes}.
+ *
+ * @author Richard Salas
+ * @version 1.0.0
+ */
+public class RateVersionModel {
+
+    private long current;
+    private long estimatedBytes;
+    private List<RateVersion> versions;
+
+    /**
+     * Constructor used to create a RateVersionModel instance.
+     */
+    public RateVersionModel() {
+
+    }//end constructor
+
+    /**
+     * @return the current version
+     */
+    public long getCurrent() {
+        return current;
+    }//end method
+
+    /**
+     * @param current the current version to set
+     */
+    public void setCurrent(long current) {
+        this.current = current;
+    }//end method
+
+    /**
+     * @return the estimatedBytes
+     */
+    public long getEstimatedBytes() {
+        return estimatedBytes;
+    }//end method
+
+    /**
+     * @param estimatedBytes the estimatedBytes to set
+     */
+    public void setEstimatedBytes(long estimatedBytes) {
+        this.estimatedBytes = estimatedBytes;
+    }//end method
+
+    /**
+     * @return the versions
+     */
+    public List<RateVersion> getVersions() {
+        return versions;
+    }//end method
+
+    /**
+     * @param versions the versions to set
+     */
+    public void setVersions(List<RateVersion> versions) {
+        this.versions = versions;
+    }//end method
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("RateVersionModel [current=");
+        builder.append(current);
+        builder.append(", estimatedBytes=");
+        builder.append(estimatedBytes);
+        builder.append(", versions=");
+        builder.append(versions);
+        builder.append("]");
+        return builder.toString();
+    }//end method
+
+}//end class
@@ -0,0 +1,238 @@
+/**
+ *
+ */
+package org.unlockedlabs.pkrates.ws.api.rates;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Immutable serialization of a single rate version, kept as plain JSON, CBOR and Smile bytes along with their compressed forms.
+ *
+ * <p>The entity tag is derived from a digest of the plain bytes, so it stays stable for the same rate set across restarts and changes whenever the rates change. The
+ * CBOR and Smile bytes and every compressed body are different representations and therefore carry their own entity tags. A body is compressed the first time it is
+ * asked for and the compressed bytes are kept along with the version, so repeated reads of the same version never compress again.</p>
+ *
+ * @author Richard Salas
+ * @version 1.0.0
+ */
+public final class SerializedRates {
+
+    /**
+     * The gzip content encoding.
+     */
+    public static final String GZIP = "gzip";
+
+    /**
+     * The deflate content encoding.
+     */
+    public static final String DEFLATE = "deflate";
+
+    /**
+     * The JSON format.
+     */
+    public static final String JSON = "json";
+
+    /**
+     * The CBOR format.
+     */
+    public static final String CBOR = "cbor";
+
+    /**
+     * The Smile format.
+     */
+    public static final String SMILE = "smile";
+
+    private final long version;
+    private final String entityTag;
+    private final byte[] json;
+    private final byte[] cbor;
+    private final byte[] smile;
+    private final ConcurrentMap<String, byte[]> compressedBodies = new ConcurrentHashMap<>(4);
+
+    /**
+     * Constructor used to create an instance of SerializedRates.
+     *
+     * @param version the rate version that was serialized
+     * @param entityTag the entity tag of the plain bytes
+     * @param json the plain JSON bytes
+     * @param cbor the CBOR bytes
+     * @param smile the Smile bytes
+     */
+    private SerializedRates(long version, String entityTag, byte[] json, byte[] cbor, byte[] smile) {
+        this.version = version;
+        this.entityTag = entityTag;
+        this.json = json;
+        this.cbor = cbor;
+        this.smile = smile;
+    }//end constructor
+
+    /**
+     * Serializes the given {@code rates} using the given {@code mapper}, {@code cborMapper} and {@code smileMapper}.
+     *
+     * @param version the rate version being serialized
+     * @param rates the rates to serialize
+     * @param mapper the mapper used to write the JSON
+     * @param cborMapper the mapper used to write the CBOR
+     * @param smileMapper the mapper used to write the Smile
+     * @return the SerializedRates instance
+     * @throws IOException if the rates can not be serialized
+     */
+    public static SerializedRates create(long version, RateModel rates, ObjectMapper mapper, ObjectMapper cborMapper, ObjectMapper smileMapper) throws IOException {
+        byte[] json = mapper.writeValueAsBytes(rates);
+        return new SerializedRates(version, digest(json), json, cborMapper.writeValueAsBytes(rates), smileMapper.writeValueAsBytes(rates));
+    }//end method
+
+    /**
+     * Gets the body of the requested representation, compressing it the first time it is asked for.
+     *
+     * @param format {@link #JSON}, {@link #CBOR} or {@link #SMILE}
+     * @param encoding {@link #GZIP}, {@link #DEFLATE} or null for the plain bytes
+     * @return the body, the returned array is shared and must not be modified
+     */
+    public byte[] getBody(String format, String encoding) {
+        byte[] plain = getPlain(format);
+        if(encoding == null) {
+            return plain;
+        }//end if
+        return compressedBodies.computeIfAbsent(format + "-" + encoding, key -> compress(plain, encoding));
+    }//end method
+
+    /**
+     * Helper method used to get the plain bytes of the given {@code format}.
+     *
+     * @param format {@link #JSON}, {@link #CBOR} or {@link #SMILE}
+     * @return the plain bytes
+     */
+    private byte[] getPlain(String format) {
+        if(JSON.equals(format)) {
+            return json;
+        }else if(CBOR.equals(format)) {
+            return cbor;
+        }else if(SMILE.equals(format)) {
+            return smile;
+        }//end if
+        throw new IllegalArgumentException("Unsupported format " + format);
+    }//end method
+
+    /**
+     * Helper method used to compress the given {@code bytes} with the given {@code encoding}.
+     *
+     * @param bytes the bytes to compress
+     * @param encoding {@link #GZIP} or {@link #DEFLATE}
+     * @return the compressed bytes
+     */
+    private static byte[] compress(byte[] bytes, String encoding) {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(bytes.length / 4 + 64);
+        try {
+            if(GZIP.equals(encoding)) {
+                try(GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+                    out.write(bytes);
+                }//end try
+            }else if(DEFLATE.equals(encoding)) {
+                try(DeflaterOutputStream out = new DeflaterOutputStream(compressed)) {
+                    out.write(bytes);
+                }//end try
+            }else {
+                throw new IllegalArgumentException("Unsupported content encoding " + encoding);
+            }//end if
+        }catch(IOException e) {//never thrown by a ByteArrayOutputStream
+            throw new UncheckedIOException(e);
+        }//end try...catch
+        return compressed.toByteArray();
+    }//end method
+
+    /**
+     * Helper method used to create a hex digest of the given {@code bytes}.
+     *
+     * @param bytes the bytes to digest
+     * @return the first 128 bits of the SHA-256 digest as hex
+     */
+    private static String digest(byte[] bytes) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(bytes);
+            StringBuilder builder = new StringBuilder(32);
+            for(int i = 0;i < 16;i++) {
+                builder.append(Character.forDigit((hash[i] >> 4) & 0xF, 16)).append(Character.forDigit(hash[i] & 0xF, 16));
+            }//end for
+            return builder.toString();
+        }catch(NoSuchAlgorithmException e) {//every JRE is required to provide SHA-256
+            throw new IllegalStateException(e);
+        }//end try...catch
+    }//end method
+
+    /**
+     * @return the rate version that was serialized
+     */
+    public long getVersion() {
+        return version;
+    }//end method
+
+    /**
+     * @param format {@link #JSON}, {@link #CBOR} or {@link #SMILE}
+     * @param encoding {@link #GZIP}, {@link #DEFLATE} or null for the plain bytes
+     * @return the opaque value of the strong entity tag of the requested representation
+     */
+    public String getEntityTag(String format, String encoding) {
+        return entityTag + (JSON.equals(format) ? "" : "-" + format) + (encoding == null ? "" : "-" + encoding);
+    }//end method
+
+    /**
+     * The returned array is shared and must not be modified.
+     *
+     * @return the plain JSON bytes
+     */
+    public byte[] getJson() {
+        return json;
+    }//end method
+
+    /**
+     * The returned array is shared and must not be modified.
+     *
+     * @return the CBOR bytes
+     */
+    public byte[] getCbor() {
+        return cbor;
+    }//end method
+
+    /**
+     * The returned array is shared and must not be modified.
+     *
+     * @return the Smile bytes
+     */
+    public byte[] getSmile() {
+        return smile;
+    }//end method
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("SerializedRates [version=");
+        builder.append(version);
+        builder.append(", entityTag=");
+        builder.append(entityTag);
+        builder.append(", json=");
+        builder.append(json.length);
+        builder.append(" bytes, cbor=");
+        builder.append(cbor.length);
+        builder.append(" bytes, smile=");
+        builder.append(smile.length);
+        builder.append(" bytes, compressed=");
+        builder.append(compressedBodies.keySet());
+        builder.append("]");
+        return builder.toString();
+    }//end method
+
+}//end class
@@ -3,6 +3,7 @@ package org.unlockedlabs.pkrates.ws.api.rates;
 import java.io.Serializable;
 import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
+import java.util.Objects;
 
 /**
  * The class TimeRange used to encapsulate start time and end time.
@@ -79,6 +80,25 @@ public class TimeRange implements Serializable {
         this.endTm = endTm;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int hashCode() {
+        return Objects.hash(startTm, endTm);
+    }// end method
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if(this == obj){
+            return true;
+        }// end if
+        return obj instanceof TimeRange && Objects.equals(startTm, ((TimeRange) obj).startTm) && Objects.equals(endTm, ((TimeRange) obj).endTm);
+    }// end method
+
     /**
      * {@inheritDoc}
      */
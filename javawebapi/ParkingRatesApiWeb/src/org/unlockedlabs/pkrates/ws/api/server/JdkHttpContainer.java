@@ -0,0 +1,315 @@
+/**
+ *
+ */
+package org.unlockedlabs.pkrates.ws.api.server;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.security.Principal;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.ws.rs.core.Application;
+import javax.ws.rs.core.SecurityContext;
+
+import org.apache.log4j.Logger;
+import org.glassfish.jersey.internal.MapPropertiesDelegate;
+import org.glassfish.jersey.server.ApplicationHandler;
+import org.glassfish.jersey.server.ContainerException;
+import org.glassfish.jersey.server.ContainerRequest;
+import org.glassfish.jersey.server.ContainerResponse;
+import org.glassfish.jersey.server.ResourceConfig;
+import org.glassfish.jersey.server.spi.Container;
+import org.glassfish.jersey.server.spi.ContainerResponseWriter;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import gov.doc.isu.filters.HttpRequestFilter;
+import gov.doc.isu.metrics.MetricsRegistry;
+
+/**
+ * Jersey container serving a JAX-RS application on the JDK's built-in {@code HttpServer}, used to run the web service without a servlet container.
+ *
+ * <p>Each exchange is turned into a {@link ContainerRequest} and handled by the {@link ApplicationHandler}. The response is written back to the
+ * exchange, from another thread for a suspended request, and the exchange is closed once the response has been committed. A response with a known
+ * length is sent with a {@code Content-Length} header, any other is sent chunked.</p>
+ *
+ * <p>As there is no {@link HttpRequestFilter} in front of the application, the container records the latency of each request by route and status
+ * within the {@link MetricsRegistry} itself.</p>
+ *
+ * @author Richard Salas
+ * @version 1.0.0
+ */
+public class JdkHttpContainer implements Container, HttpHandler {
+
+    private static final Logger myLogger = Logger.getLogger("org.unlockedlabs.pkrates.ws.api.server.JdkHttpContainer");
+
+    /**
+     * Security context of every request as the web service does not authenticate its users.
+     */
+    private static final SecurityContext ANONYMOUS = new SecurityContext() {
+
+        @Override
+        public Principal getUserPrincipal() {
+            return null;
+        }//end method
+
+        @Override
+        public boolean isUserInRole(String role) {
+            return false;
+        }//end method
+
+        @Override
+        public boolean isSecure() {
+            return false;
+        }//end method
+
+        @Override
+        public String getAuthenticationScheme() {
+            return null;
+        }//end method
+    };
+
+    private final ScheduledExecutorService timeouts = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "pkrates-http-timeouts");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final MetricsRegistry metrics = MetricsRegistry.getInstance();
+    private volatile ApplicationHandler appHandler;
+
+    /**
+     * Constructor used to create an instance of JdkHttpContainer initializing Jersey with the given {@code application}.
+     *
+     * @param application the application to serve
+     */
+    public JdkHttpContainer(Application application) {
+        this.appHandler = new ApplicationHandler(application);
+    }//end constructor
+
+    /**
+     * Notifies the application that the container has been started, which starts the parking rate store.
+     */
+    public void start() {
+        appHandler.onStartup(this);
+    }//end method
+
+    /**
+     * Notifies the application that the container has been shut down, which stops the parking rate store and the request executors.
+     */
+    public void shutdown() {
+        appHandler.onShutdown(this);
+        timeouts.shutdownNow();
+    }//end method
+
+    /**
+     * Handles the given {@code exchange} using the application.
+     *
+     * @param exchange the HTTP exchange to handle
+     * @throws IOException if the exchange can not be answered
+     */
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        if(myLogger.isDebugEnabled()){
+            myLogger.debug("Entering handle() method used for handling an HTTP exchange. Incoming parameter is exchange=" + exchange.getRequestMethod() + " " + exchange.getRequestURI());
+        }//end if
+
+        URI baseUri = getBaseUri(exchange);
+        ContainerRequest request = new ContainerRequest(baseUri, URI.create(baseUri + exchange.getRequestURI().toString().substring(1)), exchange.getRequestMethod(), ANONYMOUS, new MapPropertiesDelegate());
+        for(Map.Entry<String, List<String>> header : exchange.getRequestHeaders().entrySet()) {
+            request.headers(header.getKey(), header.getValue());
+        }//end for
+        request.setEntityStream(exchange.getRequestBody());
+        ResponseWriter writer = new ResponseWriter(exchange, request, System.nanoTime());
+        request.setWriter(writer);
+        metrics.requestStarted();
+        try {
+            appHandler.handle(request);
+        }catch(RuntimeException e) {
+            writer.failure(e);
+        }//end try...catch
+
+        if(myLogger.isDebugEnabled()){
+            myLogger.debug("Exiting handle() method. No return value.");
+        }//end if
+    }//end method
+
+    /**
+     * Helper method used to build the base URI of the application from the {@code Host} header of the given {@code exchange}.
+     *
+     * @param exchange the HTTP exchange
+     * @return the base URI ending with a slash
+     */
+    private static URI getBaseUri(HttpExchange exchange) {
+        String host = exchange.getRequestHeaders().getFirst("Host");
+        if(host == null || host.isEmpty()) {
+            host = exchange.getLocalAddress().getHostString() + ":" + exchange.getLocalAddress().getPort();
+        }//end if
+        return URI.create("http://" + host + "/");
+    }//end method
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ResourceConfig getConfiguration() {
+        return appHandler.getConfiguration();
+    }//end method
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ApplicationHandler getApplicationHandler() {
+        return appHandler;
+    }//end method
+
+    /**
+     * Reloads the container using the current configuration.
+     */
+    @Override
+    public void reload() {
+        reload(getConfiguration());
+    }//end method
+
+    /**
+     * Reloads the container using the given {@code configuration}.
+     *
+     * @param configuration the new configuration
+     */
+    @Override
+    public void reload(ResourceConfig configuration) {
+        appHandler.onShutdown(this);
+        appHandler = new ApplicationHandler(configuration);
+        appHandler.onReload(this);
+        appHandler.onStartup(this);
+    }//end method
+
+    /**
+     * Writes the response of a single request to its exchange.
+     */
+    private final class ResponseWriter implements ContainerResponseWriter {
+
+        private final HttpExchange exchange;
+        private final ContainerRequest request;
+        private final long startNanos;
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private volatile int status = 500;//reported if the request fails before its headers are written
+        private volatile boolean headersSent;
+        private volatile ScheduledFuture<?> timeout;
+        private volatile TimeoutHandler timeoutHandler;
+
+        /**
+         * Constructor used to create an instance of ResponseWriter.
+         *
+         * @param exchange the exchange to write to
+         * @param request the request being answered
+         * @param startNanos the nano time the request started
+         */
+        ResponseWriter(HttpExchange exchange, ContainerRequest request, long startNanos) {
+            this.exchange = exchange;
+            this.request = request;
+            this.startNanos = startNanos;
+        }//end constructor
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public OutputStream writeResponseStatusAndHeaders(long contentLength, ContainerResponse response) throws ContainerException {
+            Headers headers = exchange.getResponseHeaders();
+            for(Map.Entry<String, List<String>> header : response.getStringHeaders().entrySet()) {
+                headers.put(header.getKey(), header.getValue());
+            }//end for
+            status = response.getStatus();
+            boolean noBody = contentLength == 0L || status == 204 || status == 304 || "HEAD".equals(request.getMethod());
+            try {
+                exchange.sendResponseHeaders(status, noBody ? -1L : contentLength < 0L ? 0L : contentLength);//-1 sends no body, 0 sends chunked
+                headersSent = true;
+            }catch(IOException e) {
+                throw new ContainerException("Unable to send the response headers.", e);
+            }//end try...catch
+            return exchange.getResponseBody();
+        }//end method
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean suspend(long timeOut, TimeUnit timeUnit, TimeoutHandler timeoutHandler) {
+            this.timeoutHandler = timeoutHandler;
+            setSuspendTimeout(timeOut, timeUnit);
+            return true;
+        }//end method
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void setSuspendTimeout(long timeOut, TimeUnit timeUnit) {
+            ScheduledFuture<?> previous = timeout;
+            if(previous != null) {
+                previous.cancel(false);
+            }//end if
+            timeout = timeOut <= 0L ? null : timeouts.schedule(() -> timeoutHandler.onTimeout(this), timeOut, timeUnit);//zero never times out
+        }//end method
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void commit() {
+            close();
+        }//end method
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void failure(Throwable error) {
+            myLogger.error("Exception occurred while handling the request. Values of interest are: method=" + request.getMethod() + "; uri=" + request.getRequestUri() + "; Error message is: " + error.getMessage(), error);
+            try {
+                if(!headersSent) {
+                    status = 500;
+                    exchange.sendResponseHeaders(status, -1L);
+                }//end if
+            }catch(IOException e) {
+                myLogger.warn("Unable to send the failure response. Error message is: " + e.getMessage());
+            }finally {
+                close();
+            }//end try...catch
+        }//end method
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean enableResponseBuffering() {
+            return true;//lets Jersey send the Content-Length of small responses
+        }//end method
+
+        /**
+         * Helper method used to close the exchange once and record the request.
+         */
+        private void close() {
+            if(closed.compareAndSet(false, true)) {
+                ScheduledFuture<?> pending = timeout;
+                if(pending != null) {
+                    pending.cancel(false);
+                }//end if
+                exchange.close();
+                metrics.requestCompleted((String) request.getProperty(HttpRequestFilter.ROUTE_ATTRIBUTE), status, System.nanoTime() - startNanos);
+            }//end if
+        }//end method
+
+    }//end inner class
+
+}//end class
@@ -0,0 +1,162 @@
+/**
+ *
+ */
+package org.unlockedlabs.pkrates.ws.api.server;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+import org.glassfish.jersey.CommonProperties;
+import org.glassfish.jersey.server.ServerProperties;
+import org.unlockedlabs.pkrates.ws.api.core.Application;
+
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Launcher serving the parking rates web service on the JDK's built-in {@code HttpServer}, without deploying the WAR to a servlet container.
+ *
+ * <p>The same {@link Application} is served as within the servlet container, its resources and providers are registered explicitly so Jersey does
+ * not scan the classpath. Jersey feature auto discovery, {@code META-INF/services} lookup, WADL and bean validation are disabled as the application
+ * uses none of them. The time taken by each startup phase is logged: building the configuration, initializing Jersey, starting the parking rate
+ * store, which loads the rates and builds the rate index, and binding the HTTP server.</p>
+ *
+ * <p>The server is configured with the same system properties as the web application, such as {@code INIT.jsonFilePath}, along with the
+ * {@code HTTP.host}, {@code HTTP.port}, 8080 by default, {@code HTTP.threads} and {@code HTTP.backlog} system properties. {@code TCP_NODELAY} is enabled
+ * unless the {@code sun.net.httpserver.nodelay} system property says otherwise. For example
+ * {@code java -DINIT.jsonFilePath=Rates.json -cp "classes:lib/*" org.unlockedlabs.pkrates.ws.api.server.StandaloneServer}. The server is stopped
+ * gracefully on shutdown of the JVM.</p>
+ *
+ * @author Richard Salas
+ * @version 1.0.0
+ */
+public final class StandaloneServer {
+
+    private static final Logger myLogger = Logger.getLogger("org.unlockedlabs.pkrates.ws.api.server.StandaloneServer");
+
+    private final HttpServer httpServer;
+    private final JdkHttpContainer container;
+    private final ExecutorService httpExecutor;
+
+    /**
+     * Constructor used to create an instance of StandaloneServer.
+     *
+     * @param httpServer the bound HTTP server
+     * @param container the container serving the application
+     * @param httpExecutor the executor of the HTTP server
+     */
+    private StandaloneServer(HttpServer httpServer, JdkHttpContainer container, ExecutorService httpExecutor) {
+        this.httpServer = httpServer;
+        this.container = container;
+        this.httpExecutor = httpExecutor;
+    }//end constructor
+
+    /**
+     * Starts the server using the system properties and keeps it running until the JVM is shut down.
+     *
+     * @param args not used
+     * @throws IOException if the HTTP server can not be bound
+     */
+    public static void main(String[] args) throws IOException {
+        StandaloneServer server = start(System.getProperty("HTTP.host"), Integer.getInteger("HTTP.port", 8080));
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.stop();
+            LogManager.shutdown();
+        }, "pkrates-shutdown"));
+    }//end method
+
+    /**
+     * Starts a server listening on the given {@code host} and {@code port}.
+     *
+     * @param host the host name or address to listen on, or null for all addresses
+     * @param port the port to listen on, or 0 for any free port
+     * @return the started server
+     * @throws IOException if the HTTP server can not be bound
+     */
+    public static StandaloneServer start(String host, int port) throws IOException {
+        if(myLogger.isDebugEnabled()){
+            myLogger.debug("Entering start() method used for starting the standalone server. Incoming parameters are host=" + String.valueOf(host) + "; port=" + port);
+        }//end if
+
+        long startNanos = System.nanoTime();
+        Application application = new Application();
+        application.property(CommonProperties.FEATURE_AUTO_DISCOVERY_DISABLE, true);
+        application.property(CommonProperties.METAINF_SERVICES_LOOKUP_DISABLE, true);
+        application.property(ServerProperties.WADL_FEATURE_DISABLE, true);
+        application.property(ServerProperties.BV_FEATURE_DISABLE, true);
+        long configuredNanos = System.nanoTime();
+
+        JdkHttpContainer container = new JdkHttpContainer(application);//Jersey init
+        long initializedNanos = System.nanoTime();
+
+        container.start();//rate load and index build
+        long storeStartedNanos = System.nanoTime();
+
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService httpExecutor = Executors.newFixedThreadPool(Integer.getInteger("HTTP.threads", Runtime.getRuntime().availableProcessors() * 2), runnable -> {
+            Thread thread = new Thread(runnable, "pkrates-http-" + threadCount.incrementAndGet());
+            thread.setDaemon(false);//keeps the JVM running
+            return thread;
+        });
+        if(System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");//small responses otherwise wait out the delayed ack of the client
+        }//end if
+        HttpServer httpServer;
+        try {
+            httpServer = HttpServer.create(host == null || host.trim().isEmpty() ? new InetSocketAddress(port) : new InetSocketAddress(host.trim(), port), Integer.getInteger("HTTP.backlog", 0));
+        }catch(IOException e) {
+            myLogger.error("IOException occurred during an attempt to bind the HTTP server. Values of interest are: host=" + String.valueOf(host) + "; port=" + port + "; Error message is: " + e.getMessage(), e);
+            container.shutdown();
+            httpExecutor.shutdown();
+            throw e;
+        }//end try...catch
+        httpServer.createContext("/", container);
+        httpServer.setExecutor(httpExecutor);
+        httpServer.start();
+        long boundNanos = System.nanoTime();
+
+        StandaloneServer server = new StandaloneServer(httpServer, container, httpExecutor);
+        myLogger.info("Started the parking rates web service on " + httpServer.getAddress() + " in " + (boundNanos - startNanos) / 1000000L + " ms: configuration " + (configuredNanos - startNanos) / 1000000L + " ms, Jersey init " + (initializedNanos - configuredNanos) / 1000000L + " ms, rate store start " + (storeStartedNanos - initializedNanos) / 1000000L + " ms, HTTP server " + (boundNanos - storeStartedNanos) / 1000000L + " ms");
+
+        if(myLogger.isDebugEnabled()){
+            myLogger.debug("Exiting start() method. Return value is server=" + String.valueOf(server));
+        }//end if
+        return server;
+    }//end method
+
+    /**
+     * Stops the server, waiting up to a second for the exchanges in progress, then shuts the application down.
+     */
+    public void stop() {
+        myLogger.info("Stopping the parking rates web service on " + httpServer.getAddress());
+        httpServer.stop(1);
+        container.shutdown();
+        httpExecutor.shutdown();
+    }//end method
+
+    /**
+     * Gets the address the server is listening on.
+     *
+     * @return the bound address
+     */
+    public InetSocketAddress getAddress() {
+        return httpServer.getAddress();
+    }//end method
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("StandaloneServer [address=");
+        builder.append(httpServer.getAddress());
+        builder.append("]");
+        return builder.toString();
+    }//end method
+
+}//end class
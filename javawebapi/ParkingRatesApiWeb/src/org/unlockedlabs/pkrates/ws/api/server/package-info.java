@@ -0,0 +1,4 @@
+/**
+ * Provides the standalone launcher serving the web service on the JDK built-in HTTP server.
+ */
+package org.unlockedlabs.pkrates.ws.api.server;
@@ -7,7 +7,6 @@ import javax.servlet.ServletContextEvent;
 import javax.servlet.ServletContextListener;
 
 import org.apache.log4j.LogManager;
-import org.unlockedlabs.pkrates.ws.api.rates.ParkingRateMemDAO;
 
 /**
  * This ApplicationContextListener class is for receiving notification events about ServletContext lifecycle changes.
@@ -40,12 +39,11 @@ public class ApplicationContextListener implements ServletContextListener {
     /**
      * Receives notification that the web application initialization process is starting.
      * <p>All ServletContextListeners are notified of context initialization before any filters or servlets in the web application are initialized.</p>
+     * <p>The parking rates are no longer loaded here. They are loaded by the container managed parking rate store once Jersey has started, see {@code org.unlockedlabs.pkrates.ws.api.core.Application}.</p>
      * @param sce the ServletContextEvent containing the ServletContext that is being initialized
      */
     public void contextInitialized(ServletContextEvent sce) {
         System.out.println("Entering contextInitialized");
-        // need to initialize the in-memory db (list).
-        new ParkingRateMemDAO();
         System.out.println("Exiting contextInitialized");
     }//end method
 